@@ -24,6 +24,7 @@ import org.opensbpm.engine.api.events.ProcessInstanceChangedEvent;
 import org.opensbpm.engine.api.events.ProcessModelChangedEvent;
 import org.opensbpm.engine.api.events.ProviderTaskChangedEvent;
 import org.opensbpm.engine.api.events.RoleChangedEvent;
+import org.opensbpm.engine.api.events.RoleProcessModelChangedEvent;
 import org.opensbpm.engine.api.events.RoleUserChangedEvent;
 import org.opensbpm.engine.api.events.UserChangedEvent;
 import org.opensbpm.engine.api.events.UserProcessInstanceChangedEvent;
@@ -83,6 +84,22 @@ public final class EngineEventMatcher {
         );
     }
 
+    /**
+     * creates a matcher that matches when the examined object is a {@link RoleProcessModelChangedEvent} with the given roleId and type.
+     * For example:
+     * <pre>assertThat(new RoleProcessModelChangedEvent(1l,ProcessModelInfo,Type.CREATE), isRoleProcessModelChangedEvent(1l, Type.CREATE));</pre>
+     *
+     * @param roleId id of RoleProcessModelChangedEvent (see {@link RoleProcessModelChangedEvent#getRoleId()})
+     * @param type type of RoleProcessModelChangedEvent (see {@link RoleProcessModelChangedEvent#getType()})
+     * @return a {@link Matcher} with given parameters
+     */
+    public static <T extends EngineEvent<? extends Serializable>> Matcher<T> isRoleProcessModelChangedEvent(Long roleId, Type type) {
+        return allOf(instanceOf(RoleProcessModelChangedEvent.class),
+                isType(RoleProcessModelChangedEvent.class, type),
+                value(RoleProcessModelChangedEvent.class, RoleProcessModelChangedEvent::getRoleId, is(roleId))
+        );
+    }
+
     /**
      * creates a matcher that matches when the examined object is a {@link UserChangedEvent} with the given userName and type.
      * For example:
@@ -139,7 +156,9 @@ public final class EngineEventMatcher {
      *
      * @param userId id of UserProcessModelChangedEvent (see {@link UserProcessModelChangedEvent#userId})
      * @return a {@link Matcher} with given parameters
+     * @deprecated the engine doesn't publish {@link UserProcessModelChangedEvent}s anymore
      */
+    @Deprecated
     public static <T extends EngineEvent<? extends Serializable>> Matcher<T> isUserProcessModelChangedEvent(Long userId) {
         return allOf(
                 instanceOf(UserProcessModelChangedEvent.class),
@@ -154,7 +173,9 @@ public final class EngineEventMatcher {
      *
      * @param type type of UserProcessModelChangedEvent (see {@link UserProcessModelChangedEvent#getType()})
      * @return a {@link Matcher} with given parameters
+     * @deprecated the engine doesn't publish {@link UserProcessModelChangedEvent}s anymore
      */
+    @Deprecated
     public static <T extends EngineEvent<? extends Serializable>> Matcher<T> isUserProcessModelChangedEvent(Type type) {
         return allOf(
                 instanceOf(UserProcessModelChangedEvent.class),
@@ -170,7 +191,9 @@ public final class EngineEventMatcher {
      * @param userId id of UserProcessModelChangedEvent (see {@link UserProcessModelChangedEvent#userId})
      * @param type type of UserProcessModelChangedEvent (see {@link UserProcessModelChangedEvent#getType()})
      * @return a {@link Matcher} with given parameters
+     * @deprecated the engine doesn't publish {@link UserProcessModelChangedEvent}s anymore
      */
+    @Deprecated
     public static <T extends EngineEvent<? extends Serializable>> Matcher<T> isUserProcessModelChangedEvent(Long userId, Type type) {
         return allOf(
                 instanceOf(UserProcessModelChangedEvent.class),
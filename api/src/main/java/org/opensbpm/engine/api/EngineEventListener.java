@@ -19,6 +19,7 @@ package org.opensbpm.engine.api;
 import org.opensbpm.engine.api.events.ProcessInstanceChangedEvent;
 import org.opensbpm.engine.api.events.ProcessModelChangedEvent;
 import org.opensbpm.engine.api.events.RoleChangedEvent;
+import org.opensbpm.engine.api.events.RoleProcessModelChangedEvent;
 import org.opensbpm.engine.api.events.RoleUserChangedEvent;
 import org.opensbpm.engine.api.events.UserChangedEvent;
 import org.opensbpm.engine.api.events.UserProcessInstanceChangedEvent;
@@ -33,12 +34,20 @@ public interface EngineEventListener {
 
     void handleRoleChangedEvent(RoleChangedEvent changedEvent);
 
+    default void handleRoleProcessModelChangedEvent(RoleProcessModelChangedEvent changedEvent) {
+    }
+
     void handleRoleUserChangedEvent(RoleUserChangedEvent changedEvent);
 
     void handleUserChangedEvent(UserChangedEvent changedEvent);
 
     void handleUserProcessInstanceChangedEvent(UserProcessInstanceChangedEvent changedEvent);
 
+    /**
+     * @deprecated the engine publishes {@link RoleProcessModelChangedEvent}s instead, see
+     * {@link #handleRoleProcessModelChangedEvent(RoleProcessModelChangedEvent)}
+     */
+    @Deprecated
     void handleUserProcessModelChangedEvent(UserProcessModelChangedEvent changedEvent);
 
     void handleUserTaskChangedEvent(UserTaskChangedEvent changedEvent);
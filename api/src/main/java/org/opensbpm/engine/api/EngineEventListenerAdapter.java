@@ -19,6 +19,7 @@ package org.opensbpm.engine.api;
 import org.opensbpm.engine.api.events.ProcessInstanceChangedEvent;
 import org.opensbpm.engine.api.events.ProcessModelChangedEvent;
 import org.opensbpm.engine.api.events.RoleChangedEvent;
+import org.opensbpm.engine.api.events.RoleProcessModelChangedEvent;
 import org.opensbpm.engine.api.events.RoleUserChangedEvent;
 import org.opensbpm.engine.api.events.UserChangedEvent;
 import org.opensbpm.engine.api.events.UserProcessInstanceChangedEvent;
@@ -39,6 +40,10 @@ public abstract class EngineEventListenerAdapter implements EngineEventListener
     public void handleRoleChangedEvent(RoleChangedEvent changedEvent) {
     }
 
+    @Override
+    public void handleRoleProcessModelChangedEvent(RoleProcessModelChangedEvent changedEvent) {
+    }
+
     @Override
     public void handleRoleUserChangedEvent(RoleUserChangedEvent changedEvent) {
     }
@@ -51,6 +56,7 @@ public abstract class EngineEventListenerAdapter implements EngineEventListener
     public void handleUserProcessInstanceChangedEvent(UserProcessInstanceChangedEvent changedEvent) {
     }
 
+    @Deprecated
     @Override
     public void handleUserProcessModelChangedEvent(UserProcessModelChangedEvent changedEvent) {
     }
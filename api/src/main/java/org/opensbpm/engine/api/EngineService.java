@@ -31,6 +31,8 @@ import org.opensbpm.engine.api.instance.TaskRequest;
 import org.opensbpm.engine.api.instance.TaskResponse;
 import org.opensbpm.engine.api.instance.UserToken;
 import org.opensbpm.engine.api.model.ProcessModelInfo;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 /**
  * Service interface to query and execute user specific SBPM processes
@@ -70,7 +72,20 @@ public interface EngineService {
      */
     Collection<ProcessInfo> findAllByUserAndState(UserToken userToken, ProcessInstanceState state)
             throws UserNotFoundException;
-    //TODO add find-method with SearchFilter
+
+    /**
+     * Find a page of all processes of the given user matching the given filter.
+     * The keys of the filter are the keys of {@link InstanceService#find(SearchFilter, Pageable)}.
+     *
+     * @param userToken
+     * @param searchFilter filter of the processes, all criterias must match
+     * @param pageable page to find; newest processes first if unsorted
+     * @return the requested page
+     * @throws UserNotFoundException
+     * @throws IllegalArgumentException if a key is unknown or a value can't be converted
+     */
+    Page<ProcessInfo> findProcesses(UserToken userToken, SearchFilter searchFilter, Pageable pageable)
+            throws UserNotFoundException;
 
     /**
      * Retrieve an overview of all executable tasks.
@@ -81,6 +96,27 @@ public interface EngineService {
      */
     List<TaskInfo> getTasks(UserToken userToken) throws UserNotFoundException;
 
+    /**
+     * Retrieve a page of the executable tasks matching the given filter.
+     * <p>
+     * Supported keys are {@code id}, {@code processId}, {@code process} (name of
+     * the process model), {@code subject} (name of the subject model) and
+     * {@code startTime} (of the process). A key {@code object.attribute} matches
+     * the value of an indexed attribute of an object of the process.
+     * <p>
+     * The page is selected before subjects without a visible state are skipped,
+     * so it may contain less tasks than requested.
+     *
+     * @param userToken
+     * @param searchFilter filter of the tasks, all criterias must match
+     * @param pageable page to find; oldest tasks first if unsorted
+     * @return the requested page
+     * @throws UserNotFoundException
+     * @throws IllegalArgumentException if a key is unknown or a value can't be converted
+     */
+    Page<TaskInfo> findTasks(UserToken userToken, SearchFilter searchFilter, Pageable pageable)
+            throws UserNotFoundException;
+
     /**
      * Retrieve all necessary data to execute the task.
      *
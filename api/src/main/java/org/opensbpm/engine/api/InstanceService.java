@@ -19,21 +19,103 @@ package org.opensbpm.engine.api;
 
 import java.util.Collection;
 import java.util.Set;
+import org.opensbpm.engine.api.SearchFilter.Criteria.Operation;
 import org.opensbpm.engine.api.instance.AuditTrail;
 import org.opensbpm.engine.api.instance.ProcessInfo;
 import org.opensbpm.engine.api.instance.ProcessInstanceState;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 
 public interface InstanceService {
 
-    //TODO add find-method with SearchFilter
+    /**
+     * Find all process instances in the given states. The instances are read
+     * window by window, but all of them are returned at once.
+     *
+     * @param states states of the process instances
+     * @return all process instances in the given states
+     * @deprecated the result grows with the number of process instances; use
+     * {@link #findAllByStates(Set, ScrollPosition, int)} instead
+     */
+    @Deprecated
     Collection<ProcessInfo> findAllByStates(Set<ProcessInstanceState> states);
+
+    /**
+     * Find the next window of process instances in the given states, ordered
+     * by start time and id. The window is sought by the keyset of the given
+     * position, so scrolling through millions of instances keeps a constant
+     * cost per window.
+     *
+     * @param states states of the process instances
+     * @param position {@link ScrollPosition#keyset()} for the first window,
+     * otherwise {@link Window#positionAt(int)} of the last element of the
+     * previous window
+     * @param limit maximum number of process instances in the window
+     * @return the next window of process instances
+     */
+    Window<ProcessInfo> findAllByStates(Set<ProcessInstanceState> states, ScrollPosition position, int limit);
+
+    /**
+     * Find a page of all process instances matching the given filter.
+     * <p>
+     * Supported keys are {@code id}, {@code state}, {@code startTime},
+     * {@code endTime}, {@code model} (name of the process model) and
+     * {@code startUser} (name of the user). A key {@code object.attribute}
+     * matches the value of an indexed attribute of an object.
+     *
+     * @param searchFilter filter of the process instances, all criterias must match
+     * @param pageable page to find; newest process instances first if unsorted
+     * @return the requested page
+     * @throws IllegalArgumentException if a key is unknown or a value can't be converted
+     */
+    Page<ProcessInfo> find(SearchFilter searchFilter, Pageable pageable);
     
+    /**
+     * Find all process instances by the value of an indexed attribute of their
+     * objects. Only the index of the attribute values is searched.
+     *
+     * @param objectName name of the object
+     * @param attributeName name of the indexed attribute, may be nested in the object
+     * @param operation comparison of the attribute value with the given value
+     * @param value value to compare with; strings are converted to the type of the attribute
+     * @return all matching process instances, empty if the attribute is not indexed
+     * @throws IllegalArgumentException if the value can't be converted to the type of the attribute
+     */
+    Collection<ProcessInfo> findAllByAttribute(String objectName, String attributeName, Operation operation, Object value);
+
     ProcessInfo findById(ProcessRequest processRequest) throws ProcessNotFoundException;
 
     ProcessInfo stopProcess(ProcessRequest processRequest) throws ProcessNotFoundException;
 
+    /**
+     * Find the whole audit trail of a process instance. The trail is read
+     * window by window, but returned at once.
+     *
+     * @param processRequest the process instance
+     * @return the audit trail, ordered by time of modification and id
+     * @throws ProcessNotFoundException if the process instance doesn't exist
+     * @deprecated the result grows with the audit trail; use
+     * {@link #getAuditTrail(ProcessRequest, ScrollPosition, int)} instead
+     */
+    @Deprecated
     Collection<AuditTrail> getAuditTrail(ProcessRequest processRequest) throws ProcessNotFoundException;
 
+    /**
+     * Find the next window of the audit trail of a process instance, ordered
+     * by time of modification and id.
+     *
+     * @param processRequest the process instance
+     * @param position {@link ScrollPosition#keyset()} for the first window,
+     * otherwise {@link Window#positionAt(int)} of the last element of the
+     * previous window
+     * @param limit maximum number of audit trails in the window
+     * @return the next window of the audit trail
+     * @throws ProcessNotFoundException if the process instance doesn't exist
+     */
+    Window<AuditTrail> getAuditTrail(ProcessRequest processRequest, ScrollPosition position, int limit) throws ProcessNotFoundException;
+
     public static interface ProcessRequest {
 
         /**
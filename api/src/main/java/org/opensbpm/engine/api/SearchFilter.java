@@ -50,8 +50,16 @@ public class SearchFilter {
         }
     }
 
-    private static final Pattern FILTER_PATTERN = Pattern.compile("(\\w+?)(:|<|>)(\\w+?),");
-
+    private static final Pattern FILTER_PATTERN = Pattern.compile("([\\w.]+?)(>=|<=|:|<|>)([^,]*),");
+
+    /**
+     * Parses a filter of comma separated criterias {@code key operator value},
+     * e.g. {@code state:ACTIVE,startTime>=2020-01-01}. A key may contain dots,
+     * a value anything but a comma.
+     *
+     * @param filter filter as returned by {@link #toString()}
+     * @return the parsed filter; criterias not matching the syntax are ignored
+     */
     public static SearchFilter valueOf(String filter) {
         SearchFilterBuilder builder = new SearchFilterBuilder();
         Matcher matcher = FILTER_PATTERN.matcher(filter + ",");
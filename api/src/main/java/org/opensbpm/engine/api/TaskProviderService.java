@@ -19,6 +19,8 @@ package org.opensbpm.engine.api;
 import java.util.Collection;
 import org.opensbpm.engine.api.taskprovider.TaskProviderInfo;
 import org.opensbpm.engine.api.taskprovider.TaskProviderInfo.ProviderResource;
+import org.opensbpm.engine.api.taskprovider.TaskProviderLimits;
+import org.opensbpm.engine.api.taskprovider.TaskProviderStatistics;
 
 public interface TaskProviderService {
 
@@ -28,4 +30,19 @@ public interface TaskProviderService {
 
     void addResource(TaskProviderInfo taskProviderInfo, ProviderResource providerResource);
 
+    /**
+     * @param taskProviderInfo provider to retrieve the statistics of
+     * @return the limits and metrics of the bulkhead of the provider
+     */
+    TaskProviderStatistics getStatistics(TaskProviderInfo taskProviderInfo);
+
+    /**
+     * Changes the limits of the bulkhead of the provider at runtime. Tasks
+     * already waiting for execution keep waiting.
+     *
+     * @param taskProviderInfo provider to change the limits of
+     * @param limits new limits
+     */
+    void updateLimits(TaskProviderInfo taskProviderInfo, TaskProviderLimits limits);
+
 }
@@ -20,8 +20,24 @@ import org.opensbpm.engine.api.instance.TaskInfo;
 
 public class ProviderTaskChangedEvent extends EngineEvent<TaskInfo> {
 
+    private final int priority;
+
     public ProviderTaskChangedEvent(TaskInfo source, Type type) {
+        this(source, type, 0);
+    }
+
+    /**
+     * @param source task of the service subject
+     * @param type type of the change
+     * @param priority priority of the task; higher values are executed first
+     */
+    public ProviderTaskChangedEvent(TaskInfo source, Type type, int priority) {
         super(source, type);
+        this.priority = priority;
+    }
+
+    public int getPriority() {
+        return priority;
     }
 
 }
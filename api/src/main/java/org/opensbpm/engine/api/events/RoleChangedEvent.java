@@ -18,10 +18,15 @@ package org.opensbpm.engine.api.events;
 
 import org.opensbpm.engine.api.instance.RoleToken;
 
-public class RoleChangedEvent extends EngineEvent<RoleToken> {
+public class RoleChangedEvent extends EngineEvent<RoleToken> implements RoleChanged {
 
     public RoleChangedEvent(RoleToken source, Type type) {
         super(source, type);
     }
 
+    @Override
+    public Long getRoleId() {
+        return getSource().getId();
+    }
+
 }
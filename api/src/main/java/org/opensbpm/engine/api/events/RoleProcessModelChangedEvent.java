@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.opensbpm.engine.api.events;
+
+import org.opensbpm.engine.api.model.ProcessModelInfo;
+
+/**
+ * A process model became startable ({@link Type#CREATE}) or not startable
+ * anymore ({@link Type#DELETE}) for the members of a role.
+ */
+public class RoleProcessModelChangedEvent extends EngineEvent<ProcessModelInfo> implements RoleChanged {
+
+    private final Long roleId;
+
+    public RoleProcessModelChangedEvent(Long roleId, ProcessModelInfo source, Type type) {
+        super(source, type);
+        this.roleId = roleId;
+    }
+
+    @Override
+    public Long getRoleId() {
+        return roleId;
+    }
+
+}
@@ -20,7 +20,12 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.opensbpm.engine.api.instance.UserToken;
 
-public class RoleUserChangedEvent extends EngineEvent<UserToken> {
+/**
+ * A user joined ({@link Type#CREATE}) or left ({@link Type#DELETE}) a role.
+ * The event is addressed to the role and to the user, so the user learns
+ * about a role it didn't receive events of yet.
+ */
+public class RoleUserChangedEvent extends EngineEvent<UserToken> implements RoleChanged, UserChanged {
 
     private final Long roleId;
 
@@ -29,10 +34,16 @@ public class RoleUserChangedEvent extends EngineEvent<UserToken> {
         this.roleId = roleId;
     }
 
+    @Override
     public Long getRoleId() {
         return roleId;
     }
 
+    @Override
+    public Long getUserId() {
+        return getSource().getId();
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
@@ -18,6 +18,11 @@ package org.opensbpm.engine.api.events;
 
 import org.opensbpm.engine.api.model.ProcessModelInfo;
 
+/**
+ * @deprecated the engine publishes a {@link RoleProcessModelChangedEvent} per
+ * starter role instead of this event per user
+ */
+@Deprecated
 public class UserProcessModelChangedEvent extends EngineEvent<ProcessModelInfo> implements UserChanged {
 
     private final Long userId;
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.opensbpm.engine.api.spi;
+
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import org.opensbpm.engine.api.instance.NextState;
+import org.opensbpm.engine.api.instance.Task;
+
+/**
+ * {@link TaskExecutionProvider} which doesn't block while the task is
+ * executed, e.g. by an asynchronous HTTP client.
+ * <p>
+ * The engine doesn't hold a transaction while the returned
+ * {@link CompletionStage} is in flight. When it completes, the result is
+ * applied in a new transaction, but only if the subject wasn't changed in the
+ * meantime.
+ */
+public interface AsyncTaskExecutionProvider extends TaskExecutionProvider {
+
+    /**
+     * Starts the execution of the given task.
+     *
+     * @param parameters parameters of the function state
+     * @param task task to execute
+     * @return completes with the state to switch to, or exceptionally with a
+     * {@link TaskExecutionException} if the task failed
+     */
+    CompletionStage<NextState> executeTaskAsync(Map<String, String> parameters, Task task);
+
+    /**
+     * Executes the task and waits for its result.
+     */
+    @Override
+    default NextState executeTask(Map<String, String> parameters, Task task) throws TaskExecutionException {
+        try {
+            return executeTaskAsync(parameters, task).toCompletableFuture().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TaskExecutionException("execution of task interrupted", ex);
+        } catch (ExecutionException | CompletionException ex) {
+            if (ex.getCause() instanceof TaskExecutionException) {
+                throw (TaskExecutionException) ex.getCause();
+            }
+            throw new TaskExecutionException(ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.opensbpm.engine.api.spi;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.opensbpm.engine.api.instance.NextState;
+import org.opensbpm.engine.api.instance.Task;
+
+/**
+ * {@link TaskExecutionProvider} which executes the pending tasks of the same
+ * function state together, e.g. by one bulk request to an external system.
+ * <p>
+ * The engine collects the tasks of a function state into batches of at most
+ * {@link #getMaxBatchSize()} tasks, or the tasks arrived within a short time
+ * window, and calls {@link #executeTasks(Map, List)} once per batch. The
+ * result of every task is applied separately, so a failed task doesn't affect
+ * the other tasks of the batch.
+ */
+public interface BatchTaskExecutionProvider extends TaskExecutionProvider {
+
+    /**
+     * @return maximal number of tasks passed to one call of {@link #executeTasks(Map, List)}
+     */
+    default int getMaxBatchSize() {
+        return 50;
+    }
+
+    /**
+     * Executes the given tasks of one function state.
+     *
+     * @param parameters parameters of the function state
+     * @param tasks tasks to execute
+     * @return the result of every task, in the order of the given tasks
+     * @throws TaskExecutionException if the whole batch failed
+     */
+    List<TaskResult> executeTasks(Map<String, String> parameters, List<Task> tasks) throws TaskExecutionException;
+
+    /**
+     * Executes a single task as a batch of one task.
+     */
+    @Override
+    default NextState executeTask(Map<String, String> parameters, Task task) throws TaskExecutionException {
+        List<TaskResult> results = executeTasks(parameters, Collections.singletonList(task));
+        if (results.size() != 1) {
+            throw new TaskExecutionException("expected one result, but got " + results.size());
+        }
+        return results.get(0).getNextState();
+    }
+
+    /**
+     * Result of one task of a batch, either the state to switch to or the
+     * failure of the task.
+     */
+    final class TaskResult {
+
+        public static TaskResult of(NextState nextState) {
+            return new TaskResult(Objects.requireNonNull(nextState, "nextState must not be null"), null);
+        }
+
+        public static TaskResult failed(TaskExecutionException failure) {
+            return new TaskResult(null, Objects.requireNonNull(failure, "failure must not be null"));
+        }
+
+        private final NextState nextState;
+        private final TaskExecutionException failure;
+
+        private TaskResult(NextState nextState, TaskExecutionException failure) {
+            this.nextState = nextState;
+            this.failure = failure;
+        }
+
+        public boolean isFailed() {
+            return failure != null;
+        }
+
+        /**
+         * @return the state to switch to
+         * @throws TaskExecutionException the failure of the task
+         */
+        public NextState getNextState() throws TaskExecutionException {
+            if (failure != null) {
+                throw failure;
+            }
+            return nextState;
+        }
+
+        @Override
+        public String toString() {
+            return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                    .append("nextState", nextState)
+                    .append("failure", failure)
+                    .toString();
+        }
+
+    }
+
+}
@@ -41,6 +41,18 @@ public interface TaskExecutionProvider {
         };
     }
 
+    /**
+     * Prepares the execution of a function state when its process model is
+     * deployed, e.g. by compiling a script. Invalid parameters should be
+     * rejected here instead of at the first execution.
+     *
+     * @param parameters parameters of the function state
+     * @throws TaskExecutionException if the function state can't be executed with the given parameters
+     */
+    default void prepareTask(Map<String, String> parameters) throws TaskExecutionException {
+        //noop
+    }
+
     NextState executeTask(Map<String, String> parameters, Task task) throws TaskExecutionException;
 
     interface ResourceService {
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.opensbpm.engine.api.taskprovider;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Limits of the bulkhead of a task provider.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class TaskProviderLimits {
+
+    private int maxConcurrency;
+
+    private int queueCapacity;
+
+    private double ratePerSecond;
+
+    private int burst;
+
+    private long maxWaitMillis;
+
+    public TaskProviderLimits() {
+        //JAXB constructor
+    }
+
+    /**
+     * @param maxConcurrency maximal number of tasks executed at the same time
+     * @param queueCapacity maximal number of tasks waiting for execution; further tasks are rejected
+     * @param ratePerSecond maximal number of task executions started per second; {@code 0} for no limit
+     * @param burst maximal number of task executions started at once, if the rate is limited
+     * @param maxWaitMillis maximal time a task waits for execution, before it is rejected
+     */
+    public TaskProviderLimits(int maxConcurrency, int queueCapacity, double ratePerSecond, int burst, long maxWaitMillis) {
+        if (maxConcurrency < 1 || queueCapacity < 0 || ratePerSecond < 0 || burst < 0 || maxWaitMillis < 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive, other limits not negative");
+        }
+        if (ratePerSecond > 0 && burst < 1) {
+            throw new IllegalArgumentException("burst must be positive if the rate is limited");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .append("maxConcurrency", maxConcurrency)
+                .append("queueCapacity", queueCapacity)
+                .append("ratePerSecond", ratePerSecond)
+                .append("burst", burst)
+                .append("maxWaitMillis", maxWaitMillis)
+                .toString();
+    }
+
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.opensbpm.engine.api.taskprovider;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Metrics of the bulkhead of a task provider.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class TaskProviderStatistics {
+
+    private String name;
+
+    private TaskProviderLimits limits;
+
+    private int activeCount;
+
+    private int waitingCount;
+
+    private long executedCount;
+
+    private long failedCount;
+
+    private long rejectedCount;
+
+    private List<LatencyBucket> latencies;
+
+    public TaskProviderStatistics() {
+        //JAXB constructor
+    }
+
+    public TaskProviderStatistics(String name, TaskProviderLimits limits, int activeCount, int waitingCount,
+            long executedCount, long failedCount, long rejectedCount, List<LatencyBucket> latencies) {
+        this.name = name;
+        this.limits = limits;
+        this.activeCount = activeCount;
+        this.waitingCount = waitingCount;
+        this.executedCount = executedCount;
+        this.failedCount = failedCount;
+        this.rejectedCount = rejectedCount;
+        this.latencies = new ArrayList<>(latencies);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TaskProviderLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * @return number of tasks executed right now
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * @return number of tasks waiting for execution right now
+     */
+    public int getWaitingCount() {
+        return waitingCount;
+    }
+
+    /**
+     * @return number of executions, including the failed ones
+     */
+    public long getExecutedCount() {
+        return executedCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * @return number of tasks rejected because of the limits
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return histogram of the execution times
+     */
+    public List<LatencyBucket> getLatencies() {
+        return latencies == null ? Collections.emptyList() : Collections.unmodifiableList(latencies);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .append("name", name)
+                .append("active", activeCount)
+                .append("waiting", waitingCount)
+                .append("executed", executedCount)
+                .append("failed", failedCount)
+                .append("rejected", rejectedCount)
+                .toString();
+    }
+
+    /**
+     * Number of executions which took at most {@code upperBoundMillis}, but
+     * longer than the bound of the previous bucket.
+     */
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class LatencyBucket {
+
+        private long upperBoundMillis;
+
+        private long count;
+
+        public LatencyBucket() {
+            //JAXB constructor
+        }
+
+        /**
+         * @param upperBoundMillis upper bound of the bucket; {@link Long#MAX_VALUE} for the last bucket
+         * @param count number of executions
+         */
+        public LatencyBucket(long upperBoundMillis, long count) {
+            this.upperBoundMillis = upperBoundMillis;
+            this.count = count;
+        }
+
+        public long getUpperBoundMillis() {
+            return upperBoundMillis;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+    }
+
+}
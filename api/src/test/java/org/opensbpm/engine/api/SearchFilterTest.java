@@ -17,11 +17,13 @@
 package org.opensbpm.engine.api;
 
 import org.junit.Test;
+import org.opensbpm.engine.api.SearchFilter.Criteria;
 import org.opensbpm.engine.api.SearchFilter.Criteria.Operation;
 import org.opensbpm.engine.api.SearchFilter.SearchFilterBuilder;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
 
 public class SearchFilterTest {
 
@@ -34,6 +36,31 @@ public class SearchFilterTest {
         assertThat(result, is(notNullValue()));
     }
 
+    @Test
+    public void testValueOfWithOperatorsAndValues() {
+        //when
+        final SearchFilter result = SearchFilter.valueOf("state:ACTIVE,startTime>=2020-01-01T10:00,Invoice.Amount<=10.5,id>3");
+
+        //then
+        assertThat(result.getCriterias(), hasSize(4));
+        assertCriteria(result.getCriterias().get(0), "state", Operation.EQUALTO, "ACTIVE");
+        assertCriteria(result.getCriterias().get(1), "startTime", Operation.GREATERTHAN_EQUALTO, "2020-01-01T10:00");
+        assertCriteria(result.getCriterias().get(2), "Invoice.Amount", Operation.LESSTHAN_EQUALTO, "10.5");
+        assertCriteria(result.getCriterias().get(3), "id", Operation.GREATERTHAN, "3");
+    }
+
+    @Test
+    public void testValueOfToString() {
+        //given
+        final String filter = "a<x,b:x,c>=1";
+
+        //when
+        String result = SearchFilter.valueOf(filter).toString();
+
+        //then
+        assertThat(result, is(filter));
+    }
+
     @Test
     public void testToString() {
         //given
@@ -48,4 +75,10 @@ public class SearchFilterTest {
         assertThat(result, is("a<x,b:x"));
     }
 
+    private static void assertCriteria(Criteria criteria, String key, Operation operation, Object value) {
+        assertThat(criteria.getKey(), is(key));
+        assertThat(criteria.getOperation(), is(operation));
+        assertThat(criteria.getValue(), is(value));
+    }
+
 }
@@ -24,6 +24,7 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.opensbpm.engine.api.DeserializerUtil.deserializeObject;
 
+@SuppressWarnings("deprecation")
 public class UserProcessModelChangedEventTest {
 
     @Test
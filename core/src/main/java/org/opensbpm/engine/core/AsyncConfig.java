@@ -16,31 +16,139 @@
  ******************************************************************************/
 package org.opensbpm.engine.core;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.lang.reflect.Method;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+/**
+ * Configures the engine executor, which runs the service tasks queued by the
+ * {@code ServiceTaskScheduler}, applies the results of asynchronous providers
+ * and executes {@link org.springframework.scheduling.annotation.Async} methods.
+ * <p>
+ * {@code opensbpm.engine.async.mode} selects the executor:
+ * <ul>
+ * <li>{@link Mode#POOL}: a thread pool of {@code opensbpm.engine.async.pool-size}
+ * threads</li>
+ * <li>{@link Mode#VIRTUAL}: a new virtual thread per task, at most
+ * {@code opensbpm.engine.async.max-concurrency} running at the same time;
+ * the startup fails on a JVM without virtual threads (before Java 21)</li>
+ * </ul>
+ * In both modes up to {@code opensbpm.engine.async.queue-capacity} tasks
+ * wait for execution, further tasks are rejected. Binds the meters
+ * {@code opensbpm.engine.async.active}, {@code .queue}, {@code .completed}
+ * and {@code .rejected}, tagged with the mode.
+ */
 @Configuration
 @EnableAsync
-public class AsyncConfig implements AsyncConfigurer {
+public class AsyncConfig implements AsyncConfigurer, InitializingBean, MeterBinder {
+
+    private static final String THREAD_NAME_PREFIX = "Engine-";
+
+    public enum Mode {
+        POOL, VIRTUAL
+    }
+
+    @Value("${opensbpm.engine.async.mode:POOL}")
+    private Mode mode;
+
+    @Value("${opensbpm.engine.async.pool-size:2}")
+    private int poolSize;
+
+    @Value("${opensbpm.engine.async.max-concurrency:256}")
+    private int maxConcurrency;
+
+    @Value("${opensbpm.engine.async.queue-capacity:500}")
+    private int queueCapacity;
+
+    private ThreadPoolTaskExecutor poolExecutor;
+    private ThreadPerTaskExecutor threadPerTaskExecutor;
+    private final AtomicLong poolRejectedTasks = new AtomicLong();
+
+    @Override
+    public void afterPropertiesSet() {
+        //created eagerly to fail on startup if the mode isn't supported
+        if (Mode.VIRTUAL == mode) {
+            threadPerTaskExecutor = new ThreadPerTaskExecutor(ThreadPerTaskExecutor.createVirtualThreadFactory(THREAD_NAME_PREFIX),
+                    maxConcurrency, queueCapacity);
+        } else {
+            poolExecutor = createPoolExecutor();
+        }
+    }
 
     @Override
     public Executor getAsyncExecutor() {
+        return Mode.VIRTUAL == mode ? threadPerTaskExecutor : poolExecutor;
+    }
+
+    private ThreadPoolTaskExecutor createPoolExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(2);
-        executor.setMaxPoolSize(2);
-        executor.setQueueCapacity(500);
-        executor.setThreadNamePrefix("Engine-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+        executor.setRejectedExecutionHandler((runnable, threadPoolExecutor) -> {
+            poolRejectedTasks.incrementAndGet();
+            throw new RejectedExecutionException("task queue full, " + runnable + " rejected");
+        });
         executor.initialize();
         return executor;
     }
 
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        String modeTag = mode.name().toLowerCase();
+        Gauge.builder("opensbpm.engine.async.active", this, AsyncConfig::getActiveCount)
+                .tag("mode", modeTag)
+                .description("tasks running right now")
+                .register(registry);
+        Gauge.builder("opensbpm.engine.async.queue", this, AsyncConfig::getQueueSize)
+                .tag("mode", modeTag)
+                .description("tasks waiting for execution")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.async.completed", this, AsyncConfig::getCompletedCount)
+                .tag("mode", modeTag)
+                .description("finished tasks")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.async.rejected", this, AsyncConfig::getRejectedCount)
+                .tag("mode", modeTag)
+                .description("tasks rejected because the queue was full")
+                .register(registry);
+    }
+
+    private int getActiveCount() {
+        return threadPerTaskExecutor != null ? threadPerTaskExecutor.getActiveCount()
+                : poolExecutor.getThreadPoolExecutor().getActiveCount();
+    }
+
+    private int getQueueSize() {
+        return threadPerTaskExecutor != null ? threadPerTaskExecutor.getQueueSize()
+                : poolExecutor.getThreadPoolExecutor().getQueue().size();
+    }
+
+    private long getCompletedCount() {
+        return threadPerTaskExecutor != null ? threadPerTaskExecutor.getCompletedCount()
+                : poolExecutor.getThreadPoolExecutor().getCompletedTaskCount();
+    }
+
+    private long getRejectedCount() {
+        return threadPerTaskExecutor != null ? threadPerTaskExecutor.getRejectedCount()
+                : poolRejectedTasks.get();
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new AsyncUncaughtExceptionHandler() {
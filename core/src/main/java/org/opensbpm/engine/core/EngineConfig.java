@@ -16,8 +16,12 @@
  ******************************************************************************/
 package org.opensbpm.engine.core;
 
+import groovy.lang.GroovyClassLoader;
+import groovy.transform.ThreadInterrupt;
 import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.jsr223.GroovyScriptEngineImpl;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -32,8 +36,10 @@ public class EngineConfig {
 
     @Bean
     public ScriptEngine groovyEngine() {
-        ScriptEngineManager scriptEngineManager = new ScriptEngineManager();
-        return scriptEngineManager.getEngineByMimeType("application/x-groovy");
+        //scripts check the interrupted flag of their thread, so timed out scripts can be cancelled
+        CompilerConfiguration configuration = new CompilerConfiguration();
+        configuration.addCompilationCustomizers(new ASTTransformationCustomizer(ThreadInterrupt.class));
+        return new GroovyScriptEngineImpl(new GroovyClassLoader(getClass().getClassLoader(), configuration));
     }
 
 }
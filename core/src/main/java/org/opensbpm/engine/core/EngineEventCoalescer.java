@@ -0,0 +1,204 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.opensbpm.engine.api.events.EngineEvent;
+import org.opensbpm.engine.api.events.EngineEvent.Type;
+import org.opensbpm.engine.api.events.UserChanged;
+import org.opensbpm.engine.api.instance.ProcessInfo;
+import org.opensbpm.engine.api.instance.TaskInfo;
+import org.opensbpm.engine.api.model.ProcessModelInfo;
+
+/**
+ * Removes redundant {@link EngineEvent}s of one transaction:
+ * <ul>
+ * <li>a task created and deleted again in the same transaction; neither event is published</li>
+ * <li>several UPDATEs of the same process instance or model; only the last one is published</li>
+ * </ul>
+ * Events are distinguished by their class, the id of their source and their user.
+ * The decision is made on {@link FiredEvent}s, so events created on demand are
+ * only created if they are not suppressed.
+ */
+final class EngineEventCoalescer {
+
+    private EngineEventCoalescer() {
+    }
+
+    /**
+     * @param engineEvents events in the order they were fired
+     * @return the remaining events in the order they were fired
+     */
+    public static List<EngineEvent<?>> coalesce(List<? extends EngineEvent<?>> engineEvents) {
+        List<FiredEvent> firedEvents = engineEvents.stream()
+                .map(FiredEvent::of)
+                .collect(Collectors.toList());
+        return coalesceFired(firedEvents).stream()
+                .map(FiredEvent::get)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param firedEvents events in the order they were fired; not created yet
+     * @return the remaining events in the order they were fired
+     */
+    public static List<FiredEvent> coalesceFired(List<FiredEvent> firedEvents) {
+        boolean[] suppressed = new boolean[firedEvents.size()];
+        Map<EventKey, Integer> createdTasks = new HashMap<>();
+        Map<EventKey, Integer> updates = new HashMap<>();
+
+        for (int index = 0; index < firedEvents.size(); index++) {
+            FiredEvent firedEvent = firedEvents.get(index);
+            if (firedEvent.key == null) {
+                continue;
+            }
+            EventKey key = firedEvent.key;
+            if (firedEvent.task) {
+                if (Type.CREATE == firedEvent.type) {
+                    createdTasks.put(key, index);
+                } else if (Type.DELETE == firedEvent.type) {
+                    Integer created = createdTasks.remove(key);
+                    if (created != null) {
+                        suppressed[created] = true;
+                        suppressed[index] = true;
+                    }
+                }
+            } else if (Type.UPDATE == firedEvent.type) {
+                Integer previous = updates.put(key, index);
+                if (previous != null) {
+                    suppressed[previous] = true;
+                }
+            } else {
+                //don't merge UPDATEs across a CREATE or DELETE
+                updates.remove(key);
+            }
+        }
+
+        List<FiredEvent> result = new ArrayList<>();
+        for (int index = 0; index < firedEvents.size(); index++) {
+            if (!suppressed[index]) {
+                result.add(firedEvents.get(index));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param source source of an {@link EngineEvent}
+     * @return id of tasks, process instances and models; empty for other sources
+     */
+    static Optional<Long> getSourceId(Serializable source) {
+        if (source instanceof TaskInfo) {
+            return Optional.ofNullable(((TaskInfo) source).getId());
+        } else if (source instanceof ProcessInfo) {
+            return Optional.ofNullable(((ProcessInfo) source).getId());
+        } else if (source instanceof ProcessModelInfo) {
+            return Optional.ofNullable(((ProcessModelInfo) source).getId());
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * An event fired in a transaction, described by the values the coalescer
+     * decides on. The event itself may be created not before {@link #get()}.
+     */
+    static final class FiredEvent implements Supplier<EngineEvent<?>> {
+
+        static FiredEvent of(EngineEvent<?> engineEvent) {
+            Long userId = engineEvent instanceof UserChanged ? ((UserChanged) engineEvent).getUserId() : null;
+            EventKey key = getSourceId(engineEvent.getSource())
+                    .map(sourceId -> new EventKey(engineEvent.getClass(), userId, sourceId))
+                    .orElse(null);
+            return new FiredEvent(key, engineEvent.getSource() instanceof TaskInfo, engineEvent.getType(), () -> engineEvent);
+        }
+
+        /**
+         * @param eventClass class of the created event
+         * @param userId id of the user of a {@link UserChanged} event; {@code null} otherwise
+         * @param taskId id of the task, the source of the event
+         * @param type type of the event
+         * @param engineEvent creates the event
+         * @return event of a task created on demand
+         */
+        static FiredEvent ofTask(Class<?> eventClass, Long userId, Long taskId, Type type, Supplier<? extends EngineEvent<?>> engineEvent) {
+            return new FiredEvent(new EventKey(eventClass, userId, Objects.requireNonNull(taskId, "taskId must not be null")),
+                    true, type, engineEvent);
+        }
+
+        private final EventKey key;
+        private final boolean task;
+        private final Type type;
+        private final Supplier<? extends EngineEvent<?>> engineEvent;
+
+        private FiredEvent(EventKey key, boolean task, Type type, Supplier<? extends EngineEvent<?>> engineEvent) {
+            this.key = key;
+            this.task = task;
+            this.type = type;
+            this.engineEvent = engineEvent;
+        }
+
+        @Override
+        public EngineEvent<?> get() {
+            return engineEvent.get();
+        }
+
+    }
+
+    private static class EventKey {
+
+        private final Class<?> eventClass;
+        private final Long userId;
+        private final Long sourceId;
+
+        private EventKey(Class<?> eventClass, Long userId, Long sourceId) {
+            this.eventClass = eventClass;
+            this.userId = userId;
+            this.sourceId = sourceId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(eventClass, userId, sourceId);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof EventKey)) {
+                return false;
+            }
+            EventKey other = (EventKey) obj;
+            return eventClass.equals(other.eventClass)
+                    && Objects.equals(userId, other.userId)
+                    && sourceId.equals(other.sourceId);
+        }
+
+    }
+
+}
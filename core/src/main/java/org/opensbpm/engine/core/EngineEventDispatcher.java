@@ -0,0 +1,222 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.opensbpm.engine.api.events.EngineEvent;
+import org.opensbpm.engine.api.events.RoleChanged;
+import org.opensbpm.engine.api.events.UserChanged;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands published {@link EngineEvent}s to the {@link ApplicationEventPublisher}.
+ * <p>
+ * By default events are dispatched in the calling thread. In asynchronous mode
+ * ({@code opensbpm.engine.events.dispatch.async=true}) events are put into
+ * bounded buffers, each drained by its own consumer thread. Events of the same
+ * user, of the same role, or of the same task, process instance or model for
+ * events without user, always go to the same consumer, so every listener receives them in the
+ * order they were published. Events of other sources are partitioned by their
+ * class. With one consumer, the order of all events is kept.
+ * <p>
+ * If the buffer of a consumer is full, the publishing thread either waits
+ * ({@link Overflow#BLOCK}) or the event is dropped ({@link Overflow#DROP}).
+ * <p>
+ * Binds the meters {@code opensbpm.engine.events.dispatched},
+ * {@code .dropped}, {@code .dispatch.queue} (events waiting in all buffers)
+ * and {@code .dispatch.lag} (time an event waited in its buffer).
+ */
+@Component
+public class EngineEventDispatcher implements DisposableBean, MeterBinder {
+
+    private static final Logger LOGGER = Logger.getLogger(EngineEventDispatcher.class.getName());
+
+    public enum Overflow {
+        /**
+         * the publishing thread waits until the buffer has space
+         */
+        BLOCK,
+        /**
+         * the event is discarded
+         */
+        DROP
+    }
+
+    private final ApplicationEventPublisher publisher;
+    private final Overflow overflow;
+    private final List<Consumer> consumers;
+
+    private final CompositeMeterRegistry meterRegistry = new CompositeMeterRegistry();
+    private final Counter dispatchedEvents = Counter.builder("opensbpm.engine.events.dispatched").register(meterRegistry);
+    private final Counter droppedEvents = Counter.builder("opensbpm.engine.events.dropped").register(meterRegistry);
+    private final Timer lag = Timer.builder("opensbpm.engine.events.dispatch.lag").register(meterRegistry);
+
+    @Autowired
+    public EngineEventDispatcher(ApplicationEventPublisher publisher,
+            @Value("${opensbpm.engine.events.dispatch.async:false}") boolean async,
+            @Value("${opensbpm.engine.events.dispatch.consumers:2}") int consumerCount,
+            @Value("${opensbpm.engine.events.dispatch.buffer-size:1024}") int bufferSize,
+            @Value("${opensbpm.engine.events.dispatch.overflow:BLOCK}") Overflow overflow) {
+        this.publisher = Objects.requireNonNull(publisher, "publisher must not be null");
+        this.overflow = Objects.requireNonNull(overflow, "overflow must not be null");
+        if (async) {
+            if (consumerCount < 1 || bufferSize < consumerCount) {
+                throw new IllegalArgumentException("at least one consumer and one buffer slot per consumer required");
+            }
+            List<Consumer> asyncConsumers = new ArrayList<>();
+            for (int index = 0; index < consumerCount; index++) {
+                asyncConsumers.add(new Consumer("EngineEvent-" + (index + 1), bufferSize / consumerCount));
+            }
+            consumers = Collections.unmodifiableList(asyncConsumers);
+            consumers.forEach(consumer -> consumer.thread.start());
+        } else {
+            consumers = Collections.emptyList();
+        }
+        Gauge.builder("opensbpm.engine.events.dispatch.queue", this, EngineEventDispatcher::getQueueDepth)
+                .register(meterRegistry);
+    }
+
+    public boolean isAsync() {
+        return !consumers.isEmpty();
+    }
+
+    /**
+     * Publishes the given event to the listeners, synchronously or by a consumer thread.
+     *
+     * @param engineEvent event to publish
+     */
+    public void dispatch(EngineEvent<?> engineEvent) {
+        if (!isAsync()) {
+            publish(engineEvent);
+            return;
+        }
+
+        Consumer consumer = consumers.get(Math.floorMod(getPartitionKey(engineEvent).hashCode(), consumers.size()));
+        Envelope envelope = new Envelope(engineEvent, System.nanoTime());
+        if (Overflow.BLOCK == overflow) {
+            try {
+                consumer.queue.put(envelope);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                drop(engineEvent);
+            }
+        } else if (!consumer.queue.offer(envelope)) {
+            drop(engineEvent);
+        }
+    }
+
+    private static Object getPartitionKey(EngineEvent<?> engineEvent) {
+        //membership events are addressed to both, the events of a role keep their order
+        if (engineEvent instanceof RoleChanged && ((RoleChanged) engineEvent).getRoleId() != null) {
+            return ((RoleChanged) engineEvent).getRoleId();
+        }
+        if (engineEvent instanceof UserChanged && ((UserChanged) engineEvent).getUserId() != null) {
+            return ((UserChanged) engineEvent).getUserId();
+        }
+        return EngineEventCoalescer.getSourceId(engineEvent.getSource())
+                .<Object>map(sourceId -> sourceId)
+                .orElse(engineEvent.getClass());
+    }
+
+    private void drop(EngineEvent<?> engineEvent) {
+        droppedEvents.increment();
+        LOGGER.log(Level.WARNING, "event buffer full, {0} dropped", engineEvent);
+    }
+
+    private void publish(EngineEvent<?> engineEvent) {
+        LOGGER.log(Level.FINE, "publish {0}", engineEvent);
+        dispatchedEvents.increment();
+        publisher.publishEvent(engineEvent);
+    }
+
+    private int getQueueDepth() {
+        return consumers.stream()
+                .mapToInt(consumer -> consumer.queue.size())
+                .sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry.add(registry);
+    }
+
+    @Override
+    public void destroy() {
+        consumers.forEach(consumer -> consumer.thread.interrupt());
+    }
+
+    private static class Envelope {
+
+        private final EngineEvent<?> engineEvent;
+        private final long enqueued;
+
+        private Envelope(EngineEvent<?> engineEvent, long enqueued) {
+            this.engineEvent = engineEvent;
+            this.enqueued = enqueued;
+        }
+
+    }
+
+    private class Consumer implements Runnable {
+
+        private final BlockingQueue<Envelope> queue;
+        private final Thread thread;
+
+        private Consumer(String name, int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Envelope envelope = queue.take();
+                    lag.record(System.nanoTime() - envelope.enqueued, TimeUnit.NANOSECONDS);
+                    publish(envelope.engineEvent);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException ex) {
+                    //a failing listener must not stop the consumer
+                    LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,441 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.opensbpm.engine.api.events.EngineEvent;
+import org.opensbpm.engine.core.engine.entities.OutboxConsumer;
+import org.opensbpm.engine.core.engine.entities.OutboxEvent;
+import org.opensbpm.engine.core.utils.repositories.JpaSpecificationRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Transactional outbox for {@link EngineEvent}s.
+ * <p>
+ * If enabled ({@code opensbpm.engine.events.outbox.enabled=true}) the
+ * {@link EngineEventPublisher} writes the events of a transaction into the
+ * outbox before the transaction commits, instead of publishing them in memory
+ * after commit. A relay polls the outbox in batches and hands the events to the
+ * {@link EngineEventDispatcher}. Every node has its own consumer
+ * ({@code opensbpm.engine.events.outbox.consumer}) with a durable sequence
+ * offset, which is moved in the same transaction as the events are read. An
+ * event is therefore delivered at least once to the listeners of every node,
+ * even if the JVM stops between commit and delivery; listeners must tolerate
+ * redelivered events.
+ * <p>
+ * The row of the consumer is locked with {@code FOR UPDATE SKIP LOCKED} where
+ * the database supports it, so a concurrent relay of the same consumer skips
+ * the poll instead of waiting. An event following a missing id is delivered
+ * only after {@code gap-timeout}, because the missing id may belong to a
+ * transaction which is not committed yet. Ids written by a transaction of this
+ * node which rolled back can't be committed anymore and are not waited for;
+ * so only ids of open transactions and of transactions of other nodes delay
+ * the events behind them. Therefore {@code gap-timeout} defaults to two
+ * seconds: a longer timeout keeps the order of slowly committing transactions,
+ * but delays all events behind a rolled back transaction of another node.
+ * The consumer keeps the skipped ids and delivers them, out of order, if they
+ * are committed within {@code gap-recheck}; later they are given up.
+ * <p>
+ * Events are created in the committing transaction, so display names of the
+ * remaining events are evaluated before commit instead of after commit. This
+ * is the price of writing the events atomically with the change.
+ * <p>
+ * Since every node receives every event, including
+ * {@link org.opensbpm.engine.api.events.ProviderTaskChangedEvent}s, the
+ * outbox requires the persistent job queue
+ * ({@code opensbpm.engine.jobs.enabled=true}); a job is claimed by one node
+ * only, whereas the in-memory execution would run a service task on every node.
+ * <p>
+ * Binds the meters {@code opensbpm.engine.events.outbox.written},
+ * {@code .delivered}, {@code .failed}, {@code .abandoned} (missing events given
+ * up), {@code .offset} and {@code .gaps} (missing events still checked).
+ */
+@Component
+public class EngineEventOutbox implements DisposableBean, MeterBinder {
+
+    private static final Logger LOGGER = Logger.getLogger(EngineEventOutbox.class.getName());
+
+    private final OutboxEventRepository eventRepository;
+    private final OutboxConsumerRepository consumerRepository;
+    private final EngineEventDispatcher dispatcher;
+    private final TransactionTemplate pollTemplate;
+    private final TransactionTemplate deliveryTemplate;
+    private final boolean enabled;
+    private final String consumerName;
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final Duration gapTimeout;
+    private final Duration gapRecheck;
+    private final Duration retention;
+
+    private final AtomicBoolean pollPending = new AtomicBoolean();
+    private final AtomicLong writtenEvents = new AtomicLong();
+    private final AtomicLong deliveredEvents = new AtomicLong();
+    private final AtomicLong failedEvents = new AtomicLong();
+    private final AtomicLong abandonedEvents = new AtomicLong();
+    private final AtomicLong offset = new AtomicLong(-1);
+    private final AtomicLong gaps = new AtomicLong();
+    //ids written by transactions of this node which rolled back; removed once the offset passed them
+    private final ConcurrentSkipListSet<Long> rolledBackIds = new ConcurrentSkipListSet<>();
+    private ScheduledExecutorService relay;
+
+    @Autowired
+    public EngineEventOutbox(OutboxEventRepository eventRepository, OutboxConsumerRepository consumerRepository,
+            EngineEventDispatcher dispatcher, PlatformTransactionManager transactionManager,
+            @Value("${opensbpm.engine.events.outbox.enabled:false}") boolean enabled,
+            @Value("${opensbpm.engine.events.outbox.consumer:engine}") String consumerName,
+            @Value("${opensbpm.engine.events.outbox.poll-interval:PT1S}") Duration pollInterval,
+            @Value("${opensbpm.engine.events.outbox.batch-size:100}") int batchSize,
+            @Value("${opensbpm.engine.events.outbox.gap-timeout:PT2S}") Duration gapTimeout,
+            @Value("${opensbpm.engine.events.outbox.gap-recheck:PT10M}") Duration gapRecheck,
+            @Value("${opensbpm.engine.events.outbox.retention:P1D}") Duration retention,
+            @Value("${opensbpm.engine.jobs.enabled:false}") boolean jobsEnabled) {
+        if (enabled && !jobsEnabled) {
+            throw new IllegalStateException("opensbpm.engine.events.outbox.enabled requires opensbpm.engine.jobs.enabled,"
+                    + " otherwise every node executes the service tasks");
+        }
+        this.eventRepository = Objects.requireNonNull(eventRepository, "eventRepository must not be null");
+        this.consumerRepository = Objects.requireNonNull(consumerRepository, "consumerRepository must not be null");
+        this.dispatcher = Objects.requireNonNull(dispatcher, "dispatcher must not be null");
+        this.pollTemplate = new TransactionTemplate(transactionManager);
+        this.deliveryTemplate = new TransactionTemplate(transactionManager);
+        //listeners run without the transaction of the relay, like after commit
+        deliveryTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        this.enabled = enabled;
+        this.consumerName = Objects.requireNonNull(consumerName, "consumerName must not be null");
+        this.pollInterval = Objects.requireNonNull(pollInterval, "pollInterval must not be null");
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+        this.gapTimeout = Objects.requireNonNull(gapTimeout, "gapTimeout must not be null");
+        this.gapRecheck = Objects.requireNonNull(gapRecheck, "gapRecheck must not be null");
+        this.retention = Objects.requireNonNull(retention, "retention must not be null");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Registers the consumer of this node and starts the relay, if the outbox is enabled.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void start() {
+        if (!enabled || relay != null) {
+            return;
+        }
+        try {
+            pollTemplate.executeWithoutResult(status -> register());
+        } catch (DataIntegrityViolationException ex) {
+            LOGGER.log(Level.FINE, "consumer {0} registered concurrently", consumerName);
+        }
+
+        relay = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "EngineEventRelay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        relay.scheduleWithFixedDelay(this::relay, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        long purgeInterval = Math.min(retention.toMillis(), Duration.ofHours(1).toMillis());
+        relay.scheduleWithFixedDelay(this::purge, purgeInterval, purgeInterval, TimeUnit.MILLISECONDS);
+        LOGGER.log(Level.INFO, "outbox relay of consumer {0} started", consumerName);
+    }
+
+    /**
+     * Writes the given events into the outbox. Must be called in the transaction which fired the events.
+     *
+     * @param engineEvents events to write
+     */
+    public void write(Collection<? extends EngineEvent<?>> engineEvents) {
+        if (engineEvents.isEmpty()) {
+            return;
+        }
+        List<OutboxEvent> outboxEvents = engineEvents.stream()
+                .map(OutboxEvent::new)
+                .collect(Collectors.toList());
+        //flush also in read-only transactions
+        eventRepository.saveAllAndFlush(outboxEvents);
+        writtenEvents.addAndGet(outboxEvents.size());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> ids = outboxEvents.stream()
+                    .map(OutboxEvent::getId)
+                    .collect(Collectors.toList());
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        rolledBackIds.addAll(ids);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Lets the relay poll as soon as possible, e.g. after events were committed by this node.
+     */
+    public void wakeUp() {
+        ScheduledExecutorService currentRelay = relay;
+        if (currentRelay != null && pollPending.compareAndSet(false, true)) {
+            currentRelay.execute(this::relay);
+        }
+    }
+
+    private void relay() {
+        pollPending.set(false);
+        try {
+            while (poll() == batchSize) {
+                //continue with next batch
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "polling outbox failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Delivers the next batch of committed events to the local listeners and
+     * moves the offset of the consumer behind them.
+     *
+     * @return number of delivered events
+     */
+    public int poll() {
+        try {
+            return doPoll();
+        } catch (DataIntegrityViolationException ex) {
+            LOGGER.log(Level.FINE, "consumer {0} registered concurrently", consumerName);
+            return 0;
+        }
+    }
+
+    private int doPoll() {
+        return pollTemplate.execute(status -> {
+            Optional<OutboxConsumer> lockedConsumer = consumerRepository.findWithLockByName(consumerName);
+            if (lockedConsumer.isEmpty()) {
+                //polled by another relay or not registered yet
+                register();
+                return 0;
+            }
+            OutboxConsumer consumer = lockedConsumer.get();
+            long now = System.currentTimeMillis();
+            int delivered = deliverGaps(consumer, now);
+            long lastId = consumer.getOffset();
+            long settled = now - gapTimeout.toMillis();
+            for (OutboxEvent outboxEvent : eventRepository.findByIdGreaterThan(lastId, PageRequest.of(0, batchSize, Sort.by("id")))) {
+                if (outboxEvent.getId() != lastId + 1) {
+                    List<Long> missingIds = LongStream.range(lastId + 1, outboxEvent.getId())
+                            .boxed()
+                            .filter(missingId -> !rolledBackIds.contains(missingId))
+                            .collect(Collectors.toList());
+                    if (!missingIds.isEmpty() && outboxEvent.getCreated() > settled) {
+                        //wait for the transaction of the missing event
+                        break;
+                    }
+                    //the transaction of a missing event may still commit
+                    missingIds.forEach(missingId -> consumer.addGap(missingId, now));
+                }
+                deliver(outboxEvent);
+                lastId = outboxEvent.getId();
+                delivered++;
+            }
+            consumer.setOffset(lastId);
+            offset.set(lastId);
+            //rolled back ids are still needed to drop the gaps they fill
+            long prunedId = consumer.getGaps().keySet().stream()
+                    .min(Comparator.naturalOrder())
+                    .map(gapId -> gapId - 1)
+                    .orElse(lastId);
+            rolledBackIds.headSet(prunedId, true).clear();
+            gaps.set(consumer.getGaps().size());
+            return delivered;
+        });
+    }
+
+    /**
+     * Delivers skipped events committed in the meantime and gives up the
+     * skipped ids older than {@code gap-recheck}.
+     *
+     * @return number of delivered events
+     */
+    private int deliverGaps(OutboxConsumer consumer, long now) {
+        if (consumer.getGaps().isEmpty()) {
+            return 0;
+        }
+        //the transactions of these gaps rolled back meanwhile
+        consumer.getGaps().keySet().stream()
+                .filter(rolledBackIds::contains)
+                .collect(Collectors.toList())
+                .forEach(consumer::removeGap);
+
+        long abandoned = now - gapRecheck.toMillis();
+        List<Long> abandonedIds = consumer.getGaps().entrySet().stream()
+                .filter(gap -> gap.getValue() < abandoned)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (!abandonedIds.isEmpty()) {
+            LOGGER.log(Level.WARNING, "events {0} of consumer {1} not committed within {2}, skipped",
+                    new Object[]{abandonedIds, consumerName, gapRecheck});
+            abandonedIds.forEach(consumer::removeGap);
+            abandonedEvents.addAndGet(abandonedIds.size());
+        }
+
+        List<OutboxEvent> committedEvents = eventRepository.findAllById(new ArrayList<>(consumer.getGaps().keySet()));
+        committedEvents.sort(Comparator.comparing(OutboxEvent::getId));
+        for (OutboxEvent outboxEvent : committedEvents) {
+            deliver(outboxEvent);
+            consumer.removeGap(outboxEvent.getId());
+        }
+        return committedEvents.size();
+    }
+
+    /**
+     * Registers the consumer, if missing. A new consumer starts behind the last
+     * event already in the outbox.
+     */
+    private void register() {
+        if (!consumerRepository.existsById(consumerName)) {
+            long lastId = eventRepository.findFirstByOrderByIdDesc()
+                    .map(OutboxEvent::getId)
+                    .orElse(0l);
+            consumerRepository.save(new OutboxConsumer(consumerName, lastId));
+            offset.set(lastId);
+        }
+    }
+
+    private void deliver(OutboxEvent outboxEvent) {
+        deliveryTemplate.executeWithoutResult(status -> {
+            try {
+                dispatcher.dispatch(outboxEvent.getEvent());
+                deliveredEvents.incrementAndGet();
+            } catch (RuntimeException ex) {
+                //don't block the outbox by an event which can't be delivered
+                failedEvents.incrementAndGet();
+                LOGGER.log(Level.SEVERE, "delivering " + outboxEvent + " failed: " + ex.getMessage(), ex);
+            }
+        });
+    }
+
+    private void purge() {
+        try {
+            long deleted = pollTemplate.execute(status
+                    -> eventRepository.deleteCreatedBefore(System.currentTimeMillis() - retention.toMillis()));
+            LOGGER.log(Level.FINE, "{0} events purged from outbox", deleted);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "purging outbox failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("opensbpm.engine.events.outbox.written", writtenEvents, AtomicLong::get)
+                .description("events written into the outbox by this node")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.events.outbox.delivered", deliveredEvents, AtomicLong::get)
+                .description("events delivered by the relay of this node")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.events.outbox.failed", failedEvents, AtomicLong::get)
+                .description("events which listeners failed to handle")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.events.outbox.abandoned", abandonedEvents, AtomicLong::get)
+                .description("missing events not committed within the gap-recheck")
+                .register(registry);
+        Gauge.builder("opensbpm.engine.events.outbox.offset", offset, AtomicLong::get)
+                .description("id of the last delivered event; -1 before the first poll")
+                .register(registry);
+        Gauge.builder("opensbpm.engine.events.outbox.gaps", gaps, AtomicLong::get)
+                .description("missing events which are checked again")
+                .register(registry);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (relay != null) {
+            relay.shutdownNow();
+            relay = null;
+        }
+    }
+
+    @Repository
+    public interface OutboxEventRepository extends JpaSpecificationRepository<OutboxEvent, Long> {
+
+        List<OutboxEvent> findByIdGreaterThan(Long id, Pageable pageable);
+
+        Optional<OutboxEvent> findFirstByOrderByIdDesc();
+
+        @Modifying
+        @Query("delete from outboxevent e where e.created < :created")
+        int deleteCreatedBefore(@Param("created") long created);
+
+    }
+
+    @Repository
+    public interface OutboxConsumerRepository extends JpaSpecificationRepository<OutboxConsumer, String> {
+
+        /**
+         * @return the consumer locked for update; empty if it is locked by another transaction
+         */
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+        Optional<OutboxConsumer> findWithLockByName(String name);
+
+    }
+
+}
@@ -17,14 +17,16 @@
  */
 package org.opensbpm.engine.core;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import org.opensbpm.engine.api.events.EngineEvent;
 import org.opensbpm.engine.api.events.EngineEvent.Type;
@@ -32,17 +34,19 @@ import org.opensbpm.engine.api.events.ProcessInstanceChangedEvent;
 import org.opensbpm.engine.api.events.ProcessModelChangedEvent;
 import org.opensbpm.engine.api.events.ProviderTaskChangedEvent;
 import org.opensbpm.engine.api.events.RoleChangedEvent;
+import org.opensbpm.engine.api.events.RoleProcessModelChangedEvent;
 import org.opensbpm.engine.api.events.RoleUserChangedEvent;
 import org.opensbpm.engine.api.events.UserChangedEvent;
 import org.opensbpm.engine.api.events.UserProcessInstanceChangedEvent;
-import org.opensbpm.engine.api.events.UserProcessModelChangedEvent;
 import org.opensbpm.engine.api.events.UserTaskChangedEvent;
 import org.opensbpm.engine.api.instance.ProcessInfo;
 import org.opensbpm.engine.api.instance.RoleToken;
 import org.opensbpm.engine.api.instance.TaskInfo;
 import org.opensbpm.engine.api.model.ProcessModelInfo;
 import org.opensbpm.engine.api.model.ProcessModelState;
+import org.opensbpm.engine.core.EngineEventCoalescer.FiredEvent;
 import org.opensbpm.engine.core.engine.EngineConverter;
+import org.opensbpm.engine.core.engine.ServiceTaskScheduler;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance;
 import org.opensbpm.engine.core.engine.entities.ServiceSubject;
 import org.opensbpm.engine.core.engine.entities.Subject;
@@ -50,76 +54,80 @@ import org.opensbpm.engine.core.engine.entities.SubjectVisitor;
 import org.opensbpm.engine.core.engine.entities.User;
 import org.opensbpm.engine.core.engine.entities.UserSubject;
 import org.opensbpm.engine.core.model.ModelConverter;
-import org.opensbpm.engine.core.model.ProcessModelService;
 import org.opensbpm.engine.core.model.entities.FunctionState;
 import org.opensbpm.engine.core.model.entities.ProcessModel;
 import org.opensbpm.engine.core.model.entities.Role;
 import org.opensbpm.engine.core.model.entities.SubjectModel;
-import org.opensbpm.engine.core.model.entities.UserSubjectModel;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import static org.opensbpm.engine.core.engine.EngineConverter.convertUser;
-import static org.opensbpm.engine.core.model.ModelConverter.convertModel;
 import static org.opensbpm.engine.core.model.entities.StateVisitor.functionState;
 
+/**
+ * Collects the {@link EngineEvent}s of a transaction and publishes them after
+ * commit. Binds the meters {@code opensbpm.engine.events.published} and
+ * {@code opensbpm.engine.events.suppressed}, the events found redundant by
+ * the {@link EngineEventCoalescer}.
+ */
 @Component
-public class EngineEventPublisher {
-
-    private static final Logger LOGGER = Logger.getLogger(EngineEventPublisher.class.getName());
+public class EngineEventPublisher implements MeterBinder {
 
     @Autowired
-    private ApplicationEventPublisher publisher;
+    private EngineEventDispatcher dispatcher;
 
     @Autowired
-    private ProcessModelService processModelService;
+    private EngineEventOutbox outbox;
 
     @Autowired
     private EngineConverter engineConverter;
 
+    @Autowired
+    private ServiceTaskScheduler taskScheduler;
+
+    private final AtomicLong publishedEvents = new AtomicLong();
+    private final AtomicLong suppressedEvents = new AtomicLong();
+
     public void fireRoleChanged(Role role, Type type) {
         publishEvents(new RoleChangedEvent(RoleToken.of(role.getId(), role.getName()), type));
     }
 
     public void fireRoleUserChanged(Role role, User user) {
-        publishEvents(createUserEvents(role, user, Type.DELETE));
+        publishUserEvents(role, Collections.singleton(user), Type.DELETE);
     }
 
+    /**
+     * Publishes the membership events of users which joined or left the given
+     * role. The startable models of the role aren't published per user, the
+     * receivers of a {@link RoleUserChangedEvent} resolve them.
+     *
+     * @param role role the users joined or left
+     * @param users users which joined or left the role
+     * @param type {@link Type#CREATE} for joined users, {@link Type#DELETE} for left users
+     */
     public void publishUserEvents(Role role, Collection<User> users, Type type) {
         List<EngineEvent<?>> events = users.stream()
-                .flatMap(user -> createUserEvents(role, user, type).stream())
+                .map(user -> new RoleUserChangedEvent(role.getId(), convertUser(user), type))
                 .collect(Collectors.toList());
         publishEvents(events);
     }
 
-    private List<EngineEvent<?>> createUserEvents(Role role, User user, Type type) {
-        List<EngineEvent<?>> engineEvent = new ArrayList<>();
-        engineEvent.add(new RoleUserChangedEvent(role.getId(), convertUser(user), type));
-
-        List<UserProcessModelChangedEvent> changeEvents = processModelService.findAllStartableByRole(role).stream()
-                .map(processModel -> new UserProcessModelChangedEvent(user.getId(), convertModel(processModel), type))
-                .collect(Collectors.toList());
-        engineEvent.addAll(changeEvents);
-        return engineEvent;
-    }
-
     public void fireUserChanged(User entity, Type type) {
         publishEvents(new UserChangedEvent(convertUser(entity), type));
     }
 
     public void fireProcessModelChanged(ProcessModel savedModel, Type type) {
         publishModelEvent(savedModel, type);
-        publishUserEvents(savedModel, type);
+        publishRoleEvents(savedModel, type);
     }
 
     public void fireProcessModelUpdate(ProcessModel processModel) {
         publishModelEvent(processModel, Type.UPDATE);
         if (ProcessModelState.ACTIVE == processModel.getState()) {
-            publishUserEvents(processModel, Type.CREATE);
+            publishRoleEvents(processModel, Type.CREATE);
         } else if (ProcessModelState.INACTIVE == processModel.getState()) {
-            publishUserEvents(processModel, Type.DELETE);
+            publishRoleEvents(processModel, Type.DELETE);
         }
     }
 
@@ -127,15 +135,18 @@ public class EngineEventPublisher {
         publishEvents(new ProcessModelChangedEvent(toModelInfo(processModel), type));
     }
 
-    private void publishUserEvents(ProcessModel processModel, Type type) {
-        publishEvents(createUserEvents(processModel, type));
+    private void publishRoleEvents(ProcessModel processModel, Type type) {
+        publishEvents(createRoleEvents(processModel, type));
     }
 
-    private List<UserProcessModelChangedEvent> createUserEvents(ProcessModel processModel, Type type) {
+    private List<RoleProcessModelChangedEvent> createRoleEvents(ProcessModel processModel, Type type) {
+        ProcessModelInfo modelInfo = toModelInfo(processModel);
         return processModel.getUserSubjectModels().stream()
                 .filter(SubjectModel::isStarter)
-                .flatMap(UserSubjectModel::getAllUsers)
-                .map(user -> new UserProcessModelChangedEvent(user.getId(), toModelInfo(processModel), type))
+                .flatMap(subjectModel -> subjectModel.getRoles().stream())
+                .map(Role::getId)
+                .distinct()
+                .map(roleId -> new RoleProcessModelChangedEvent(roleId, modelInfo, type))
                 .collect(Collectors.toList());
     }
 
@@ -147,48 +158,86 @@ public class EngineEventPublisher {
         Collection<EngineEvent<?>> engineEvents = new ArrayList<>();
         ProcessInfo processInfo = engineConverter.convertInstance(processInstance);
         engineEvents.add(new ProcessInstanceChangedEvent(processInfo, type));
+        List<FiredEvent> taskEvents = new ArrayList<>();
         if (processInstance.isStopped()) {
-            processInstance.getUserSubjects().forEach(subject
-                    -> subject.getCurrentOrAllUsers()
-                            .forEach(user -> {
-                                engineEvents.add(new UserProcessInstanceChangedEvent(user.getId(), processInfo, Type.DELETE));
-                                subject.getCurrent(functionState()).ifPresent(state
-                                        -> {
-                                    TaskInfo taskInfo = engineConverter.convertSubjectState(subject, state);
-                                    engineEvents.add(new UserTaskChangedEvent(user.getId(), taskInfo, Type.DELETE));
-                                }
-                                );
-                            }));
+            processInstance.getUserSubjects().forEach(subject -> {
+                List<Long> userIds = getUserIds(subject);
+                userIds.forEach(userId
+                        -> engineEvents.add(new UserProcessInstanceChangedEvent(userId, processInfo, Type.DELETE)));
+                subject.getCurrent(functionState()).ifPresent(state
+                        -> taskEvents.addAll(createUserTaskChangedEvents(subject, state, userIds, Type.DELETE)));
+            });
         }
         publishEvents(engineEvents);
+        getEventBuffer().add(taskEvents);
     }
 
+    /**
+     * Publishes the task events of the new state of a subject. The display
+     * name of the state is evaluated once per subject after the redundant
+     * events were removed, and the resulting {@link TaskInfo} is shared by the
+     * events of all users.
+     *
+     * @param subject subject which changed its state
+     * @param functionState the new or left state
+     * @param type type of the change
+     */
     public void fireSubjectStateChanged(Subject subject, FunctionState functionState, Type type) {
-        List<EngineEvent<?>> events = subject.accept(new SubjectVisitor<List<EngineEvent<?>>>() {
+        List<FiredEvent> events = subject.accept(new SubjectVisitor<List<FiredEvent>>() {
             @Override
-            public List<EngineEvent<?>> visitServiceSubject(ServiceSubject serviceSubject) {
+            public List<FiredEvent> visitServiceSubject(ServiceSubject serviceSubject) {
                 if (functionState.getProviderName() == null) {
                     //don't know how to execute function without provider
                     throw new IllegalStateException("No provider for " + functionState.getName());
                 }
-                TaskInfo taskInfo = engineConverter.convertSubjectState(serviceSubject, functionState);
-                return Collections.<EngineEvent<?>>singletonList(new ProviderTaskChangedEvent(taskInfo, type));
+                Supplier<TaskInfo> taskInfo = engineConverter.convertSubjectStateDeferred(serviceSubject, functionState);
+                int priority = taskScheduler.getPriority(serviceSubject, functionState);
+                return Collections.singletonList(FiredEvent.ofTask(ProviderTaskChangedEvent.class, null, serviceSubject.getId(), type,
+                        () -> new ProviderTaskChangedEvent(taskInfo.get(), type, priority)));
             }
 
             @Override
-            public List<EngineEvent<?>> visitUserSubject(UserSubject userSubject) {
-                return userSubject.getCurrentOrAllUsers()
-                        .map(user -> createUserTaskChangedEvent(user))
-                        .collect(Collectors.toList());
-            }
-
-            private UserTaskChangedEvent createUserTaskChangedEvent(User user) {
-                TaskInfo taskInfo = engineConverter.convertSubjectState(subject, functionState);
-                return new UserTaskChangedEvent(user.getId(), taskInfo, type);
+            public List<FiredEvent> visitUserSubject(UserSubject userSubject) {
+                return createUserTaskChangedEvents(userSubject, functionState, getUserIds(userSubject), type);
             }
 
         });
-        publishEvents(events);
+        getEventBuffer().add(events);
+    }
+
+    private static List<Long> getUserIds(UserSubject userSubject) {
+        return userSubject.getCurrentOrAllUsers()
+                .map(User::getId)
+                .collect(Collectors.toList());
+    }
+
+    private List<FiredEvent> createUserTaskChangedEvents(Subject subject, FunctionState functionState,
+            List<Long> userIds, Type type) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Supplier<TaskInfo> sharedTaskInfo = shared(engineConverter.convertSubjectStateDeferred(subject, functionState));
+        return userIds.stream()
+                .map(userId -> FiredEvent.ofTask(UserTaskChangedEvent.class, userId, subject.getId(), type,
+                () -> new UserTaskChangedEvent(userId, sharedTaskInfo.get(), type)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return supplier which calls the given supplier on first use only
+     */
+    private static <T> Supplier<T> shared(Supplier<T> supplier) {
+        return new Supplier<T>() {
+            private T value;
+
+            @Override
+            public T get() {
+                if (value == null) {
+                    value = supplier.get();
+                }
+                return value;
+            }
+        };
     }
 
     private void publishEvents(EngineEvent<?>... engineEvents) {
@@ -196,19 +245,77 @@ public class EngineEventPublisher {
     }
 
     private void publishEvents(Collection<? extends EngineEvent<?>> engineEvents) {
-        publishEvents(() -> engineEvents);
+        getEventBuffer().add(engineEvents.stream()
+                .map(FiredEvent::of)
+                .collect(Collectors.toList()));
     }
 
-    private void publishEvents(Supplier<Collection<? extends EngineEvent<?>>> engineEvents) {
-        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
-            @Override
-            public void afterCommit() {
-                engineEvents.get().forEach(engineEvent -> {
-                    LOGGER.log(Level.FINE, "publish {0}", engineEvent);
-                    publisher.publishEvent(engineEvent);
+    private EventBuffer getEventBuffer() {
+        //a transaction started with REQUIRES_NEW suspends the synchronizations and gets its own buffer
+        return TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(EventBuffer.class::isInstance)
+                .map(EventBuffer.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    EventBuffer eventBuffer = new EventBuffer();
+                    TransactionSynchronizationManager.registerSynchronization(eventBuffer);
+                    return eventBuffer;
                 });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("opensbpm.engine.events.published", publishedEvents, AtomicLong::get)
+                .description("events published after commit or written to the outbox")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.events.suppressed", suppressedEvents, AtomicLong::get)
+                .description("events fired but not published, because they were redundant")
+                .register(registry);
+    }
+
+    /**
+     * Collects the events of one transaction and publishes them in one batch
+     * after commit. If the {@link EngineEventOutbox} is enabled, the events are
+     * written to the outbox before commit and delivered by its relay instead.
+     */
+    private class EventBuffer implements TransactionSynchronization {
+
+        private final List<FiredEvent> firedEvents = new ArrayList<>();
+
+        private void add(Collection<FiredEvent> events) {
+            firedEvents.addAll(events);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (outbox.isEnabled()) {
+                List<EngineEvent<?>> coalescedEvents = coalesceEvents();
+                outbox.write(coalescedEvents);
+                publishedEvents.addAndGet(coalescedEvents.size());
             }
-        });
+        }
+
+        @Override
+        public void afterCommit() {
+            if (outbox.isEnabled()) {
+                outbox.wakeUp();
+                return;
+            }
+            coalesceEvents().forEach(engineEvent -> {
+                dispatcher.dispatch(engineEvent);
+                publishedEvents.incrementAndGet();
+            });
+        }
+
+        private List<EngineEvent<?>> coalesceEvents() {
+            //only the remaining events are created
+            List<FiredEvent> coalescedEvents = EngineEventCoalescer.coalesceFired(firedEvents);
+            suppressedEvents.addAndGet(firedEvents.size() - coalescedEvents.size());
+            return coalescedEvents.stream()
+                    .map(FiredEvent::get)
+                    .collect(Collectors.toList());
+        }
+
     }
 
 }
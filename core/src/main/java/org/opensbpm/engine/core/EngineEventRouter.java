@@ -0,0 +1,186 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.opensbpm.engine.api.events.EngineEvent;
+import org.opensbpm.engine.api.events.RoleChanged;
+import org.opensbpm.engine.api.events.UserChanged;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delivers events addressed to a user ({@link UserChanged}) or to a role
+ * ({@link RoleChanged}) only to the subscriptions of this user or role. An
+ * event addressed to a user and a role is delivered to both.
+ * <p>
+ * The subscriptions are indexed by user and role id, so the cost of an event
+ * depends on the number of its receivers and not on the number of all
+ * subscriptions. Routing reads the index without locking; subscribing and
+ * unsubscribing replace the subscriptions of one id only and don't block
+ * other ids or the routing.
+ * <p>
+ * Binds the meters {@code opensbpm.engine.events.router.subscriptions},
+ * {@code opensbpm.engine.events.router.routed} and
+ * {@code opensbpm.engine.events.router.delivered}.
+ */
+@Component
+public class EngineEventRouter implements MeterBinder {
+
+    private static final Logger LOGGER = Logger.getLogger(EngineEventRouter.class.getName());
+
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    private final Map<Long, Subscription[]> userSubscriptions = new ConcurrentHashMap<>();
+    private final Map<Long, Subscription[]> roleSubscriptions = new ConcurrentHashMap<>();
+
+    private final AtomicLong routedEvents = new AtomicLong();
+    private final AtomicLong deliveredEvents = new AtomicLong();
+
+    /**
+     * Subscribes the events addressed to the given user.
+     *
+     * @param userId id of the user
+     * @param listener receives the events of the user
+     * @return subscription to close for unsubscribing
+     */
+    public Subscription subscribeUser(Long userId, Consumer<? super EngineEvent<?>> listener) {
+        return subscribe(userSubscriptions, userId, listener);
+    }
+
+    /**
+     * Subscribes the events addressed to the given role.
+     *
+     * @param roleId id of the role
+     * @param listener receives the events of the role
+     * @return subscription to close for unsubscribing
+     */
+    public Subscription subscribeRole(Long roleId, Consumer<? super EngineEvent<?>> listener) {
+        return subscribe(roleSubscriptions, roleId, listener);
+    }
+
+    private Subscription subscribe(Map<Long, Subscription[]> index, Long id, Consumer<? super EngineEvent<?>> listener) {
+        Objects.requireNonNull(id, "id must not be null");
+        Subscription subscription = new Subscription(index, id, listener);
+        index.merge(id, new Subscription[]{subscription}, (subscriptions, added) -> {
+            Subscription[] result = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+            result[subscriptions.length] = subscription;
+            return result;
+        });
+        return subscription;
+    }
+
+    @EventListener
+    public void route(EngineEvent<?> engineEvent) {
+        Long userId = engineEvent instanceof UserChanged ? ((UserChanged) engineEvent).getUserId() : null;
+        Long roleId = engineEvent instanceof RoleChanged ? ((RoleChanged) engineEvent).getRoleId() : null;
+        if (userId == null && roleId == null) {
+            return;
+        }
+        routedEvents.incrementAndGet();
+        if (userId != null) {
+            deliver(userSubscriptions.getOrDefault(userId, NO_SUBSCRIPTIONS), engineEvent);
+        }
+        if (roleId != null) {
+            deliver(roleSubscriptions.getOrDefault(roleId, NO_SUBSCRIPTIONS), engineEvent);
+        }
+    }
+
+    private void deliver(Subscription[] subscriptions, EngineEvent<?> engineEvent) {
+        for (Subscription subscription : subscriptions) {
+            try {
+                subscription.listener.accept(engineEvent);
+                deliveredEvents.incrementAndGet();
+            } catch (RuntimeException ex) {
+                //a failing subscriber must not affect the others
+                LOGGER.log(Level.WARNING, "delivering " + engineEvent + " failed: " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("opensbpm.engine.events.router.subscriptions", userSubscriptions, EngineEventRouter::countSubscriptions)
+                .tag("addressee", "user")
+                .description("open subscriptions of users")
+                .register(registry);
+        Gauge.builder("opensbpm.engine.events.router.subscriptions", roleSubscriptions, EngineEventRouter::countSubscriptions)
+                .tag("addressee", "role")
+                .description("open subscriptions of roles")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.events.router.routed", routedEvents, AtomicLong::get)
+                .description("events addressed to a user or role")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.events.router.delivered", deliveredEvents, AtomicLong::get)
+                .description("deliveries to subscriptions")
+                .register(registry);
+    }
+
+    private static int countSubscriptions(Map<Long, Subscription[]> index) {
+        return index.values().stream()
+                .mapToInt(subscriptions -> subscriptions.length)
+                .sum();
+    }
+
+    public static class Subscription implements AutoCloseable {
+
+        private final Map<Long, Subscription[]> index;
+        private final Long id;
+        private final Consumer<? super EngineEvent<?>> listener;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscription(Map<Long, Subscription[]> index, Long id, Consumer<? super EngineEvent<?>> listener) {
+            this.index = index;
+            this.id = id;
+            this.listener = Objects.requireNonNull(listener, "listener must not be null");
+        }
+
+        public boolean isClosed() {
+            return closed.get();
+        }
+
+        /**
+         * Unsubscribes; events routed concurrently may still be delivered.
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                index.computeIfPresent(id, (key, subscriptions) -> {
+                    Subscription[] result = Arrays.stream(subscriptions)
+                            .filter(subscription -> subscription != this)
+                            .toArray(Subscription[]::new);
+                    return result.length == 0 ? null : result;
+                });
+            }
+        }
+
+    }
+
+}
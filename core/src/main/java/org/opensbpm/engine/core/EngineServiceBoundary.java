@@ -30,6 +30,7 @@ import org.opensbpm.engine.api.EngineException;
 import org.opensbpm.engine.api.EngineService;
 import org.opensbpm.engine.api.ModelNotFoundException;
 import org.opensbpm.engine.api.ModelService.ModelRequest;
+import org.opensbpm.engine.api.SearchFilter;
 import org.opensbpm.engine.api.SubjectAlreadyBoundException;
 import org.opensbpm.engine.api.UserNotFoundException;
 import org.opensbpm.engine.api.instance.AutocompleteResponse;
@@ -54,11 +55,15 @@ import org.opensbpm.engine.core.engine.entities.ProcessInstance;
 import org.opensbpm.engine.core.engine.entities.Subject;
 import org.opensbpm.engine.core.engine.entities.User;
 import org.opensbpm.engine.core.engine.entities.UserSubject;
+import org.opensbpm.engine.core.model.ProcessModelCache;
 import org.opensbpm.engine.core.model.ProcessModelService;
-import org.opensbpm.engine.core.model.entities.FunctionState;
-import org.opensbpm.engine.core.model.entities.ObjectModel;
+import org.opensbpm.engine.core.model.ProcessModelView.ObjectView;
+import org.opensbpm.engine.core.model.ProcessModelView.StateView;
 import org.opensbpm.engine.core.model.entities.ProcessModel;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -66,7 +71,6 @@ import static org.opensbpm.engine.core.ExceptionFactory.newModelNotFoundExceptio
 import static org.opensbpm.engine.core.ExceptionFactory.newTaskNotFoundException;
 import static org.opensbpm.engine.core.ExceptionFactory.newTaskOutOfDateException;
 import static org.opensbpm.engine.core.ExceptionFactory.newUserNotFoundException;
-import static org.opensbpm.engine.core.model.ModelConverter.convertModels;
 
 /**
  * Service implementation of {@link EngineService}. All necessary database
@@ -99,6 +103,9 @@ public class EngineServiceBoundary implements EngineService {
     @Autowired
     private EngineConverter engineConverter;
 
+    @Autowired
+    private ProcessModelCache processModelCache;
+
     @Autowired
     private ValidationService validationService;
 
@@ -109,7 +116,7 @@ public class EngineServiceBoundary implements EngineService {
     @Override
     public Collection<ProcessModelInfo> findStartableProcessModels(UserToken userToken) throws UserNotFoundException {
         User user = getUser(userToken);
-        return convertModels(processModelService.findAllStartableByUser(user));
+        return processModelCache.getModelInfos(processModelService.findAllStartableByUser(user));
     }
 
     /**
@@ -145,6 +152,17 @@ public class EngineServiceBoundary implements EngineService {
         return engineConverter.convertInstances(processInstanceService.findAllByUserAndState(user, state));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Transactional(readOnly = true, noRollbackFor = Exception.class)
+    @Override
+    public Page<ProcessInfo> findProcesses(UserToken userToken, SearchFilter searchFilter, Pageable pageable) throws UserNotFoundException {
+        User user = getUser(userToken);
+        return processInstanceService.findAllByUser(user, searchFilter, pageable)
+                .map(processInstance -> engineConverter.convertInstance(processInstance));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -159,8 +177,26 @@ public class EngineServiceBoundary implements EngineService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Transactional(readOnly = true, noRollbackFor = Exception.class)
+    @Override
+    public Page<TaskInfo> findTasks(UserToken userToken, SearchFilter searchFilter, Pageable pageable) throws UserNotFoundException {
+        User user = getUser(userToken);
+        Page<UserSubject> subjects = userSubjectService.findAllByUser(user, searchFilter, pageable);
+        List<TaskInfo> taskInfos = subjects.stream()
+                .map(subject -> createTaskInfoFromSubject(subject))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
+        //the query doesn't recurse over receive states; don't count the subjects hidden nonetheless
+        long hiddenSubjects = subjects.getNumberOfElements() - taskInfos.size();
+        return new PageImpl<>(taskInfos, subjects.getPageable(), subjects.getTotalElements() - hiddenSubjects);
+    }
+
     private Optional<TaskInfo> createTaskInfoFromSubject(Subject subject) {
-        return subject.getVisibleCurrentState()
+        return engineConverter.getVisibleCurrentState(subject)
                 .filter(state -> !state.isEnd())
                 .map(state -> engineConverter.convertSubjectState(subject, state));
     }
@@ -185,14 +221,14 @@ public class EngineServiceBoundary implements EngineService {
 
         BindingContext bindingContext = BindingContext.ofSubject(subject);
 
-        FunctionState currentState = subject.getVisibleCurrentState()
+        StateView currentState = engineConverter.getVisibleCurrentState(subject)
                 .orElseThrow(() -> {
                     String msg = MessageFormat.format("no current state for {0}", subject.toString());
                     return new IllegalStateException(msg);
                 });
 
-        ObjectModel objectModel = subject.getProcessInstance().getProcessModel().getObjectModels().stream()
-                .filter(model -> currentState.hasAnyStatePermission(model))
+        ObjectView object = engineConverter.getProcessModel(subject).getObjects().stream()
+                .filter(model -> currentState.hasAnyPermission(model))
                 .filter(model -> model.getId().equals(objectRequest.getId()))
                 .findFirst()
                 .orElseThrow(() -> {
@@ -200,7 +236,7 @@ public class EngineServiceBoundary implements EngineService {
                             objectRequest.getId(), currentState.getName());
                     return new IllegalStateException(msg);
                 });
-        return validationService.createAutocompleteResponse(currentState, objectModel, queryString, bindingContext);
+        return validationService.createAutocompleteResponse(currentState, object, queryString, bindingContext);
     }
 
     private Subject validateTaskInfo(TaskInfo taskInfo) throws TaskNotFoundException, TaskOutOfDateException {
@@ -208,11 +244,11 @@ public class EngineServiceBoundary implements EngineService {
         //TODO lock subject and throw Exception
 
         //There is no direct database representation for a task; basically a Subject with a State represents a task
-        Subject subject = subjectService.findById(taskInfo.getId())
+        Subject subject = subjectService.findTaskById(taskInfo.getId())
                 .orElseThrow(newTaskNotFoundException(taskInfo.getId()));
         if (subject.getLastChanged().isAfter(taskInfo.getLastChanged())) {
             throw newTaskOutOfDateException(subject, taskInfo.getLastChanged());
-        } else if (!subject.getVisibleCurrentState()
+        } else if (!engineConverter.getVisibleCurrentState(subject)
                 .filter(state -> !state.isEnd())
                 .isPresent()) {
             //not sure why this happens, subject should be locked with LockModeType.PESSIMISTIC_WRITE
@@ -16,20 +16,32 @@
  ******************************************************************************/
 package org.opensbpm.engine.core;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
+import jakarta.persistence.EntityManager;
 import org.opensbpm.engine.api.EngineException;
 import org.opensbpm.engine.api.InstanceService;
 import org.opensbpm.engine.api.ProcessNotFoundException;
+import org.opensbpm.engine.api.SearchFilter;
+import org.opensbpm.engine.api.SearchFilter.Criteria.Operation;
 import org.opensbpm.engine.api.instance.AuditTrail;
 import org.opensbpm.engine.api.instance.ProcessInfo;
 import org.opensbpm.engine.api.instance.ProcessInstanceState;
 import org.opensbpm.engine.core.engine.EngineConverter;
+import org.opensbpm.engine.core.engine.ObjectIndexService;
 import org.opensbpm.engine.core.engine.ProcessInstanceService;
 import org.opensbpm.engine.core.engine.SubjectTrailService;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance;
+import org.opensbpm.engine.core.engine.entities.SubjectTrail;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import static org.opensbpm.engine.core.ExceptionFactory.newProcessNotFoundException;
@@ -40,16 +52,48 @@ public class InstanceServiceBoundary implements InstanceService {
     @Autowired
     private ProcessInstanceService processInstanceService;
 
+    @Autowired
+    private ObjectIndexService objectIndexService;
+
     @Autowired
     private SubjectTrailService subjectTrailService;
     
     @Autowired
     private EngineConverter engineConverter;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Value("${opensbpm.engine.scroll.window-size:500}")
+    private int windowSize;
+
     @Transactional(readOnly = true, noRollbackFor = Exception.class)
     @Override
+    @Deprecated
     public Collection<ProcessInfo> findAllByStates(Set<ProcessInstanceState> states) {
-        return engineConverter.convertInstances(processInstanceService.findAllByStates(states));
+        return scrollAll(position -> processInstanceService.findAllByStates(states, position, windowSize),
+                processInstance -> engineConverter.convertInstance(processInstance));
+    }
+
+    @Transactional(readOnly = true, noRollbackFor = Exception.class)
+    @Override
+    public Window<ProcessInfo> findAllByStates(Set<ProcessInstanceState> states, ScrollPosition position, int limit) {
+        return processInstanceService.findAllByStates(states, position, limit)
+                .map(processInstance -> engineConverter.convertInstance(processInstance));
+    }
+
+    @Transactional(readOnly = true, noRollbackFor = Exception.class)
+    @Override
+    public Page<ProcessInfo> find(SearchFilter searchFilter, Pageable pageable) {
+        return processInstanceService.findAll(searchFilter, pageable)
+                .map(processInstance -> engineConverter.convertInstance(processInstance));
+    }
+
+    @Transactional(readOnly = true, noRollbackFor = Exception.class)
+    @Override
+    public Collection<ProcessInfo> findAllByAttribute(String objectName, String attributeName, Operation operation, Object value) {
+        return engineConverter.convertInstances(processInstanceService.findAll(
+                objectIndexService.withAttributeValue(objectName, attributeName, operation, value)));
     }
 
     @Transactional(readOnly = true, noRollbackFor = Exception.class)
@@ -67,9 +111,38 @@ public class InstanceServiceBoundary implements InstanceService {
 
     @Transactional(readOnly = true, noRollbackFor = Exception.class)
     @Override
+    @Deprecated
     public List<AuditTrail> getAuditTrail(ProcessRequest processRequest) throws ProcessNotFoundException {
+        Long processId = findInstance(processRequest).getId();
+        return scrollAll(position -> subjectTrailService.getSubjectTrail(processId, position, windowSize),
+                subjectTrail -> engineConverter.convertTrail(subjectTrail));
+    }
+
+    @Transactional(readOnly = true, noRollbackFor = Exception.class)
+    @Override
+    public Window<AuditTrail> getAuditTrail(ProcessRequest processRequest, ScrollPosition position, int limit) throws ProcessNotFoundException {
         ProcessInstance processInstance = findInstance(processRequest);
-        return engineConverter.convertAuditTrails(subjectTrailService.getSubjectTrail(processInstance.getId()));
+        return subjectTrailService.getSubjectTrail(processInstance.getId(), position, limit)
+                .map((SubjectTrail subjectTrail) -> engineConverter.convertTrail(subjectTrail));
+    }
+
+    /**
+     * Reads all windows and converts them; the persistence context is cleared
+     * after each window, so only one window of entities is held at a time.
+     */
+    private <T, R> List<R> scrollAll(Function<ScrollPosition, Window<T>> windowFinder, Function<T, R> converter) {
+        List<R> results = new ArrayList<>();
+        ScrollPosition position = ScrollPosition.keyset();
+        Window<T> window;
+        do {
+            window = windowFinder.apply(position);
+            window.forEach(entity -> results.add(converter.apply(entity)));
+            if (!window.isEmpty()) {
+                position = window.positionAt(window.size() - 1);
+            }
+            entityManager.clear();
+        } while (window.hasNext());
+        return results;
     }
 
     private ProcessInstance findInstance(ProcessRequest processRequest) throws ProcessNotFoundException {
@@ -27,7 +27,7 @@ import org.opensbpm.engine.api.model.ProcessModelInfo;
 import org.opensbpm.engine.api.model.ProcessModelState;
 import org.opensbpm.engine.api.model.definition.ProcessDefinition;
 import org.opensbpm.engine.core.model.ProcessDefinitionPersistor;
-import org.opensbpm.engine.core.model.ProcessModelConverter;
+import org.opensbpm.engine.core.model.ProcessModelCache;
 import org.opensbpm.engine.core.model.ProcessModelService;
 import org.opensbpm.engine.core.model.entities.ProcessModel;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,7 +35,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import static org.opensbpm.engine.core.ExceptionFactory.newModelNotFoundException;
 import static org.opensbpm.engine.core.model.ModelConverter.convertModel;
-import static org.opensbpm.engine.core.model.ModelConverter.convertModels;
 import org.springframework.transaction.annotation.Isolation;
 
 @Service
@@ -47,16 +46,19 @@ public class ModelServiceBoundary implements ModelService {
     @Autowired
     private ProcessDefinitionPersistor definitionPersistor;
 
+    @Autowired
+    private ProcessModelCache processModelCache;
+
     @Transactional(readOnly = true, noRollbackFor = Exception.class)
     @Override
     public List<ProcessModelInfo> findAllByStates(Set<ProcessModelState> states) {
-        return convertModels(processModelService.findAllByStates(states));
+        return processModelCache.getModelInfos(processModelService.findAllByStates(states));
     }
 
     @Transactional(readOnly = true, noRollbackFor = Exception.class)
     @Override
     public ProcessDefinition retrieveDefinition(ModelRequest modelRequest) throws ModelNotFoundException {
-        return ProcessModelConverter.convert(findModel(modelRequest));
+        return processModelCache.getDefinition(findModel(modelRequest));
     }
 
     @Transactional
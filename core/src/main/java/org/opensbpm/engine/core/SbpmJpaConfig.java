@@ -17,7 +17,10 @@
 package org.opensbpm.engine.core;
 
 import org.opensbpm.engine.core.utils.repositories.DefaultJpaSpecificationRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
@@ -31,4 +34,16 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 )
 @Configuration
 public class SbpmJpaConfig {
+
+    /**
+     * Lazy associations not covered by an entity graph of a read use case are
+     * loaded in batches instead of one query per entity. A value of
+     * {@code hibernate.default_batch_fetch_size} in the JPA properties takes
+     * precedence.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer batchFetchSizeCustomizer(
+            @Value("${opensbpm.engine.jpa.batch-fetch-size:64}") int batchFetchSize) {
+        return properties -> properties.putIfAbsent("hibernate.default_batch_fetch_size", batchFetchSize);
+    }
 }
@@ -21,6 +21,8 @@ import java.util.stream.Collectors;
 import org.opensbpm.engine.api.TaskProviderService;
 import org.opensbpm.engine.api.taskprovider.TaskProviderInfo;
 import org.opensbpm.engine.api.taskprovider.TaskProviderInfo.ProviderResource;
+import org.opensbpm.engine.api.taskprovider.TaskProviderLimits;
+import org.opensbpm.engine.api.taskprovider.TaskProviderStatistics;
 import org.opensbpm.engine.core.engine.TaskProviderManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -52,4 +54,16 @@ public class TaskProviderServiceBoundary implements TaskProviderService {
                 .addResource(providerResource);
     }
 
+    @Override
+    public TaskProviderStatistics getStatistics(TaskProviderInfo taskProviderInfo) {
+        return taskProviderManager.getBulkhead(taskProviderInfo.getName())
+                .getStatistics();
+    }
+
+    @Override
+    public void updateLimits(TaskProviderInfo taskProviderInfo, TaskProviderLimits limits) {
+        taskProviderManager.getBulkhead(taskProviderInfo.getName())
+                .setLimits(limits);
+    }
+
 }
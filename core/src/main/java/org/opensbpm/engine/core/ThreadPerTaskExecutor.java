@@ -0,0 +1,168 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link Executor} which starts a new thread of its {@link ThreadFactory} for
+ * every task, usually a virtual thread (see {@link #createVirtualThreadFactory(String)}).
+ * <p>
+ * At most {@code maxConcurrency} tasks run at the same time. Further tasks
+ * wait in a queue of {@code queueCapacity} and are started as soon as a
+ * running task finished. If the queue is full, the task is rejected with a
+ * {@link RejectedExecutionException}.
+ */
+class ThreadPerTaskExecutor implements Executor {
+
+    private static final Logger LOGGER = Logger.getLogger(ThreadPerTaskExecutor.class.getName());
+
+    /**
+     * @param threadNamePrefix prefix of the names of the created threads
+     * @return factory of virtual threads
+     * @throws IllegalStateException if the JVM doesn't support virtual threads (before Java 21)
+     */
+    static ThreadFactory createVirtualThreadFactory(String threadNamePrefix) {
+        try {
+            //Thread.ofVirtual().name(prefix, 1).factory() without requiring Java 21 to compile
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("virtual threads require Java 21 or later, running "
+                    + System.getProperty("java.version"), ex);
+        }
+    }
+
+    /**
+     * @param threadNamePrefix prefix of the names of the created threads
+     * @return factory of daemon platform threads
+     */
+    static ThreadFactory createPlatformThreadFactory(String threadNamePrefix) {
+        AtomicLong threadNumber = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final ThreadFactory threadFactory;
+    private final Semaphore permits;
+    private final BlockingQueue<Runnable> queue;
+
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong rejectedTasks = new AtomicLong();
+
+    public ThreadPerTaskExecutor(ThreadFactory threadFactory, int maxConcurrency, int queueCapacity) {
+        if (maxConcurrency < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("maxConcurrency and queueCapacity must be positive");
+        }
+        this.threadFactory = Objects.requireNonNull(threadFactory, "threadFactory must not be null");
+        this.permits = new Semaphore(maxConcurrency);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Objects.requireNonNull(task, "task must not be null");
+        if (permits.tryAcquire()) {
+            start(task);
+        } else if (queue.offer(task)) {
+            //a task may have finished in between without seeing the queued one
+            if (permits.tryAcquire()) {
+                startNext();
+            }
+        } else {
+            rejectedTasks.incrementAndGet();
+            throw new RejectedExecutionException("task queue full, " + task + " rejected");
+        }
+    }
+
+    /**
+     * starts the given task with a permit acquired by the caller
+     */
+    private void start(Runnable task) {
+        activeTasks.incrementAndGet();
+        try {
+            threadFactory.newThread(() -> run(task)).start();
+        } catch (RuntimeException | Error ex) {
+            activeTasks.decrementAndGet();
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+        } finally {
+            activeTasks.decrementAndGet();
+            completedTasks.incrementAndGet();
+            startNext();
+        }
+    }
+
+    /**
+     * starts the next queued task with a permit acquired by the caller, or
+     * releases the permit if no task is queued
+     */
+    private void startNext() {
+        Runnable next = queue.poll();
+        if (next != null) {
+            start(next);
+        } else {
+            permits.release();
+            //a task may have been queued while the permit was held
+            if (!queue.isEmpty() && permits.tryAcquire()) {
+                startNext();
+            }
+        }
+    }
+
+    public int getActiveCount() {
+        return activeTasks.get();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getCompletedCount() {
+        return completedTasks.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedTasks.get();
+    }
+
+}
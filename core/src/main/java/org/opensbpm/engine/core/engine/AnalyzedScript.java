@@ -0,0 +1,121 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import org.codehaus.groovy.ast.CodeVisitorSupport;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.Phases;
+
+/**
+ * {@link CompiledScript} of a Groovy script, which variables are determined by
+ * parsing the script once when it is compiled.
+ */
+class AnalyzedScript extends CompiledScript implements ReferencesVariables {
+
+    private static final Logger LOGGER = Logger.getLogger(AnalyzedScript.class.getName());
+
+    /**
+     * Analyzes the variables of a Groovy script.
+     *
+     * @param compiledScript compiled form of the script
+     * @param source Groovy source of the script
+     * @return the analyzed script
+     */
+    public static AnalyzedScript of(CompiledScript compiledScript, String source) {
+        return new AnalyzedScript(compiledScript, findVariableNames(source));
+    }
+
+    private static Optional<Set<String>> findVariableNames(String source) {
+        try {
+            CompilationUnit compilationUnit = new CompilationUnit();
+            compilationUnit.addSource("Expression.groovy", source);
+            compilationUnit.compile(Phases.CONVERSION);
+
+            Set<String> variableNames = new HashSet<>();
+            CodeVisitorSupport visitor = new CodeVisitorSupport() {
+                @Override
+                public void visitVariableExpression(VariableExpression expression) {
+                    //local variables are included too; an unused name costs nothing with LazyBindings
+                    if (!expression.isThisExpression() && !expression.isSuperExpression()) {
+                        variableNames.add(expression.getName());
+                    }
+                    super.visitVariableExpression(expression);
+                }
+            };
+            for (ModuleNode moduleNode : compilationUnit.getAST().getModules()) {
+                if (moduleNode.getClasses().size() > 1 || !moduleNode.getMethods().isEmpty()) {
+                    //declared methods and classes may access the binding too
+                    return Optional.empty();
+                }
+                moduleNode.getStatementBlock().visit(visitor);
+            }
+            if (variableNames.contains("binding")) {
+                //the binding itself gives access to any variable
+                return Optional.empty();
+            }
+            return Optional.of(Collections.unmodifiableSet(variableNames));
+        } catch (CompilationFailedException ex) {
+            LOGGER.log(Level.FINE, ex.getMessage(), ex);
+            return Optional.empty();
+        }
+    }
+
+    private final CompiledScript compiledScript;
+    private final Optional<Set<String>> variableNames;
+
+    private AnalyzedScript(CompiledScript compiledScript, Optional<Set<String>> variableNames) {
+        this.compiledScript = Objects.requireNonNull(compiledScript, "compiledScript must not be null");
+        this.variableNames = Objects.requireNonNull(variableNames, "variableNames must not be null");
+    }
+
+    @Override
+    public Optional<Set<String>> getVariableNames() {
+        return variableNames;
+    }
+
+    @Override
+    public Object eval(ScriptContext context) throws ScriptException {
+        return compiledScript.eval(context);
+    }
+
+    @Override
+    public Object eval(Bindings bindings) throws ScriptException {
+        return compiledScript.eval(bindings);
+    }
+
+    @Override
+    public ScriptEngine getEngine() {
+        return compiledScript.getEngine();
+    }
+
+}
@@ -0,0 +1,191 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.opensbpm.engine.api.instance.NextState;
+import org.opensbpm.engine.api.instance.Task;
+import org.opensbpm.engine.api.spi.AsyncTaskExecutionProvider;
+import org.opensbpm.engine.core.engine.ProviderBulkhead.Permit;
+import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.PreparedTask;
+import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.ProviderTaskExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Executes the tasks of {@link AsyncTaskExecutionProvider}s without holding a
+ * transaction while the provider call is in flight.
+ * <p>
+ * The task is prepared in a short read-only transaction. The provider is
+ * called by a thread of its {@link ProviderBulkhead} once the task got an
+ * execution slot; a task rejected by the bulkhead may be retried by the
+ * caller. When the provider completes, the result is applied on the engine
+ * executor (see {@link org.opensbpm.engine.core.AsyncConfig}), not on the
+ * thread which completed the future, in a new transaction which locks the
+ * subject and checks that it wasn't changed since the task was prepared; an
+ * out of date result is dropped. A failed or timed out
+ * ({@code opensbpm.engine.async-tasks.timeout}) call cancels the process.
+ * <p>
+ * Binds the meters {@code opensbpm.engine.async-tasks.in-flight},
+ * {@code .completed}, {@code .outdated} and {@code .failed}.
+ */
+@Component
+public class AsyncProviderTaskExecutor implements MeterBinder {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncProviderTaskExecutor.class.getName());
+
+    private final ProviderTaskExecutor providerTaskExecutor;
+    private final Executor engineExecutor;
+    private final Duration timeout;
+    private final AtomicInteger inFlightTasks = new AtomicInteger();
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong outdatedTasks = new AtomicLong();
+    private final AtomicLong failedTasks = new AtomicLong();
+
+    @Autowired
+    public AsyncProviderTaskExecutor(ProviderTaskExecutor providerTaskExecutor, AsyncConfigurer asyncConfigurer,
+            @Value("${opensbpm.engine.async-tasks.timeout:PT5M}") Duration timeout) {
+        this(providerTaskExecutor, asyncConfigurer.getAsyncExecutor(), timeout);
+    }
+
+    AsyncProviderTaskExecutor(ProviderTaskExecutor providerTaskExecutor, Executor engineExecutor, Duration timeout) {
+        this.providerTaskExecutor = Objects.requireNonNull(providerTaskExecutor, "providerTaskExecutor must not be null");
+        this.engineExecutor = Objects.requireNonNull(engineExecutor, "engineExecutor must not be null");
+        this.timeout = Objects.requireNonNull(timeout, "timeout must not be null");
+    }
+
+    /**
+     * Starts the execution of the given task of an
+     * {@link AsyncTaskExecutionProvider}; returns without waiting for the
+     * provider.
+     *
+     * @param preparedTask task to execute
+     * @return completes after the result of the task was applied, or
+     * exceptionally with a {@link BulkheadRejectedException} if the provider
+     * rejected the task
+     */
+    public CompletableFuture<Void> execute(PreparedTask preparedTask) {
+        //the call is started by the thread of the provider which got the permit
+        return preparedTask.getBulkhead().acquireAsync()
+                .thenCompose(permit -> execute(preparedTask, permit));
+    }
+
+    private CompletableFuture<Void> execute(PreparedTask preparedTask, Permit permit) {
+        AsyncTaskExecutionProvider provider = (AsyncTaskExecutionProvider) preparedTask.getProvider();
+        Task task = preparedTask.getTask();
+        CompletableFuture<NextState> result;
+        inFlightTasks.incrementAndGet();
+        try {
+            result = provider.executeTaskAsync(preparedTask.getParameters(), task).toCompletableFuture()
+                    //a copy, to not complete the future of the provider by the timeout
+                    .thenApply(nextState -> nextState)
+                    .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ex) {
+            //catch all exceptions from taskExecutionProvider here
+            result = CompletableFuture.failedFuture(ex);
+        }
+        return result.handleAsync((nextState, failure) -> {
+            permit.release(failure != null);
+            inFlightTasks.decrementAndGet();
+            complete(task, nextState, failure);
+            return null;
+        }, this::executeOnEngine);
+    }
+
+    private void executeOnEngine(Runnable command) {
+        try {
+            engineExecutor.execute(command);
+        } catch (RejectedExecutionException ex) {
+            //the result must not get lost, so apply it on the completing thread
+            LOGGER.log(Level.WARNING, "engine executor rejected result, applying it on {0}", Thread.currentThread().getName());
+            command.run();
+        }
+    }
+
+    private void complete(Task task, NextState nextState, Throwable failure) {
+        if (failure != null) {
+            cancel(task, unwrap(failure));
+            return;
+        }
+        try {
+            if (providerTaskExecutor.changeState(task, nextState)) {
+                completedTasks.incrementAndGet();
+            } else {
+                outdatedTasks.incrementAndGet();
+            }
+        } catch (Exception ex) {
+            cancel(task, ex);
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private void cancel(Task task, Throwable failure) {
+        failedTasks.incrementAndGet();
+        String message = failure instanceof TimeoutException
+                ? "no result within " + timeout
+                : failure.getMessage();
+        LOGGER.log(Level.SEVERE, task.getTaskInfo() + " failed: " + message, failure);
+        try {
+            providerTaskExecutor.cancelBySystem(task.getTaskInfo(), message);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "cancelling " + task.getTaskInfo() + " failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("opensbpm.engine.async-tasks.in-flight", inFlightTasks, AtomicInteger::get)
+                .description("provider calls not completed yet")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.async-tasks.completed", completedTasks, AtomicLong::get)
+                .description("results applied to their task")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.async-tasks.outdated", outdatedTasks, AtomicLong::get)
+                .description("results dropped, because the subject was changed in the meantime")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.async-tasks.failed", failedTasks, AtomicLong::get)
+                .description("failed or timed out provider calls")
+                .register(registry);
+    }
+
+}
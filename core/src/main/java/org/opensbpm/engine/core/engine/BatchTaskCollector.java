@@ -0,0 +1,301 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.opensbpm.engine.api.instance.NextState;
+import org.opensbpm.engine.api.instance.Task;
+import org.opensbpm.engine.api.spi.BatchTaskExecutionProvider;
+import org.opensbpm.engine.api.spi.BatchTaskExecutionProvider.TaskResult;
+import org.opensbpm.engine.api.spi.TaskExecutionException;
+import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.PreparedTask;
+import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.ProviderTaskExecutor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Collects the tasks of {@link BatchTaskExecutionProvider}s into micro-batches
+ * per provider and function state.
+ * <p>
+ * A batch is executed as soon as it contains
+ * {@link BatchTaskExecutionProvider#getMaxBatchSize()} tasks, or
+ * {@code opensbpm.engine.batch.window} after its first task arrived. The
+ * result of every task is applied in a transaction of its own; a task which
+ * failed, or which state couldn't be changed, cancels only its own process.
+ * <p>
+ * The batches of a provider are executed by a thread of this provider, so
+ * neither the thread adding a task nor the timer of the windows wait for a
+ * provider, and a slow provider doesn't delay the batches of others. A batch
+ * rejected by the {@link ProviderBulkhead} of its provider is retried after
+ * {@code opensbpm.engine.providers.retry-delay}. On shutdown the pending
+ * batches are executed and awaited for
+ * {@code opensbpm.engine.batch.shutdown-timeout}.
+ * <p>
+ * Binds the meters {@code opensbpm.engine.batch.pending},
+ * {@code opensbpm.engine.batch.batches}, {@code opensbpm.engine.batch.executed}
+ * and {@code opensbpm.engine.batch.failed}.
+ */
+@Component
+public class BatchTaskCollector implements DisposableBean, MeterBinder {
+
+    private static final Logger LOGGER = Logger.getLogger(BatchTaskCollector.class.getName());
+
+    private final ProviderTaskExecutor providerTaskExecutor;
+    private final Duration window;
+    private final Duration shutdownTimeout;
+    private final Duration retryDelay;
+    private final ScheduledExecutorService scheduler;
+    private final Map<BatchKey, Batch> batches = new HashMap<>();
+    private final Map<String, ExecutorService> providerExecutors = new ConcurrentHashMap<>();
+    private final AtomicLong executedBatches = new AtomicLong();
+    private final AtomicLong executedTasks = new AtomicLong();
+    private final AtomicLong failedTasks = new AtomicLong();
+
+    @Autowired
+    public BatchTaskCollector(ProviderTaskExecutor providerTaskExecutor,
+            @Value("${opensbpm.engine.batch.window:PT0.05S}") Duration window,
+            @Value("${opensbpm.engine.batch.shutdown-timeout:PT30S}") Duration shutdownTimeout,
+            @Value("${opensbpm.engine.providers.retry-delay:PT1S}") Duration retryDelay) {
+        this.providerTaskExecutor = Objects.requireNonNull(providerTaskExecutor, "providerTaskExecutor must not be null");
+        this.window = Objects.requireNonNull(window, "window must not be null");
+        this.shutdownTimeout = Objects.requireNonNull(shutdownTimeout, "shutdownTimeout must not be null");
+        this.retryDelay = Objects.requireNonNull(retryDelay, "retryDelay must not be null");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BatchTaskCollector");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds the given task of a {@link BatchTaskExecutionProvider} to the batch
+     * of its function state.
+     *
+     * @param preparedTask task to execute
+     */
+    public void add(PreparedTask preparedTask) {
+        BatchTaskExecutionProvider provider = (BatchTaskExecutionProvider) preparedTask.getProvider();
+        BatchKey key = new BatchKey(provider.getName(), preparedTask.getStateId());
+        Batch fullBatch = null;
+        synchronized (batches) {
+            Batch batch = batches.get(key);
+            if (batch == null) {
+                batch = new Batch(provider, preparedTask.getBulkhead(), preparedTask.getParameters());
+                batches.put(key, batch);
+                scheduler.schedule(() -> flush(key), window.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            batch.tasks.add(preparedTask.getTask());
+            if (batch.tasks.size() >= Math.max(1, batch.provider.getMaxBatchSize())) {
+                fullBatch = batches.remove(key);
+            }
+        }
+        if (fullBatch != null) {
+            submit(fullBatch);
+        }
+    }
+
+    private void flush(BatchKey key) {
+        Batch batch;
+        synchronized (batches) {
+            batch = batches.remove(key);
+        }
+        //null if the batch was executed because it was full
+        if (batch != null) {
+            submit(batch);
+        }
+    }
+
+    private void submit(Batch batch) {
+        ExecutorService executor = providerExecutors.computeIfAbsent(batch.provider.getName(), providerName
+                -> Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "BatchTaskCollector-" + providerName);
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+        try {
+            executor.execute(() -> execute(batch));
+        } catch (RejectedExecutionException ex) {
+            LOGGER.log(Level.SEVERE, "batch of " + batch.provider.getName() + " rejected: " + ex.getMessage(), ex);
+            batch.tasks.forEach(task -> cancel(task, "batch rejected on shutdown"));
+        }
+    }
+
+    private void execute(Batch batch) {
+        LOGGER.log(Level.INFO, "executing {0} tasks by {1}", new Object[]{batch.tasks.size(), batch.provider.getName()});
+        executedBatches.incrementAndGet();
+        List<TaskResult> results;
+        try {
+            results = batch.bulkhead.execute(() -> batch.provider.executeTasks(batch.parameters, batch.tasks));
+            if (results == null || results.size() != batch.tasks.size()) {
+                throw new TaskExecutionException(batch.provider.getName() + " returned "
+                        + (results == null ? "no" : results.size()) + " results for " + batch.tasks.size() + " tasks");
+            }
+        } catch (BulkheadRejectedException ex) {
+            LOGGER.log(Level.WARNING, "{0}, retrying in {1}", new Object[]{ex.getMessage(), retryDelay});
+            retry(batch);
+            return;
+        } catch (Exception ex) {
+            //catch all exceptions from taskExecutionProvider here
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+            batch.tasks.forEach(task -> cancel(task, ex.getMessage()));
+            return;
+        }
+        for (int index = 0; index < batch.tasks.size(); index++) {
+            apply(batch.tasks.get(index), results.get(index));
+        }
+    }
+
+    private void retry(Batch batch) {
+        try {
+            scheduler.schedule(() -> submit(batch), retryDelay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            batch.tasks.forEach(task -> cancel(task, "batch rejected on shutdown"));
+        }
+    }
+
+    private void apply(Task task, TaskResult result) {
+        try {
+            NextState nextState = result.getNextState();
+            if (providerTaskExecutor.changeState(task, nextState)) {
+                executedTasks.incrementAndGet();
+            }
+        } catch (Exception ex) {
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+            cancel(task, ex.getMessage());
+        }
+    }
+
+    private void cancel(Task task, String message) {
+        failedTasks.incrementAndGet();
+        try {
+            providerTaskExecutor.cancelBySystem(task.getTaskInfo(), message);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "cancelling " + task.getTaskInfo() + " failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    private int getPendingCount() {
+        synchronized (batches) {
+            return batches.values().stream().mapToInt(batch -> batch.tasks.size()).sum();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("opensbpm.engine.batch.pending", this, BatchTaskCollector::getPendingCount)
+                .description("tasks waiting for their batch")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.batch.batches", executedBatches, AtomicLong::get)
+                .description("batches executed by the providers")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.batch.executed", executedTasks, AtomicLong::get)
+                .description("tasks which result was applied")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.batch.failed", failedTasks, AtomicLong::get)
+                .description("tasks which cancelled their process")
+                .register(registry);
+    }
+
+    /**
+     * Executes the pending batches without waiting for their windows and
+     * waits until all batches are done.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        scheduler.shutdownNow();
+        List<Batch> pendingBatches;
+        synchronized (batches) {
+            pendingBatches = new ArrayList<>(batches.values());
+            batches.clear();
+        }
+        pendingBatches.forEach(this::submit);
+        providerExecutors.values().forEach(ExecutorService::shutdown);
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        for (ExecutorService executor : providerExecutors.values()) {
+            if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                LOGGER.log(Level.WARNING, "batches not done within {0}, stopping", shutdownTimeout);
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static class Batch {
+
+        private final BatchTaskExecutionProvider provider;
+        private final ProviderBulkhead bulkhead;
+        private final Map<String, String> parameters;
+        private final List<Task> tasks = new ArrayList<>();
+
+        private Batch(BatchTaskExecutionProvider provider, ProviderBulkhead bulkhead, Map<String, String> parameters) {
+            this.provider = provider;
+            this.bulkhead = bulkhead;
+            this.parameters = parameters;
+        }
+
+    }
+
+    private static class BatchKey {
+
+        private final String providerName;
+        private final Long stateId;
+
+        private BatchKey(String providerName, Long stateId) {
+            this.providerName = providerName;
+            this.stateId = stateId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof BatchKey)) {
+                return false;
+            }
+            BatchKey other = (BatchKey) obj;
+            return providerName.equals(other.providerName) && stateId.equals(other.stateId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(providerName, stateId);
+        }
+
+    }
+
+}
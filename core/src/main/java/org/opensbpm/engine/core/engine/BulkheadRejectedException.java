@@ -0,0 +1,33 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import org.opensbpm.engine.api.spi.TaskExecutionException;
+
+/**
+ * A task was rejected by the {@link ProviderBulkhead} of its provider, because
+ * the provider is at its limits. The task wasn't executed and may be retried
+ * later.
+ */
+public class BulkheadRejectedException extends TaskExecutionException {
+
+    public BulkheadRejectedException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,240 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.script.CompiledScript;
+import javax.script.ScriptException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of {@link CompiledScript}s keyed by the script source.
+ * Entries are evicted in least-recently-used order when {@link #getMaximumSize()} is exceeded and
+ * after they were not accessed for {@link #getExpireAfterAccess()}.
+ * Evicted scripts implementing {@link AutoCloseable} are closed to release their resources, e.g. class loaders.
+ * <p>
+ * A hit only reads the concurrent map and stamps the access time of the entry, so evaluations don't contend on
+ * a lock; expired and surplus entries are evicted on the next miss. Listeners added with
+ * {@link #addRemovalListener(Consumer)} are notified with the source of every evicted or invalidated script.
+ * <p>
+ * Binds the meters {@code opensbpm.engine.script.cache.size}, {@code .gets} (tagged with the {@code result}
+ * hit or miss) and {@code .evictions}, all tagged with the {@code cache} name.
+ */
+@Component
+public class CompiledScriptCache implements MeterBinder {
+
+    public static final String DEFAULT_NAME = "script";
+
+    private static final Logger LOGGER = Logger.getLogger(CompiledScriptCache.class.getName());
+
+    private final String name;
+    private final int maximumSize;
+    private final long expireAfterAccessNanos;
+    private final LongSupplier ticker;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+    private final List<Consumer<String>> removalListeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public CompiledScriptCache(@Value("${opensbpm.engine.script.cache.maximum-size:1000}") int maximumSize,
+            @Value("${opensbpm.engine.script.cache.expire-after-access:PT1H}") Duration expireAfterAccess) {
+        this(DEFAULT_NAME, maximumSize, expireAfterAccess);
+    }
+
+    public CompiledScriptCache(String name, int maximumSize, Duration expireAfterAccess) {
+        this(name, maximumSize, expireAfterAccess, System::nanoTime);
+    }
+
+    CompiledScriptCache(int maximumSize, Duration expireAfterAccess, LongSupplier ticker) {
+        this(DEFAULT_NAME, maximumSize, expireAfterAccess, ticker);
+    }
+
+    private CompiledScriptCache(String name, int maximumSize, Duration expireAfterAccess, LongSupplier ticker) {
+        this.name = Objects.requireNonNull(name, "name must not be null");
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be greater than 0");
+        }
+        this.maximumSize = maximumSize;
+        this.expireAfterAccessNanos = Objects.requireNonNull(expireAfterAccess, "expireAfterAccess must not be null").toNanos();
+        this.ticker = Objects.requireNonNull(ticker, "ticker must not be null");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public Duration getExpireAfterAccess() {
+        return Duration.ofNanos(expireAfterAccessNanos);
+    }
+
+    /**
+     * @param removalListener receives the source of each script removed from this cache
+     */
+    public void addRemovalListener(Consumer<String> removalListener) {
+        removalListeners.add(Objects.requireNonNull(removalListener, "removalListener must not be null"));
+    }
+
+    /**
+     * Returns the cached {@link CompiledScript} for the given script or compiles and caches it with the given
+     * {@link ScriptCompiler}.
+     *
+     * @param script source of the script
+     * @param compiler compiles the script if not cached yet
+     * @return the compiled script
+     * @throws ScriptException if the script could not be compiled
+     */
+    public CompiledScript get(String script, ScriptCompiler compiler) throws ScriptException {
+        Objects.requireNonNull(script, "script must not be null");
+        Objects.requireNonNull(compiler, "compiler must not be null");
+
+        long now = ticker.getAsLong();
+        Entry entry = entries.get(script);
+        if (entry != null && !entry.isExpired(now)) {
+            entry.accessed = now;
+            hits.incrementAndGet();
+            return entry.compiledScript;
+        }
+
+        misses.incrementAndGet();
+        //compile outside of the map; concurrent misses of the same script may compile twice
+        CompiledScript compiledScript = compiler.compile(script);
+        Entry replaced = entries.put(script, new Entry(compiledScript, now));
+        if (replaced != null) {
+            release(replaced);
+        }
+        evictEntries(now);
+        return compiledScript;
+    }
+
+    private void evictEntries(long now) {
+        synchronized (evictionLock) {
+            entries.forEach((script, entry) -> {
+                if (entry.isExpired(now)) {
+                    evict(script, entry);
+                }
+            });
+            int surplus = entries.size() - maximumSize;
+            if (surplus > 0) {
+                List<Map.Entry<String, Entry>> leastRecentlyUsed = entries.entrySet().stream()
+                        .sorted(Comparator.comparingLong(mapEntry -> mapEntry.getValue().accessed))
+                        .limit(surplus)
+                        .collect(Collectors.toList());
+                leastRecentlyUsed.forEach(mapEntry -> evict(mapEntry.getKey(), mapEntry.getValue()));
+            }
+        }
+    }
+
+    private void evict(String script, Entry entry) {
+        if (entries.remove(script, entry)) {
+            evictions.incrementAndGet();
+            release(entry);
+            removalListeners.forEach(removalListener -> removalListener.accept(script));
+        }
+    }
+
+    public void invalidateAll() {
+        entries.forEach((script, entry) -> {
+            if (entries.remove(script, entry)) {
+                release(entry);
+                removalListeners.forEach(removalListener -> removalListener.accept(script));
+            }
+        });
+    }
+
+    private void release(Entry entry) {
+        if (entry.compiledScript instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) entry.compiledScript).close();
+            } catch (Exception ex) {
+                LOGGER.log(Level.WARNING, ex.getMessage(), ex);
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("opensbpm.engine.script.cache.size", this, CompiledScriptCache::size)
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.script.cache.gets", hits, AtomicLong::get)
+                .tag("cache", name)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.script.cache.gets", misses, AtomicLong::get)
+                .tag("cache", name)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.script.cache.evictions", evictions, AtomicLong::get)
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    private class Entry {
+
+        private final CompiledScript compiledScript;
+        private volatile long accessed;
+
+        private Entry(CompiledScript compiledScript, long accessed) {
+            this.compiledScript = compiledScript;
+            this.accessed = accessed;
+        }
+
+        private boolean isExpired(long now) {
+            return now - accessed >= expireAfterAccessNanos;
+        }
+
+    }
+
+    @FunctionalInterface
+    public interface ScriptCompiler {
+
+        CompiledScript compile(String script) throws ScriptException;
+    }
+
+}
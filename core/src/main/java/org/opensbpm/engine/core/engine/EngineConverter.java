@@ -17,8 +17,11 @@
  */
 package org.opensbpm.engine.core.engine;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.opensbpm.engine.api.instance.AuditTrail;
 import org.opensbpm.engine.api.instance.NextState;
@@ -34,12 +37,10 @@ import org.opensbpm.engine.core.engine.entities.Subject;
 import org.opensbpm.engine.core.engine.entities.SubjectTrail;
 import org.opensbpm.engine.core.engine.entities.User;
 import org.opensbpm.engine.core.engine.entities.UserSubject;
-import org.opensbpm.engine.core.model.ModelConverter;
-import org.opensbpm.engine.core.model.entities.FunctionState;
-import org.opensbpm.engine.core.model.entities.ReceiveState;
-import org.opensbpm.engine.core.model.entities.SendState;
+import org.opensbpm.engine.core.model.ProcessModelCache;
+import org.opensbpm.engine.core.model.ProcessModelView;
+import org.opensbpm.engine.core.model.ProcessModelView.StateView;
 import org.opensbpm.engine.core.model.entities.State;
-import org.opensbpm.engine.core.model.entities.StateVisitor;
 import org.springframework.stereotype.Component;
 import static org.opensbpm.engine.core.engine.entities.SubjectVisitor.userSubject;
 
@@ -47,9 +48,11 @@ import static org.opensbpm.engine.core.engine.entities.SubjectVisitor.userSubjec
 public class EngineConverter {
 
     private final ScriptExecutorService scriptExecutorService;
+    private final ProcessModelCache processModelCache;
 
-    public EngineConverter(ScriptExecutorService scriptExecutorService) {
+    public EngineConverter(ScriptExecutorService scriptExecutorService, ProcessModelCache processModelCache) {
         this.scriptExecutorService = scriptExecutorService;
+        this.processModelCache = processModelCache;
     }
 
     public List<ProcessInfo> convertInstances(Collection<ProcessInstance> processInstances) {
@@ -61,7 +64,7 @@ public class EngineConverter {
     public ProcessInfo convertInstance(ProcessInstance processInstance) {
         return new ProcessInfo(
                 processInstance.getId(),
-                ModelConverter.convertModel(processInstance.getProcessModel()),
+                processModelCache.getModelInfo(processInstance.getProcessModel()),
                 convertUser(processInstance.getStartUser()),
                 processInstance.getState(),
                 processInstance.getStartTime(),
@@ -80,11 +83,13 @@ public class EngineConverter {
     }
 
     private SubjectStateInfo convertSubject(UserSubject subject) {
+        ProcessModelView processModel = getProcessModel(subject);
+        StateView currentState = getCurrentState(processModel, subject);
         return new SubjectStateInfo(subject.getId(),
                 convertUser(subject),
-                subject.getSubjectModel().getName(),
-                evaluteStateDisplayName(subject, subject.getCurrentState()),
-                convertFunctionType(subject),
+                processModel.getSubject(subject.getSubjectModel().getId()).getName(),
+                scriptExecutorService.evaluteStateDisplayName(subject, processModel, currentState),
+                convertFunctionType(currentState),
                 subject.getLastChanged());
     }
 
@@ -97,34 +102,73 @@ public class EngineConverter {
                 .orElse(null);
     }
 
-    private static StateFunctionType convertFunctionType(UserSubject subject) {
-        return subject.getCurrent(new StateVisitor<StateFunctionType>() {
-            @Override
-            public StateFunctionType visitFunctionState(FunctionState functionState) {
+    private static StateFunctionType convertFunctionType(StateView state) {
+        switch (state.getType()) {
+            case RECEIVE:
+                return StateFunctionType.RECEIVE;
+            case SEND:
+                return StateFunctionType.SEND;
+            default:
                 return StateFunctionType.FUNCTION;
-            }
+        }
+    }
 
-            @Override
-            public StateFunctionType visitReceiveState(ReceiveState receiveState) {
-                return StateFunctionType.RECEIVE;
-            }
+    /**
+     * @param subject a subject
+     * @return the cached model of the process instance of the subject
+     */
+    public ProcessModelView getProcessModel(Subject subject) {
+        return processModelCache.getView(subject.getProcessInstance().getProcessModel());
+    }
 
-            @Override
-            public StateFunctionType visitSendState(SendState sendState) {
-                return StateFunctionType.SEND;
-            }
-        });
+    /**
+     * Resolves the visible current state of the subject from the cached
+     * model, like {@link Subject#getVisibleCurrentState()}.
+     *
+     * @param subject a subject
+     * @return the function state the user works on, if any
+     */
+    public Optional<StateView> getVisibleCurrentState(Subject subject) {
+        ProcessModelView processModel = getProcessModel(subject);
+        return processModel.getVisibleState(getCurrentState(processModel, subject), subject::hasUnconsumedMessages);
     }
 
-    public TaskInfo convertSubjectState(Subject subject, State state) {
+    private static StateView getCurrentState(ProcessModelView processModel, Subject subject) {
+        //the trail references its state lazily; the id doesn't load it
+        return processModel.getState(subject.getCurrentState().getId());
+    }
+
+    public TaskInfo convertSubjectState(Subject subject, StateView state) {
+        ProcessModelView processModel = getProcessModel(subject);
         return new TaskInfo(subject.getId(),
                 subject.getProcessInstance().getId(),
-                subject.getProcessInstance().getProcessModel().getName(),
-                evaluteStateDisplayName(subject, state),
+                processModel.getName(),
+                scriptExecutorService.evaluteStateDisplayName(subject, processModel, state),
                 subject.getLastChanged()
         );
     }
 
+    /**
+     * Like {@link #convertSubjectState(Subject, StateView)}, but the display
+     * name of the state is not evaluated before {@link Supplier#get()} is
+     * called. All other values, and the object values read by the display
+     * name, are taken from the subject immediately.
+     *
+     * @param subject subject of the task
+     * @param state current state of the subject; only its id is read
+     * @return supplier creating a new {@link TaskInfo} on every call
+     */
+    public Supplier<TaskInfo> convertSubjectStateDeferred(Subject subject, State state) {
+        ProcessModelView processModel = getProcessModel(subject);
+        Long taskId = subject.getId();
+        Long processId = subject.getProcessInstance().getId();
+        String processName = processModel.getName();
+        LocalDateTime lastChanged = subject.getLastChanged();
+        Supplier<String> displayName = scriptExecutorService.deferStateDisplayName(subject, processModel,
+                processModel.getState(state.getId()));
+        return () -> new TaskInfo(taskId, processId, processName, displayName.get(), lastChanged);
+    }
+
     public List<AuditTrail> convertAuditTrails(List<SubjectTrail> subjectTrails) {
         return subjectTrails.stream()
                 .sorted((SubjectTrail o1, SubjectTrail o2) -> {
@@ -138,35 +182,47 @@ public class EngineConverter {
                 .collect(Collectors.toList());
     }
 
-    private AuditTrail convertTrail(SubjectTrail subjectTrail) {
+    public AuditTrail convertTrail(SubjectTrail subjectTrail) {
+        Subject subject = subjectTrail.getSubject();
+        ProcessModelView processModel = getProcessModel(subject);
         return new AuditTrail(
                 subjectTrail.getLastModifiedDateTime(),
-                subjectTrail.getSubject().getSubjectModel().getName(),
-                convertUser(subjectTrail.getSubject()),
-                evaluteStateDisplayName(subjectTrail.getSubject(), subjectTrail.getState())
+                processModel.getSubject(subject.getSubjectModel().getId()).getName(),
+                convertUser(subject),
+                scriptExecutorService.evaluteStateDisplayName(subject, processModel,
+                        processModel.getState(subjectTrail.getState().getId()))
         );
     }
 
     public TaskResponse createTaskResponse(Subject subject) {
-        FunctionState state = subject.getVisibleCurrentState()
-                .orElseThrow(() -> new IllegalStateException("visible state " + subject.getVisibleCurrentState().toString() + " not FunctionState"));
+        ProcessModelView processModel = getProcessModel(subject);
+        StateView state = getVisibleCurrentState(subject)
+                .orElseThrow(() -> new IllegalStateException("no visible current state for " + subject));
 
-        List<NextState> nextStates = state.getHeads().stream()
-                .map(nextState -> getNextState(subject, nextState))
+        List<NextState> nextStates = processModel.getHeads(state).stream()
+                .map(nextState -> getNextState(subject, processModel, nextState))
                 .collect(Collectors.toList());
 
-        return new TaskResponseConverter(scriptExecutorService).convert(subject, state, nextStates);
+        return new TaskResponseConverter(scriptExecutorService).convert(subject, processModel, state, nextStates);
     }
 
-    private NextState getNextState(Subject subject, State nextState) {
-        return subject.getVisibleState(nextState)
+    private NextState getNextState(Subject subject, ProcessModelView processModel, StateView nextState) {
+        return processModel.getVisibleState(nextState, subject::hasUnconsumedMessages)
                 .filter(functionState -> !functionState.isEnd())
-                .map(functionState -> NextState.of(functionState.getId(), evaluteStateDisplayName(subject, functionState)))
-                .orElse(NextState.ofEnd(nextState.getId(), evaluteStateDisplayName(subject, nextState)));
+                .map(functionState -> NextState.of(functionState.getId(),
+                scriptExecutorService.evaluteStateDisplayName(subject, processModel, functionState)))
+                .orElse(NextState.ofEnd(nextState.getId(),
+                        scriptExecutorService.evaluteStateDisplayName(subject, processModel, nextState)));
     }
 
+    /**
+     * @param subject a subject
+     * @param state a state of the model of the subject; only its id is read
+     * @return the evaluated display name of the state
+     */
     public String evaluteStateDisplayName(Subject subject, State state) {
-        return scriptExecutorService.evaluteStateDisplayName(subject, state);
+        ProcessModelView processModel = getProcessModel(subject);
+        return scriptExecutorService.evaluteStateDisplayName(subject, processModel, processModel.getState(state.getId()));
     }
 
     public static UserToken convertUser(User user) {
@@ -0,0 +1,128 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import javax.script.Bindings;
+
+/**
+ * {@link Bindings} which create the value of a variable not before a script
+ * reads it. Variables which are not referenced by the script at all (see
+ * {@link ReferencesVariables}) are not registered.
+ * <p>
+ * Values are created with {@link ScriptExecutionPool#supplyInCallerThread(Supplier)},
+ * so a script running in the pool doesn't touch the entities of its caller.
+ */
+class LazyBindings extends AbstractMap<String, Object> implements Bindings {
+
+    private final Optional<Set<String>> referencedNames;
+    private final Map<String, Object> values = new HashMap<>();
+    private final Map<String, Supplier<?>> suppliers = new HashMap<>();
+
+    /**
+     * @param referencedNames names of variables read by the script; empty if unknown
+     */
+    public LazyBindings(Optional<Set<String>> referencedNames) {
+        this.referencedNames = Objects.requireNonNull(referencedNames, "referencedNames must not be null");
+    }
+
+    public boolean isReferenced(String name) {
+        return referencedNames
+                .map(names -> names.contains(name))
+                .orElse(true);
+    }
+
+    /**
+     * Registers a variable which value is created by the given supplier on first access.
+     *
+     * @param name name of variable
+     * @param supplier creates the value of the variable
+     */
+    public void putLazy(String name, Supplier<?> supplier) {
+        Objects.requireNonNull(name, "name must not be null");
+        Objects.requireNonNull(supplier, "supplier must not be null");
+        if (isReferenced(name)) {
+            values.remove(name);
+            suppliers.put(name, supplier);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A replaced value which was not created yet is discarded and not returned.
+     */
+    @Override
+    public Object put(String name, Object value) {
+        Objects.requireNonNull(name, "name must not be null");
+        suppliers.remove(name);
+        return values.put(name, value);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return values.containsKey(key) || suppliers.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        Supplier<?> supplier = suppliers.remove(key);
+        if (supplier != null) {
+            values.put((String) key, ScriptExecutionPool.supplyInCallerThread(supplier));
+        }
+        return values.get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A removed value which was not created yet is discarded and not returned.
+     */
+    @Override
+    public Object remove(Object key) {
+        suppliers.remove(key);
+        return values.remove(key);
+    }
+
+    @Override
+    public int size() {
+        return values.size() + suppliers.size();
+    }
+
+    /**
+     * Creates the values of all registered variables now.
+     */
+    public void materialize() {
+        suppliers.forEach((name, supplier) -> values.put(name, ScriptExecutionPool.supplyInCallerThread(supplier)));
+        suppliers.clear();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        //iterating all variables needs all values
+        materialize();
+        return values.entrySet();
+    }
+
+}
@@ -24,6 +24,8 @@ import org.opensbpm.engine.api.instance.ObjectSchema;
 import org.opensbpm.engine.core.engine.ScriptExecutorService.BindingContext;
 import org.opensbpm.engine.core.engine.entities.ObjectInstance;
 import org.opensbpm.engine.core.model.entities.FunctionState;
+import org.opensbpm.engine.core.model.ProcessModelView.ObjectView;
+import org.opensbpm.engine.core.model.ProcessModelView.StateView;
 import org.opensbpm.engine.core.model.entities.ObjectModel;
 
 class ObjectDataCreator {
@@ -43,25 +45,23 @@ class ObjectDataCreator {
         this.scriptService = scriptService;
     }
 
-    public ObjectData createObjectData(ObjectInstance objectInstance, FunctionState state, BindingContext bindingContext) {
-        ObjectModel objectModel = objectInstance.getObjectModel();
-
-        ObjectSchema objectSchema = ObjectSchemaConverter.toObjectSchema(scriptService, state, objectModel, bindingContext);
+    public ObjectData createObjectData(ObjectView object, ObjectInstance objectInstance, StateView state, BindingContext bindingContext) {
+        ObjectSchema objectSchema = ObjectSchemaConverter.toObjectSchema(scriptService, state, object, bindingContext);
         ObjectBean objectBean = ObjectBean.from(objectSchema, objectInstance.getValue());
 
-        return createObjectData(objectModel, objectBean);
+        return createObjectData(object, objectBean);
     }
 
-    public ObjectData createObjectData(ObjectModel objectModel, ObjectBean objectBean) {
-        return ObjectData.of(objectModel.getName())
+    public ObjectData createObjectData(ObjectView object, ObjectBean objectBean) {
+        return ObjectData.of(object.getName())
                 .withData(objectBean.toIdMap())
                 .withId(objectBean.getId())
-                .withDisplayName(evalObjectDisplayName(objectModel, objectBean))
+                .withDisplayName(evalObjectDisplayName(object, objectBean))
                 .build();
     }
 
-    private String evalObjectDisplayName(ObjectModel objectModel, ObjectBean objectBean) {
-        return scriptService.evaluateObjectDisplayName(objectModel, objectBean);
+    private String evalObjectDisplayName(ObjectView object, ObjectBean objectBean) {
+        return scriptService.evaluateObjectDisplayName(object, objectBean);
     }
 
 }
@@ -0,0 +1,121 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import org.opensbpm.engine.core.engine.entities.ObjectIndexValue;
+import org.opensbpm.engine.core.engine.entities.ObjectInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Creates the {@link ObjectIndexValue}s of {@link ObjectInstance}s stored
+ * before their attributes were indexed, e.g. before the upgrade which
+ * introduced the index or before an attribute was marked as indexed; until
+ * then attribute searches don't find these object instances.
+ * <p>
+ * If {@code opensbpm.engine.object-index.backfill=true} the backfill is
+ * started in the background after startup and indexes {@code batch-size}
+ * object instances per transaction. Every indexed object instance is locked,
+ * so concurrent changes of the object are not indexed twice.
+ */
+@Component
+public class ObjectIndexBackfill {
+
+    private static final Logger LOGGER = Logger.getLogger(ObjectIndexBackfill.class.getName());
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectIndexService objectIndexService;
+
+    @Value("${opensbpm.engine.object-index.backfill:false}")
+    private boolean backfillOnStartup;
+
+    @Value("${opensbpm.engine.object-index.batch-size:100}")
+    private int batchSize;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void startBackfill() {
+        if (backfillOnStartup) {
+            Thread thread = new Thread(this::backfill, "ObjectIndexBackfill");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Replaces the index values of all object instances by their current values.
+     *
+     * @return number of processed object instances
+     */
+    public long backfill() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long indexed = 0;
+        long lastId = 0;
+        try {
+            List<Long> ids;
+            do {
+                long afterId = lastId;
+                ids = transactionTemplate.execute(status -> indexBatch(afterId));
+                indexed += ids.size();
+                if (!ids.isEmpty()) {
+                    lastId = ids.get(ids.size() - 1);
+                }
+            } while (!ids.isEmpty());
+            LOGGER.log(Level.INFO, "index of {0} object instances rebuilt", indexed);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "backfill of object index failed after id " + lastId + ": " + ex.getMessage(), ex);
+            throw ex;
+        }
+        return indexed;
+    }
+
+    private List<Long> indexBatch(long afterId) {
+        List<Long> ids = entityManager.createQuery("select o.id from ObjectInstance o where o.id > :afterId order by o.id", Long.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(batchSize)
+                .getResultList();
+        //the locked instances contain the current values, even if they changed after the select
+        List<ObjectInstance> objectInstances = ids.stream()
+                .map(id -> entityManager.find(ObjectInstance.class, id, LockModeType.PESSIMISTIC_WRITE))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        objectIndexService.updateIndex(objectInstances);
+        //keeps the persistence context small
+        entityManager.flush();
+        entityManager.clear();
+        return ids;
+    }
+
+}
@@ -0,0 +1,347 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.apache.commons.lang3.tuple.Pair;
+import org.opensbpm.engine.api.SearchFilter.Criteria.Operation;
+import org.opensbpm.engine.api.model.FieldType;
+import org.opensbpm.engine.core.engine.entities.ObjectIndexValue;
+import org.opensbpm.engine.core.engine.entities.ObjectIndexValue_;
+import org.opensbpm.engine.core.engine.entities.ObjectInstance;
+import org.opensbpm.engine.core.engine.entities.ProcessInstance;
+import org.opensbpm.engine.core.engine.entities.ProcessInstance_;
+import org.opensbpm.engine.core.model.entities.AttributeModel;
+import org.opensbpm.engine.core.model.entities.AttributeModelVisitor;
+import org.opensbpm.engine.core.model.entities.IndexedAttributeModel;
+import org.opensbpm.engine.core.model.entities.NestedAttributeModel;
+import org.opensbpm.engine.core.model.entities.SimpleAttributeModel;
+import org.opensbpm.engine.core.model.entities.SimpleAttributeModel_;
+import org.opensbpm.engine.core.utils.repositories.JpaSpecificationRepository;
+import org.opensbpm.engine.core.utils.repositories.SearchSpecificationBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.stereotype.Service;
+
+/**
+ * Maintains the {@link ObjectIndexValue}s of the indexed attributes of
+ * {@link ObjectInstance}s, so process instances can be searched by attribute
+ * values without reading the stored values of every object instance.
+ * Decimals are rounded to {@link ObjectIndexValue#DECIMAL_SCALE} digits, both
+ * when indexed and when searched; values too large for the index columns
+ * aren't indexed. Object instances stored before their attributes were
+ * indexed are indexed by the {@link ObjectIndexBackfill}.
+ */
+@Service
+public class ObjectIndexService {
+
+    private static final Logger LOGGER = Logger.getLogger(ObjectIndexService.class.getName());
+
+    @Autowired
+    private ObjectIndexValueRepository indexValueRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Replaces the index values of the given object instances by their
+     * current values.
+     *
+     * @param objectInstances saved object instances
+     */
+    public void updateIndex(Collection<ObjectInstance> objectInstances) {
+        objectInstances.stream()
+                .filter(objectInstance -> hasIndexedAttributes(objectInstance.getObjectModel().getAttributeModels()))
+                .forEach(objectInstance -> {
+                    indexValueRepository.deleteByObjectInstance(objectInstance);
+                    indexValueRepository.saveAll(createIndexValues(objectInstance));
+                });
+    }
+
+    /**
+     * Specification of all process instances with an object of the given name
+     * whose indexed attribute matches the given value. The value is converted to
+     * the {@link FieldType} of the attribute; strings are parsed.
+     *
+     * @param objectName name of the {@code ObjectModel}
+     * @param attributeName name of the indexed attribute, may be nested
+     * @param operation comparison of the attribute with the value
+     * @param value value to compare with
+     * @return specification matching no process instance if there is no such indexed attribute
+     * @throws IllegalArgumentException if the value can't be converted to the type of the attribute
+     */
+    public Specification<ProcessInstance> withAttributeValue(String objectName, String attributeName, Operation operation, Object value) {
+        return withAttributeValue(root -> root.get(ProcessInstance_.id), objectName, attributeName, operation, value);
+    }
+
+    /**
+     * Specification of all entities whose process instance has an object of the
+     * given name whose indexed attribute matches the given value.
+     *
+     * @param <T> type of the entity
+     * @param processInstanceId id of the process instance of the entity
+     * @see #withAttributeValue(String, String, Operation, Object)
+     */
+    public <T> Specification<T> withAttributeValue(Function<Root<T>, Expression<Long>> processInstanceId,
+            String objectName, String attributeName, Operation operation, Object value) {
+        Objects.requireNonNull(operation, "Operation must not be null");
+        Objects.requireNonNull(value, "value must not be null");
+        Map<FieldType, List<SimpleAttributeModel>> attributeModels = findIndexedAttributes(objectName, attributeName).stream()
+                .collect(Collectors.groupingBy(SimpleAttributeModel::getFieldType, LinkedHashMap::new, Collectors.toList()));
+        List<Pair<List<SimpleAttributeModel>, Comparable<?>>> comparisons = attributeModels.entrySet().stream()
+                .map(entry -> Pair.<List<SimpleAttributeModel>, Comparable<?>>of(entry.getValue(), toIndexValue(entry.getKey(), value)))
+                .collect(Collectors.toList());
+
+        return (Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb) -> {
+            Predicate[] predicates = comparisons.stream()
+                    .map(comparison -> {
+                        Subquery<Long> subquery = query.subquery(Long.class);
+                        Root<ObjectIndexValue> valueRoot = subquery.from(ObjectIndexValue.class);
+                        subquery.select(valueRoot.get(ObjectIndexValue_.processInstance).get(ProcessInstance_.id));
+                        FieldType fieldType = comparison.getLeft().get(0).getFieldType();
+                        subquery.where(
+                                valueRoot.get(ObjectIndexValue_.attributeModel).in(comparison.getLeft()),
+                                compare(cb, valuePath(valueRoot, fieldType), operation, comparison.getRight())
+                        );
+                        return processInstanceId.apply(root).in(subquery);
+                    })
+                    .toArray(Predicate[]::new);
+            return cb.or(predicates);
+        };
+    }
+
+    private List<SimpleAttributeModel> findIndexedAttributes(String objectName, String attributeName) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<SimpleAttributeModel> query = cb.createQuery(SimpleAttributeModel.class);
+        Root<SimpleAttributeModel> root = query.from(SimpleAttributeModel.class);
+        query.where(
+                cb.equal(root.get(SimpleAttributeModel_.name), attributeName),
+                cb.isTrue(root.get(SimpleAttributeModel_.indexed))
+        );
+        //attribute models are few, the object model of nested attributes is resolved by their parents
+        return entityManager.createQuery(query).getResultList().stream()
+                .filter(attributeModel -> objectName.equals(getRootAttribute(attributeModel).getObjectModel().getName()))
+                .collect(Collectors.toList());
+    }
+
+    private static AttributeModel getRootAttribute(AttributeModel attributeModel) {
+        AttributeModel rootAttribute = attributeModel;
+        while (rootAttribute.getParent() != null) {
+            rootAttribute = rootAttribute.getParent();
+        }
+        return rootAttribute;
+    }
+
+    private static List<ObjectIndexValue> createIndexValues(ObjectInstance objectInstance) {
+        Map<Pair<SimpleAttributeModel, Comparable<?>>, ObjectIndexValue> indexValues = new LinkedHashMap<>();
+        collectIndexValues(objectInstance, objectInstance.getObjectModel().getAttributeModels(), objectInstance.getValue(), indexValues);
+        return new ArrayList<>(indexValues.values());
+    }
+
+    private static void collectIndexValues(ObjectInstance objectInstance, Collection<AttributeModel> attributeModels,
+            Map<Long, Serializable> values, Map<Pair<SimpleAttributeModel, Comparable<?>>, ObjectIndexValue> indexValues) {
+        for (AttributeModel attributeModel : attributeModels) {
+            Serializable value = values.get(attributeModel.getId());
+            if (value == null) {
+                continue;
+            }
+            attributeModel.accept(new AttributeModelVisitor<Void>() {
+                @Override
+                public Void visitSimple(SimpleAttributeModel simpleAttributeModel) {
+                    if (simpleAttributeModel.isIndexed() && simpleAttributeModel.getFieldType() != FieldType.BINARY) {
+                        Comparable<?> indexValue = toIndexValue(simpleAttributeModel.getFieldType(), value);
+                        if (!isIndexable(indexValue)) {
+                            LOGGER.log(Level.FINE, "value of {0} too large to index", simpleAttributeModel);
+                        } else {
+                            indexValues.computeIfAbsent(Pair.of(simpleAttributeModel, indexValue),
+                                    key -> createIndexValue(objectInstance, simpleAttributeModel, indexValue));
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public Void visitNested(NestedAttributeModel nestedAttribute) {
+                    collectIndexValues(objectInstance, nestedAttribute.getAttributeModels(), (Map<Long, Serializable>) value, indexValues);
+                    return null;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public Void visitIndexed(IndexedAttributeModel indexedAttribute) {
+                    for (Object row : (List<?>) value) {
+                        collectIndexValues(objectInstance, indexedAttribute.getAttributeModels(), (Map<Long, Serializable>) row, indexValues);
+                    }
+                    return null;
+                }
+            });
+        }
+    }
+
+    private static boolean isIndexable(Comparable<?> indexValue) {
+        if (indexValue instanceof String) {
+            return ((String) indexValue).length() <= ObjectIndexValue.MAX_STRING_LENGTH;
+        }
+        if (indexValue instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) indexValue;
+            return decimal.precision() - decimal.scale() <= ObjectIndexValue.DECIMAL_PRECISION - ObjectIndexValue.DECIMAL_SCALE;
+        }
+        return true;
+    }
+
+    private static boolean hasIndexedAttributes(Collection<AttributeModel> attributeModels) {
+        return attributeModels.stream()
+                .anyMatch(attributeModel -> attributeModel.accept(new AttributeModelVisitor<Boolean>() {
+                    @Override
+                    public Boolean visitSimple(SimpleAttributeModel simpleAttributeModel) {
+                        return simpleAttributeModel.isIndexed();
+                    }
+
+                    @Override
+                    public Boolean visitNested(NestedAttributeModel nestedAttribute) {
+                        return hasIndexedAttributes(nestedAttribute.getAttributeModels());
+                    }
+
+                    @Override
+                    public Boolean visitIndexed(IndexedAttributeModel indexedAttribute) {
+                        return hasIndexedAttributes(indexedAttribute.getAttributeModels());
+                    }
+                }));
+    }
+
+    private static ObjectIndexValue createIndexValue(ObjectInstance objectInstance, SimpleAttributeModel attributeModel, Comparable<?> value) {
+        ObjectIndexValue indexValue = new ObjectIndexValue(objectInstance, attributeModel);
+        switch (attributeModel.getFieldType()) {
+            case STRING:
+                indexValue.setStringValue((String) value);
+                break;
+            case NUMBER:
+                indexValue.setNumberValue((Long) value);
+                break;
+            case DECIMAL:
+                indexValue.setDecimalValue((BigDecimal) value);
+                break;
+            case DATE:
+                indexValue.setDateValue((LocalDate) value);
+                break;
+            case TIME:
+                indexValue.setTimeValue((LocalTime) value);
+                break;
+            case BOOLEAN:
+                indexValue.setBooleanValue((Boolean) value);
+                break;
+            default:
+                throw new UnsupportedOperationException("FieldType " + attributeModel.getFieldType() + " not indexable");
+        }
+        return indexValue;
+    }
+
+    private static Comparable<?> toIndexValue(FieldType fieldType, Object value) {
+        try {
+            switch (fieldType) {
+                case STRING:
+                    return value.toString();
+                case NUMBER:
+                    return value instanceof Number ? ((Number) value).longValue() : Long.valueOf(value.toString());
+                case DECIMAL:
+                    return toIndexDecimal(value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString()));
+                case DATE:
+                    return value instanceof LocalDate ? (LocalDate) value : LocalDate.parse(value.toString());
+                case TIME:
+                    return value instanceof LocalTime ? (LocalTime) value : LocalTime.parse(value.toString());
+                case BOOLEAN:
+                    return value instanceof Boolean ? (Boolean) value : Boolean.valueOf(value.toString());
+                default:
+                    throw new IllegalArgumentException("FieldType " + fieldType + " not indexable");
+            }
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("value " + value + " is not of type " + fieldType, ex);
+        }
+    }
+
+    /**
+     * Rounds decimals to the scale of the index column, so indexed and searched
+     * values are rounded alike instead of by the database.
+     */
+    private static BigDecimal toIndexDecimal(BigDecimal value) {
+        return value.scale() > ObjectIndexValue.DECIMAL_SCALE
+                ? value.setScale(ObjectIndexValue.DECIMAL_SCALE, RoundingMode.HALF_UP)
+                : value;
+    }
+
+    private static Expression<?> valuePath(Root<ObjectIndexValue> root, FieldType fieldType) {
+        switch (fieldType) {
+            case STRING:
+                return root.get(ObjectIndexValue_.stringValue);
+            case NUMBER:
+                return root.get(ObjectIndexValue_.numberValue);
+            case DECIMAL:
+                return root.get(ObjectIndexValue_.decimalValue);
+            case DATE:
+                return root.get(ObjectIndexValue_.dateValue);
+            case TIME:
+                return root.get(ObjectIndexValue_.timeValue);
+            case BOOLEAN:
+                return root.get(ObjectIndexValue_.booleanValue);
+            default:
+                throw new IllegalArgumentException("FieldType " + fieldType + " not indexable");
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate compare(CriteriaBuilder cb, Expression path, Operation operation, Comparable value) {
+        return SearchSpecificationBuilder.compare(cb, path, operation, value);
+    }
+
+    @Repository
+    public interface ObjectIndexValueRepository extends JpaSpecificationRepository<ObjectIndexValue, Long> {
+
+        @Modifying
+        @Query("delete from objectindexvalue v where v.objectInstance = :objectInstance")
+        int deleteByObjectInstance(@Param("objectInstance") ObjectInstance objectInstance);
+
+    }
+
+}
@@ -17,132 +17,82 @@
  */
 package org.opensbpm.engine.core.engine;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.function.Function;
 import org.opensbpm.engine.api.instance.AttributeSchema;
 import org.opensbpm.engine.api.instance.IndexedAttributeSchema;
 import org.opensbpm.engine.api.instance.NestedAttributeSchema;
 import org.opensbpm.engine.api.instance.ObjectSchema;
 import org.opensbpm.engine.api.instance.SimpleAttributeSchema;
+import org.opensbpm.engine.api.model.definition.PermissionDefinition.Permission;
 import org.opensbpm.engine.core.engine.ScriptExecutorService.BindingContext;
-import org.opensbpm.engine.core.model.entities.AttributeModel;
-import org.opensbpm.engine.core.model.entities.AttributeModelVisitor;
-import org.opensbpm.engine.core.model.entities.FunctionState;
-import org.opensbpm.engine.core.model.entities.IndexedAttributeModel;
-import org.opensbpm.engine.core.model.entities.NestedAttributeModel;
-import org.opensbpm.engine.core.model.entities.ObjectModel;
-import org.opensbpm.engine.core.model.entities.ProcessModel;
-import org.opensbpm.engine.core.model.entities.SimpleAttributeModel;
-import org.opensbpm.engine.core.model.entities.State;
+import org.opensbpm.engine.core.model.ProcessModelView;
+import org.opensbpm.engine.core.model.ProcessModelView.AttributeView;
+import org.opensbpm.engine.core.model.ProcessModelView.ObjectView;
+import org.opensbpm.engine.core.model.ProcessModelView.StateView;
 import static java.util.stream.Collectors.toList;
-import static org.opensbpm.engine.core.model.entities.StateVisitor.functionState;
 
 class ObjectSchemaConverter {
 
-    public static ObjectSchema toObjectSchema(ScriptExecutorService scriptExecutorService, State state, ObjectModel objectModel, BindingContext bindingContext) {
+    public static ObjectSchema toObjectSchema(ScriptExecutorService scriptExecutorService, StateView state, ObjectView object, BindingContext bindingContext) {
         return new ObjectSchemaConverter(scriptExecutorService, state, bindingContext)
-                .convertToObjectSchema(objectModel);
+                .convertToObjectSchema(object);
     }
 
     private final ScriptExecutorService scriptService;
-    private final State state;
+    private final StateView state;
     private final BindingContext bindingContext;
 
-    public ObjectSchemaConverter(ScriptExecutorService scriptService, State state, BindingContext bindingContext) {
+    public ObjectSchemaConverter(ScriptExecutorService scriptService, StateView state, BindingContext bindingContext) {
         this.scriptService = Objects.requireNonNull(scriptService, "ScriptExecutorService must not be null");
         this.state = Objects.requireNonNull(state, "State must not be null");
         this.bindingContext = Objects.requireNonNull(bindingContext, "BindingContext must not be null");
     }
 
-    private Optional<FunctionState> getState() {
-        return state.accept(functionState());
-    }
-
-    public List<ObjectSchema> createObjectSchemas(ProcessModel processModel) {
-        return processModel.getObjectModels().stream()
-                .filter(objectModel -> hasAnyStatePermission(objectModel))
-                .map(new SchemaCreator(state, bindingContext))
+    public List<ObjectSchema> createObjectSchemas(ProcessModelView processModel) {
+        return processModel.getObjects().stream()
+                .filter(object -> hasAnyStatePermission(object))
+                .map(object -> convertToObjectSchema(object))
                 .collect(toList());
     }
 
-    private boolean hasAnyStatePermission(ObjectModel objectModel) {
-        return getState()
-                .map(functionState -> functionState.hasAnyStatePermission(objectModel))
-                .orElse(Boolean.TRUE);
+    private boolean hasAnyStatePermission(ObjectView object) {
+        return !state.isFunction() || state.hasAnyPermission(object);
     }
 
-    private ObjectSchema convertToObjectSchema(ObjectModel objectModel) {
-        return new SchemaCreator(state, bindingContext).apply(objectModel);
+    private ObjectSchema convertToObjectSchema(ObjectView object) {
+        List<AttributeSchema> attributes = createAttributes(object.getAttributes());
+        return ObjectSchema.of(object.getId(), object.getName(), attributes);
     }
 
-    private class SchemaCreator implements Function<ObjectModel, ObjectSchema> {
-
-        private final State state;
-        private final BindingContext bindingContext;
-
-        private SchemaCreator(State state, BindingContext bindingContext) {
-            this.state = Objects.requireNonNull(state, "State must not be null");
-            this.bindingContext = Objects.requireNonNull(bindingContext, "BindingContext must not be null");
-        }
-
-        @Override
-        public ObjectSchema apply(ObjectModel objectModel) {
-            return toObjectSchema(objectModel);
-        }
-
-        private ObjectSchema toObjectSchema(ObjectModel objectModel) {
-            List<AttributeSchema> attributes = createAttributes(objectModel.getAttributeModels());
-            return ObjectSchema.of(objectModel.getId(), objectModel.getName(), attributes);
-        }
-
-        private List<AttributeSchema> createAttributes(Collection<AttributeModel> attributeModels) {
-            return attributeModels.stream()
-                    .filter(attributeModel -> hasAnyPermission(attributeModel))
-                    .map(attributeModel -> attributeModel.accept(new AttributeModelVisitor<AttributeSchema>() {
-                @Override
-                public AttributeSchema visitSimple(SimpleAttributeModel simpleAttribute) {
-                    SimpleAttributeSchema attributeSchema = SimpleAttributeSchema.of(simpleAttribute.getId(), simpleAttribute.getName(), simpleAttribute.getFieldType());
-                    getState().ifPresent(functionState -> {
-                        attributeSchema.setRequired(functionState.isMandatory(simpleAttribute));
-                        attributeSchema.setReadonly(functionState.hasReadPermission(simpleAttribute));
-                        functionState.findStatePermission(simpleAttribute)
-                                .flatMap(statePermission -> scriptService.evaluateDefaultValueScript(statePermission, bindingContext))
-                                .ifPresent(attributeSchema::setDefaultValue);
-                    });
-                    attributeSchema.setIndexed(simpleAttribute.isIndexed());
-
-                    return attributeSchema;
-                }
-
-                @Override
-                public AttributeSchema visitNested(NestedAttributeModel nestedAttribute) {
-                    List<AttributeSchema> attributes = createAttributes(nestedAttribute.getAttributeModels());
-                    return NestedAttributeSchema.createNested(nestedAttribute.getId(), nestedAttribute.getName(), attributes);
-                }
-
-                @Override
-                public AttributeSchema visitIndexed(IndexedAttributeModel indexedAttribute) {
-                    List<AttributeSchema> attributes = createAttributes(indexedAttribute.getAttributeModels());
-                    return IndexedAttributeSchema.create(indexedAttribute.getId(), indexedAttribute.getName(), attributes);
-                }
-
-            }))
-                    .collect(toList());
-        }
-
-        private boolean hasAnyPermission(AttributeModel attributeModel) {
-            return getState()
-                    .map(functionState -> functionState.hasAnyPermission(attributeModel))
-                    .orElse(Boolean.TRUE);
-        }
+    private List<AttributeSchema> createAttributes(List<AttributeView> attributes) {
+        return attributes.stream()
+                .filter(attribute -> hasAnyPermission(attribute))
+                .map(attribute -> createAttribute(attribute))
+                .collect(toList());
+    }
 
-        private Optional<FunctionState> getState() {
-            return state.accept(functionState());
+    private AttributeSchema createAttribute(AttributeView attribute) {
+        switch (attribute.getType()) {
+            case NESTED:
+                return NestedAttributeSchema.createNested(attribute.getId(), attribute.getName(), createAttributes(attribute.getAttributes()));
+            case INDEXED:
+                return IndexedAttributeSchema.create(attribute.getId(), attribute.getName(), createAttributes(attribute.getAttributes()));
+            default:
+                SimpleAttributeSchema attributeSchema = SimpleAttributeSchema.of(attribute.getId(), attribute.getName(), attribute.getFieldType());
+                state.findPermission(attribute.getId()).ifPresent(permission -> {
+                    attributeSchema.setRequired(permission.isMandatory());
+                    attributeSchema.setReadonly(Permission.READ == permission.getPermission());
+                    scriptService.evaluateDefaultValueScript(permission, bindingContext)
+                            .ifPresent(attributeSchema::setDefaultValue);
+                });
+                attributeSchema.setIndexed(attribute.isIndexed());
+                return attributeSchema;
         }
+    }
 
+    private boolean hasAnyPermission(AttributeView attribute) {
+        return !state.isFunction() || state.hasAnyPermission(attribute.getId());
     }
 
 }
@@ -0,0 +1,144 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import java.io.Serializable;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.opensbpm.engine.core.engine.entities.ObjectInstance;
+import org.opensbpm.engine.core.engine.entities.ObjectValueCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Rewrites the values of {@link ObjectInstance}s stored by Java serialization
+ * with the {@link ObjectValueCodec}.
+ * <p>
+ * Old values are still read, so the migration runs online: if
+ * {@code opensbpm.engine.object-values.migrate=true} it is started in the
+ * background after startup and rewrites {@code batch-size} rows per
+ * transaction. Every migrated row is locked, so concurrent changes of the
+ * object are not lost.
+ */
+@Component
+public class ObjectValueMigration {
+
+    private static final Logger LOGGER = Logger.getLogger(ObjectValueMigration.class.getName());
+
+    private final ObjectValueCodec codec = new ObjectValueCodec(ObjectValueCodec.DEFAULT_COMPRESSION_THRESHOLD);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${opensbpm.engine.object-values.migrate:false}")
+    private boolean migrateOnStartup;
+
+    @Value("${opensbpm.engine.object-values.batch-size:100}")
+    private int batchSize;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void startMigration() {
+        if (migrateOnStartup) {
+            Thread thread = new Thread(this::migrate, "ObjectValueMigration");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Migrates all values stored by Java serialization.
+     *
+     * @return number of migrated object instances
+     */
+    public long migrate() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long migrated = 0;
+        long lastId = 0;
+        try {
+            Batch batch;
+            do {
+                long afterId = lastId;
+                batch = transactionTemplate.execute(status -> migrateBatch(afterId));
+                migrated += batch.migrated;
+                lastId = batch.lastId;
+            } while (batch.lastId > 0);
+            LOGGER.log(Level.INFO, "values of {0} object instances migrated", migrated);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "migration of object values failed after id " + lastId + ": " + ex.getMessage(), ex);
+            throw ex;
+        }
+        return migrated;
+    }
+
+    private Batch migrateBatch(long afterId) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("select id, virtue from object_instance where id > :afterId order by id")
+                .setParameter("afterId", afterId)
+                .setMaxResults(batchSize)
+                .getResultList();
+        Batch batch = new Batch();
+        for (Object[] row : rows) {
+            Long id = ((Number) row[0]).longValue();
+            if (ObjectValueCodec.isLegacy(toBytes(row[1]))) {
+                ObjectInstance objectInstance = entityManager.find(ObjectInstance.class, id, LockModeType.PESSIMISTIC_WRITE);
+                //the locked instance contains the current values, even if they changed after the select
+                entityManager.createNativeQuery("update object_instance set virtue = :virtue where id = :id")
+                        .setParameter("virtue", codec.encode(new HashMap<Long, Serializable>(objectInstance.getValue())))
+                        .setParameter("id", id)
+                        .executeUpdate();
+                batch.migrated++;
+            }
+            batch.lastId = id;
+        }
+        return batch;
+    }
+
+    private static byte[] toBytes(Object column) {
+        if (column instanceof Blob) {
+            Blob blob = (Blob) column;
+            try {
+                //the first byte identifies the format
+                return blob.length() == 0 ? new byte[0] : blob.getBytes(1, 1);
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex.getMessage(), ex);
+            }
+        }
+        return (byte[]) column;
+    }
+
+    private static class Batch {
+
+        private long migrated;
+        private long lastId;
+    }
+
+}
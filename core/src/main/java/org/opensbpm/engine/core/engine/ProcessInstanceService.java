@@ -16,6 +16,7 @@
  ******************************************************************************/
 package org.opensbpm.engine.core.engine;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -24,38 +25,125 @@ import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.ListJoin;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.opensbpm.engine.api.SearchFilter;
 import org.opensbpm.engine.api.events.EngineEvent.Type;
 import org.opensbpm.engine.api.instance.ProcessInstanceState;
 import org.opensbpm.engine.core.EngineEventPublisher;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance_;
+import org.opensbpm.engine.core.engine.entities.Subject_;
 import org.opensbpm.engine.core.engine.entities.User;
+import org.opensbpm.engine.core.engine.entities.User_;
 import org.opensbpm.engine.core.engine.entities.UserSubject;
 import org.opensbpm.engine.core.engine.entities.UserSubject_;
 import org.opensbpm.engine.core.model.entities.ProcessModel;
+import org.opensbpm.engine.core.model.entities.ProcessModel_;
 import org.opensbpm.engine.core.utils.repositories.JpaSpecificationRepository;
+import org.opensbpm.engine.core.utils.repositories.SearchSpecificationBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Repository;
 import org.springframework.stereotype.Service;
+import static org.opensbpm.engine.core.engine.ProcessInstanceService.ProcessInstanceSpecifications.withParticipant;
+import static org.opensbpm.engine.core.engine.entities.ProcessInstance.PROCESS_INFO_GRAPH;
+import static org.opensbpm.engine.core.engine.entities.ProcessInstance.SUBJECTS_GRAPH;
 import static org.opensbpm.engine.core.engine.ProcessInstanceService.ProcessInstanceSpecifications.withStates;
 import static org.opensbpm.engine.core.engine.ProcessInstanceService.ProcessInstanceSpecifications.withUserAndState;
+import static org.opensbpm.engine.core.utils.repositories.SearchSpecificationBuilder.withDefaultSort;
 
 @Service
 public class ProcessInstanceService {
 
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "startTime", "id");
+    private static final Sort OLDEST_FIRST = Sort.by(Sort.Direction.ASC, "startTime", "id");
+
     @Autowired
     private ProcessInstanceRepository instanceRepository;
 
     @Autowired
     private EngineEventPublisher eventPublisher;
 
+    @Autowired
+    private ObjectIndexService objectIndexService;
+
     public Collection<ProcessInstance> findAllByStates(Set<ProcessInstanceState> states) {
-        return instanceRepository.findAll(withStates(states));
+        return withSubjects(instanceRepository.findAll(withStates(states), Sort.unsorted(), PROCESS_INFO_GRAPH));
+    }
+
+    /**
+     * Seek the next window of process instances in the given states, oldest
+     * first. The window is found by the keyset {@code (startTime, id)} of the
+     * given position, so deep windows are as cheap as the first one.
+     *
+     * @param states states of the process instances
+     * @param position position after the last instance of the previous window;
+     * {@link ScrollPosition#keyset()} for the first window
+     * @param limit maximum number of instances in the window
+     * @return the next window of process instances
+     */
+    public Window<ProcessInstance> findAllByStates(Set<ProcessInstanceState> states, ScrollPosition position, int limit) {
+        Window<ProcessInstance> window = instanceRepository.findAll(withStates(states), OLDEST_FIRST, position, limit,
+                PROCESS_INFO_GRAPH);
+        withSubjects(window.getContent());
+        return window;
     }
 
     public List<ProcessInstance> findAllByUserAndState(User user, final ProcessInstanceState state) {
-        return instanceRepository.findAll(withUserAndState(user, state));
+        return withSubjects(instanceRepository.findAll(withUserAndState(user, state), Sort.unsorted(), PROCESS_INFO_GRAPH));
+    }
+
+    public List<ProcessInstance> findAll(Specification<ProcessInstance> specification) {
+        return withSubjects(instanceRepository.findAll(specification, Sort.unsorted(), PROCESS_INFO_GRAPH));
+    }
+
+    /**
+     * @param searchFilter filter of the process instances
+     * @param pageable page to find; newest process instances first if unsorted
+     * @return the requested page of all matching process instances
+     * @throws IllegalArgumentException if the filter is invalid
+     */
+    public Page<ProcessInstance> findAll(SearchFilter searchFilter, Pageable pageable) {
+        Page<ProcessInstance> page = instanceRepository.findAll(createSearchSpecification(searchFilter),
+                withDefaultSort(pageable, NEWEST_FIRST), PROCESS_INFO_GRAPH);
+        withSubjects(page.getContent());
+        return page;
+    }
+
+    /**
+     * @param user participant of the process instances
+     * @param searchFilter filter of the process instances
+     * @param pageable page to find; newest process instances first if unsorted
+     * @return the requested page of all matching process instances the user participates in
+     * @throws IllegalArgumentException if the filter is invalid
+     */
+    public Page<ProcessInstance> findAllByUser(User user, SearchFilter searchFilter, Pageable pageable) {
+        Page<ProcessInstance> page = instanceRepository.findAll(withParticipant(user).and(createSearchSpecification(searchFilter)),
+                withDefaultSort(pageable, NEWEST_FIRST), PROCESS_INFO_GRAPH);
+        withSubjects(page.getContent());
+        return page;
+    }
+
+    private <C extends Collection<ProcessInstance>> C withSubjects(C processInstances) {
+        instanceRepository.fetch(processInstances, SUBJECTS_GRAPH);
+        return processInstances;
+    }
+
+    private Specification<ProcessInstance> createSearchSpecification(SearchFilter searchFilter) {
+        return new SearchSpecificationBuilder<ProcessInstance>()
+                .with("id", Long.class, root -> root.get(ProcessInstance_.id))
+                .with("state", ProcessInstanceState.class, root -> root.get(ProcessInstance_.state))
+                .with("startTime", LocalDateTime.class, root -> root.get(ProcessInstance_.startTime))
+                .with("endTime", LocalDateTime.class, root -> root.get(ProcessInstance_.endTime))
+                .with("model", String.class, root -> root.get(ProcessInstance_.processModel).get(ProcessModel_.name))
+                .with("startUser", String.class, root -> root.get(ProcessInstance_.startUser).get(User_.name))
+                .withAttributes(objectIndexService::withAttributeValue)
+                .build(searchFilter);
     }
 
     public Optional<ProcessInstance> findById(Long id) {
@@ -119,6 +207,19 @@ public class ProcessInstanceService {
             };
         }
 
+        /**
+         * unlike {@link #withUser(User)} every process instance matches once
+         */
+        public static Specification<ProcessInstance> withParticipant(User user) {
+            return (Root<ProcessInstance> root, CriteriaQuery<?> query, CriteriaBuilder cb) -> {
+                Subquery<Long> subquery = query.subquery(Long.class);
+                Root<UserSubject> subjectRoot = subquery.from(UserSubject.class);
+                subquery.select(subjectRoot.get(Subject_.processInstance).get(ProcessInstance_.id));
+                subquery.where(cb.equal(subjectRoot.get(UserSubject_.user), user));
+                return root.get(ProcessInstance_.id).in(subquery);
+            };
+        }
+
         public static Specification<ProcessInstance> withUserAndState(User user, ProcessInstanceState state) {
             return Specification.where(withState(state)).and(withUser(user));
         }
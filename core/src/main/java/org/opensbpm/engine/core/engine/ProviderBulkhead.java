@@ -0,0 +1,414 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.opensbpm.engine.api.spi.TaskExecutionException;
+import org.opensbpm.engine.api.taskprovider.TaskProviderLimits;
+import org.opensbpm.engine.api.taskprovider.TaskProviderStatistics;
+import org.opensbpm.engine.api.taskprovider.TaskProviderStatistics.LatencyBucket;
+
+/**
+ * Bulkhead of one task provider, which limits the number of concurrent
+ * executions and the rate at which executions are started (token bucket).
+ * Tasks exceeding the limits wait up to {@code maxWaitMillis}; if
+ * {@code queueCapacity} tasks are waiting already, or the waiting time
+ * exceeds, the task is rejected with a {@link BulkheadRejectedException}.
+ * <p>
+ * Tasks {@link #submit(ProviderCall) submitted} to the bulkhead wait and run
+ * on threads of this provider ({@code maxConcurrency} at most), so a slow
+ * provider doesn't block the threads of the engine or of other providers.
+ * <p>
+ * Every execution is recorded in a latency histogram.
+ */
+public class ProviderBulkhead {
+
+    private static final long[] LATENCY_BOUNDS = {1, 5, 10, 50, 100, 500, 1000, 5000, 10000, 60000, Long.MAX_VALUE};
+
+    private final String providerName;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private TaskProviderLimits limits;
+    private int activeCount;
+    private int waitingCount;
+    private double tokens;
+    private long refilled;
+
+    private final AtomicLong executedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_BOUNDS.length);
+    private final ThreadPoolExecutor executor;
+
+    public ProviderBulkhead(String providerName, TaskProviderLimits limits) {
+        this.providerName = Objects.requireNonNull(providerName, "providerName must not be null");
+        this.limits = Objects.requireNonNull(limits, "limits must not be null");
+        this.tokens = limits.getBurst();
+        this.refilled = System.nanoTime();
+        //the queue is bounded by the waiting count
+        this.executor = new ThreadPoolExecutor(limits.getMaxConcurrency(), limits.getMaxConcurrency(),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), createThreadFactory(providerName));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static ThreadFactory createThreadFactory(String providerName) {
+        AtomicLong threadNumber = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "Provider-" + providerName + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public String getProviderName() {
+        return providerName;
+    }
+
+    public TaskProviderLimits getLimits() {
+        lock.lock();
+        try {
+            return limits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setLimits(TaskProviderLimits limits) {
+        Objects.requireNonNull(limits, "limits must not be null");
+        lock.lock();
+        try {
+            refill();
+            this.limits = limits;
+            tokens = Math.min(tokens, limits.getBurst());
+            changed.signalAll();
+            if (limits.getMaxConcurrency() > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(limits.getMaxConcurrency());
+                executor.setCorePoolSize(limits.getMaxConcurrency());
+            } else {
+                executor.setCorePoolSize(limits.getMaxConcurrency());
+                executor.setMaximumPoolSize(limits.getMaxConcurrency());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Executes the given call within the limits of the bulkhead on a thread of
+     * this provider; returns without waiting for a free execution slot.
+     *
+     * @param <T> result of the call
+     * @param call call of the provider
+     * @return completes with the result of the call, or exceptionally with a
+     * {@link BulkheadRejectedException} if the call was rejected
+     */
+    public <T> CompletableFuture<T> submit(ProviderCall<T> call) {
+        return schedule(permit -> {
+            boolean failed = true;
+            try {
+                T result = call.call();
+                failed = false;
+                return result;
+            } finally {
+                permit.release(failed);
+            }
+        });
+    }
+
+    /**
+     * Waits for a free execution slot on a thread of this provider, e.g. to
+     * start an asynchronous call. The permit must be released after the
+     * execution.
+     *
+     * @return completes with the permit, or exceptionally with a
+     * {@link BulkheadRejectedException} if the task was rejected
+     */
+    public CompletableFuture<Permit> acquireAsync() {
+        return schedule(permit -> permit);
+    }
+
+    private <T> CompletableFuture<T> schedule(PermitCall<T> call) {
+        long deadline;
+        lock.lock();
+        try {
+            if (activeCount + waitingCount >= limits.getMaxConcurrency() + limits.getQueueCapacity()) {
+                return CompletableFuture.failedFuture(reject(waitingCount + " tasks waiting already"));
+            }
+            deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limits.getMaxWaitMillis());
+            waitingCount++;
+        } finally {
+            lock.unlock();
+        }
+        ScheduledCall<T> scheduledCall = new ScheduledCall<>(call, deadline);
+        try {
+            executor.execute(scheduledCall);
+        } catch (RejectedExecutionException ex) {
+            scheduledCall.reject();
+        }
+        return scheduledCall.result;
+    }
+
+    private void unschedule() {
+        lock.lock();
+        try {
+            waitingCount--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit awaitPermit(long deadline) throws TaskExecutionException {
+        lock.lock();
+        try {
+            //counted as waiting since it was scheduled
+            waitingCount--;
+            if (!tryAcquire()) {
+                waitForAcquire(deadline);
+            }
+            return new Permit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the threads of this provider; tasks waiting for a thread are
+     * rejected.
+     */
+    public void shutdown() {
+        for (Runnable scheduledCall : executor.shutdownNow()) {
+            ((ScheduledCall<?>) scheduledCall).reject();
+        }
+    }
+
+    /**
+     * Executes the given call within the limits of the bulkhead.
+     *
+     * @param <T> result of the call
+     * @param call call of the provider
+     * @return the result of the call
+     * @throws TaskExecutionException if the call failed or was rejected
+     */
+    public <T> T execute(ProviderCall<T> call) throws TaskExecutionException {
+        Permit permit = acquire();
+        boolean failed = true;
+        try {
+            T result = call.call();
+            failed = false;
+            return result;
+        } finally {
+            permit.release(failed);
+        }
+    }
+
+    /**
+     * Waits for a free execution slot of the bulkhead. The returned permit
+     * must be released after the execution, e.g. when an asynchronous call
+     * completed.
+     *
+     * @return permit for one execution
+     * @throws BulkheadRejectedException if the task is rejected because of the limits
+     */
+    public Permit acquire() throws TaskExecutionException {
+        lock.lock();
+        try {
+            if (!tryAcquire()) {
+                if (waitingCount >= limits.getQueueCapacity()) {
+                    throw reject(waitingCount + " tasks waiting already");
+                }
+                waitForAcquire(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limits.getMaxWaitMillis()));
+            }
+            return new Permit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void waitForAcquire(long deadline) throws TaskExecutionException {
+        waitingCount++;
+        try {
+            while (!tryAcquire()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw reject("no execution slot within " + limits.getMaxWaitMillis() + "ms");
+                }
+                //a token becomes available without a signal
+                changed.awaitNanos(activeCount < limits.getMaxConcurrency()
+                        ? Math.min(remaining, getNanosToNextToken())
+                        : remaining);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw reject("interrupted");
+        } finally {
+            waitingCount--;
+        }
+    }
+
+    private boolean tryAcquire() {
+        if (activeCount >= limits.getMaxConcurrency()) {
+            return false;
+        }
+        if (isRateLimited()) {
+            refill();
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+        }
+        activeCount++;
+        return true;
+    }
+
+    private boolean isRateLimited() {
+        return limits.getRatePerSecond() > 0;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (isRateLimited()) {
+            tokens = Math.min(limits.getBurst(), tokens + (now - refilled) * limits.getRatePerSecond() / 1e9);
+        }
+        refilled = now;
+    }
+
+    private long getNanosToNextToken() {
+        return Math.max(1, (long) ((1 - tokens) * 1e9 / limits.getRatePerSecond()));
+    }
+
+    private BulkheadRejectedException reject(String reason) {
+        rejectedCount.incrementAndGet();
+        return new BulkheadRejectedException("Provider " + providerName + " rejected task: " + reason);
+    }
+
+    private void release(long nanos, boolean failed) {
+        lock.lock();
+        try {
+            activeCount--;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        executedCount.incrementAndGet();
+        if (failed) {
+            failedCount.incrementAndGet();
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (millis > LATENCY_BOUNDS[bucket]) {
+            bucket++;
+        }
+        latencies.incrementAndGet(bucket);
+    }
+
+    public TaskProviderStatistics getStatistics() {
+        TaskProviderLimits currentLimits;
+        int active;
+        int waiting;
+        lock.lock();
+        try {
+            currentLimits = limits;
+            active = activeCount;
+            waiting = waitingCount;
+        } finally {
+            lock.unlock();
+        }
+        List<LatencyBucket> buckets = new ArrayList<>(LATENCY_BOUNDS.length);
+        for (int bucket = 0; bucket < LATENCY_BOUNDS.length; bucket++) {
+            buckets.add(new LatencyBucket(LATENCY_BOUNDS[bucket], latencies.get(bucket)));
+        }
+        return new TaskProviderStatistics(providerName, currentLimits, active, waiting,
+                executedCount.get(), failedCount.get(), rejectedCount.get(), buckets);
+    }
+
+    /**
+     * Slot of one execution.
+     */
+    public class Permit {
+
+        private final long started = System.nanoTime();
+        private boolean released;
+
+        /**
+         * Frees the slot and records the execution; subsequent calls are ignored.
+         *
+         * @param failed {@code true} if the execution failed
+         */
+        public synchronized void release(boolean failed) {
+            if (!released) {
+                released = true;
+                ProviderBulkhead.this.release(System.nanoTime() - started, failed);
+            }
+        }
+
+    }
+
+    public interface ProviderCall<T> {
+
+        T call() throws TaskExecutionException;
+    }
+
+    private interface PermitCall<T> {
+
+        T call(Permit permit) throws TaskExecutionException;
+    }
+
+    /**
+     * Call waiting for a thread of this provider.
+     */
+    private class ScheduledCall<T> implements Runnable {
+
+        private final PermitCall<T> call;
+        private final long deadline;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private ScheduledCall(PermitCall<T> call, long deadline) {
+            this.call = call;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Permit permit = awaitPermit(deadline);
+                result.complete(call.call(permit));
+            } catch (Exception ex) {
+                result.completeExceptionally(ex);
+            }
+        }
+
+        private void reject() {
+            unschedule();
+            result.completeExceptionally(ProviderBulkhead.this.reject("shut down"));
+        }
+
+    }
+
+}
@@ -16,6 +16,16 @@
  ******************************************************************************/
 package org.opensbpm.engine.core.engine;
 
+import jakarta.persistence.LockModeType;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.opensbpm.engine.api.events.EngineEvent.Type;
@@ -23,13 +33,18 @@ import org.opensbpm.engine.api.events.ProviderTaskChangedEvent;
 import org.opensbpm.engine.api.instance.NextState;
 import org.opensbpm.engine.api.instance.Task;
 import org.opensbpm.engine.api.instance.TaskInfo;
+import org.opensbpm.engine.api.spi.AsyncTaskExecutionProvider;
+import org.opensbpm.engine.api.spi.BatchTaskExecutionProvider;
 import org.opensbpm.engine.api.spi.TaskExecutionProvider;
 import org.opensbpm.engine.core.engine.entities.ServiceSubject;
-import org.opensbpm.engine.core.model.entities.FunctionState;
+import org.opensbpm.engine.core.model.ProcessModelView.StateView;
 import org.opensbpm.engine.core.utils.repositories.JpaSpecificationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -37,18 +52,132 @@ import org.springframework.transaction.annotation.Transactional;
 @Component
 public class ProviderTaskChangedObserver {
 
+    private static final Logger LOGGER = Logger.getLogger(ProviderTaskChangedObserver.class.getName());
+
     @Autowired
     private ProviderTaskExecutor providerTaskExecutor;
 
-    @Async
+    @Autowired
+    private ServiceTaskJobWorker jobWorker;
+
+    @Autowired
+    private BatchTaskCollector batchTaskCollector;
+
+    @Autowired
+    private AsyncProviderTaskExecutor asyncTaskExecutor;
+
+    @Autowired
+    private ServiceTaskScheduler taskScheduler;
+
+    @Value("${opensbpm.engine.providers.retry-delay:PT1S}")
+    private Duration retryDelay;
+
     @EventListener
     public void handleTaskChangedEvent(ProviderTaskChangedEvent taskChangedEvent) {
-        Logger.getLogger(getClass().getName()).log(Level.INFO, "received {0}", taskChangedEvent.getSource());
+        LOGGER.log(Level.INFO, "received {0}", taskChangedEvent.getSource());
         if (Type.CREATE == taskChangedEvent.getType()) {
-            providerTaskExecutor.executeTask(taskChangedEvent.getSource());
+            if (jobWorker.isEnabled()) {
+                //the job is already queued by the transaction of the event
+                jobWorker.wakeUp();
+            } else {
+                schedule(taskChangedEvent.getSource(), taskChangedEvent.getPriority(), false);
+            }
+        }
+    }
+
+    private void schedule(TaskInfo taskInfo, int priority, boolean retry) {
+        try {
+            taskScheduler.schedule(priority, () -> executeTask(taskInfo, priority, retry));
+        } catch (RejectedExecutionException ex) {
+            retry(taskInfo, priority);
         }
     }
 
+    /**
+     * Schedules a task rejected by the engine executor or by the bulkhead of
+     * its provider again after {@code opensbpm.engine.providers.retry-delay}.
+     */
+    private void retry(TaskInfo taskInfo, int priority) {
+        LOGGER.log(Level.INFO, "{0} rejected, retrying in {1}", new Object[]{taskInfo, retryDelay});
+        CompletableFuture.delayedExecutor(retryDelay.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(() -> schedule(taskInfo, priority, true));
+    }
+
+    private void executeTask(TaskInfo taskInfo, int priority, boolean retry) {
+        PreparedTask preparedTask;
+        try {
+            preparedTask = providerTaskExecutor.prepareTask(taskInfo);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+            cancel(taskInfo, ex.getMessage());
+            return;
+        }
+        if (retry && preparedTask.getTask().getLastChanged().isAfter(taskInfo.getLastChanged())) {
+            LOGGER.log(Level.INFO, "{0} out of date", taskInfo);
+            return;
+        }
+        if (preparedTask.getProvider() instanceof BatchTaskExecutionProvider) {
+            batchTaskCollector.add(preparedTask);
+            return;
+        }
+        CompletableFuture<?> execution = preparedTask.getProvider() instanceof AsyncTaskExecutionProvider
+                ? asyncTaskExecutor.execute(preparedTask)
+                : execute(preparedTask);
+        execution.whenComplete((result, failure) -> {
+            if (failure != null && unwrap(failure) instanceof BulkheadRejectedException) {
+                retry(taskInfo, priority);
+            }
+        });
+    }
+
+    /**
+     * Executes the task on a thread of its provider and applies the result in
+     * a new transaction.
+     *
+     * @return completes exceptionally with a {@link BulkheadRejectedException}
+     * if the provider rejected the task
+     */
+    private CompletableFuture<Void> execute(PreparedTask preparedTask) {
+        Task task = preparedTask.getTask();
+        return preparedTask.getBulkhead()
+                .submit(() -> preparedTask.getProvider().executeTask(preparedTask.getParameters(), task))
+                .handle((nextState, failure) -> {
+                    if (failure != null) {
+                        Throwable cause = unwrap(failure);
+                        if (cause instanceof BulkheadRejectedException) {
+                            throw new CompletionException(cause);
+                        }
+                        //catch all exceptions from taskExecutionProvider here
+                        LOGGER.log(Level.SEVERE, cause.getMessage(), cause);
+                        cancel(task.getTaskInfo(), cause.getMessage());
+                        return null;
+                    }
+                    try {
+                        providerTaskExecutor.changeState(task, nextState);
+                    } catch (RuntimeException ex) {
+                        LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+                        cancel(task.getTaskInfo(), ex.getMessage());
+                    }
+                    return null;
+                });
+    }
+
+    private void cancel(TaskInfo taskInfo, String message) {
+        try {
+            providerTaskExecutor.cancelBySystem(taskInfo, message);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "cancelling " + taskInfo + " failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
     @Component
     public static class ProviderTaskExecutor {
         //inner class for easier integeration-testing
@@ -67,26 +196,95 @@ public class ProviderTaskChangedObserver {
 
         @Autowired
         private EngineConverter engineConverter;
-        @Transactional
-        public void executeTask(TaskInfo taskInfo) {
-            //PENDING subjectService.findWithLock(taskInfo.getId());
-            ServiceSubject subject = subjectRepository.getOne(taskInfo.getId());
-            FunctionState functionState = subject.getVisibleCurrentState()
+
+        /**
+         * Prepares the given task for an execution by its provider outside of
+         * any transaction; the result is applied by
+         * {@link #changeState(Task, NextState)}.
+         *
+         * @param taskInfo task to prepare
+         * @return the prepared task
+         */
+        @Transactional(readOnly = true)
+        public PreparedTask prepareTask(TaskInfo taskInfo) {
+            ServiceSubject subject = subjectRepository.getReferenceById(taskInfo.getId());
+            StateView functionState = engineConverter.getVisibleCurrentState(subject)
                     .orElseThrow(() -> new IllegalStateException("no visible current state"));
 
             TaskExecutionProvider taskExecutionProvider = taskProviderManager.findProvider(functionState.getProviderName());
+            return new PreparedTask(taskExecutionProvider,
+                    taskProviderManager.getBulkhead(taskExecutionProvider.getName()), functionState.getId(),
+                    functionState.getParameters(), new Task(taskInfo, engineConverter.createTaskResponse(subject)));
+        }
 
-            //retrieve Task 
-            Task task = new Task(taskInfo, engineConverter.createTaskResponse(subject));
-
-            try {
-                NextState nextState = taskExecutionProvider.executeTask(functionState.getParameters(), task);
-                stateChangeService.changeState(subject, task.createTaskRequest(nextState));
-            } catch (Exception ex) {
-                //catch all exceptions from taskExecutionProvider here
-                Logger.getLogger(ProviderTaskChangedObserver.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
-                processInstanceService.cancelBySystem(subject.getProcessInstance(), ex.getMessage());
+        /**
+         * Switches the subject of a task executed outside of its transaction
+         * to the given state. The subject is locked and the state is only
+         * changed if the subject wasn't changed since the task was prepared.
+         *
+         * @param task executed task
+         * @param nextState state to switch to
+         * @return {@code false} if the task is out of date
+         */
+        @Transactional
+        public boolean changeState(Task task, NextState nextState) {
+            ServiceSubject subject = subjectRepository.findByIdForWrite(task.getId())
+                    .orElseThrow(() -> new IllegalStateException("subject " + task.getId() + " not found"));
+            if (!subject.getProcessInstance().isActive() || subject.getLastChanged().isAfter(task.getLastChanged())) {
+                Logger.getLogger(ProviderTaskChangedObserver.class.getName()).log(Level.INFO, "{0} out of date", task.getTaskInfo());
+                return false;
             }
+            stateChangeService.changeState(subject, task.createTaskRequest(nextState));
+            return true;
+        }
+
+        @Transactional
+        public void cancelBySystem(TaskInfo taskInfo, String message) {
+            ServiceSubject subject = subjectRepository.getReferenceById(taskInfo.getId());
+            processInstanceService.cancelBySystem(subject.getProcessInstance(), message);
+        }
+
+    }
+
+    /**
+     * Task of a provider which is executed outside of the transaction of its
+     * subject, prepared in the transaction of the subject.
+     */
+    public static final class PreparedTask {
+
+        private final TaskExecutionProvider provider;
+        private final ProviderBulkhead bulkhead;
+        private final Long stateId;
+        private final Map<String, String> parameters;
+        private final Task task;
+
+        public PreparedTask(TaskExecutionProvider provider, ProviderBulkhead bulkhead, Long stateId,
+                Map<String, String> parameters, Task task) {
+            this.provider = Objects.requireNonNull(provider, "provider must not be null");
+            this.bulkhead = Objects.requireNonNull(bulkhead, "bulkhead must not be null");
+            this.stateId = Objects.requireNonNull(stateId, "stateId must not be null");
+            this.parameters = new HashMap<>(parameters);
+            this.task = Objects.requireNonNull(task, "task must not be null");
+        }
+
+        public TaskExecutionProvider getProvider() {
+            return provider;
+        }
+
+        public ProviderBulkhead getBulkhead() {
+            return bulkhead;
+        }
+
+        public Long getStateId() {
+            return stateId;
+        }
+
+        public Map<String, String> getParameters() {
+            return parameters;
+        }
+
+        public Task getTask() {
+            return task;
         }
 
     }
@@ -94,6 +292,10 @@ public class ProviderTaskChangedObserver {
     @Repository
     public interface ServiceSubjectRepository extends JpaSpecificationRepository<ServiceSubject, Long> {
 
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("select s from subjectservice s where s.id = :id")
+        Optional<ServiceSubject> findByIdForWrite(@Param("id") Long id);
+
     }
 
 }
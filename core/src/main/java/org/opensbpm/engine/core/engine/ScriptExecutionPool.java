@@ -0,0 +1,373 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.script.ScriptException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dedicated pool of threads evaluating scripts of process models. A script
+ * exceeding {@link #getTimeout()} is cancelled by interrupting its thread, so
+ * a runaway script can't block the thread of its caller.
+ * <p>
+ * While a script runs in the pool, its caller waits for the result and
+ * executes the work handed back by {@link #supplyInCallerThread(Supplier)},
+ * so lazy variables which read entities are still created in the thread
+ * owning the persistence context.
+ * <p>
+ * The pool binds the meters {@code opensbpm.engine.script.expression.cpu},
+ * {@code .failures} and {@code .timeouts} per expression, and the same meters
+ * below {@code opensbpm.engine.script.model} per process model. The CPU timer
+ * counts the invocations too. An expression is assigned to the models it was
+ * registered for with {@link #registerModel(String, Collection)} or to the
+ * model given on execution; models are identified by {@link #modelKey(String, Object)}
+ * and expressions by the short {@link #expressionId(String)} of their source.
+ * The meters of a model are removed by {@link #unregisterModel(String)}, the
+ * meters of an expression by {@link #unregisterExpression(String)}, e.g. when
+ * its compiled script is evicted.
+ */
+@Component
+public class ScriptExecutionPool implements DisposableBean, MeterBinder {
+
+    private static final ThreadLocal<BlockingQueue<Runnable>> CALLER_TASKS = new ThreadLocal<>();
+
+    private static final Runnable FINISHED = () -> {
+    };
+
+    /**
+     * @param modelName name of the process model
+     * @param version version of the process model
+     * @return key of the given version of a process model
+     */
+    public static String modelKey(String modelName, Object version) {
+        return modelName + ":" + version;
+    }
+
+    /**
+     * @param expression source of a script
+     * @return short and stable id of the expression, the tag of its meters
+     */
+    public static String expressionId(String expression) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(expression.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Creates a value in the thread which called {@link #execute(String, String, ScriptCall)},
+     * if called by a script running in the pool, otherwise in the current thread.
+     *
+     * @param <T> type of the value
+     * @param supplier creates the value
+     * @return the created value
+     * @throws CancellationException if the script was cancelled while waiting for the value
+     */
+    public static <T> T supplyInCallerThread(Supplier<T> supplier) {
+        BlockingQueue<Runnable> callerTasks = CALLER_TASKS.get();
+        if (callerTasks == null) {
+            return supplier.get();
+        }
+        FutureTask<T> callerTask = new FutureTask<>(supplier::get);
+        callerTasks.add(callerTask);
+        try {
+            return callerTask.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("script cancelled while waiting for its caller");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    //meters are created per expression and model; bound registries receive them from the composite
+    private final CompositeMeterRegistry meterRegistry = new CompositeMeterRegistry();
+
+    private final Map<String, Recorder> expressions = new ConcurrentHashMap<>();
+    private final Map<String, Recorder> models = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> expressionModels = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ScriptExecutionPool(@Value("${opensbpm.engine.script.pool.size:4}") int poolSize,
+            @Value("${opensbpm.engine.script.pool.queue-capacity:500}") int queueCapacity,
+            @Value("${opensbpm.engine.script.timeout:PT30S}") Duration timeout) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("poolSize must be greater than 0");
+        }
+        this.timeout = Objects.requireNonNull(timeout, "timeout must not be null");
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("Script-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), threadFactory);
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Assigns the given expressions to a process model, so their executions
+     * are accounted to that model too.
+     *
+     * @param model key of the process model, see {@link #modelKey(String, Object)}
+     * @param modelExpressions expressions of the process model
+     */
+    public void registerModel(String model, Collection<String> modelExpressions) {
+        Objects.requireNonNull(model, "model must not be null");
+        modelExpressions.forEach(expression -> expressionModels
+                .computeIfAbsent(expression, key -> ConcurrentHashMap.newKeySet())
+                .add(model));
+    }
+
+    /**
+     * Removes the meters of a process model and the meters of the expressions
+     * which aren't assigned to another model.
+     *
+     * @param model key of the process model, see {@link #modelKey(String, Object)}
+     */
+    public void unregisterModel(String model) {
+        Objects.requireNonNull(model, "model must not be null");
+        expressionModels.forEach((expression, modelKeys) -> {
+            modelKeys.remove(model);
+            if (modelKeys.isEmpty() && expressionModels.remove(expression, modelKeys)) {
+                unregisterExpression(expression);
+            }
+        });
+        removeRecorder(models, model);
+    }
+
+    /**
+     * Removes the meters of an expression; they are registered again on its
+     * next execution.
+     *
+     * @param expression source of the script
+     */
+    public void unregisterExpression(String expression) {
+        removeRecorder(expressions, expression);
+    }
+
+    private void removeRecorder(Map<String, Recorder> recorders, String key) {
+        Recorder recorder = recorders.remove(key);
+        if (recorder != null) {
+            recorder.remove();
+        }
+    }
+
+    /**
+     * Executes a script in a thread of this pool and waits at most
+     * {@link #getTimeout()} for its result. Scripts executed by a script of
+     * this pool run in the same thread.
+     *
+     * @param <T> type of the result
+     * @param expression source of the script, the key of the statistics
+     * @param model key of the process model of the script; {@code null} to use the registered models
+     * @param scriptCall evaluates the script
+     * @return the result of the script
+     * @throws ScriptException if the script failed, was cancelled or exceeded the timeout
+     */
+    public <T> T execute(String expression, String model, ScriptCall<T> scriptCall) throws ScriptException {
+        if (CALLER_TASKS.get() != null) {
+            //nested scripts share the timeout of the outer script
+            return executeInCallerThread(expression, model, scriptCall);
+        }
+
+        BlockingQueue<Runnable> callerTasks = new LinkedBlockingQueue<>();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                CALLER_TASKS.set(callerTasks);
+                try {
+                    return executeInCallerThread(expression, model, scriptCall);
+                } finally {
+                    CALLER_TASKS.remove();
+                    callerTasks.add(FINISHED);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            throw newScriptException("Script pool exhausted, script rejected: " + ex.getMessage(), ex);
+        }
+
+        try {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            runCallerTasks(callerTasks, deadline);
+            return future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            getRecorders(expression, model).forEach(recorder -> recorder.timeouts.increment());
+            throw newScriptException("Script exceeded timeout of " + timeout + ": " + expression, ex);
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw newScriptException("Script cancelled: " + expression, ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof ScriptException) {
+                throw (ScriptException) ex.getCause();
+            }
+            throw newScriptException(ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+
+    private static void runCallerTasks(BlockingQueue<Runnable> callerTasks, long deadline) throws InterruptedException, TimeoutException {
+        Runnable callerTask;
+        while ((callerTask = callerTasks.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) != FINISHED) {
+            if (callerTask == null) {
+                throw new TimeoutException();
+            }
+            callerTask.run();
+        }
+    }
+
+    /**
+     * Executes a script in the current thread without timeout, but records its
+     * statistics. Intended for scripts which are evaluated without a script engine.
+     *
+     * @param <T> type of the result
+     * @param expression source of the script, the key of the statistics
+     * @param model key of the process model of the script; {@code null} to use the registered models
+     * @param scriptCall evaluates the script
+     * @return the result of the script
+     * @throws ScriptException if the script failed
+     */
+    public <T> T executeInCallerThread(String expression, String model, ScriptCall<T> scriptCall) throws ScriptException {
+        long cpuTime = getCurrentThreadCpuTime();
+        boolean failed = true;
+        try {
+            T result = scriptCall.call();
+            failed = false;
+            return result;
+        } finally {
+            long usedCpuTime = getCurrentThreadCpuTime() - cpuTime;
+            for (Recorder recorder : getRecorders(expression, model)) {
+                recorder.cpuTime.record(usedCpuTime, TimeUnit.NANOSECONDS);
+                if (failed) {
+                    recorder.failures.increment();
+                }
+            }
+        }
+    }
+
+    private long getCurrentThreadCpuTime() {
+        return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    private Collection<Recorder> getRecorders(String expression, String model) {
+        Set<String> modelKeys = model == null
+                ? expressionModels.getOrDefault(expression, Collections.emptySet())
+                : Collections.singleton(model);
+        return Stream.concat(
+                Stream.of(expressions.computeIfAbsent(expression, key -> new Recorder("expression", expressionId(key)))),
+                modelKeys.stream().map(modelKey -> models.computeIfAbsent(modelKey, key -> new Recorder("model", key)))
+        ).collect(Collectors.toList());
+    }
+
+    private static ScriptException newScriptException(String message, Throwable cause) {
+        ScriptException scriptException = new ScriptException(message);
+        scriptException.initCause(cause);
+        return scriptException;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry.add(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    public interface ScriptCall<T> {
+
+        T call() throws ScriptException;
+    }
+
+    private class Recorder {
+
+        private final Timer cpuTime;
+        private final Counter failures;
+        private final Counter timeouts;
+
+        private Recorder(String dimension, String id) {
+            String prefix = "opensbpm.engine.script." + dimension;
+            cpuTime = Timer.builder(prefix + ".cpu")
+                    .description("CPU time of the invocations; zero if the JVM doesn't measure thread CPU time")
+                    .tag(dimension, id)
+                    .register(meterRegistry);
+            failures = Counter.builder(prefix + ".failures")
+                    .description("invocations which threw an exception, including cancelled ones")
+                    .tag(dimension, id)
+                    .register(meterRegistry);
+            timeouts = Counter.builder(prefix + ".timeouts")
+                    .tag(dimension, id)
+                    .register(meterRegistry);
+        }
+
+        private void remove() {
+            Stream.of(cpuTime, failures, timeouts).forEach(meterRegistry::remove);
+        }
+
+    }
+
+}
@@ -18,99 +18,287 @@
 package org.opensbpm.engine.core.engine;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.script.Bindings;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
+import org.opensbpm.engine.api.events.EngineEvent.Type;
+import org.opensbpm.engine.api.events.ProcessModelChangedEvent;
 import org.opensbpm.engine.api.instance.AttributeSchema;
 import org.opensbpm.engine.api.instance.ObjectBean;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance;
 import org.opensbpm.engine.core.engine.entities.Subject;
 import org.opensbpm.engine.core.engine.entities.User;
 import org.opensbpm.engine.core.engine.entities.UserSubject;
+import org.opensbpm.engine.core.engine.taskprovider.GroovyTaskProvider;
+import org.opensbpm.engine.core.model.ProcessModelView;
+import org.opensbpm.engine.core.model.ProcessModelView.ObjectView;
+import org.opensbpm.engine.core.model.ProcessModelView.PermissionView;
+import org.opensbpm.engine.core.model.ProcessModelView.StateView;
+import org.opensbpm.engine.core.model.entities.FunctionState;
 import org.opensbpm.engine.core.model.entities.ObjectModel;
+import org.opensbpm.engine.core.model.entities.ProcessModel;
 import org.opensbpm.engine.core.model.entities.State;
 import org.opensbpm.engine.core.model.entities.StatePermission;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import static org.opensbpm.engine.core.engine.ObjectSchemaConverter.toObjectSchema;
+import static org.opensbpm.engine.core.engine.ScriptExecutionPool.modelKey;
 import static org.opensbpm.engine.core.engine.entities.SubjectVisitor.userSubject;
+import static org.opensbpm.engine.core.model.entities.StateVisitor.functionState;
 
 @Component
 public class ScriptExecutorService {
 
+    private static final Logger LOGGER = Logger.getLogger(ScriptExecutorService.class.getName());
+
     private final ScriptEngine scriptEngine;
+    private final CompiledScriptCache scriptCache;
+    private final ScriptExecutionPool scriptExecutionPool;
 
-    public ScriptExecutorService(ScriptEngine scriptEngine) {
+    public ScriptExecutorService(ScriptEngine scriptEngine, CompiledScriptCache scriptCache, ScriptExecutionPool scriptExecutionPool) {
         this.scriptEngine = Objects.requireNonNull(scriptEngine, "ScriptEngine must not be null");
+        if (!(scriptEngine instanceof Compilable)) {
+            throw new IllegalArgumentException("ScriptEngine " + scriptEngine.getClass().getName() + " doesn't support compilation");
+        }
+        this.scriptCache = Objects.requireNonNull(scriptCache, "CompiledScriptCache must not be null");
+        this.scriptExecutionPool = Objects.requireNonNull(scriptExecutionPool, "ScriptExecutionPool must not be null");
+        //evicted scripts drop their meters
+        scriptCache.addRemovalListener(scriptExecutionPool::unregisterExpression);
+    }
+
+    /**
+     * Compiles all display-name and default-value scripts of the given {@link ProcessModel} into the
+     * {@link CompiledScriptCache}, so evaluating them later doesn't compile anything.
+     *
+     * @param processModel deployed model
+     */
+    public void precompileScripts(ProcessModel processModel) {
+        List<String> scripts = getScripts(processModel).collect(Collectors.toList());
+        String model = modelKey(processModel.getName(), processModel.getVersion());
+        scriptExecutionPool.registerModel(model, scripts);
+        //task scripts are compiled by their provider, but accounted to this version of the model too
+        scriptExecutionPool.registerModel(model, getTaskScripts(processModel).collect(Collectors.toList()));
+        scripts.forEach(script -> {
+            try {
+                compile(script);
+            } catch (ScriptException ex) {
+                LOGGER.log(Level.WARNING, "script ''{0}'' of {1} not compilable: {2}", new Object[]{script, processModel, ex.getMessage()});
+            }
+        });
     }
 
-    public String evaluteStateDisplayName(Subject subject, State state) {
+    /**
+     * Removes the script meters of a deleted {@link ProcessModel}.
+     *
+     * @param changedEvent event of a changed model
+     */
+    @EventListener
+    public void handleProcessModelChangedEvent(ProcessModelChangedEvent changedEvent) {
+        if (Type.DELETE == changedEvent.getType()) {
+            scriptExecutionPool.unregisterModel(modelKey(changedEvent.getSource().getName(), changedEvent.getSource().getVersion()));
+        }
+    }
+
+    private static Stream<String> getScripts(ProcessModel processModel) {
+        Stream<String> stateScripts = processModel.getSubjectModels().stream()
+                .flatMap(subjectModel -> subjectModel.getStates().stream())
+                .map(State::getDisplayName);
+
+        Stream<String> defaultValueScripts = processModel.getSubjectModels().stream()
+                .flatMap(subjectModel -> subjectModel.getStates().stream())
+                .map(state -> state.accept(functionState()))
+                .flatMap(Optional::stream)
+                .map(FunctionState::getStatePermissions)
+                .flatMap(statePermissions -> statePermissions.stream())
+                .flatMap(statePermission -> Stream.concat(Stream.of(statePermission), statePermission.getAllPermissions()))
+                .map(StatePermission::getDefaultValue)
+                .flatMap(Optional::stream);
+
+        Stream<String> objectScripts = processModel.getObjectModels().stream()
+                .map(ObjectModel::getDisplayName)
+                .flatMap(Optional::stream);
+
+        return Stream.of(stateScripts, defaultValueScripts, objectScripts)
+                .flatMap(scripts -> scripts)
+                .filter(Objects::nonNull)
+                .distinct();
+    }
+
+    private static Stream<String> getTaskScripts(ProcessModel processModel) {
+        return processModel.getSubjectModels().stream()
+                .flatMap(subjectModel -> subjectModel.getStates().stream())
+                .map(state -> state.accept(functionState()))
+                .flatMap(Optional::stream)
+                .filter(functionState -> GroovyTaskProvider.NAME.equals(functionState.getProviderName()))
+                .map(functionState -> functionState.getParameters().get(GroovyTaskProvider.SCRIPT))
+                .filter(Objects::nonNull)
+                .distinct();
+    }
+
+    /**
+     * Evaluates the display name of the given state of a subject.
+     *
+     * @param subject subject in the given state
+     * @param processModel cached model of the subject
+     * @param state state with the display name
+     * @return the evaluated display name or the name of the state
+     */
+    public String evaluteStateDisplayName(Subject subject, ProcessModelView processModel, StateView state) {
         BindingContext bindingContext = BindingContext.ofSubject(subject);
+        ProcessInstance processInstance = subject.getProcessInstance();
         return Optional.ofNullable(state.getDisplayName())
-                .map(displayName -> evalStateScript(displayName, subject.getProcessInstance(), state, bindingContext))
+                .map(displayName -> evalStateScript(displayName, processModel, state, bindingContext,
+                processInstance::getValues))
                 .orElse(state.getName());
     }
 
-    private String evalStateScript(String script, ProcessInstance processInstance, State state, BindingContext bindingContext) {
-        return eval(script, bindings -> {
-            processInstance.getProcessModel().getObjectModels().stream()
-                    .forEach(objectModel -> {
-                        ObjectBean objectBean = createObjectBean(processInstance, state, objectModel, bindingContext);
-                        bindings.put(objectModel.getName(), objectBean);
-                    });
+    /**
+     * Like {@link #evaluteStateDisplayName(Subject, ProcessModelView, StateView)},
+     * but the script is not evaluated before {@link Supplier#get()} is called.
+     * The values of the objects read by the script are copied now, so changes
+     * of the process instance after this call don't change the display name.
+     *
+     * @param subject subject in the given state
+     * @param processModel cached model of the subject
+     * @param state state with the display name
+     * @return supplier evaluating the display name on every call
+     */
+    public Supplier<String> deferStateDisplayName(Subject subject, ProcessModelView processModel, StateView state) {
+        String displayName = state.getDisplayName();
+        if (displayName == null) {
+            String name = state.getName();
+            return () -> name;
+        }
+
+        BindingContext bindingContext = BindingContext.ofSubject(subject);
+        ProcessInstance processInstance = subject.getProcessInstance();
+        Optional<Set<String>> variableNames = getVariableNames(displayName);
+        Map<Long, Map<Long, Serializable>> values = processModel.getObjects().stream()
+                .filter(object -> variableNames.map(names -> names.contains(object.getName())).orElse(true))
+                .collect(Collectors.toMap(ObjectView::getId,
+                        object -> new HashMap<>(processInstance.getValues(object.getId()))));
+        return () -> evalStateScript(displayName, processModel, state, bindingContext,
+                objectModelId -> values.getOrDefault(objectModelId, Collections.emptyMap()));
+    }
+
+    private String evalStateScript(String script, ProcessModelView processModel, StateView state, BindingContext bindingContext,
+            Function<Long, Map<Long, Serializable>> values) {
+        return eval(script, modelKey(processModel.getName(), processModel.getVersion()), bindings -> {
+            processModel.getObjects().stream()
+                    .forEach(object -> bindings.putLazy(object.getName(),
+                            () -> createObjectBean(state, object, bindingContext, values.apply(object.getId()))));
         });
     }
 
-    private ObjectBean createObjectBean(ProcessInstance processInstance, State state, ObjectModel objectModel, BindingContext bindingContext) {
-        return ObjectBean.from(toObjectSchema(this, state, objectModel, bindingContext),
-                processInstance.getValues(objectModel)
-        );
+    private ObjectBean createObjectBean(StateView state, ObjectView object, BindingContext bindingContext, Map<Long, Serializable> values) {
+        return ObjectBean.from(toObjectSchema(this, state, object, bindingContext), values);
     }
 
-    public Optional<Serializable> evaluateDefaultValueScript(StatePermission statePermission, BindingContext bindingContext) {
-        return statePermission.getDefaultValue()
+    public Optional<Serializable> evaluateDefaultValueScript(PermissionView permission, BindingContext bindingContext) {
+        return permission.getDefaultValue()
                 .map(defaultValue -> evalDefaultValueScript(defaultValue, bindingContext));
     }
 
     private Serializable evalDefaultValueScript(String script, BindingContext bindingContext) {
-        return eval(script, bindings -> {
-            bindings.put("user", bindingContext.getUser());
+        return eval(script, null, bindings -> {
+            bindings.putLazy("user", bindingContext::getUser);
         });
     }
 
-    public String evaluateObjectDisplayName(ObjectModel objectModel, ObjectBean objectBean) {
-        return objectModel.getDisplayName()
+    public String evaluateObjectDisplayName(ObjectView object, ObjectBean objectBean) {
+        return object.getDisplayName()
                 .map(displayName -> evalDisplayNameScript(displayName, objectBean))
-                .orElse(objectModel.getName());
+                .orElse(object.getName());
     }
 
     private String evalDisplayNameScript(String script, ObjectBean objectBean) {
-        return eval(script, bindings -> {
+        return eval(script, null, bindings -> {
             for (AttributeSchema attributeSchema : objectBean.getAttributeModels()) {
-                bindings.put(attributeSchema.getName(), objectBean.get(attributeSchema.getName()));
+                bindings.putLazy(attributeSchema.getName(), () -> objectBean.get(attributeSchema));
             }
         });
     }
 
-    private String eval(String script, Consumer<Bindings> bindingsConsumer) {
+    private String eval(String script, String model, Consumer<LazyBindings> bindingsConsumer) {
         try {
-            Bindings bindings = scriptEngine.getBindings(ScriptContext.ENGINE_SCOPE);
-            bindingsConsumer.accept(bindings);
+            CompiledScript compiledScript = compile(script);
+
+            //only variables read by the script are registered and created on first access
+            Optional<Set<String>> variableNames = getVariableNames(compiledScript);
+            LazyBindings bindings = new LazyBindings(variableNames);
+            if (variableNames.map(names -> !names.isEmpty()).orElse(true)) {
+                bindingsConsumer.accept(bindings);
+            }
+
+            //every evaluation gets its own context; the engine's bindings are shared between threads
+            ScriptContext scriptContext = new SimpleScriptContext();
+            scriptContext.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
 
             //eval returns GString; convert it with toString()
-            String escapedScript = String.format("\"%s\"", script);
-            return scriptEngine.eval(escapedScript, bindings).toString();
+            if (compiledScript instanceof TemplateScript) {
+                return scriptExecutionPool.executeInCallerThread(script, model,
+                        () -> compiledScript.eval(scriptContext).toString());
+            }
+            //the script runs in the pool, lazy variables are still created in this thread
+            return scriptExecutionPool.execute(script, model,
+                    () -> compiledScript.eval(scriptContext).toString());
         } catch (ScriptException ex) {
-            Logger.getLogger(EngineConverter.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
             return ex.getMessage();
         }
     }
 
+    private static Optional<Set<String>> getVariableNames(CompiledScript compiledScript) {
+        if (compiledScript instanceof ReferencesVariables) {
+            return ((ReferencesVariables) compiledScript).getVariableNames();
+        }
+        return Optional.empty();
+    }
+
+    private Optional<Set<String>> getVariableNames(String script) {
+        try {
+            return getVariableNames(compile(script));
+        } catch (ScriptException ex) {
+            //evaluating the script reports the failure
+            return Optional.empty();
+        }
+    }
+
+    private CompiledScript compile(String script) throws ScriptException {
+        return scriptCache.get(script, source -> {
+            Optional<TemplateScript> templateScript = TemplateScript.parse(source, scriptEngine, this::compileScript);
+            if (templateScript.isPresent()) {
+                return templateScript.get();
+            }
+            return AnalyzedScript.of(compileScript(source), escape(source));
+        });
+    }
+
+    private CompiledScript compileScript(String script) throws ScriptException {
+        return ((Compilable) scriptEngine).compile(escape(script));
+    }
+
+    private static String escape(String script) {
+        return String.format("\"%s\"", script);
+    }
+
     public interface BindingContext {
 
         public static BindingContext ofSubject(Subject subject) {
@@ -0,0 +1,110 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.opensbpm.engine.core.engine.entities.ServiceSubject;
+import org.opensbpm.engine.core.engine.entities.ServiceTaskJob;
+import org.opensbpm.engine.core.engine.entities.ServiceTaskJob.Status;
+import org.opensbpm.engine.core.model.entities.FunctionState;
+import org.opensbpm.engine.core.utils.repositories.JpaSpecificationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Durable queue of the service tasks to execute.
+ * <p>
+ * If enabled ({@code opensbpm.engine.jobs.enabled=true}) a
+ * {@link ServiceTaskJob} is written in the transaction in which a
+ * {@link ServiceSubject} enters a state, instead of executing the state by the
+ * in-memory {@link ProviderTaskChangedObserver} only. The jobs are executed by
+ * the {@link ServiceTaskJobWorker}s of all nodes.
+ */
+@Component
+public class ServiceTaskJobQueue {
+
+    private static final Logger LOGGER = Logger.getLogger(ServiceTaskJobQueue.class.getName());
+
+    @Autowired
+    private ServiceTaskJobRepository jobRepository;
+
+    @Autowired
+    private ServiceTaskScheduler taskScheduler;
+
+    @Value("${opensbpm.engine.jobs.enabled:false}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the execution of the given state. Must be called in the
+     * transaction in which the subject entered the state.
+     *
+     * @param subject subject to execute
+     * @param functionState current state of the subject
+     */
+    public void enqueue(ServiceSubject subject, FunctionState functionState) {
+        //a running job may have switched the subject to the same state again
+        if (jobRepository.existsBySubjectIdAndStateIdAndStatus(subject.getId(), functionState.getId(), Status.PENDING)) {
+            LOGGER.log(Level.FINE, "{0} already queued", subject);
+            return;
+        }
+        int priority = taskScheduler.getPriority(subject, functionState);
+        long created = System.currentTimeMillis();
+        ServiceTaskJob job = jobRepository.save(new ServiceTaskJob(subject.getId(), functionState.getId(),
+                priority, created, taskScheduler.getRank(created, priority)));
+        LOGGER.log(Level.FINE, "{0} queued", job);
+    }
+
+    @Repository
+    public interface ServiceTaskJobRepository extends JpaSpecificationRepository<ServiceTaskJob, Long> {
+
+        boolean existsBySubjectIdAndStateIdAndStatus(Long subjectId, Long stateId, Status status);
+
+        long countByStatus(Status status);
+
+        /**
+         * @param statuses claimable statuses, {@link Status#PENDING} and
+         * {@link Status#RUNNING} for jobs with expired lease
+         * @return the available jobs ordered by their rank, locked for update;
+         * jobs locked by another transaction are skipped
+         */
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+        @Query("select j from servicetaskjob j where j.status in :statuses and j.availableAt <= :now"
+                + " order by j.rank, j.id")
+        List<ServiceTaskJob> findClaimable(@Param("now") long now, @Param("statuses") Collection<Status> statuses,
+                Pageable pageable);
+
+    }
+
+}
@@ -0,0 +1,417 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.opensbpm.engine.api.instance.NextState;
+import org.opensbpm.engine.api.instance.Task;
+import org.opensbpm.engine.api.instance.TaskInfo;
+import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.PreparedTask;
+import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.ProviderTaskExecutor;
+import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.ServiceSubjectRepository;
+import org.opensbpm.engine.core.engine.ServiceTaskJobQueue.ServiceTaskJobRepository;
+import org.opensbpm.engine.core.engine.entities.ProcessInstance;
+import org.opensbpm.engine.core.engine.entities.ServiceSubject;
+import org.opensbpm.engine.core.engine.entities.ServiceTaskJob;
+import org.opensbpm.engine.core.engine.entities.ServiceTaskJob.Status;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Executes the jobs of the {@link ServiceTaskJobQueue} by a pool of
+ * {@code opensbpm.engine.jobs.workers} threads.
+ * <p>
+ * Jobs are claimed in batches, ordered by the rank which the
+ * {@link ServiceTaskScheduler} computed from priority and aging on enqueue,
+ * whenever a job was queued by this node and
+ * every {@code poll-interval} for jobs of other nodes. Claiming locks the job
+ * rows with {@code FOR UPDATE SKIP LOCKED} where the database supports it, so
+ * concurrent nodes claim different jobs. A claimed job is leased for
+ * {@code visibility-timeout}; if the node stops before the job is done, the
+ * job is claimed again after the lease expired. The optimistic version of
+ * the job ensures that only the last claim of a job can complete it.
+ * <p>
+ * The claim is committed before the provider is called. The task is prepared
+ * in a short transaction by a worker, the provider is called without a
+ * transaction by a thread of its {@link ProviderBulkhead}, and the subject is
+ * switched to the next state and the job deleted in another short
+ * transaction; so a slow provider holds neither a connection, nor locks, nor
+ * the workers. A job rejected by the bulkhead is postponed by {@code backoff}
+ * without counting the attempt.
+ * If the job was claimed again in between, e.g. because the provider took
+ * longer than the lease, its result is discarded. If the provider fails, the
+ * job is retried after an exponential backoff ({@code backoff} doubled per
+ * attempt, at most {@code max-backoff}). After {@code max-attempts} the job is
+ * dead and the process is cancelled.
+ * <p>
+ * Binds the meters {@code opensbpm.engine.jobs.active}, {@code .claimed},
+ * {@code .completed}, {@code .retried}, {@code .postponed} and {@code .dead}.
+ */
+@Component
+public class ServiceTaskJobWorker implements DisposableBean, MeterBinder {
+
+    private static final Logger LOGGER = Logger.getLogger(ServiceTaskJobWorker.class.getName());
+
+    private final ServiceTaskJobRepository jobRepository;
+    private final ServiceSubjectRepository subjectRepository;
+    private final ProviderTaskExecutor providerTaskExecutor;
+    private final ProcessInstanceService processInstanceService;
+    private final EngineConverter engineConverter;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final String node;
+    private final int workerCount;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration visibilityTimeout;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+
+    private final Semaphore idleWorkers;
+    private final AtomicBoolean pollPending = new AtomicBoolean();
+    private final AtomicLong claimedJobs = new AtomicLong();
+    private final AtomicLong completedJobs = new AtomicLong();
+    private final AtomicLong retriedJobs = new AtomicLong();
+    private final AtomicLong postponedJobs = new AtomicLong();
+    private final AtomicLong deadJobs = new AtomicLong();
+    private ScheduledExecutorService poller;
+    private ExecutorService workers;
+
+    @Autowired
+    public ServiceTaskJobWorker(ServiceTaskJobRepository jobRepository, ServiceSubjectRepository subjectRepository,
+            ProviderTaskExecutor providerTaskExecutor, ProcessInstanceService processInstanceService,
+            EngineConverter engineConverter,
+            PlatformTransactionManager transactionManager,
+            @Value("${opensbpm.engine.jobs.enabled:false}") boolean enabled,
+            @Value("${opensbpm.engine.jobs.node:}") String node,
+            @Value("${opensbpm.engine.jobs.workers:4}") int workerCount,
+            @Value("${opensbpm.engine.jobs.batch-size:10}") int batchSize,
+            @Value("${opensbpm.engine.jobs.poll-interval:PT1S}") Duration pollInterval,
+            @Value("${opensbpm.engine.jobs.visibility-timeout:PT5M}") Duration visibilityTimeout,
+            @Value("${opensbpm.engine.jobs.max-attempts:5}") int maxAttempts,
+            @Value("${opensbpm.engine.jobs.backoff:PT1S}") Duration backoff,
+            @Value("${opensbpm.engine.jobs.max-backoff:PT10M}") Duration maxBackoff) {
+        this.jobRepository = Objects.requireNonNull(jobRepository, "jobRepository must not be null");
+        this.subjectRepository = Objects.requireNonNull(subjectRepository, "subjectRepository must not be null");
+        this.providerTaskExecutor = Objects.requireNonNull(providerTaskExecutor, "providerTaskExecutor must not be null");
+        this.processInstanceService = Objects.requireNonNull(processInstanceService, "processInstanceService must not be null");
+        this.engineConverter = Objects.requireNonNull(engineConverter, "engineConverter must not be null");
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.node = node == null || node.isBlank() ? UUID.randomUUID().toString() : node;
+        if (workerCount < 1 || batchSize < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("workers, batchSize and maxAttempts must be positive");
+        }
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.pollInterval = Objects.requireNonNull(pollInterval, "pollInterval must not be null");
+        this.visibilityTimeout = Objects.requireNonNull(visibilityTimeout, "visibilityTimeout must not be null");
+        this.maxAttempts = maxAttempts;
+        this.backoff = Objects.requireNonNull(backoff, "backoff must not be null");
+        this.maxBackoff = Objects.requireNonNull(maxBackoff, "maxBackoff must not be null");
+        this.idleWorkers = new Semaphore(workerCount);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the poller and the workers, if the job queue is enabled.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void start() {
+        if (!enabled || poller != null) {
+            return;
+        }
+        workers = Executors.newFixedThreadPool(workerCount, createThreadFactory("ServiceTaskWorker-"));
+        poller = Executors.newSingleThreadScheduledExecutor(createThreadFactory("ServiceTaskPoller-"));
+        poller.scheduleWithFixedDelay(this::pollAll, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        LOGGER.log(Level.INFO, "service task workers of node {0} started", node);
+    }
+
+    private static ThreadFactory createThreadFactory(String prefix) {
+        AtomicLong threadNumber = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Lets the poller claim jobs as soon as possible, e.g. after a job was queued by this node.
+     */
+    public void wakeUp() {
+        ScheduledExecutorService currentPoller = poller;
+        if (currentPoller != null && pollPending.compareAndSet(false, true)) {
+            currentPoller.execute(this::pollAll);
+        }
+    }
+
+    private void pollAll() {
+        pollPending.set(false);
+        try {
+            while (poll() == batchSize) {
+                //continue with next batch
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "polling jobs failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Claims the next batch of jobs, at most as many as workers are idle, and
+     * hands them to the workers.
+     *
+     * @return number of claimed jobs
+     */
+    public int poll() {
+        if (workers == null) {
+            throw new IllegalStateException("workers not started");
+        }
+        int capacity = Math.min(idleWorkers.availablePermits(), batchSize);
+        if (capacity == 0) {
+            return 0;
+        }
+        List<ServiceTaskJob> jobs = transactionTemplate.execute(status -> claim(capacity));
+        for (ServiceTaskJob job : jobs) {
+            idleWorkers.acquireUninterruptibly();
+            workers.execute(() -> {
+                try {
+                    execute(job);
+                } finally {
+                    idleWorkers.release();
+                    wakeUp();
+                }
+            });
+        }
+        return jobs.size();
+    }
+
+    private List<ServiceTaskJob> claim(int count) {
+        long now = System.currentTimeMillis();
+        List<ServiceTaskJob> jobs = jobRepository.findClaimable(now, EnumSet.of(Status.PENDING, Status.RUNNING),
+                PageRequest.of(0, count));
+        if (jobs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        jobs.forEach(job -> job.claim(node, now + visibilityTimeout.toMillis()));
+        //increments the versions of the jobs
+        jobRepository.flush();
+        claimedJobs.addAndGet(jobs.size());
+        return jobs;
+    }
+
+    private void execute(ServiceTaskJob claimedJob) {
+        Optional<PreparedTask> preparedTask;
+        try {
+            preparedTask = transactionTemplate.execute(status -> prepare(claimedJob));
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, claimedJob + " failed: " + ex.getMessage(), ex);
+            fail(claimedJob, ex.getMessage());
+            return;
+        }
+        if (preparedTask.isEmpty()) {
+            return;
+        }
+        Task task = preparedTask.get().getTask();
+        //the worker is free again, the provider is called by a thread of its bulkhead
+        preparedTask.get().getBulkhead()
+                .submit(() -> preparedTask.get().getProvider().executeTask(preparedTask.get().getParameters(), task))
+                .whenComplete((nextState, failure) -> complete(claimedJob, task, nextState, failure));
+    }
+
+    private void complete(ServiceTaskJob claimedJob, Task task, NextState nextState, Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof BulkheadRejectedException) {
+            postpone(claimedJob, cause.getMessage());
+            return;
+        }
+        if (cause != null) {
+            LOGGER.log(Level.WARNING, claimedJob + " failed: " + cause.getMessage(), cause);
+            fail(claimedJob, cause.getMessage());
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> findClaimed(claimedJob).ifPresent(job -> {
+                providerTaskExecutor.changeState(task, nextState);
+                jobRepository.delete(job);
+                completedJobs.incrementAndGet();
+            }));
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, claimedJob + " failed: " + ex.getMessage(), ex);
+            fail(claimedJob, ex.getMessage());
+        }
+    }
+
+    /**
+     * @return the task to execute; empty if the job was claimed again or is
+     * outdated and therefore deleted
+     */
+    private Optional<PreparedTask> prepare(ServiceTaskJob claimedJob) {
+        Optional<ServiceTaskJob> job = findClaimed(claimedJob);
+        if (job.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<TaskInfo> taskInfo = findTask(claimedJob);
+        if (taskInfo.isEmpty()) {
+            LOGGER.log(Level.INFO, "{0} outdated", claimedJob);
+            jobRepository.delete(job.get());
+            completedJobs.incrementAndGet();
+            return Optional.empty();
+        }
+        return Optional.of(providerTaskExecutor.prepareTask(taskInfo.get()));
+    }
+
+    /**
+     * @return the job, if not claimed again by another node in between
+     */
+    private Optional<ServiceTaskJob> findClaimed(ServiceTaskJob claimedJob) {
+        Optional<ServiceTaskJob> job = jobRepository.findById(claimedJob.getId())
+                .filter(current -> current.getVersion() == claimedJob.getVersion());
+        if (job.isEmpty()) {
+            LOGGER.log(Level.INFO, "{0} claimed by another node", claimedJob);
+        }
+        return job;
+    }
+
+    /**
+     * @return the task, if the subject is still in the state of the job
+     */
+    private Optional<TaskInfo> findTask(ServiceTaskJob job) {
+        return subjectRepository.findById(job.getSubjectId())
+                .filter(subject -> subject.getProcessInstance().isActive())
+                .flatMap(subject -> engineConverter.getVisibleCurrentState(subject)
+                .filter(state -> state.getId().equals(job.getStateId()))
+                .map(state -> engineConverter.convertSubjectState(subject, state)));
+    }
+
+    /**
+     * Releases a job rejected by the bulkhead of its provider without counting
+     * the attempt; it is claimed again after {@code backoff}.
+     */
+    private void postpone(ServiceTaskJob claimedJob, String error) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> findClaimed(claimedJob).ifPresent(job -> {
+                job.postpone(System.currentTimeMillis() + backoff.toMillis(), error);
+                postponedJobs.incrementAndGet();
+            }));
+        } catch (RuntimeException ex) {
+            //the job is claimed again after its lease expired
+            LOGGER.log(Level.SEVERE, "postponing " + claimedJob + " failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    private void fail(ServiceTaskJob claimedJob, String error) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> findClaimed(claimedJob).ifPresent(job -> {
+                if (job.getAttempts() < maxAttempts) {
+                    job.retry(System.currentTimeMillis() + getBackoff(job.getAttempts()).toMillis(), error);
+                    retriedJobs.incrementAndGet();
+                } else {
+                    job.die(error);
+                    deadJobs.incrementAndGet();
+                    subjectRepository.findById(job.getSubjectId())
+                            .map(ServiceSubject::getProcessInstance)
+                            .filter(ProcessInstance::isActive)
+                            .ifPresent(processInstance -> processInstanceService.cancelBySystem(processInstance, error));
+                }
+            }));
+        } catch (RuntimeException ex) {
+            //the job is retried after its lease expired
+            LOGGER.log(Level.SEVERE, "recording failure of " + claimedJob + " failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @param attempts number of failed attempts
+     * @return delay before the next attempt
+     */
+    Duration getBackoff(int attempts) {
+        Duration delay = backoff;
+        for (int attempt = 1; attempt < attempts && delay.compareTo(maxBackoff) < 0; attempt++) {
+            delay = delay.multipliedBy(2);
+        }
+        return delay.compareTo(maxBackoff) < 0 ? delay : maxBackoff;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("opensbpm.engine.jobs.active", idleWorkers, permits -> workerCount - permits.availablePermits())
+                .description("jobs prepared by the workers right now")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.jobs.claimed", claimedJobs, AtomicLong::get)
+                .description("attempts claimed by this node")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.jobs.completed", completedJobs, AtomicLong::get)
+                .description("jobs done and deleted")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.jobs.retried", retriedJobs, AtomicLong::get)
+                .description("failed attempts scheduled for retry")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.jobs.postponed", postponedJobs, AtomicLong::get)
+                .description("attempts rejected by the bulkhead of their provider")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.jobs.dead", deadJobs, AtomicLong::get)
+                .description("jobs given up after the last attempt")
+                .register(registry);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+    }
+
+}
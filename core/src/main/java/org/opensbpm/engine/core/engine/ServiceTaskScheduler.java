@@ -0,0 +1,243 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.opensbpm.engine.core.engine.entities.Subject;
+import org.opensbpm.engine.core.model.entities.FunctionState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Executes the pending service tasks by priority instead of by arrival.
+ * <p>
+ * The priority of a task is the {@value #PRIORITY_PARAMETER} parameter of its
+ * function state or else the property
+ * {@code opensbpm.engine.scheduler.process-priorities.<process model name>}
+ * (default 0); higher values are executed first. To prevent starvation a
+ * waiting task ages: every {@code opensbpm.engine.scheduler.aging} (at most
+ * {@link #MAX_AGING}) of waiting time counts as much as one priority level.
+ * <p>
+ * The tasks wait in a priority queue and are executed by the engine executor
+ * (see {@link org.opensbpm.engine.core.AsyncConfig}), which runs the next task
+ * of the queue for every scheduled one; so its queue capacity limits the
+ * waiting tasks. Binds the meters {@code opensbpm.engine.scheduler.queued}
+ * and {@code opensbpm.engine.scheduler.wait}, tagged with the priority.
+ */
+@Component
+public class ServiceTaskScheduler implements MeterBinder {
+
+    public static final String PRIORITY_PARAMETER = "priority";
+
+    /**
+     * upper bound of the aging, so that the rank of any priority fits into a long of milliseconds
+     */
+    public static final Duration MAX_AGING = Duration.ofMillis(Integer.MAX_VALUE);
+
+    private static final Logger LOGGER = Logger.getLogger(ServiceTaskScheduler.class.getName());
+    private static final String PROCESS_PRIORITY_PREFIX = "opensbpm.engine.scheduler.process-priorities.";
+
+    private final Environment environment;
+    private final Executor engineExecutor;
+    private final Duration aging;
+    private final PriorityBlockingQueue<ScheduledTask> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Integer, PriorityCounters> counters = new ConcurrentHashMap<>();
+    //meters are created per priority; bound registries receive them from the composite
+    private final CompositeMeterRegistry meterRegistry = new CompositeMeterRegistry();
+
+    @Autowired
+    public ServiceTaskScheduler(Environment environment, AsyncConfigurer asyncConfigurer,
+            @Value("${opensbpm.engine.scheduler.aging:PT10S}") Duration aging) {
+        this(environment, asyncConfigurer.getAsyncExecutor(), aging);
+    }
+
+    ServiceTaskScheduler(Environment environment, Executor engineExecutor, Duration aging) {
+        this.environment = Objects.requireNonNull(environment, "environment must not be null");
+        this.engineExecutor = Objects.requireNonNull(engineExecutor, "engineExecutor must not be null");
+        Objects.requireNonNull(aging, "aging must not be null");
+        if (aging.isNegative()) {
+            throw new IllegalArgumentException("aging must not be negative");
+        }
+        this.aging = aging.compareTo(MAX_AGING) > 0 ? MAX_AGING : aging;
+    }
+
+    /**
+     * @param subject service subject
+     * @param functionState current state of the subject
+     * @return the priority of the state of the subject
+     */
+    public int getPriority(Subject subject, FunctionState functionState) {
+        String priority = functionState.getParameters().get(PRIORITY_PARAMETER);
+        if (priority != null) {
+            try {
+                return Integer.parseInt(priority.trim());
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "invalid priority ''{0}'' of {1}", new Object[]{priority, functionState.getName()});
+            }
+        }
+        String processModelName = subject.getProcessInstance().getProcessModel().getName();
+        return environment.getProperty(PROCESS_PRIORITY_PREFIX + processModelName, Integer.class, 0);
+    }
+
+    /**
+     * @return waiting time which counts as much as one priority level, at most {@link #MAX_AGING}
+     */
+    public Duration getAging() {
+        return aging;
+    }
+
+    /**
+     * @param queued time in milliseconds the task was queued
+     * @param priority priority of the task
+     * @return the rank in milliseconds of a task queued at the given time;
+     * the lowest rank is executed first
+     */
+    public long getRank(long queued, int priority) {
+        return rank(queued, priority, aging.toMillis());
+    }
+
+    /**
+     * Queues the given task for execution.
+     *
+     * @param priority priority of the task
+     * @param task task to execute
+     * @throws RejectedExecutionException if the engine executor is saturated;
+     * the task isn't queued then
+     */
+    public void schedule(int priority, Runnable task) {
+        ScheduledTask scheduledTask = new ScheduledTask(priority, task);
+        PriorityCounters counter = getCounters(priority);
+        counter.queued.incrementAndGet();
+        queue.add(scheduledTask);
+        try {
+            engineExecutor.execute(this::runNext);
+        } catch (RejectedExecutionException ex) {
+            if (queue.remove(scheduledTask)) {
+                counter.queued.decrementAndGet();
+                throw ex;
+            }
+            //the task was taken by an earlier execution already, the next one runs the remaining task
+            LOGGER.log(Level.WARNING, "engine executor saturated: {0}", ex.getMessage());
+        }
+    }
+
+    private void runNext() {
+        ScheduledTask scheduledTask = queue.poll();
+        if (scheduledTask != null) {
+            scheduledTask.run();
+        }
+    }
+
+    private PriorityCounters getCounters(int priority) {
+        return counters.computeIfAbsent(priority, PriorityCounters::new);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry.add(registry);
+    }
+
+    /**
+     * @return the rank of a task queued at the given time; saturates instead
+     * of overflowing for extreme priorities
+     */
+    private static long rank(long enqueued, int priority, long agingNanos) {
+        try {
+            return Math.subtractExact(enqueued, Math.multiplyExact(priority, agingNanos));
+        } catch (ArithmeticException ex) {
+            return priority > 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    private class ScheduledTask implements Runnable, Comparable<ScheduledTask> {
+
+        private final int priority;
+        private final Runnable task;
+        private final long enqueued = System.nanoTime();
+        private final long rank;
+        private final long number = sequence.incrementAndGet();
+
+        private ScheduledTask(int priority, Runnable task) {
+            this.priority = priority;
+            this.task = Objects.requireNonNull(task, "task must not be null");
+            //the earlier rank is executed first; aging moves lower priorities up over time
+            this.rank = rank(enqueued, priority, aging.toNanos());
+        }
+
+        @Override
+        public int compareTo(ScheduledTask other) {
+            int result = Long.compare(rank, other.rank);
+            return result != 0 ? result : Long.compare(number, other.number);
+        }
+
+        @Override
+        public void run() {
+            getCounters(priority).started(System.nanoTime() - enqueued);
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+            }
+        }
+
+    }
+
+    private class PriorityCounters {
+
+        private final AtomicLong queued = new AtomicLong();
+        private final Timer wait;
+
+        private PriorityCounters(int priority) {
+            String priorityTag = String.valueOf(priority);
+            Gauge.builder("opensbpm.engine.scheduler.queued", queued, AtomicLong::get)
+                    .description("tasks waiting for execution")
+                    .tag("priority", priorityTag)
+                    .register(meterRegistry);
+            wait = Timer.builder("opensbpm.engine.scheduler.wait")
+                    .description("waiting time of the started tasks")
+                    .tag("priority", priorityTag)
+                    .register(meterRegistry);
+        }
+
+        private void started(long waitNanos) {
+            queued.decrementAndGet();
+            wait.record(waitNanos, TimeUnit.NANOSECONDS);
+        }
+
+    }
+
+}
@@ -17,6 +17,7 @@
  */
 package org.opensbpm.engine.core.engine;
 
+import jakarta.persistence.EntityManager;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
@@ -32,7 +33,9 @@ import org.opensbpm.engine.core.engine.ScriptExecutorService.BindingContext;
 import org.opensbpm.engine.core.engine.entities.ObjectInstance;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance;
 import org.opensbpm.engine.core.engine.entities.Subject;
-import org.opensbpm.engine.core.model.entities.FunctionState;
+import org.opensbpm.engine.core.model.ProcessModelView;
+import org.opensbpm.engine.core.model.ProcessModelView.ObjectView;
+import org.opensbpm.engine.core.model.ProcessModelView.StateView;
 import org.opensbpm.engine.core.model.entities.ObjectModel;
 import org.opensbpm.engine.core.model.entities.ReceiveState;
 import org.opensbpm.engine.core.model.entities.State;
@@ -40,7 +43,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import static org.opensbpm.engine.core.model.entities.StateVisitor.receiveState;
 import static org.opensbpm.engine.core.model.entities.StateVisitor.sendState;
-import static org.opensbpm.engine.utils.StreamUtils.filterToOne;
 import static org.opensbpm.engine.utils.StreamUtils.toOne;
 
 @Service
@@ -57,26 +59,39 @@ public class StateChangeService {
     @Autowired
     private ObjectInstanceService objectInstanceService;
 
+    @Autowired
+    private ObjectIndexService objectIndexService;
+
     @Autowired
     private ScriptExecutorService scriptService;
 
+    @Autowired
+    private EngineConverter engineConverter;
+
+    @Autowired
+    private EntityManager entityManager;
+
     public boolean changeState(Subject subject, TaskRequest taskRequest) {
         Objects.requireNonNull(subject);
         Objects.requireNonNull(taskRequest);
 
-        FunctionState currentState = subject.getVisibleCurrentState()
-                .orElseThrow(() -> new IllegalStateException("current visible state " + subject.getVisibleCurrentState().toString() + " not FunctionState"));
+        //the request is validated against the cached model; only the next state is loaded to switch to it
+        ProcessModelView processModel = engineConverter.getProcessModel(subject);
+        StateView currentState = engineConverter.getVisibleCurrentState(subject)
+                .orElseThrow(() -> new IllegalStateException("no visible current state for " + subject));
 
-        State nextState = filterToOne(currentState.getHeads(), state
-                -> state.getId().equals(taskRequest.getNextState().getId()))
-                .orElseThrow(() -> new IllegalArgumentException("State " + taskRequest.getNextState() + " not in possible next-states"));
-        LOGGER.log(Level.FINE, "change state of {0} from {1}/{2} to {3}", new Object[]{subject, subject.getCurrentState(), currentState, nextState});
+        Long nextStateId = taskRequest.getNextState().getId();
+        if (nextStateId == null || !currentState.hasHead(nextStateId)) {
+            throw new IllegalArgumentException("State " + taskRequest.getNextState() + " not in possible next-states");
+        }
+        State nextState = entityManager.getReference(State.class, nextStateId);
+        LOGGER.log(Level.FINE, "change state of {0} from {1}/{2} to {3}", new Object[]{subject, subject.getCurrentState(), currentState, nextStateId});
 
         //TODO fix wrong behaviour: when state has mandatory fields and ObjectData is empty no error is thrown
         Optional.ofNullable(taskRequest.getObjectData())
                 .ifPresent(datas -> {
-                    List<ObjectInstance> objectInstances = updateObjectInstances(subject, currentState, datas);
-                    objectInstanceService.saveAll(objectInstances);
+                    List<ObjectInstance> objectInstances = updateObjectInstances(subject, processModel, currentState, datas);
+                    objectIndexService.updateIndex(objectInstanceService.saveAll(objectInstances));
                 });
 
         switchToNextState(subject, nextState);
@@ -90,13 +105,15 @@ public class StateChangeService {
         return true;
     }
 
-    private List<ObjectInstance> updateObjectInstances(Subject subject, FunctionState state, List<ObjectData> objectDatas) {
+    private List<ObjectInstance> updateObjectInstances(Subject subject, ProcessModelView processModel, StateView state, List<ObjectData> objectDatas) {
         return objectDatas.stream()
                 .map(objectData -> {
-                    ObjectInstance objectInstance = findByObjectModel(subject.getProcessInstance(), state, objectData);
+                    ObjectView object = findObject(processModel, state, objectData);
+                    ObjectInstance objectInstance = objectInstanceService.retrieveObjectInstance(subject.getProcessInstance(),
+                            entityManager.getReference(ObjectModel.class, object.getId()));
                     BindingContext bindingContext = BindingContext.ofSubject(subject);
 
-                    ObjectSchema objectSchema = ObjectSchemaConverter.toObjectSchema(scriptService, state, objectInstance.getObjectModel(), bindingContext);
+                    ObjectSchema objectSchema = ObjectSchemaConverter.toObjectSchema(scriptService, state, object, bindingContext);
 
                     AttributeStore attributeStore = new AttributeStore(objectSchema, new HashMap<>(objectInstance.getValue()));
                     attributeStore.updateValues(objectData.getData());
@@ -106,12 +123,11 @@ public class StateChangeService {
                 .collect(Collectors.toList());
     }
 
-    private ObjectInstance findByObjectModel(ProcessInstance processInstance, FunctionState state, ObjectData objectData) {
-        return processInstance.getProcessModel().getObjectModels().stream()
-                .filter(objectModel -> state.hasAnyStatePermission(objectModel))
-                .filter(objectModel -> objectModel.getName().equals(objectData.getName()))
+    private ObjectView findObject(ProcessModelView processModel, StateView state, ObjectData objectData) {
+        return processModel.getObjects().stream()
+                .filter(object -> state.hasAnyPermission(object))
+                .filter(object -> object.getName().equals(objectData.getName()))
                 .reduce(toOne())
-                .map(objectModel -> objectInstanceService.retrieveObjectInstance(processInstance,objectModel))
                 .orElseThrow(() -> new IllegalArgumentException("No ObjectModel for " + objectData + " found"));
     }
 
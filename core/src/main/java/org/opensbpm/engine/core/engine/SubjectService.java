@@ -39,6 +39,7 @@ import org.opensbpm.engine.core.utils.repositories.JpaSpecificationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.stereotype.Service;
+import static org.opensbpm.engine.core.engine.entities.SubjectVisitor.serviceSubject;
 import static org.opensbpm.engine.core.model.entities.StateVisitor.functionState;
 
 @Service
@@ -52,10 +53,24 @@ public class SubjectService {
     @Autowired
     protected EngineEventPublisher eventPublisher;
 
+    @Autowired
+    private ServiceTaskJobQueue jobQueue;
+
     public Optional<Subject> findById(Long id) {
         return subjectRepository.findById(id);
     }
 
+    /**
+     * Like {@link #findById(Long)}, but the subject is loaded with everything
+     * needed to show it as task.
+     *
+     * @param id id of the subject
+     * @return the subject or {@link Optional#empty()} if not found
+     */
+    public Optional<Subject> findTaskById(Long id) {
+        return subjectRepository.findById(id, Subject.TASK_RESPONSE_GRAPH);
+    }
+
     public Subject createSubject(ProcessInstance processInstance, SubjectModel subjectModel, User user) {
         final Subject subject = subjectModel.accept(new SubjectModelVisitor<Subject>() {
             @Override
@@ -130,6 +145,10 @@ public class SubjectService {
         subject.getVisibleCurrentState()
                 .filter(state -> !state.isEnd())
                 .ifPresent(functionState -> {
+                    if (jobQueue.isEnabled()) {
+                        subject.accept(serviceSubject())
+                                .ifPresent(serviceSubject -> jobQueue.enqueue(serviceSubject, functionState));
+                    }
                     eventPublisher.fireSubjectStateChanged(subject, functionState, Type.CREATE);
                 });
     }
@@ -26,27 +26,43 @@ import org.opensbpm.engine.core.engine.entities.SubjectTrail_;
 import org.opensbpm.engine.core.engine.entities.Subject_;
 import org.opensbpm.engine.core.utils.repositories.JpaSpecificationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
-import org.springframework.data.domain.Sort.Order;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Repository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import static org.opensbpm.engine.core.engine.SubjectTrailService.SubjectTrailSpecifications.withProcessInstance;
+import static org.opensbpm.engine.core.engine.entities.SubjectTrail.AUDIT_GRAPH;
 
 @Service
 public class SubjectTrailService {
 
+    private static final Sort OLDEST_FIRST = Sort.by(Direction.ASC, "lastModified", "id");
+
     @Autowired
     private SubjectTrailRepository subjectTrailRepository;
 
     @Transactional(readOnly = true, noRollbackFor = Exception.class)
     public List<SubjectTrail> getSubjectTrail(Long processId) {
-        return subjectTrailRepository.findAll(withProcessInstance(processId), Sort.by(
-                new Order(Direction.ASC, "lastModified"),
-                new Order(Direction.ASC, "id")
-        ));
+        return subjectTrailRepository.findAll(withProcessInstance(processId), OLDEST_FIRST, AUDIT_GRAPH);
+    }
+
+    /**
+     * Seek the next window of the trail of a process instance, found by the
+     * keyset {@code (lastModified, id)} of the given position.
+     *
+     * @param processId id of the process instance
+     * @param position position after the last trail of the previous window;
+     * {@link ScrollPosition#keyset()} for the first window
+     * @param limit maximum number of trails in the window
+     * @return the next window of the trail
+     */
+    @Transactional(readOnly = true, noRollbackFor = Exception.class)
+    public Window<SubjectTrail> getSubjectTrail(Long processId, ScrollPosition position, int limit) {
+        return subjectTrailRepository.findAll(withProcessInstance(processId), OLDEST_FIRST, position, limit, AUDIT_GRAPH);
     }
 
     @Repository
@@ -16,27 +16,115 @@
  ******************************************************************************/
 package org.opensbpm.engine.core.engine;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.opensbpm.engine.api.spi.TaskExecutionException;
 import org.opensbpm.engine.api.spi.TaskExecutionProvider;
+import org.opensbpm.engine.api.taskprovider.TaskProviderLimits;
+import org.opensbpm.engine.core.model.entities.FunctionState;
+import org.opensbpm.engine.core.model.entities.ProcessModel;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
+import static org.opensbpm.engine.core.model.entities.StateVisitor.functionState;
 
+/**
+ * Registry of the {@link TaskExecutionProvider}s and their
+ * {@link ProviderBulkhead}s.
+ * <p>
+ * The limits of the bulkheads are configured by
+ * {@code opensbpm.engine.providers.max-concurrency} (default 16),
+ * {@code queue-capacity} (100), {@code rate} (executions per second, 0 for no
+ * limit), {@code burst} (the rate) and {@code max-wait} (30 seconds) and can
+ * be overridden per provider by {@code opensbpm.engine.providers.<name>.*}.
+ * The threads of the bulkheads are stopped on shutdown.
+ */
 @Component
-public class TaskProviderManager {
+public class TaskProviderManager implements DisposableBean {
+
+    private static final String PROPERTY_PREFIX = "opensbpm.engine.providers.";
 
     @Autowired
     private List<TaskExecutionProvider> providers;
 
+    @Autowired
+    private Environment environment;
+
+    private final Map<String, ProviderBulkhead> bulkheads = new ConcurrentHashMap<>();
+
     public List<TaskExecutionProvider> getProviders() {
         return Collections.unmodifiableList(providers);
     }
 
     public TaskExecutionProvider findProvider(String providerName) {
+        return findRegisteredProvider(providerName)
+                .orElseThrow(() -> new IllegalArgumentException("No TaskExecutionProvider for '" + providerName + "' found"));
+    }
+
+    /**
+     * @param providerName name of a registered provider
+     * @return the bulkhead which limits the executions of the provider
+     */
+    public ProviderBulkhead getBulkhead(String providerName) {
+        return bulkheads.computeIfAbsent(findProvider(providerName).getName(),
+                name -> new ProviderBulkhead(name, createLimits(name)));
+    }
+
+    @Override
+    public void destroy() {
+        bulkheads.values().forEach(ProviderBulkhead::shutdown);
+    }
+
+    private TaskProviderLimits createLimits(String providerName) {
+        int maxConcurrency = getProperty(providerName, "max-concurrency", Integer.class, 16);
+        int queueCapacity = getProperty(providerName, "queue-capacity", Integer.class, 100);
+        double rate = getProperty(providerName, "rate", Double.class, 0d);
+        int burst = getProperty(providerName, "burst", Integer.class, (int) Math.max(1, Math.ceil(rate)));
+        Duration maxWait = getProperty(providerName, "max-wait", Duration.class, Duration.ofSeconds(30));
+        return new TaskProviderLimits(maxConcurrency, queueCapacity, rate, burst, maxWait.toMillis());
+    }
+
+    private <T> T getProperty(String providerName, String key, Class<T> type, T defaultValue) {
+        return environment.getProperty(PROPERTY_PREFIX + providerName + "." + key, type,
+                environment.getProperty(PROPERTY_PREFIX + key, type, defaultValue));
+    }
+
+    /**
+     * Prepares every function state of the given model which is executed by a
+     * registered {@link TaskExecutionProvider}. Function states of providers
+     * not registered yet are skipped.
+     *
+     * @param processModel deployed process model
+     * @throws IllegalArgumentException if a provider rejects the parameters of a function state
+     */
+    public void prepareTasks(ProcessModel processModel) {
+        processModel.getSubjectModels().stream()
+                .flatMap(subjectModel -> subjectModel.getStates().stream())
+                .map(state -> state.accept(functionState()))
+                .flatMap(Optional::stream)
+                .filter(functionState -> functionState.getProviderName() != null)
+                .forEach(functionState -> findRegisteredProvider(functionState.getProviderName())
+                .ifPresent(provider -> prepareTask(provider, functionState)));
+    }
+
+    private Optional<TaskExecutionProvider> findRegisteredProvider(String providerName) {
         return getProviders().stream()
                 .filter(provider -> provider.getName().equals(providerName))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("No TaskExecutionProvider for '" + providerName + "' found"));
+                .findFirst();
+    }
+
+    private static void prepareTask(TaskExecutionProvider provider, FunctionState functionState) {
+        try {
+            provider.prepareTask(functionState.getParameters());
+        } catch (TaskExecutionException ex) {
+            throw new IllegalArgumentException("Function state '" + functionState.getName() + "' not executable by "
+                    + provider.getName() + ": " + ex.getMessage(), ex);
+        }
     }
 
 }
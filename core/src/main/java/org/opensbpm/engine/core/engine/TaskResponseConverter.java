@@ -26,7 +26,8 @@ import org.opensbpm.engine.api.instance.TaskResponse;
 import org.opensbpm.engine.core.engine.ScriptExecutorService.BindingContext;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance;
 import org.opensbpm.engine.core.engine.entities.Subject;
-import org.opensbpm.engine.core.model.entities.FunctionState;
+import org.opensbpm.engine.core.model.ProcessModelView;
+import org.opensbpm.engine.core.model.ProcessModelView.StateView;
 
 class TaskResponseConverter {
 
@@ -36,15 +37,16 @@ class TaskResponseConverter {
         this.scriptService = scriptService;
     }
 
-    public TaskResponse convert(Subject subject, FunctionState state, List<NextState> nextStates) {
+    public TaskResponse convert(Subject subject, ProcessModelView processModel, StateView state, List<NextState> nextStates) {
         ProcessInstance processInstance = subject.getProcessInstance();
         BindingContext bindingContext = BindingContext.ofSubject(subject);
 
         List<ObjectSchema> objectSchemas = new ObjectSchemaConverter(scriptService, state, bindingContext)
-                .createObjectSchemas(processInstance.getProcessModel());
+                .createObjectSchemas(processModel);
 
         List<ObjectData> datas = processInstance.getObjectInstances().stream()
-                .map(objectInstance -> new ObjectDataCreator(scriptService).createObjectData(objectInstance, state, bindingContext))
+                .map(objectInstance -> new ObjectDataCreator(scriptService).createObjectData(
+                processModel.getObject(objectInstance.getObjectModel().getId()), objectInstance, state, bindingContext))
                 .collect(Collectors.toList());
 
         return TaskResponse.of(subject.getId(), nextStates, subject.getLastChanged(), objectSchemas, datas);
@@ -0,0 +1,236 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.opensbpm.engine.core.engine.CompiledScriptCache.ScriptCompiler;
+
+/**
+ * {@link CompiledScript} for display-name and default-value expressions which
+ * consist only of plain text and {@code ${Name.attribute}} placeholders. Such
+ * expressions are evaluated by plain Java accessors instead of the
+ * {@link ScriptEngine}. Whenever a value can't be rendered exactly like a
+ * Groovy GString would do (missing variables, {@code null} in a path,
+ * collections...) the evaluation is delegated to the script compiled with
+ * the fallback {@link ScriptCompiler}.
+ */
+class TemplateScript extends CompiledScript implements ReferencesVariables {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{\\s*([A-Za-z_][A-Za-z0-9_]*(?:\\.[A-Za-z_][A-Za-z0-9_]*)*)\\s*\\}");
+
+    /**
+     * Parses the given expression into a {@link TemplateScript}.
+     *
+     * @param script expression to parse
+     * @param scriptEngine engine of the fallback script
+     * @param fallbackCompiler compiles the expression, if it can't be evaluated without scripting
+     * @return the template or {@link Optional#empty()} if the expression isn't supported by the template grammar
+     */
+    public static Optional<TemplateScript> parse(String script, ScriptEngine scriptEngine, ScriptCompiler fallbackCompiler) {
+        List<Segment> segments = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(script);
+        int position = 0;
+        while (matcher.find()) {
+            String text = script.substring(position, matcher.start());
+            if (!isPlainText(text)) {
+                return Optional.empty();
+            }
+            if (!text.isEmpty()) {
+                segments.add(new Literal(text));
+            }
+            segments.add(new PropertyPath(matcher.group(1).split("\\.")));
+            position = matcher.end();
+        }
+        String text = script.substring(position);
+        if (!isPlainText(text)) {
+            return Optional.empty();
+        }
+        if (!text.isEmpty()) {
+            segments.add(new Literal(text));
+        }
+        return Optional.of(new TemplateScript(script, segments, scriptEngine, fallbackCompiler));
+    }
+
+    private static boolean isPlainText(String text) {
+        //characters with special meaning inside a GString
+        return text.indexOf('$') < 0 && text.indexOf('\\') < 0 && text.indexOf('"') < 0;
+    }
+
+    private final String script;
+    private final List<Segment> segments;
+    private final ScriptEngine scriptEngine;
+    private final ScriptCompiler fallbackCompiler;
+    private volatile CompiledScript fallbackScript;
+
+    private TemplateScript(String script, List<Segment> segments, ScriptEngine scriptEngine, ScriptCompiler fallbackCompiler) {
+        this.script = Objects.requireNonNull(script, "script must not be null");
+        this.segments = Collections.unmodifiableList(segments);
+        this.scriptEngine = Objects.requireNonNull(scriptEngine, "scriptEngine must not be null");
+        this.fallbackCompiler = Objects.requireNonNull(fallbackCompiler, "fallbackCompiler must not be null");
+    }
+
+    /**
+     * @return {@code true} if the template has no placeholders and evaluates always to the same text
+     */
+    public boolean isLiteral() {
+        return segments.stream().allMatch(Literal.class::isInstance);
+    }
+
+    @Override
+    public Optional<Set<String>> getVariableNames() {
+        //the fallback script reads the same variables
+        return Optional.of(segments.stream()
+                .filter(PropertyPath.class::isInstance)
+                .map(segment -> ((PropertyPath) segment).getVariableName())
+                .collect(Collectors.toUnmodifiableSet()));
+    }
+
+    /**
+     * @return {@code true} if the fallback script was needed at least once
+     */
+    public boolean isFallbackCompiled() {
+        return fallbackScript != null;
+    }
+
+    @Override
+    public Object eval(ScriptContext context) throws ScriptException {
+        Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+        StringBuilder result = new StringBuilder();
+        for (Segment segment : segments) {
+            if (!segment.appendTo(result, bindings)) {
+                return getFallbackScript().eval(context);
+            }
+        }
+        return result.toString();
+    }
+
+    private CompiledScript getFallbackScript() throws ScriptException {
+        //compiling twice on concurrent access is harmless
+        CompiledScript compiledScript = fallbackScript;
+        if (compiledScript == null) {
+            compiledScript = fallbackCompiler.compile(script);
+            fallbackScript = compiledScript;
+        }
+        return compiledScript;
+    }
+
+    @Override
+    public ScriptEngine getEngine() {
+        return scriptEngine;
+    }
+
+    private interface Segment {
+
+        /**
+         * @return {@code false} if the segment can't be rendered without scripting
+         */
+        boolean appendTo(StringBuilder result, Bindings bindings);
+    }
+
+    private static class Literal implements Segment {
+
+        private final String text;
+
+        private Literal(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public boolean appendTo(StringBuilder result, Bindings bindings) {
+            result.append(text);
+            return true;
+        }
+
+    }
+
+    private static class PropertyPath implements Segment {
+
+        private final String[] names;
+
+        private PropertyPath(String[] names) {
+            this.names = names;
+        }
+
+        private String getVariableName() {
+            return names[0];
+        }
+
+        @Override
+        public boolean appendTo(StringBuilder result, Bindings bindings) {
+            if (bindings == null || !bindings.containsKey(names[0])) {
+                return false;
+            }
+            Object value = bindings.get(names[0]);
+            for (String name : Arrays.asList(names).subList(1, names.length)) {
+                if (value == null) {
+                    return false;
+                }
+                try {
+                    value = getProperty(value, name);
+                } catch (Exception ex) {
+                    return false;
+                }
+            }
+            if (value == null || isRenderable(value)) {
+                result.append(value);
+                return true;
+            }
+            return false;
+        }
+
+        private static Object getProperty(Object value, String name) throws Exception {
+            if (value instanceof DynaBean) {
+                return ((DynaBean) value).get(name);
+            } else if (value instanceof Map) {
+                return ((Map<?, ?>) value).get(name);
+            } else {
+                return PropertyUtils.getSimpleProperty(value, name);
+            }
+        }
+
+        private static boolean isRenderable(Object value) {
+            //types which are rendered by GString with toString()
+            return value instanceof CharSequence
+                    || value instanceof Number
+                    || value instanceof Boolean
+                    || value instanceof Character
+                    || value instanceof Enum
+                    || value instanceof Temporal;
+        }
+
+    }
+
+}
@@ -17,6 +17,7 @@
  */
 package org.opensbpm.engine.core.engine;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import jakarta.persistence.LockModeType;
@@ -26,35 +27,63 @@ import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.SetJoin;
+import jakarta.persistence.criteria.Subquery;
+import org.opensbpm.engine.api.SearchFilter;
 import org.opensbpm.engine.api.instance.ProcessInstanceState;
 import org.opensbpm.engine.api.instance.TaskNotFoundException;
+import org.opensbpm.engine.api.model.definition.StateDefinition.StateEventType;
 import static org.opensbpm.engine.core.ExceptionFactory.newTaskNotFoundException;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance;
+import org.opensbpm.engine.core.engine.entities.Message;
+import org.opensbpm.engine.core.engine.entities.Message_;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance_;
+import org.opensbpm.engine.core.engine.entities.SubjectTrail;
+import org.opensbpm.engine.core.engine.entities.SubjectTrail_;
 import org.opensbpm.engine.core.engine.entities.Subject_;
 import org.opensbpm.engine.core.engine.entities.User;
 import org.opensbpm.engine.core.engine.entities.UserSubject;
 import org.opensbpm.engine.core.engine.entities.UserSubject_;
+import org.opensbpm.engine.core.model.entities.FunctionState;
+import org.opensbpm.engine.core.model.entities.MessageModel;
+import org.opensbpm.engine.core.model.entities.MessageModel_;
+import org.opensbpm.engine.core.model.entities.ProcessModel_;
+import org.opensbpm.engine.core.model.entities.ReceiveState;
+import org.opensbpm.engine.core.model.entities.ReceiveState_;
 import org.opensbpm.engine.core.model.entities.Role;
 import org.opensbpm.engine.core.model.entities.Role_;
+import org.opensbpm.engine.core.model.entities.State;
+import org.opensbpm.engine.core.model.entities.State_;
 import org.opensbpm.engine.core.model.entities.UserSubjectModel;
+import org.opensbpm.engine.core.model.entities.SubjectModel_;
 import org.opensbpm.engine.core.model.entities.UserSubjectModel_;
 import org.opensbpm.engine.core.utils.repositories.JpaSpecificationRepository;
+import org.opensbpm.engine.core.utils.repositories.SearchSpecificationBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 import org.springframework.stereotype.Service;
 import static org.opensbpm.engine.core.engine.UserSubjectService.UserSubjectSpecifications.ofUserOrRoles;
 import static org.opensbpm.engine.core.engine.UserSubjectService.UserSubjectSpecifications.withSubjectId;
+import static org.opensbpm.engine.core.engine.UserSubjectService.UserSubjectSpecifications.withVisibleCurrentState;
+import static org.opensbpm.engine.core.engine.entities.UserSubject.TASK_LIST_GRAPH;
+import static org.opensbpm.engine.core.engine.entities.UserSubject.TASK_TRAIL_GRAPH;
+import static org.opensbpm.engine.core.utils.repositories.SearchSpecificationBuilder.withDefaultSort;
 
 @Service
 public class UserSubjectService {
 
+    private static final Sort OLDEST_FIRST = Sort.by(Sort.Direction.ASC, "id");
+
     @Autowired
     private UserSubjectRepository userSubjectRepository;
 
+    @Autowired
+    private ObjectIndexService objectIndexService;
+
     public UserSubject retrieveForWrite(Long subjectId) throws TaskNotFoundException {
         return userSubjectRepository.findBySubjectIdForWrite(subjectId)
                 .orElseThrow(newTaskNotFoundException(subjectId));
@@ -69,7 +98,36 @@ public class UserSubjectService {
      */
     public List<UserSubject> findAllByUser(User user) {
         //PENDING filter locked subject
-        return userSubjectRepository.findAll(ofUserOrRoles(user));
+        List<UserSubject> userSubjects = userSubjectRepository.findAll(ofUserOrRoles(user), Sort.unsorted(), TASK_LIST_GRAPH);
+        userSubjectRepository.fetch(userSubjects, TASK_TRAIL_GRAPH);
+        return userSubjects;
+    }
+
+    /**
+     * search a page of all assigned and unassigned {@link UserSubject}'s for
+     * the given {@link User} matching the given filter, whose current state
+     * shows a task (see {@link UserSubjectSpecifications#withVisibleCurrentState()})
+     *
+     * @param user
+     * @param searchFilter filter of the subjects
+     * @param pageable page to find; oldest subjects first if unsorted
+     * @return the requested page
+     * @throws IllegalArgumentException if the filter is invalid
+     */
+    public Page<UserSubject> findAllByUser(User user, SearchFilter searchFilter, Pageable pageable) {
+        Specification<UserSubject> searchSpecification = new SearchSpecificationBuilder<UserSubject>()
+                .with("id", Long.class, root -> root.get(Subject_.id))
+                .with("processId", Long.class, root -> root.get(Subject_.processInstance).get(ProcessInstance_.id))
+                .with("process", String.class, root -> root.get(Subject_.processInstance).get(ProcessInstance_.processModel).get(ProcessModel_.name))
+                .with("subject", String.class, root -> root.get(Subject_.subjectModel).get(SubjectModel_.name))
+                .with("startTime", LocalDateTime.class, root -> root.get(Subject_.processInstance).get(ProcessInstance_.startTime))
+                .withAttributes((objectName, attributeName, operation, value) -> objectIndexService.withAttributeValue(
+                root -> root.get(Subject_.processInstance).get(ProcessInstance_.id), objectName, attributeName, operation, value))
+                .build(searchFilter);
+        Page<UserSubject> page = userSubjectRepository.findAll(ofUserOrRoles(user).and(withVisibleCurrentState()).and(searchSpecification),
+                withDefaultSort(pageable, OLDEST_FIRST), TASK_LIST_GRAPH);
+        userSubjectRepository.fetch(page.getContent(), TASK_TRAIL_GRAPH);
+        return page;
     }
 
     @Repository
@@ -118,6 +176,58 @@ public class UserSubjectService {
 
         }
 
+        /**
+         * Matches the subjects whose current state is a {@link FunctionState}
+         * or a {@link ReceiveState} with an unconsumed message leading to a
+         * {@link FunctionState}, and the visible state is no end state; like
+         * {@link org.opensbpm.engine.core.engine.entities.Subject#getVisibleCurrentState()},
+         * but without recursing over receive states, so pages of tasks are
+         * counted in the database.
+         */
+        static Specification<UserSubject> withVisibleCurrentState() {
+            return (Root<UserSubject> root, CriteriaQuery<?> query, CriteriaBuilder cb) -> {
+                //the current trail is the last modified one
+                Subquery<Long> lastModified = query.subquery(Long.class);
+                Root<SubjectTrail> lastTrail = lastModified.from(SubjectTrail.class);
+                lastModified.select(cb.max(lastTrail.get(SubjectTrail_.lastModified)))
+                        .where(cb.equal(lastTrail.get(SubjectTrail_.subject), root));
+
+                Subquery<Long> visibleTrail = query.subquery(Long.class);
+                Root<SubjectTrail> currentTrail = visibleTrail.from(SubjectTrail.class);
+                Join<SubjectTrail, State> currentState = currentTrail.join(SubjectTrail_.state);
+                visibleTrail.select(currentTrail.get(SubjectTrail_.id))
+                        .where(cb.equal(currentTrail.get(SubjectTrail_.subject), root),
+                                cb.equal(currentTrail.get(SubjectTrail_.lastModified), lastModified),
+                                cb.or(
+                                        isVisibleFunctionState(cb, currentState),
+                                        cb.exists(receivedMessage(root, query, cb, currentState))
+                                ));
+                return cb.exists(visibleTrail);
+            };
+        }
+
+        private static Subquery<Long> receivedMessage(Root<UserSubject> root, CriteriaQuery<?> query, CriteriaBuilder cb, Join<SubjectTrail, State> currentState) {
+            Subquery<Long> receivedMessage = query.subquery(Long.class);
+            Root<ReceiveState> receiveState = receivedMessage.from(ReceiveState.class);
+            Join<ReceiveState, MessageModel> messageModel = receiveState.join(ReceiveState_.messageModels);
+            Join<MessageModel, State> head = messageModel.join(MessageModel_.head);
+            Join<UserSubject, Message> message = receivedMessage.correlate(root).join(Subject_.messages);
+            return receivedMessage.select(receiveState.get(State_.id))
+                    .where(cb.equal(receiveState, currentState),
+                            cb.equal(message.get(Message_.objectModel), messageModel.get(MessageModel_.objectModel)),
+                            cb.isFalse(message.get(Message_.consumed)),
+                            isVisibleFunctionState(cb, head));
+        }
+
+        private static Predicate isVisibleFunctionState(CriteriaBuilder cb, Join<?, State> state) {
+            return cb.and(
+                    cb.equal(state.type(), FunctionState.class),
+                    cb.or(
+                            state.get(State_.eventType).isNull(),
+                            cb.notEqual(state.get(State_.eventType), StateEventType.END)
+                    ));
+        }
+
         private UserSubjectSpecifications() {
         }
 
@@ -28,8 +28,8 @@ import org.opensbpm.engine.api.instance.ObjectSchema;
 import org.opensbpm.engine.api.instance.SourceMap;
 import org.opensbpm.engine.api.spi.AutocompleteProvider;
 import org.opensbpm.engine.core.engine.ScriptExecutorService.BindingContext;
-import org.opensbpm.engine.core.model.entities.FunctionState;
-import org.opensbpm.engine.core.model.entities.ObjectModel;
+import org.opensbpm.engine.core.model.ProcessModelView.ObjectView;
+import org.opensbpm.engine.core.model.ProcessModelView.StateView;
 import org.springframework.stereotype.Service;
 import static org.opensbpm.engine.core.engine.ObjectSchemaConverter.toObjectSchema;
 
@@ -44,24 +44,24 @@ public class ValidationService {
         this.validationProviderManager = validationProviderManager;
     }
 
-    public AutocompleteResponse createAutocompleteResponse(FunctionState state, ObjectModel objectModel, String queryString, BindingContext bindingContext) {
-        ObjectSchema objectSchema = toObjectSchema(scriptService, state, objectModel, bindingContext);
+    public AutocompleteResponse createAutocompleteResponse(StateView state, ObjectView object, String queryString, BindingContext bindingContext) {
+        ObjectSchema objectSchema = toObjectSchema(scriptService, state, object, bindingContext);
 
         List<Autocomplete> autocompletes = new ArrayList<>();
         for (AutocompleteProvider autocompleteProvider : validationProviderManager.getAutocompleteProvider()) {
             autocompleteProvider.getAutocomplete(objectSchema, queryString).stream()
-                    .map(sourceMap -> toObjectData(objectModel, state, sourceMap, bindingContext))
+                    .map(sourceMap -> toObjectData(object, state, sourceMap, bindingContext))
                     .map(objectData -> Autocomplete.of(objectData))
                     .collect(Collectors.toCollection(() -> autocompletes));
         }
         return AutocompleteResponse.of(autocompletes);
     }
 
-    private ObjectData toObjectData(ObjectModel objectModel, FunctionState state, SourceMap sourceMap, BindingContext bindingContext) {
-        ObjectSchema objectSchema = ObjectSchemaConverter.toObjectSchema(scriptService, state, objectModel, bindingContext);
+    private ObjectData toObjectData(ObjectView object, StateView state, SourceMap sourceMap, BindingContext bindingContext) {
+        ObjectSchema objectSchema = ObjectSchemaConverter.toObjectSchema(scriptService, state, object, bindingContext);
         ObjectBean objectBean = ObjectBean.from(objectSchema, sourceMap);
         return new ObjectDataCreator(scriptService)
-                .createObjectData(objectModel, objectBean);
+                .createObjectData(object, objectBean);
     }
 
 }
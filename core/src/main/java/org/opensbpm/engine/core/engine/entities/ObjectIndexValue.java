@@ -0,0 +1,183 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine.entities;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Objects;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.opensbpm.engine.core.model.entities.SimpleAttributeModel;
+import org.opensbpm.engine.core.utils.entities.HasId;
+
+/**
+ * Value of an indexed {@link SimpleAttributeModel} of an {@link ObjectInstance},
+ * stored in the column of its {@code FieldType}. Values in nested or indexed
+ * attributes get a row each.
+ */
+@Entity(name = "objectindexvalue")
+@Table(indexes = {
+    @Index(name = "objectindexvalue_object", columnList = "object_instance"),
+    @Index(name = "objectindexvalue_string", columnList = "attribute_model,stringValue"),
+    @Index(name = "objectindexvalue_number", columnList = "attribute_model,numberValue"),
+    @Index(name = "objectindexvalue_decimal", columnList = "attribute_model,decimalValue"),
+    @Index(name = "objectindexvalue_date", columnList = "attribute_model,dateValue"),
+    @Index(name = "objectindexvalue_time", columnList = "attribute_model,timeValue"),
+    @Index(name = "objectindexvalue_boolean", columnList = "attribute_model,booleanValue")
+})
+public class ObjectIndexValue implements HasId, Serializable {
+
+    public static final int MAX_STRING_LENGTH = 255;
+    public static final int DECIMAL_PRECISION = 38;
+    public static final int DECIMAL_SCALE = 10;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "object_instance", nullable = false, updatable = false)
+    private ObjectInstance objectInstance;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "process_instance", nullable = false, updatable = false)
+    private ProcessInstance processInstance;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "attribute_model", nullable = false, updatable = false)
+    private SimpleAttributeModel attributeModel;
+
+    @Column(length = MAX_STRING_LENGTH, updatable = false)
+    private String stringValue;
+
+    @Column(updatable = false)
+    private Long numberValue;
+
+    @Column(precision = DECIMAL_PRECISION, scale = DECIMAL_SCALE, updatable = false)
+    private BigDecimal decimalValue;
+
+    @Column(updatable = false)
+    private LocalDate dateValue;
+
+    @Column(updatable = false)
+    private LocalTime timeValue;
+
+    @Column(updatable = false)
+    private Boolean booleanValue;
+
+    protected ObjectIndexValue() {
+        //JPA constructor
+    }
+
+    public ObjectIndexValue(ObjectInstance objectInstance, SimpleAttributeModel attributeModel) {
+        this.objectInstance = Objects.requireNonNull(objectInstance, "ObjectInstance must not be null");
+        this.processInstance = objectInstance.getProcessInstance();
+        this.attributeModel = Objects.requireNonNull(attributeModel, "AttributeModel must not be null");
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    public ObjectInstance getObjectInstance() {
+        return objectInstance;
+    }
+
+    public ProcessInstance getProcessInstance() {
+        return processInstance;
+    }
+
+    public SimpleAttributeModel getAttributeModel() {
+        return attributeModel;
+    }
+
+    public String getStringValue() {
+        return stringValue;
+    }
+
+    public void setStringValue(String stringValue) {
+        this.stringValue = stringValue;
+    }
+
+    public Long getNumberValue() {
+        return numberValue;
+    }
+
+    public void setNumberValue(Long numberValue) {
+        this.numberValue = numberValue;
+    }
+
+    public BigDecimal getDecimalValue() {
+        return decimalValue;
+    }
+
+    public void setDecimalValue(BigDecimal decimalValue) {
+        this.decimalValue = decimalValue;
+    }
+
+    public LocalDate getDateValue() {
+        return dateValue;
+    }
+
+    public void setDateValue(LocalDate dateValue) {
+        this.dateValue = dateValue;
+    }
+
+    public LocalTime getTimeValue() {
+        return timeValue;
+    }
+
+    public void setTimeValue(LocalTime timeValue) {
+        this.timeValue = timeValue;
+    }
+
+    public Boolean getBooleanValue() {
+        return booleanValue;
+    }
+
+    public void setBooleanValue(Boolean booleanValue) {
+        this.booleanValue = booleanValue;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .append("id", id)
+                .append("attributeModel", attributeModel)
+                .append("stringValue", stringValue)
+                .append("numberValue", numberValue)
+                .append("decimalValue", decimalValue)
+                .append("dateValue", dateValue)
+                .append("timeValue", timeValue)
+                .append("booleanValue", booleanValue)
+                .toString();
+    }
+
+}
@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Objects;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -62,6 +63,7 @@ public class ObjectInstance implements HasId, Serializable {
     @Lob
 //    @Basic(fetch = LAZY)
     @Column(name = "virtue")
+    @Convert(converter = ObjectValueConverter.class)
     @EqualsExclude
     private HashMap<Long, Serializable> value = new HashMap<Long, Serializable>();
 
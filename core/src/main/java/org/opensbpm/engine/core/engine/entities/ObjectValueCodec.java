@@ -0,0 +1,429 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine.entities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.opensbpm.engine.api.model.Binary;
+
+/**
+ * Compact binary encoding of the attribute values of an {@link ObjectInstance}.
+ * <p>
+ * The values are keyed by attribute id and tagged by their type; every type of
+ * {@code FieldType} as well as nested attributes ({@link HashMap}) and indexed
+ * attributes ({@link ArrayList}) have an encoding of their own. Numbers and
+ * lengths are stored as variable-length integers. Values of other types are
+ * stored by Java serialization. Encodings larger than the compression threshold
+ * are deflated, if that makes them smaller.
+ * <p>
+ * Values written by Java serialization of the whole map (the format before
+ * this codec) are still decoded.
+ */
+public final class ObjectValueCodec {
+
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+    private static final byte PLAIN = 1;
+    private static final byte DEFLATED = 2;
+    //first byte of the Java serialization stream magic 0xACED
+    private static final byte JAVA_SERIALIZATION = (byte) 0xAC;
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int INTEGER = 2;
+    private static final int LONG = 3;
+    private static final int DECIMAL = 4;
+    private static final int DATE = 5;
+    private static final int TIME = 6;
+    private static final int TRUE = 7;
+    private static final int FALSE = 8;
+    private static final int BINARY = 9;
+    private static final int MAP = 10;
+    private static final int LIST = 11;
+    private static final int SERIALIZED = 12;
+
+    private final int compressionThreshold;
+
+    /**
+     * @param compressionThreshold minimal size of an encoding to try compression;
+     * {@link Integer#MAX_VALUE} to never compress
+     */
+    public ObjectValueCodec(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * @param data encoded values
+     * @return {@code true} if the data was written by Java serialization instead of this codec
+     */
+    public static boolean isLegacy(byte[] data) {
+        return data != null && data.length > 0 && data[0] == JAVA_SERIALIZATION;
+    }
+
+    public byte[] encode(Map<Long, Serializable> values) {
+        Output output = new Output(64);
+        output.write(PLAIN);
+        writeMap(output, values);
+        if (output.size() > compressionThreshold) {
+            byte[] deflated = deflate(output.buffer(), 1, output.size() - 1);
+            if (deflated.length < output.size()) {
+                return deflated;
+            }
+        }
+        return output.toByteArray();
+    }
+
+    public HashMap<Long, Serializable> decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new HashMap<>();
+        }
+        switch (data[0]) {
+            case PLAIN:
+                return readMap(new Input(data, 1));
+            case DEFLATED:
+                return readMap(new Input(inflate(data), 0));
+            case JAVA_SERIALIZATION:
+                return deserializeLegacy(data);
+            default:
+                throw new IllegalArgumentException("unknown encoding " + data[0]);
+        }
+    }
+
+    private static void writeMap(Output output, Map<Long, Serializable> values) {
+        output.writeVarLong(values.size());
+        for (Map.Entry<Long, Serializable> entry : values.entrySet()) {
+            output.writeVarLong(zigZag(entry.getKey()));
+            writeValue(output, entry.getValue());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(Output output, Serializable value) {
+        if (value == null) {
+            output.write(NULL);
+        } else if (value instanceof String) {
+            output.write(STRING);
+            output.writeBytes(((String) value).getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof Integer) {
+            output.write(INTEGER);
+            output.writeVarLong(zigZag((Integer) value));
+        } else if (value instanceof Long) {
+            output.write(LONG);
+            output.writeVarLong(zigZag((Long) value));
+        } else if (value instanceof BigDecimal) {
+            output.write(DECIMAL);
+            output.writeVarLong(zigZag(((BigDecimal) value).scale()));
+            output.writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+        } else if (value instanceof LocalDate) {
+            output.write(DATE);
+            output.writeVarLong(zigZag(((LocalDate) value).toEpochDay()));
+        } else if (value instanceof LocalTime) {
+            output.write(TIME);
+            output.writeVarLong(((LocalTime) value).toNanoOfDay());
+        } else if (value instanceof Boolean) {
+            output.write((Boolean) value ? TRUE : FALSE);
+        } else if (value.getClass() == Binary.class) {
+            output.write(BINARY);
+            Binary binary = (Binary) value;
+            writeNullable(output, binary.getMimeType() == null ? null : binary.getMimeType().getBytes(StandardCharsets.UTF_8));
+            output.writeBytes(binary.getValue());
+        } else if (value.getClass() == HashMap.class) {
+            output.write(MAP);
+            writeMap(output, (HashMap<Long, Serializable>) value);
+        } else if (value.getClass() == ArrayList.class) {
+            output.write(LIST);
+            List<Serializable> list = (List<Serializable>) value;
+            output.writeVarLong(list.size());
+            list.forEach(element -> writeValue(output, element));
+        } else {
+            output.write(SERIALIZED);
+            output.writeBytes(serialize(value));
+        }
+    }
+
+    private static void writeNullable(Output output, byte[] bytes) {
+        if (bytes == null) {
+            output.writeVarLong(0);
+        } else {
+            output.writeVarLong(bytes.length + 1l);
+            output.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static HashMap<Long, Serializable> readMap(Input input) {
+        int size = input.readLength();
+        HashMap<Long, Serializable> values = new HashMap<>(Math.max(16, (int) (size / .75f) + 1));
+        for (int index = 0; index < size; index++) {
+            Long key = unZigZag(input.readVarLong());
+            values.put(key, readValue(input));
+        }
+        return values;
+    }
+
+    private static Serializable readValue(Input input) {
+        int tag = input.read();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return new String(input.readBytes(), StandardCharsets.UTF_8);
+            case INTEGER:
+                return (int) unZigZag(input.readVarLong());
+            case LONG:
+                return unZigZag(input.readVarLong());
+            case DECIMAL:
+                int scale = (int) unZigZag(input.readVarLong());
+                return new BigDecimal(new BigInteger(input.readBytes()), scale);
+            case DATE:
+                return LocalDate.ofEpochDay(unZigZag(input.readVarLong()));
+            case TIME:
+                return LocalTime.ofNanoOfDay(input.readVarLong());
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BINARY:
+                byte[] mimeType = input.readNullable();
+                return new Binary(mimeType == null ? null : new String(mimeType, StandardCharsets.UTF_8), input.readBytes());
+            case MAP:
+                return readMap(input);
+            case LIST:
+                int size = input.readLength();
+                ArrayList<Serializable> list = new ArrayList<>(size);
+                for (int index = 0; index < size; index++) {
+                    list.add(readValue(input));
+                }
+                return list;
+            case SERIALIZED:
+                return deserialize(input.readBytes());
+            default:
+                throw new IllegalArgumentException("unknown value tag " + tag);
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte[] deflate(byte[] data, int offset, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            Output output = new Output(length / 2 + 16);
+            output.write(DEFLATED);
+            output.writeVarLong(length);
+            byte[] buffer = new byte[Math.min(length, 8192) + 16];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) {
+        Input input = new Input(data, 1);
+        int length = input.readLength();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, input.position, data.length - input.position);
+            byte[] result = new byte[length];
+            int count = 0;
+            while (count < length && !inflater.finished()) {
+                int inflated = inflater.inflate(result, count, length - count);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                count += inflated;
+            }
+            if (count != length) {
+                throw new IllegalArgumentException("corrupt deflated values");
+            }
+            return result;
+        } catch (DataFormatException ex) {
+            throw new IllegalArgumentException("corrupt deflated values", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] serialize(Serializable value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(value);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("can't serialize " + value.getClass(), ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Serializable deserialize(byte[] data) {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (Serializable) input.readObject();
+        } catch (IOException | ClassNotFoundException ex) {
+            throw new IllegalArgumentException("can't deserialize value", ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HashMap<Long, Serializable> deserializeLegacy(byte[] data) {
+        return (HashMap<Long, Serializable>) deserialize(data);
+    }
+
+    private static class Output {
+
+        private byte[] buffer;
+        private int size;
+
+        private Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+            }
+        }
+
+        private void write(int value) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) value;
+        }
+
+        private void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            long remaining = value;
+            while ((remaining & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            buffer[size++] = (byte) remaining;
+        }
+
+        private void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        private byte[] buffer() {
+            return buffer;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+    }
+
+    private static class Input {
+
+        private final byte[] data;
+        private int position;
+
+        private Input(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        private int read() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("unexpected end of values");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int current = read();
+                value |= (long) (current & 0x7F) << shift;
+                if ((current & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("malformed variable-length integer");
+        }
+
+        private int readLength() {
+            long length = readVarLong();
+            if (length < 0 || length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("invalid length " + length);
+            }
+            return (int) length;
+        }
+
+        private byte[] readBytes() {
+            int length = readLength();
+            if (length > data.length - position) {
+                throw new IllegalArgumentException("unexpected end of values");
+            }
+            byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        private byte[] readNullable() {
+            long length = readVarLong();
+            if (length == 0) {
+                return null;
+            }
+            if (length - 1 > data.length - position) {
+                throw new IllegalArgumentException("unexpected end of values");
+            }
+            byte[] bytes = Arrays.copyOfRange(data, position, position + (int) (length - 1));
+            position += (int) (length - 1);
+            return bytes;
+        }
+
+    }
+
+}
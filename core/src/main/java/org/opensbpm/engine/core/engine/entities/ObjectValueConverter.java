@@ -0,0 +1,44 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine.entities;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * {@link AttributeConverter} which stores the values of an {@link ObjectInstance}
+ * with the {@link ObjectValueCodec}.
+ */
+@Converter
+public class ObjectValueConverter implements AttributeConverter<HashMap<Long, Serializable>, byte[]> {
+
+    private static final ObjectValueCodec CODEC = new ObjectValueCodec(ObjectValueCodec.DEFAULT_COMPRESSION_THRESHOLD);
+
+    @Override
+    public byte[] convertToDatabaseColumn(HashMap<Long, Serializable> value) {
+        return value == null ? null : CODEC.encode(value);
+    }
+
+    @Override
+    public HashMap<Long, Serializable> convertToEntityAttribute(byte[] data) {
+        return data == null ? null : CODEC.decode(data);
+    }
+
+}
@@ -0,0 +1,104 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************
+ */
+package org.opensbpm.engine.core.engine.entities;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapKeyColumn;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Read position of a relay in the outbox. Every engine node uses its own
+ * consumer, so each node delivers every {@link OutboxEvent} to its local
+ * listeners.
+ */
+@Entity(name = "outboxconsumer")
+public class OutboxConsumer implements Serializable {
+
+    @Id
+    @Column(name = "name", nullable = false, updatable = false)
+    private String name;
+
+    /* id of the last delivered OutboxEvent */
+    @Column(name = "eventOffset", nullable = false)
+    private long offset;
+
+    /* ids of missing events below the offset, with the time they were skipped */
+    @ElementCollection
+    @MapKeyColumn(name = "eventId")
+    @Column(name = "skipped", nullable = false)
+    @CollectionTable(name = "outboxconsumer_gaps",
+            joinColumns = @JoinColumn(name = "name",
+                        nullable = false)
+    )
+    private Map<Long, Long> gaps = new HashMap<>();
+
+    protected OutboxConsumer() {
+    }
+
+    public OutboxConsumer(String name, long offset) {
+        this.name = Objects.requireNonNull(name, "name must not be null");
+        this.offset = offset;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * @return ids of events skipped because they were missing, with the time in millis they were skipped
+     */
+    public Map<Long, Long> getGaps() {
+        return Collections.unmodifiableMap(gaps);
+    }
+
+    public void addGap(long eventId, long skipped) {
+        gaps.putIfAbsent(eventId, skipped);
+    }
+
+    public void removeGap(long eventId) {
+        gaps.remove(eventId);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .append("name", name)
+                .append("offset", offset)
+                .toString();
+    }
+
+}
@@ -0,0 +1,85 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************
+ */
+package org.opensbpm.engine.core.engine.entities;
+
+import java.io.Serializable;
+import java.util.Objects;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.SequenceGenerator;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.opensbpm.engine.api.events.EngineEvent;
+import org.opensbpm.engine.core.utils.entities.HasId;
+
+/**
+ * {@link EngineEvent} written to the outbox in the transaction which fired it.
+ * The id is the sequence offset of the event; it is allocated one by one, so
+ * a missing id is either not committed yet or rolled back.
+ */
+@Entity(name = "outboxevent")
+public class OutboxEvent implements HasId, Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outboxevent_seq")
+    @SequenceGenerator(name = "outboxevent_seq", sequenceName = "outboxevent_seq", allocationSize = 1)
+    private Long id;
+
+    /* not every database stores millis in timestamp (MySQL); so use long and JVM time instead */
+    @Column(name = "created", nullable = false)
+    private long created;
+
+    @Lob
+    @Column(name = "event", nullable = false)
+    private EngineEvent<?> event;
+
+    protected OutboxEvent() {
+    }
+
+    public OutboxEvent(EngineEvent<?> event) {
+        this.event = Objects.requireNonNull(event, "event must not be null");
+        created = System.currentTimeMillis();
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public EngineEvent<?> getEvent() {
+        return event;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .append("id", id)
+                .append("created", created)
+                .append("event", event)
+                .toString();
+    }
+
+}
@@ -38,6 +38,10 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedEntityGraphs;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.OneToMany;
 import jakarta.validation.constraints.NotNull;
 import java.util.Set;
@@ -57,8 +61,32 @@ import static org.opensbpm.engine.utils.StreamUtils.lazyAdd;
 import static org.opensbpm.engine.utils.StreamUtils.toOne;
 
 @Entity(name = "processinstance")
+@NamedEntityGraphs({
+    @NamedEntityGraph(name = ProcessInstance.PROCESS_INFO_GRAPH, attributeNodes = {
+        @NamedAttributeNode("processModel"),
+        @NamedAttributeNode("startUser")
+    }),
+    @NamedEntityGraph(name = ProcessInstance.SUBJECTS_GRAPH,
+            attributeNodes = @NamedAttributeNode(value = "subjects", subgraph = "subjects"),
+            subgraphs = @NamedSubgraph(name = "subjects", attributeNodes = {
+                @NamedAttributeNode("subjectModel"),
+                @NamedAttributeNode("subjectTrail")
+            }))
+})
 public class ProcessInstance implements HasId, Serializable {
 
+    /**
+     * fetch plan of a list of process infos; only to-one associations, so it
+     * is safe to page; the subjects are fetched by {@link #SUBJECTS_GRAPH}
+     */
+    public static final String PROCESS_INFO_GRAPH = "ProcessInstance.processInfo";
+
+    /**
+     * fetch plan of the subjects and their trails of already loaded process
+     * instances
+     */
+    public static final String SUBJECTS_GRAPH = "ProcessInstance.subjects";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
@@ -224,6 +252,22 @@ public class ProcessInstance implements HasId, Serializable {
                 .orElse(Collections.emptyMap());
     }
 
+    /**
+     * Like {@link #getValues(ObjectModel)}, but by the id of the ObjectModel;
+     * the ObjectModel of the object instances isn't loaded.
+     *
+     * @param objectModelId id of the ObjectModel
+     * @return the read-only values or an empty map
+     */
+    public Map<Long, Serializable> getValues(Long objectModelId) {
+        Objects.requireNonNull(objectModelId, "objectModelId must not be null");
+        return getObjectInstances().stream()
+                .filter(objectInstance -> objectModelId.equals(objectInstance.getObjectModel().getId()))
+                .reduce(toOne())
+                .map(objectInstance -> objectInstance.getValue())
+                .orElse(Collections.emptyMap());
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
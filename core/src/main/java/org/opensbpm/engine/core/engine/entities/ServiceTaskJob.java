@@ -0,0 +1,249 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine.entities;
+
+import java.io.Serializable;
+import java.util.Objects;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.opensbpm.engine.core.utils.entities.HasId;
+
+/**
+ * Durable job executing the current state of a {@link ServiceSubject} by its
+ * {@code TaskExecutionProvider}. The job is deleted in the transaction which
+ * executed the state; a failed job is retried until it is dead.
+ */
+@Entity(name = "servicetaskjob")
+@Table(indexes = {
+    @Index(name = "servicetaskjob_available", columnList = "status,availableAt"),
+    @Index(name = "servicetaskjob_rank", columnList = "status,claimRank")
+})
+public class ServiceTaskJob implements HasId, Serializable {
+
+    public enum Status {
+        /**
+         * waiting for execution, not before {@link ServiceTaskJob#getAvailableAt()}
+         */
+        PENDING,
+        /**
+         * claimed by a node; claimable again after {@link ServiceTaskJob#getAvailableAt()}
+         */
+        RUNNING,
+        /**
+         * failed too often, not executed anymore
+         */
+        DEAD
+    }
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long subjectId;
+
+    @Column(nullable = false)
+    private Long stateId;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Column(nullable = false)
+    private int priority;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    /* not every database stores millis in timestamp (MySQL); so use long and JVM time instead */
+    @Column(nullable = false)
+    private long created;
+
+    @Column(nullable = false)
+    private long availableAt;
+
+    /* rank is a reserved word in some databases */
+    @Column(name = "claimRank", nullable = false)
+    private long rank;
+
+    @Column
+    private String owner;
+
+    @Column(length = MAX_ERROR_LENGTH)
+    private String lastError;
+
+    @Version
+    private long version;
+
+    protected ServiceTaskJob() {
+    }
+
+    /**
+     * @param subjectId id of the subject to execute
+     * @param stateId id of the state to execute
+     * @param priority priority of the state
+     * @param created time the job is queued; it is available right away
+     * @param rank order in which the job is claimed, see {@link #getRank()}
+     */
+    public ServiceTaskJob(Long subjectId, Long stateId, int priority, long created, long rank) {
+        this.subjectId = Objects.requireNonNull(subjectId, "subjectId must not be null");
+        this.stateId = Objects.requireNonNull(stateId, "stateId must not be null");
+        this.priority = priority;
+        this.created = created;
+        this.availableAt = created;
+        this.rank = rank;
+        status = Status.PENDING;
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    public Long getSubjectId() {
+        return subjectId;
+    }
+
+    public Long getStateId() {
+        return stateId;
+    }
+
+    /**
+     * @return priority of the job; higher values are claimed first
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return time the job was queued; retries don't change it, so the job
+     * keeps aging
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    public long getAvailableAt() {
+        return availableAt;
+    }
+
+    /**
+     * @return the aged priority of the job; the job with the lowest rank is
+     * claimed first. It is computed from {@link #getCreated()} on enqueue, so
+     * retries and expired leases keep it
+     */
+    public long getRank() {
+        return rank;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Claims the job for an attempt of the given node.
+     *
+     * @param owner name of the claiming node
+     * @param leaseUntil time until the job is invisible for other nodes
+     */
+    public void claim(String owner, long leaseUntil) {
+        this.owner = owner;
+        availableAt = leaseUntil;
+        status = Status.RUNNING;
+        attempts++;
+    }
+
+    /**
+     * Schedules the next attempt after a failed one.
+     *
+     * @param retryAt time of the next attempt
+     * @param error message of the failure
+     */
+    public void retry(long retryAt, String error) {
+        availableAt = retryAt;
+        status = Status.PENDING;
+        lastError = StringUtils.abbreviate(error, MAX_ERROR_LENGTH);
+    }
+
+    /**
+     * Releases the job without counting the attempt, e.g. because its provider
+     * rejected it.
+     *
+     * @param retryAt time of the next attempt
+     * @param error reason of the rejection
+     */
+    public void postpone(long retryAt, String error) {
+        availableAt = retryAt;
+        status = Status.PENDING;
+        attempts--;
+        lastError = StringUtils.abbreviate(error, MAX_ERROR_LENGTH);
+    }
+
+    /**
+     * Gives up the job after the last failed attempt.
+     *
+     * @param error message of the failure
+     */
+    public void die(String error) {
+        status = Status.DEAD;
+        lastError = StringUtils.abbreviate(error, MAX_ERROR_LENGTH);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .append("id", id)
+                .append("subjectId", subjectId)
+                .append("stateId", stateId)
+                .append("status", status)
+                .append("priority", priority)
+                .append("rank", rank)
+                .append("attempts", attempts)
+                .toString();
+    }
+
+}
@@ -35,6 +35,9 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.MapKey;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OrderBy;
 import org.apache.commons.lang3.StringUtils;
@@ -54,12 +57,30 @@ import static org.opensbpm.engine.utils.StreamUtils.filterToOne;
 import static org.opensbpm.engine.utils.StreamUtils.lazyAdd;
 
 @Entity
+@NamedEntityGraph(name = Subject.TASK_RESPONSE_GRAPH,
+        attributeNodes = {
+            @NamedAttributeNode(value = "processInstance", subgraph = "processInstance"),
+            @NamedAttributeNode("subjectModel"),
+            @NamedAttributeNode(value = "subjectTrail", subgraph = "subjectTrail")
+        },
+        subgraphs = {
+            @NamedSubgraph(name = "processInstance", attributeNodes = {
+                @NamedAttributeNode("processModel"),
+                @NamedAttributeNode("startUser")
+            }),
+            @NamedSubgraph(name = "subjectTrail", attributeNodes = @NamedAttributeNode("state"))
+        })
 /* 
     there is no unique-key; on recursions there are multiple subjects (with
     different user of the same role) per subjectmodel 
  */
 public abstract class Subject implements HasId, Serializable {
 
+    /**
+     * fetch plan of a single task including its trail
+     */
+    public static final String TASK_RESPONSE_GRAPH = "Subject.taskResponse";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
@@ -200,6 +221,19 @@ public abstract class Subject implements HasId, Serializable {
         return getUnconsumedMessages(objectModel).size() > 0;
     }
 
+    /**
+     * Like {@link #hasUnconsumedMessages(ObjectModel)}, but by the id of the
+     * ObjectModel; the ObjectModel of the messages isn't loaded.
+     *
+     * @param objectModelId id of the ObjectModel
+     * @return {@code true} if there is an unconsumed message
+     */
+    public boolean hasUnconsumedMessages(Long objectModelId) {
+        Objects.requireNonNull(objectModelId);
+        return getUnconsumedMessages().stream()
+                .anyMatch(message -> objectModelId.equals(message.getObjectModel().getId()));
+    }
+
     public abstract <T> T accept(SubjectVisitor<T> visitor);
 
     @Override
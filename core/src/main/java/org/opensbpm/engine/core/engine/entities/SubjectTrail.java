@@ -28,14 +28,34 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.opensbpm.engine.core.model.entities.State;
 import org.opensbpm.engine.core.utils.entities.HasId;
 
 @Entity(name = "subjecttrail")
+@NamedEntityGraph(name = SubjectTrail.AUDIT_GRAPH,
+        attributeNodes = {
+            @NamedAttributeNode("state"),
+            @NamedAttributeNode(value = "subject", subgraph = "subject")
+        },
+        subgraphs = {
+            @NamedSubgraph(name = "subject", attributeNodes = {
+                @NamedAttributeNode("subjectModel"),
+                @NamedAttributeNode(value = "processInstance", subgraph = "processInstance")
+            }),
+            @NamedSubgraph(name = "processInstance", attributeNodes = @NamedAttributeNode("processModel"))
+        })
 public class SubjectTrail implements HasId, Serializable {
 
+    /**
+     * fetch plan of an audit trail
+     */
+    public static final String AUDIT_GRAPH = "SubjectTrail.audit";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
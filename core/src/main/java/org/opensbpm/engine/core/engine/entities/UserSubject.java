@@ -22,6 +22,10 @@ import java.util.stream.Stream;
 import jakarta.persistence.Entity;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedEntityGraphs;
+import jakarta.persistence.NamedSubgraph;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
@@ -30,8 +34,33 @@ import org.opensbpm.engine.core.model.entities.UserSubjectModel;
 import static org.opensbpm.engine.core.model.entities.SubjectModelVisitor.userSubjectModel;
 
 @Entity(name = "subjectuser")
+@NamedEntityGraphs({
+    @NamedEntityGraph(name = UserSubject.TASK_LIST_GRAPH,
+            attributeNodes = {
+                @NamedAttributeNode(value = "processInstance", subgraph = "processInstance"),
+                @NamedAttributeNode("subjectModel"),
+                @NamedAttributeNode("user")
+            },
+            subgraphs = @NamedSubgraph(name = "processInstance", attributeNodes = {
+                @NamedAttributeNode("processModel"),
+                @NamedAttributeNode("startUser")
+            })),
+    @NamedEntityGraph(name = UserSubject.TASK_TRAIL_GRAPH,
+            attributeNodes = @NamedAttributeNode("subjectTrail"))
+})
 public class UserSubject extends Subject {
 
+    /**
+     * fetch plan of a list of tasks; only to-one associations, so it is safe
+     * to page; the trails are fetched by {@link #TASK_TRAIL_GRAPH}
+     */
+    public static final String TASK_LIST_GRAPH = "UserSubject.taskList";
+
+    /**
+     * fetch plan of the trails of already loaded tasks
+     */
+    public static final String TASK_TRAIL_GRAPH = "UserSubject.taskTrail";
+
     @ManyToOne
     @JoinColumn(name = "uId")
     private User user;
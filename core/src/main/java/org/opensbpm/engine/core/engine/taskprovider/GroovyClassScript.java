@@ -0,0 +1,164 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine.taskprovider;
+
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
+import groovy.transform.ThreadInterrupt;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.runtime.InvokerHelper;
+
+/**
+ * {@link CompiledScript} of a Groovy script which class is defined by its own
+ * {@link GroovyClassLoader}. Loops of the script are interruptible. Closing the script releases the class loader, so
+ * the generated classes can be unloaded once the script is not cached anymore.
+ * <p>
+ * The class loader is reference counted: the cache holds one reference,
+ * every evaluation retains the script by {@link #retain()} and releases it by
+ * {@link #release()} afterwards. The class loader is closed when the last
+ * reference is released, so evicting a script doesn't break evaluations in
+ * flight.
+ */
+class GroovyClassScript extends CompiledScript implements AutoCloseable {
+
+    private static final AtomicLong SCRIPT_COUNTER = new AtomicLong();
+
+    private static CompilerConfiguration createConfiguration() {
+        //scripts check the interrupted flag of their thread, so timed out scripts can be cancelled
+        CompilerConfiguration configuration = new CompilerConfiguration();
+        configuration.addCompilationCustomizers(new ASTTransformationCustomizer(ThreadInterrupt.class));
+        return configuration;
+    }
+
+    /**
+     * Compiles the given Groovy script.
+     *
+     * @param script source of the script
+     * @param scriptEngine engine the script belongs to
+     * @param parentClassLoader class loader of the classes available to the script
+     * @return the compiled script
+     * @throws ScriptException if the script isn't valid Groovy
+     */
+    public static GroovyClassScript compile(String script, ScriptEngine scriptEngine, ClassLoader parentClassLoader) throws ScriptException {
+        GroovyClassLoader classLoader = new GroovyClassLoader(parentClassLoader, createConfiguration());
+        try {
+            Class<?> scriptClass = classLoader.parseClass(script, "TaskScript" + SCRIPT_COUNTER.incrementAndGet() + ".groovy");
+            return new GroovyClassScript(scriptEngine, classLoader, scriptClass);
+        } catch (CompilationFailedException ex) {
+            close(classLoader);
+            ScriptException scriptException = new ScriptException(ex.getMessage());
+            scriptException.initCause(ex);
+            throw scriptException;
+        }
+    }
+
+    private final ScriptEngine scriptEngine;
+    private final GroovyClassLoader classLoader;
+    private final Class<?> scriptClass;
+    //the reference of the cache plus one per evaluation in flight
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private GroovyClassScript(ScriptEngine scriptEngine, GroovyClassLoader classLoader, Class<?> scriptClass) {
+        this.scriptEngine = Objects.requireNonNull(scriptEngine, "scriptEngine must not be null");
+        this.classLoader = Objects.requireNonNull(classLoader, "classLoader must not be null");
+        this.scriptClass = Objects.requireNonNull(scriptClass, "scriptClass must not be null");
+    }
+
+    /**
+     * Keeps the class loader open until {@link #release()} is called.
+     *
+     * @return {@code false} if the script is closed and released already
+     */
+    public boolean retain() {
+        int current;
+        do {
+            current = references.get();
+            if (current == 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Releases a reference of {@link #retain()}; the last release closes the class loader.
+     */
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            InvokerHelper.removeClass(scriptClass);
+            close(classLoader);
+        }
+    }
+
+    @Override
+    public Object eval(ScriptContext context) throws ScriptException {
+        if (references.get() == 0) {
+            throw new ScriptException("Script " + scriptClass.getName() + " closed");
+        }
+        //every evaluation gets its own script instance and binding
+        Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+        Script script = InvokerHelper.createScript(scriptClass, new Binding(bindings));
+        try {
+            return script.run();
+        } catch (RuntimeException ex) {
+            ScriptException scriptException = new ScriptException(ex.getMessage());
+            scriptException.initCause(ex);
+            throw scriptException;
+        }
+    }
+
+    @Override
+    public ScriptEngine getEngine() {
+        return scriptEngine;
+    }
+
+    /**
+     * Releases the reference of the cache; the class loader is closed after
+     * the last evaluation in flight completed.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    private static void close(GroovyClassLoader classLoader) {
+        classLoader.clearCache();
+        try {
+            classLoader.close();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+    }
+
+}
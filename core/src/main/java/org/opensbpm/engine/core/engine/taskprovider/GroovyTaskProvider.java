@@ -16,29 +16,57 @@
  ******************************************************************************/
 package org.opensbpm.engine.core.engine.taskprovider;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
-import javax.script.Bindings;
+import javax.script.CompiledScript;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
 import org.opensbpm.engine.api.instance.NextState;
 import org.opensbpm.engine.api.instance.Task;
 import org.opensbpm.engine.api.spi.TaskExecutionException;
 import org.opensbpm.engine.api.spi.TaskExecutionProvider;
 import org.opensbpm.engine.api.taskprovider.TaskProviderInfo.ProviderResource;
+import org.opensbpm.engine.core.engine.CompiledScriptCache;
+import org.opensbpm.engine.core.engine.ScriptExecutionPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
-public class GroovyTaskProvider implements TaskExecutionProvider {
+public class GroovyTaskProvider implements TaskExecutionProvider, MeterBinder {
 
     public static final String NAME = "Groovy";
     public static final String SCRIPT = "script";
     private final ScriptEngine scriptEngine;
+    private final ScriptExecutionPool scriptExecutionPool;
+    private final CompiledScriptCache scriptCache;
 
-    public GroovyTaskProvider(ScriptEngine scriptEngine) {
+    @Autowired
+    public GroovyTaskProvider(ScriptEngine scriptEngine, ScriptExecutionPool scriptExecutionPool,
+            @Value("${opensbpm.engine.groovy.cache.maximum-size:200}") int maximumSize,
+            @Value("${opensbpm.engine.groovy.cache.expire-after-access:PT24H}") Duration expireAfterAccess) {
+        this(scriptEngine, scriptExecutionPool, new CompiledScriptCache(NAME.toLowerCase(), maximumSize, expireAfterAccess));
+    }
+
+    GroovyTaskProvider(ScriptEngine scriptEngine, ScriptExecutionPool scriptExecutionPool, CompiledScriptCache scriptCache) {
         this.scriptEngine = scriptEngine;
+        this.scriptExecutionPool = scriptExecutionPool;
+        this.scriptCache = scriptCache;
+        this.scriptCache.addRemovalListener(scriptExecutionPool::unregisterExpression);
+    }
+
+    /**
+     * Binds the meters of the cache of compiled scripts; every miss defined new classes.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        scriptCache.bindTo(registry);
     }
 
     @Override
@@ -61,13 +89,22 @@ public class GroovyTaskProvider implements TaskExecutionProvider {
         };
     }
 
+    @Override
+    public void prepareTask(Map<String, String> parameters) throws TaskExecutionException {
+        compile(parameters);
+    }
+
     @Override
     public NextState executeTask(Map<String, String> parameters, Task task) throws TaskExecutionException {
-        Bindings bindings = scriptEngine.getBindings(ScriptContext.GLOBAL_SCOPE);
-        bindings.put("task", task);
+        //every execution gets its own context; the engine's bindings are shared between threads
+        ScriptContext scriptContext = new SimpleScriptContext();
+        scriptContext.setAttribute("task", task, ScriptContext.ENGINE_SCOPE);
+        GroovyClassScript compiledScript = retain(parameters);
         try {
-            String script = parameters.get(SCRIPT);
-            Object eval = scriptEngine.eval(script, bindings);
+            //the script runs in the script pool and is cancelled after its timeout;
+            //it is accounted to the model versions which registered it on deployment
+            Object eval = scriptExecutionPool.execute(parameters.get(SCRIPT), null,
+                    () -> compiledScript.eval(scriptContext));
             if (eval == null) {
                 if (task.getNextStates().size() == 1) {
                     return task.getNextStates().iterator().next();
@@ -80,6 +117,33 @@ public class GroovyTaskProvider implements TaskExecutionProvider {
             return (NextState) eval;
         } catch (ScriptException ex) {
             throw new TaskExecutionException(ex.getMessage(), ex);
+        } finally {
+            compiledScript.release();
+        }
+    }
+
+    /**
+     * @return the compiled script, retained until it is released by the caller
+     */
+    private GroovyClassScript retain(Map<String, String> parameters) throws TaskExecutionException {
+        GroovyClassScript compiledScript;
+        do {
+            //a script evicted in between is removed from the cache and compiled again
+            compiledScript = (GroovyClassScript) compile(parameters);
+        } while (!compiledScript.retain());
+        return compiledScript;
+    }
+
+    private CompiledScript compile(Map<String, String> parameters) throws TaskExecutionException {
+        String script = parameters.get(SCRIPT);
+        if (script == null) {
+            throw new TaskExecutionException("Parameter '" + SCRIPT + "' is missing");
+        }
+        try {
+            //each script is defined by its own class loader, released when the script is evicted
+            return scriptCache.get(script, source -> GroovyClassScript.compile(source, scriptEngine, getClass().getClassLoader()));
+        } catch (ScriptException ex) {
+            throw new TaskExecutionException(ex.getMessage(), ex);
         }
     }
 
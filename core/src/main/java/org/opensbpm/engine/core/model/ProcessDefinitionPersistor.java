@@ -40,6 +40,8 @@ import org.opensbpm.engine.api.model.definition.StateDefinitionVisitor;
 import org.opensbpm.engine.api.model.definition.SubjectDefinition;
 import org.opensbpm.engine.api.model.definition.SubjectDefinition.ServiceSubjectDefinition;
 import org.opensbpm.engine.api.model.definition.SubjectDefinition.UserSubjectDefinition;
+import org.opensbpm.engine.core.engine.ScriptExecutorService;
+import org.opensbpm.engine.core.engine.TaskProviderManager;
 import org.opensbpm.engine.core.model.entities.AbstractContainerAttributeModel;
 import org.opensbpm.engine.core.model.entities.AttributeModel;
 import org.opensbpm.engine.core.model.entities.FunctionState;
@@ -65,11 +67,17 @@ public class ProcessDefinitionPersistor {
 
     private final ProcessModelService processModelService;
     private final RoleService roleService;
+    private final ScriptExecutorService scriptExecutorService;
+    private final TaskProviderManager taskProviderManager;
 
     public ProcessDefinitionPersistor(ProcessModelService processModelService,
-                                      RoleService roleService) {
+                                      RoleService roleService,
+                                      ScriptExecutorService scriptExecutorService,
+                                      TaskProviderManager taskProviderManager) {
         this.processModelService = processModelService;
         this.roleService = roleService;
+        this.scriptExecutorService = scriptExecutorService;
+        this.taskProviderManager = taskProviderManager;
     }
 
     public ProcessModel saveDefinition(ProcessDefinition definition) {
@@ -86,7 +94,10 @@ public class ProcessDefinitionPersistor {
                 .orElse(new ModelVersion(major, 0));
 
         ProcessModel processModel = new DefinitionConverter(version).convert(definition);
-        return processModelService.save(processModel);
+        ProcessModel savedModel = processModelService.save(processModel);
+        scriptExecutorService.precompileScripts(savedModel);
+        taskProviderManager.prepareTasks(savedModel);
+        return savedModel;
     }
 
     private class DefinitionConverter implements Converter<ProcessDefinition, ProcessModel> {
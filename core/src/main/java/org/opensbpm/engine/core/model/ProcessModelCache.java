@@ -0,0 +1,382 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.model;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import org.opensbpm.engine.api.events.ProcessModelChangedEvent;
+import org.opensbpm.engine.api.model.ProcessModelInfo;
+import org.opensbpm.engine.api.model.ProcessModelState;
+import org.opensbpm.engine.api.model.definition.ObjectDefinition;
+import org.opensbpm.engine.api.model.definition.ObjectDefinition.AttributeDefinition;
+import org.opensbpm.engine.api.model.definition.ObjectDefinition.NestedAttribute;
+import org.opensbpm.engine.api.model.definition.PermissionDefinition;
+import org.opensbpm.engine.api.model.definition.PermissionDefinition.AttributePermissionDefinition;
+import org.opensbpm.engine.api.model.definition.PermissionDefinition.NestedPermissionDefinition;
+import org.opensbpm.engine.api.model.definition.ProcessDefinition;
+import org.opensbpm.engine.api.model.definition.StateDefinition;
+import org.opensbpm.engine.api.model.definition.StateDefinition.FunctionStateDefinition;
+import org.opensbpm.engine.api.model.definition.SubjectDefinition;
+import org.opensbpm.engine.core.model.ProcessModelService.ProcessModelRepository;
+import org.opensbpm.engine.core.model.entities.ProcessModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import static org.opensbpm.engine.core.model.ProcessModelService.ProcessModelSpecifications.withStates;
+
+/**
+ * Process-wide cache of immutable views of {@link ProcessModel}s keyed by the
+ * id of the model. The graph of a model never changes after it was saved, only
+ * its state; so an entry is created once from the managed entity of any
+ * transaction and shared by all threads until the model is updated or deleted.
+ * <p>
+ * Every info and definition entry remembers the version and state of the
+ * model it was created from; an entry which doesn't match the model of a
+ * lookup is replaced. The {@link ProcessModelView}s used to run tasks don't
+ * contain the state, so they are looked up by id only and never read the
+ * model entity on a hit. All entries are evicted on
+ * {@link ProcessModelChangedEvent}s too, which the outbox delivers to every
+ * node, so no node keeps a changed or deleted model.
+ * <p>
+ * If {@code opensbpm.engine.model-cache.preload=true} (default) all active
+ * models are loaded on startup.
+ * <p>
+ * Binds the meters {@code opensbpm.engine.model-cache.size},
+ * {@code .hits}, {@code .misses}, {@code .evictions}, {@code .elements}
+ * (subjects, states, permissions, objects and attributes of all cached
+ * definitions and views) and {@code .estimated-bytes}.
+ */
+@Component
+public class ProcessModelCache implements MeterBinder {
+
+    private static final Logger LOGGER = Logger.getLogger(ProcessModelCache.class.getName());
+
+    /**
+     * rough average size of a cached model element (subject, state,
+     * permission, object or attribute) without its strings
+     */
+    private static final int ELEMENT_BYTES = 96;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, ProcessModelView> views = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    private ProcessModelRepository modelRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${opensbpm.engine.model-cache.preload:true}")
+    private boolean preload;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void preload() {
+        if (preload) {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            int count = transactionTemplate.execute(status -> {
+                List<ProcessModel> processModels = modelRepository.findAll(withStates(Set.of(ProcessModelState.ACTIVE)));
+                processModels.forEach(processModel -> {
+                    getDefinition(processModel);
+                    getView(processModel);
+                });
+                return processModels.size();
+            });
+            LOGGER.log(Level.INFO, "{0} process models preloaded", count);
+        }
+    }
+
+    /**
+     * @param processModel a saved process model
+     * @return the cached info of the given model
+     */
+    public ProcessModelInfo getModelInfo(ProcessModel processModel) {
+        return getEntry(processModel).modelInfo;
+    }
+
+    public List<ProcessModelInfo> getModelInfos(Collection<ProcessModel> processModels) {
+        return processModels.stream()
+                .map(this::getModelInfo)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param processModel a saved process model
+     * @return the cached definition of the given model, converted on first access
+     */
+    public ProcessDefinition getDefinition(ProcessModel processModel) {
+        Entry entry = getEntry(processModel);
+        CachedDefinition cachedDefinition = entry.definition;
+        if (cachedDefinition == null) {
+            synchronized (entry) {
+                cachedDefinition = entry.definition;
+                if (cachedDefinition == null) {
+                    cachedDefinition = new CachedDefinition(ProcessModelConverter.convert(processModel));
+                    entry.definition = cachedDefinition;
+                }
+            }
+        }
+        return cachedDefinition.definition;
+    }
+
+    /**
+     * Returns the view of the model with the id of the given model. Only the
+     * id is read on a hit, so the model may be an uninitialized reference,
+     * e.g. {@link org.opensbpm.engine.core.engine.entities.ProcessInstance#getProcessModel()};
+     * on a miss the whole graph of the model is read within the current
+     * transaction.
+     *
+     * @param processModel a saved process model
+     * @return the cached view of the given model
+     */
+    public ProcessModelView getView(ProcessModel processModel) {
+        Long id = Objects.requireNonNull(processModel.getId(), "processModel must be saved");
+        ProcessModelView view = views.get(id);
+        if (view != null) {
+            hits.incrementAndGet();
+            return view;
+        }
+        misses.incrementAndGet();
+        //convert outside of the map; concurrent misses of the same model may convert twice
+        ProcessModelView newView = ProcessModelView.of(processModel);
+        views.put(id, newView);
+        return newView;
+    }
+
+    private Entry getEntry(ProcessModel processModel) {
+        Long id = Objects.requireNonNull(processModel.getId(), "processModel must be saved");
+        Entry entry = entries.get(id);
+        if (entry != null && entry.isCreatedFrom(processModel)) {
+            hits.incrementAndGet();
+            return entry;
+        }
+        if (entry != null) {
+            evictions.incrementAndGet();
+        }
+        misses.incrementAndGet();
+        //convert outside of the map; concurrent misses of the same model may convert twice
+        Entry newEntry = new Entry(processModel);
+        entries.put(id, newEntry);
+        return newEntry;
+    }
+
+    /**
+     * Removes the model with the given id now and, if called within a
+     * transaction, again after its completion; so a concurrent transaction
+     * can't cache the model before the change is committed.
+     *
+     * @param modelId id of the changed model
+     */
+    public void invalidate(Long modelId) {
+        Objects.requireNonNull(modelId, "modelId must not be null");
+        remove(modelId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(modelId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Evicts the model of the event; models may be changed or deleted by
+     * another node.
+     *
+     * @param changedEvent event of a changed model
+     */
+    @EventListener
+    public void handleProcessModelChangedEvent(ProcessModelChangedEvent changedEvent) {
+        remove(changedEvent.getSource().getId());
+    }
+
+    private void remove(Long modelId) {
+        if (entries.remove(modelId) != null) {
+            evictions.incrementAndGet();
+        }
+        if (views.remove(modelId) != null) {
+            evictions.incrementAndGet();
+        }
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+        views.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("opensbpm.engine.model-cache.size", this, ProcessModelCache::getSize)
+                .description("cached process models")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.model-cache.hits", hits, AtomicLong::get)
+                .description("lookups served from the cache")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.model-cache.misses", misses, AtomicLong::get)
+                .description("lookups which converted the model")
+                .register(registry);
+        FunctionCounter.builder("opensbpm.engine.model-cache.evictions", evictions, AtomicLong::get)
+                .description("entries removed because their model changed")
+                .register(registry);
+        Gauge.builder("opensbpm.engine.model-cache.elements", this,
+                cache -> cache.sumDefinitions(CachedDefinition::getElementCount) + cache.getViewElementCount())
+                .description("subjects, states, permissions, objects and attributes of all cached definitions and views")
+                .register(registry);
+        Gauge.builder("opensbpm.engine.model-cache.estimated-bytes", this,
+                cache -> cache.sumDefinitions(CachedDefinition::getEstimatedBytes) + cache.getViewElementCount() * ELEMENT_BYTES)
+                .description("rough estimate of the heap used by all cached definitions and views")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private long sumDefinitions(ToLongFunction<CachedDefinition> value) {
+        return entries.values().stream()
+                .map(entry -> entry.definition)
+                .filter(Objects::nonNull)
+                .mapToLong(value)
+                .sum();
+    }
+
+    private int getSize() {
+        Set<Long> ids = new HashSet<>(entries.keySet());
+        ids.addAll(views.keySet());
+        return ids.size();
+    }
+
+    private long getViewElementCount() {
+        return views.values().stream()
+                .mapToLong(ProcessModelView::getElementCount)
+                .sum();
+    }
+
+    private static class Entry {
+
+        private final ProcessModelInfo modelInfo;
+        private volatile CachedDefinition definition;
+
+        private Entry(ProcessModel processModel) {
+            modelInfo = ModelConverter.convertModel(processModel);
+        }
+
+        private boolean isCreatedFrom(ProcessModel processModel) {
+            return modelInfo.getState() == processModel.getState()
+                    && modelInfo.getVersion().equals(processModel.getVersion().toString());
+        }
+
+    }
+
+    private static class CachedDefinition {
+
+        private final ProcessDefinition definition;
+        private long elementCount;
+        private long estimatedBytes;
+
+        private CachedDefinition(ProcessDefinition definition) {
+            this.definition = definition;
+            addElement(definition.getName(), definition.getDescription());
+            definition.getSubjects().forEach(this::addSubject);
+            definition.getObjects().forEach(this::addObject);
+        }
+
+        private void addSubject(SubjectDefinition subject) {
+            addElement(subject.getName());
+            subject.getStates().forEach(this::addState);
+        }
+
+        private void addState(StateDefinition state) {
+            addElement(state.getName(), state.getDisplayName());
+            if (state instanceof FunctionStateDefinition functionState) {
+                functionState.getPermissions().forEach(this::addPermission);
+            }
+        }
+
+        private void addPermission(PermissionDefinition permission) {
+            addElement();
+            addAttributePermissions(permission.getAttributePermissions());
+        }
+
+        private void addAttributePermissions(List<AttributePermissionDefinition> attributePermissions) {
+            for (AttributePermissionDefinition attributePermission : attributePermissions) {
+                addElement(attributePermission.getDefaultValue().orElse(null));
+                if (attributePermission instanceof NestedPermissionDefinition nestedPermission) {
+                    addAttributePermissions(nestedPermission.getAttributePermissions());
+                }
+            }
+        }
+
+        private void addObject(ObjectDefinition object) {
+            addElement(object.getName(), object.getDisplayName());
+            addAttributes(object.getAttributes());
+        }
+
+        private void addAttributes(List<AttributeDefinition> attributes) {
+            for (AttributeDefinition attribute : attributes) {
+                addElement(attribute.getName());
+                if (attribute instanceof NestedAttribute nestedAttribute) {
+                    addAttributes(nestedAttribute.getAttributes());
+                }
+            }
+        }
+
+        private long getElementCount() {
+            return elementCount;
+        }
+
+        private long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        private void addElement(String... strings) {
+            elementCount++;
+            estimatedBytes += ELEMENT_BYTES;
+            for (String string : strings) {
+                if (string != null) {
+                    //header, length and hash of the string plus one byte per latin1 char
+                    estimatedBytes += 40 + string.length();
+                }
+            }
+        }
+
+    }
+
+}
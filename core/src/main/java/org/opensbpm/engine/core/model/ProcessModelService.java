@@ -66,6 +66,9 @@ public class ProcessModelService {
     @Autowired
     private EngineEventPublisher eventPublisher;
 
+    @Autowired
+    private ProcessModelCache modelCache;
+
     @Transactional(readOnly = true, noRollbackFor = Exception.class)
     public List<ProcessModel> findAllByStates(Set<ProcessModelState> states) {
         return modelRepository.findAll(withStates(states));
@@ -95,6 +98,9 @@ public class ProcessModelService {
 //        if (processModel.getId() != null) {
 //            throw new IllegalStateException("can't update ProcessModel");
 //        }
+        if (processModel.getId() != null) {
+            modelCache.invalidate(processModel.getId());
+        }
         ProcessModel savedModel = modelRepository.save(processModel);
         eventPublisher.fireProcessModelChanged(savedModel, Type.CREATE);
         return savedModel;
@@ -103,6 +109,7 @@ public class ProcessModelService {
     public void updateState(ProcessModel processModel, ProcessModelState newState) {
         processModel.setState(newState);
         modelRepository.save(processModel);
+        modelCache.invalidate(processModel.getId());
 
         eventPublisher.fireProcessModelUpdate(processModel);
     }
@@ -114,6 +121,7 @@ public class ProcessModelService {
         entityManager.createNativeQuery("SET REFERENTIAL_INTEGRITY FALSE").executeUpdate();
         modelRepository.delete(processModel);
         entityManager.createNativeQuery("SET REFERENTIAL_INTEGRITY TRUE").executeUpdate();
+        modelCache.invalidate(processModel.getId());
 
     }
 
@@ -0,0 +1,517 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.model;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.opensbpm.engine.api.model.FieldType;
+import org.opensbpm.engine.api.model.definition.PermissionDefinition.Permission;
+import org.opensbpm.engine.core.model.entities.AttributeModel;
+import org.opensbpm.engine.core.model.entities.AttributeModelVisitor;
+import org.opensbpm.engine.core.model.entities.FunctionState;
+import org.opensbpm.engine.core.model.entities.IndexedAttributeModel;
+import org.opensbpm.engine.core.model.entities.MessageModel;
+import org.opensbpm.engine.core.model.entities.NestedAttributeModel;
+import org.opensbpm.engine.core.model.entities.ObjectModel;
+import org.opensbpm.engine.core.model.entities.ProcessModel;
+import org.opensbpm.engine.core.model.entities.ReceiveState;
+import org.opensbpm.engine.core.model.entities.SendState;
+import org.opensbpm.engine.core.model.entities.SimpleAttributeModel;
+import org.opensbpm.engine.core.model.entities.State;
+import org.opensbpm.engine.core.model.entities.StatePermission;
+import org.opensbpm.engine.core.model.entities.StateVisitor;
+import org.opensbpm.engine.core.model.entities.SubjectModel;
+
+/**
+ * Immutable copy of the graph of a {@link ProcessModel}: its subjects, states,
+ * permissions and objects, each keyed by the id of its entity. A view is
+ * created once by the {@link ProcessModelCache} and read by any thread without
+ * touching the persistence context; runtime entities refer to its elements by
+ * id only.
+ */
+public final class ProcessModelView {
+
+    /**
+     * @param processModel a saved process model; its whole graph is read
+     * @return a new view of the given model
+     */
+    public static ProcessModelView of(ProcessModel processModel) {
+        return new ProcessModelView(processModel);
+    }
+
+    private final Long id;
+    private final String name;
+    private final String version;
+    private final Map<Long, SubjectView> subjects;
+    private final Map<Long, StateView> states;
+    private final List<ObjectView> objects;
+    private final Map<Long, ObjectView> objectsById;
+    private final long elementCount;
+
+    private ProcessModelView(ProcessModel processModel) {
+        id = processModel.getId();
+        name = processModel.getName();
+        version = processModel.getVersion().toString();
+
+        Map<Long, SubjectView> subjectViews = new HashMap<>();
+        Map<Long, StateView> stateViews = new HashMap<>();
+        //heads and message heads are added too, even if their subject isn't part of the model
+        Deque<State> pending = new ArrayDeque<>();
+        for (SubjectModel subjectModel : processModel.getSubjectModels()) {
+            subjectViews.put(subjectModel.getId(), new SubjectView(subjectModel));
+            pending.addAll(subjectModel.getStates());
+        }
+        while (!pending.isEmpty()) {
+            State state = pending.pop();
+            if (!stateViews.containsKey(state.getId())) {
+                stateViews.put(state.getId(), StateView.of(state));
+                pending.addAll(state.getHeads());
+            }
+        }
+        subjects = Collections.unmodifiableMap(subjectViews);
+        states = Collections.unmodifiableMap(stateViews);
+
+        objects = processModel.getObjectModels().stream()
+                .map(ObjectView::new)
+                .collect(Collectors.toUnmodifiableList());
+        Map<Long, ObjectView> objectViews = new HashMap<>();
+        objects.forEach(object -> objectViews.put(object.getId(), object));
+        objectsById = Collections.unmodifiableMap(objectViews);
+
+        elementCount = subjects.size()
+                + states.values().stream().mapToLong(state -> 1 + state.permissions.size()).sum()
+                + objects.stream().mapToLong(object -> 1 + object.getAllAttributes().count()).sum();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @param subjectModelId id of a subject model of this model
+     * @return the view of the subject model
+     * @throws IllegalArgumentException if the subject model isn't part of this model
+     */
+    public SubjectView getSubject(Long subjectModelId) {
+        return get(subjects, subjectModelId, "subject model");
+    }
+
+    /**
+     * @param stateId id of a state of this model
+     * @return the view of the state
+     * @throws IllegalArgumentException if the state isn't part of this model
+     */
+    public StateView getState(Long stateId) {
+        return get(states, stateId, "state");
+    }
+
+    public List<StateView> getHeads(StateView state) {
+        return state.headIds.stream()
+                .map(this::getState)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Resolves the state a user works on in the given state: a function state
+     * is visible itself, a receive state by the head of its first message
+     * which is received already.
+     *
+     * @param state current state of a subject
+     * @param hasUnconsumedMessages whether the subject has unconsumed messages
+     * of the object model with the given id
+     * @return the visible function state, or {@link Optional#empty()} if there
+     * is none
+     */
+    public Optional<StateView> getVisibleState(StateView state, Predicate<Long> hasUnconsumedMessages) {
+        switch (state.getType()) {
+            case FUNCTION:
+                return Optional.of(state);
+            case RECEIVE:
+                return state.messages.stream()
+                        .filter(message -> hasUnconsumedMessages.test(message.objectModelId))
+                        .findFirst()
+                        .flatMap(message -> getVisibleState(getState(message.headId), hasUnconsumedMessages));
+            default:
+                return Optional.empty();
+        }
+    }
+
+    public List<ObjectView> getObjects() {
+        return objects;
+    }
+
+    /**
+     * @param objectModelId id of an object model of this model
+     * @return the view of the object model
+     * @throws IllegalArgumentException if the object model isn't part of this model
+     */
+    public ObjectView getObject(Long objectModelId) {
+        return get(objectsById, objectModelId, "object model");
+    }
+
+    /**
+     * @return number of subjects, states, permissions, objects and attributes
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    private <T> T get(Map<Long, T> views, Long viewId, String type) {
+        T view = views.get(viewId);
+        if (view == null) {
+            throw new IllegalArgumentException(type + " " + viewId + " not found in process model " + id);
+        }
+        return view;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessModelView[id=" + id + ",name=" + name + ",version=" + version + "]";
+    }
+
+    public static final class SubjectView {
+
+        private final Long id;
+        private final String name;
+
+        private SubjectView(SubjectModel subjectModel) {
+            id = subjectModel.getId();
+            name = subjectModel.getName();
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+    }
+
+    public static final class StateView {
+
+        public enum Type {
+            FUNCTION, RECEIVE, SEND
+        }
+
+        private final Long id;
+        private final String name;
+        private final String displayName;
+        private final Type type;
+        private final boolean end;
+        private final String providerName;
+        private final Map<String, String> parameters;
+        private final List<Long> headIds;
+        private final List<MessageView> messages;
+        private final Map<Long, PermissionView> permissions;
+
+        //states may be lazy proxies, so the visitor resolves the concrete type
+        private static StateView of(State state) {
+            return state.accept(new StateVisitor<StateView>() {
+                @Override
+                public StateView visitFunctionState(FunctionState functionState) {
+                    Map<Long, PermissionView> permissionViews = new LinkedHashMap<>();
+                    functionState.getStatePermissions().stream()
+                            .flatMap(statePermission -> Stream.concat(Stream.of(statePermission), statePermission.getAllPermissions()))
+                            .forEach(statePermission -> permissionViews.put(statePermission.getAttributeModel().getId(),
+                            new PermissionView(statePermission)));
+                    return new StateView(functionState, Type.FUNCTION,
+                            functionState.getProviderName(),
+                            Collections.unmodifiableMap(new HashMap<>(functionState.getParameters())),
+                            Collections.unmodifiableMap(permissionViews),
+                            Collections.emptyList());
+                }
+
+                @Override
+                public StateView visitReceiveState(ReceiveState receiveState) {
+                    return new StateView(receiveState, Type.RECEIVE, null,
+                            Collections.emptyMap(),
+                            Collections.emptyMap(),
+                            receiveState.getMessageModels().stream()
+                                    .map(MessageView::new)
+                                    .collect(Collectors.toUnmodifiableList()));
+                }
+
+                @Override
+                public StateView visitSendState(SendState sendState) {
+                    return new StateView(sendState, Type.SEND, null,
+                            Collections.emptyMap(),
+                            Collections.emptyMap(),
+                            Collections.emptyList());
+                }
+            });
+        }
+
+        private StateView(State state, Type type, String providerName, Map<String, String> parameters,
+                Map<Long, PermissionView> permissions, List<MessageView> messages) {
+            this.id = state.getId();
+            this.name = state.getName();
+            this.displayName = state.getDisplayName();
+            this.end = state.isEnd();
+            this.headIds = state.getHeads().stream()
+                    .map(State::getId)
+                    .collect(Collectors.toUnmodifiableList());
+            this.type = type;
+            this.providerName = providerName;
+            this.parameters = parameters;
+            this.permissions = permissions;
+            this.messages = messages;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the display name script, or {@code null} if the name is
+         * displayed
+         */
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public boolean isFunction() {
+            return Type.FUNCTION == type;
+        }
+
+        public boolean isEnd() {
+            return end;
+        }
+
+        public String getProviderName() {
+            return providerName;
+        }
+
+        public Map<String, String> getParameters() {
+            return parameters;
+        }
+
+        public boolean hasHead(Long stateId) {
+            return headIds.contains(stateId);
+        }
+
+        public Optional<PermissionView> findPermission(Long attributeId) {
+            return Optional.ofNullable(permissions.get(attributeId));
+        }
+
+        public boolean hasAnyPermission(Long attributeId) {
+            return permissions.containsKey(attributeId);
+        }
+
+        public boolean hasAnyPermission(ObjectView object) {
+            return object.getAllAttributes()
+                    .anyMatch(attribute -> hasAnyPermission(attribute.getId()));
+        }
+
+        @Override
+        public String toString() {
+            return "StateView[id=" + id + ",name=" + name + ",type=" + type + "]";
+        }
+
+    }
+
+    public static final class PermissionView {
+
+        private final Permission permission;
+        private final boolean mandatory;
+        private final String defaultValue;
+
+        private PermissionView(StatePermission statePermission) {
+            permission = statePermission.getPermission();
+            mandatory = statePermission.isMandatory();
+            defaultValue = statePermission.getDefaultValue().orElse(null);
+        }
+
+        public Permission getPermission() {
+            return permission;
+        }
+
+        public boolean isMandatory() {
+            return mandatory;
+        }
+
+        public Optional<String> getDefaultValue() {
+            return Optional.ofNullable(defaultValue);
+        }
+
+    }
+
+    private static final class MessageView {
+
+        private final Long objectModelId;
+        private final Long headId;
+
+        private MessageView(MessageModel messageModel) {
+            objectModelId = messageModel.getObjectModel().getId();
+            headId = messageModel.getHead().getId();
+        }
+
+    }
+
+    public static final class ObjectView {
+
+        private final Long id;
+        private final String name;
+        private final String displayName;
+        private final List<AttributeView> attributes;
+
+        private ObjectView(ObjectModel objectModel) {
+            id = objectModel.getId();
+            name = objectModel.getName();
+            displayName = objectModel.getDisplayName().orElse(null);
+            attributes = AttributeView.of(objectModel.getAttributeModels());
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the display name script, if any
+         */
+        public Optional<String> getDisplayName() {
+            return Optional.ofNullable(displayName);
+        }
+
+        public List<AttributeView> getAttributes() {
+            return attributes;
+        }
+
+        public Stream<AttributeView> getAllAttributes() {
+            return attributes.stream()
+                    .flatMap(AttributeView::withAllAttributes);
+        }
+
+    }
+
+    public static final class AttributeView {
+
+        public enum Type {
+            SIMPLE, NESTED, INDEXED
+        }
+
+        private static List<AttributeView> of(Collection<AttributeModel> attributeModels) {
+            return attributeModels.stream()
+                    .map(attributeModel -> attributeModel.accept(new AttributeModelVisitor<AttributeView>() {
+                @Override
+                public AttributeView visitSimple(SimpleAttributeModel simpleAttribute) {
+                    return new AttributeView(simpleAttribute, Type.SIMPLE, simpleAttribute.getFieldType(),
+                            simpleAttribute.isIndexed(), Collections.emptyList());
+                }
+
+                @Override
+                public AttributeView visitNested(NestedAttributeModel nestedAttribute) {
+                    return new AttributeView(nestedAttribute, Type.NESTED, null, false,
+                            of(nestedAttribute.getAttributeModels()));
+                }
+
+                @Override
+                public AttributeView visitIndexed(IndexedAttributeModel indexedAttribute) {
+                    return new AttributeView(indexedAttribute, Type.INDEXED, null, false,
+                            of(indexedAttribute.getAttributeModels()));
+                }
+            }))
+                    .collect(Collectors.toUnmodifiableList());
+        }
+
+        private final Long id;
+        private final String name;
+        private final Type type;
+        private final FieldType fieldType;
+        private final boolean indexed;
+        private final List<AttributeView> attributes;
+
+        private AttributeView(AttributeModel attributeModel, Type type, FieldType fieldType, boolean indexed,
+                List<AttributeView> attributes) {
+            this.id = attributeModel.getId();
+            this.name = attributeModel.getName();
+            this.type = type;
+            this.fieldType = fieldType;
+            this.indexed = indexed;
+            this.attributes = attributes;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * @return type of a simple attribute, otherwise {@code null}
+         */
+        public FieldType getFieldType() {
+            return fieldType;
+        }
+
+        public boolean isIndexed() {
+            return indexed;
+        }
+
+        /**
+         * @return attributes of a nested or indexed attribute
+         */
+        public List<AttributeView> getAttributes() {
+            return attributes;
+        }
+
+        private Stream<AttributeView> withAllAttributes() {
+            return Stream.concat(Stream.of(this), attributes.stream()
+                    .flatMap(AttributeView::withAllAttributes));
+        }
+
+    }
+
+}
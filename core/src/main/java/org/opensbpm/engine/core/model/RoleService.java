@@ -18,9 +18,12 @@ package org.opensbpm.engine.core.model;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import jakarta.persistence.QueryHint;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Root;
@@ -32,6 +35,9 @@ import org.opensbpm.engine.core.model.entities.Role_;
 import org.opensbpm.engine.core.utils.repositories.JpaSpecificationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -65,23 +71,29 @@ public class RoleService {
 
     public Role save(Role role) {
         Type type = role.getId() == null ? Type.CREATE : Type.UPDATE;
-//        Set<Long> oldUsers = role.getId() == null ? Collections.emptySet()
-//                : mapToSet(roleEntityService.retrieve(role.getId()).getAllUsers(), user -> user.getId());
+        Collection<User> oldUsers = role.getId() == null ? Collections.emptyList()
+                : roleRepository.findPersistedUsers(role.getId());
 
         Role savedRole = roleRepository.save(role);
         eventPublisher.fireRoleChanged(role, type);
 
-        //publish changes
-        Set<Long> newUsers = savedRole.getAllUsers().stream()
-                .map(user -> user.getId())
-                .collect(Collectors.toSet());
-//        publishUserEvents(savedRole, subtract(oldUsers, newUsers), Type.DELETE);
-//        publishUserEvents(savedRole, subtract(newUsers, oldUsers), Type.CREATE);        
-        eventPublisher.publishUserEvents(savedRole, savedRole.getAllUsers(), Type.CREATE);
+        //publish changes of membership only
+        Collection<User> newUsers = savedRole.getAllUsers();
+        eventPublisher.publishUserEvents(savedRole, subtract(oldUsers, newUsers), Type.DELETE);
+        eventPublisher.publishUserEvents(savedRole, subtract(newUsers, oldUsers), Type.CREATE);
 
         return savedRole;
     }
 
+    private static Collection<User> subtract(Collection<User> users, Collection<User> subtrahend) {
+        Set<Long> subtrahendIds = subtrahend.stream()
+                .map(User::getId)
+                .collect(Collectors.toSet());
+        return users.stream()
+                .filter(user -> !subtrahendIds.contains(user.getId()))
+                .collect(Collectors.toList());
+    }
+
     @Transactional
     public void delete(Role role) {
         for (User user : new ArrayList<>(role.getUsers())) {
@@ -96,6 +108,14 @@ public class RoleService {
     @Repository
     public interface RoleRepository extends JpaSpecificationRepository<Role, Long> {
 
+        /**
+         * @return the users of the role as stored in the database, ignoring
+         * unflushed changes of the current transaction
+         */
+        @Query("select u from roles r join r.users u where r.id = :roleId")
+        @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "COMMIT"))
+        List<User> findPersistedUsers(@Param("roleId") Long roleId);
+
     }
 
     static final class RoleSpecifications {
@@ -17,15 +17,84 @@
 package org.opensbpm.engine.core.utils.repositories;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.KeysetScrollSpecification;
+import org.springframework.data.jpa.repository.query.ScrollDelegate;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.util.Assert;
 
 public class DefaultJpaSpecificationRepository<T, ID extends Serializable> extends SimpleJpaRepository<T, ID>
         implements JpaSpecificationRepository<T, ID> {
 
+    private static final String LOAD_GRAPH = "jakarta.persistence.loadgraph";
+
+    private final JpaEntityInformation<T, ID> entityInformation;
+    private final EntityManager entityManager;
+
     public DefaultJpaSpecificationRepository(JpaEntityInformation<T, ID> entityInformation, EntityManager entityManager) {
         super(entityInformation, entityManager);
+        this.entityInformation = entityInformation;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<T> findAll(Specification<T> spec, Sort sort, String entityGraph) {
+        return withEntityGraph(getQuery(spec, sort), entityGraph).getResultList();
+    }
+
+    @Override
+    public Page<T> findAll(Specification<T> spec, Pageable pageable, String entityGraph) {
+        TypedQuery<T> query = withEntityGraph(getQuery(spec, pageable), entityGraph);
+        return pageable.isUnpaged()
+                ? new PageImpl<>(query.getResultList())
+                : readPage(query, getDomainClass(), pageable, spec);
+    }
+
+    @Override
+    public Window<T> findAll(Specification<T> spec, Sort sort, ScrollPosition position, int limit, String entityGraph) {
+        Assert.isInstanceOf(KeysetScrollPosition.class, position, "only keyset scrolling is supported");
+        KeysetScrollSpecification<T> keyset = new KeysetScrollSpecification<>((KeysetScrollPosition) position, sort,
+                entityInformation);
+        TypedQuery<T> query = withEntityGraph(getQuery(keyset.and(spec), keyset.sort()), entityGraph);
+        query.setMaxResults(limit);
+        return new ScrollDelegate<T>(entityInformation) {
+        }.scroll(query, sort, position);
+    }
+
+    @Override
+    public void fetch(Collection<T> entities, String entityGraph) {
+        if (!entities.isEmpty()) {
+            List<ID> ids = entities.stream()
+                    .map(entityInformation::getId)
+                    .collect(Collectors.toList());
+            Specification<T> withIds = (root, query, cb) -> root.get(entityInformation.getIdAttribute()).in(ids);
+            withEntityGraph(getQuery(withIds, Sort.unsorted()), entityGraph).getResultList();
+        }
+    }
+
+    @Override
+    public Optional<T> findById(ID id, String entityGraph) {
+        return Optional.ofNullable(entityManager.find(getDomainClass(), id,
+                Map.of(LOAD_GRAPH, entityManager.getEntityGraph(entityGraph))));
+    }
+
+    private TypedQuery<T> withEntityGraph(TypedQuery<T> query, String entityGraph) {
+        return query.setHint(LOAD_GRAPH, entityManager.getEntityGraph(entityGraph));
     }
 
 }
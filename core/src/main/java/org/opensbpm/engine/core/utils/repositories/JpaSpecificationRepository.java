@@ -17,6 +17,15 @@
 package org.opensbpm.engine.core.utils.repositories;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.NoRepositoryBean;
@@ -25,4 +34,63 @@ import org.springframework.data.repository.NoRepositoryBean;
 public interface JpaSpecificationRepository<T, ID extends Serializable> extends JpaRepository<T, ID>,
         JpaSpecificationExecutor<T> {
 
+    /**
+     * Find all entities matching the given specification. All associations of
+     * the named entity graph are fetched with the entities. The graph should
+     * contain only to-one associations if a {@link Pageable} is used; to-many
+     * associations would be paged in memory.
+     *
+     * @param spec specification of the entities, may be {@code null}
+     * @param sort order of the entities
+     * @param entityGraph name of the entity graph
+     * @return all matching entities
+     */
+    List<T> findAll(Specification<T> spec, Sort sort, String entityGraph);
+
+    /**
+     * Like {@link #findAll(Specification, Sort, String)}, but only the
+     * requested page.
+     *
+     * @param spec specification of the entities, may be {@code null}
+     * @param pageable page to find
+     * @param entityGraph name of the entity graph
+     * @return the requested page
+     */
+    Page<T> findAll(Specification<T> spec, Pageable pageable, String entityGraph);
+
+    /**
+     * Like {@link #findAll(Specification, Sort, String)}, but only the window
+     * after the given keyset position. The window is sought by the keyset
+     * of the sort properties, so deep windows are as cheap as the first one.
+     *
+     * @param spec specification of the entities, may be {@code null}
+     * @param sort order of the entities; must end with a unique property
+     * @param position {@link ScrollPosition#keyset()} for the first window,
+     * otherwise a position of the previous window
+     * @param limit maximum number of entities in the window
+     * @param entityGraph name of the entity graph
+     * @return the requested window
+     * @throws IllegalArgumentException if the position isn't a keyset position
+     */
+    Window<T> findAll(Specification<T> spec, Sort sort, ScrollPosition position, int limit, String entityGraph);
+
+    /**
+     * Load the associations of the named entity graph of the given managed
+     * entities with one query. Meant for to-many associations of a page or
+     * window, which can't be fetched with the page itself.
+     *
+     * @param entities managed entities
+     * @param entityGraph name of the entity graph
+     */
+    void fetch(Collection<T> entities, String entityGraph);
+
+    /**
+     * Find an entity by its id, loaded with the given named entity graph.
+     *
+     * @param id id of the entity
+     * @param entityGraph name of the entity graph
+     * @return the entity or {@link Optional#empty()} if not found
+     */
+    Optional<T> findById(ID id, String entityGraph);
+
 }
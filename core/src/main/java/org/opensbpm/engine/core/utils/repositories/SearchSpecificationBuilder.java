@@ -0,0 +1,194 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.utils.repositories;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.opensbpm.engine.api.SearchFilter;
+import org.opensbpm.engine.api.SearchFilter.Criteria;
+import org.opensbpm.engine.api.SearchFilter.Criteria.Operation;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Compiles a {@link SearchFilter} into a {@link Specification} of an entity.
+ * <p>
+ * Every supported key is mapped to a typed expression of the entity, the value
+ * of a criteria is converted to the type of its expression. Keys of the form
+ * {@code object.attribute} are passed to the attribute specification, if any.
+ *
+ * @param <T> type of the entity
+ */
+public class SearchSpecificationBuilder<T> {
+
+    @FunctionalInterface
+    public interface AttributeSpecification<T> {
+
+        Specification<T> create(String objectName, String attributeName, Operation operation, Object value);
+    }
+
+    private final Map<String, Function<Criteria, Specification<T>>> keys = new LinkedHashMap<>();
+    private AttributeSpecification<T> attributeSpecification;
+
+    /**
+     * Supports the given key.
+     *
+     * @param <Y> type of the expression
+     * @param key key of the criterias
+     * @param type type the values are converted to
+     * @param expression expression the values are compared with
+     * @return this builder
+     */
+    public <Y extends Comparable<? super Y>> SearchSpecificationBuilder<T> with(String key, Class<Y> type,
+            Function<Root<T>, Expression<Y>> expression) {
+        Objects.requireNonNull(type, "type must not be null");
+        Objects.requireNonNull(expression, "expression must not be null");
+        keys.put(key, criteria -> {
+            Y value = convert(criteria, type);
+            return (Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb)
+                    -> compare(cb, expression.apply(root), criteria.getOperation(), value);
+        });
+        return this;
+    }
+
+    /**
+     * Supports keys of the form {@code object.attribute}.
+     *
+     * @param attributeSpecification specification of the attribute of an object
+     * @return this builder
+     */
+    public SearchSpecificationBuilder<T> withAttributes(AttributeSpecification<T> attributeSpecification) {
+        this.attributeSpecification = Objects.requireNonNull(attributeSpecification, "attributeSpecification must not be null");
+        return this;
+    }
+
+    /**
+     * @param searchFilter filter to compile, may be {@code null}
+     * @return specification matching all criterias of the filter
+     * @throws IllegalArgumentException if a key is not supported or a value can't be converted
+     */
+    public Specification<T> build(SearchFilter searchFilter) {
+        Specification<T> specification = (Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb) -> cb.conjunction();
+        if (searchFilter != null) {
+            for (Criteria criteria : searchFilter.getCriterias()) {
+                specification = specification.and(createSpecification(criteria));
+            }
+        }
+        return specification;
+    }
+
+    private Specification<T> createSpecification(Criteria criteria) {
+        Objects.requireNonNull(criteria.getOperation(), "operation of " + criteria.getKey() + " must not be null");
+        Function<Criteria, Specification<T>> keySpecification = keys.get(criteria.getKey());
+        if (keySpecification != null) {
+            return keySpecification.apply(criteria);
+        }
+        int separator = criteria.getKey() == null ? -1 : criteria.getKey().indexOf('.');
+        if (attributeSpecification != null && separator > 0) {
+            return attributeSpecification.create(criteria.getKey().substring(0, separator),
+                    criteria.getKey().substring(separator + 1), criteria.getOperation(),
+                    Objects.requireNonNull(criteria.getValue(), "value of " + criteria.getKey() + " must not be null"));
+        }
+        throw new IllegalArgumentException("unknown search key " + criteria.getKey() + ", supported are " + keys.keySet());
+    }
+
+    private static <Y> Y convert(Criteria criteria, Class<Y> type) {
+        Object value = Objects.requireNonNull(criteria.getValue(), "value of " + criteria.getKey() + " must not be null");
+        if (type.isInstance(value)) {
+            return type.cast(value);
+        }
+        try {
+            return type.cast(parse(type, value));
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("value " + value + " of " + criteria.getKey() + " is not a " + type.getSimpleName(), ex);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object parse(Class<?> type, Object value) {
+        String string = value.toString();
+        if (type == String.class) {
+            return string;
+        } else if (type == Long.class) {
+            return value instanceof Number ? ((Number) value).longValue() : Long.valueOf(string);
+        } else if (type == Integer.class) {
+            return value instanceof Number ? ((Number) value).intValue() : Integer.valueOf(string);
+        } else if (type == BigDecimal.class) {
+            return new BigDecimal(string);
+        } else if (type == Boolean.class) {
+            return Boolean.valueOf(string);
+        } else if (type == LocalDate.class) {
+            return LocalDate.parse(string);
+        } else if (type == LocalDateTime.class) {
+            //a date is the start of the day
+            return value instanceof LocalDate ? ((LocalDate) value).atStartOfDay()
+                    : string.indexOf('T') < 0 ? LocalDate.parse(string).atStartOfDay() : LocalDateTime.parse(string);
+        } else if (type.isEnum()) {
+            return Enum.valueOf((Class<Enum>) type, string);
+        }
+        throw new UnsupportedOperationException("type " + type + " not supported");
+    }
+
+    /**
+     * @param pageable requested page
+     * @param sort sort to use if the page is unsorted
+     * @return the requested page, sorted by the given sort if it is unsorted
+     */
+    public static Pageable withDefaultSort(Pageable pageable, Sort sort) {
+        if (pageable.getSort().isSorted()) {
+            return pageable;
+        }
+        return pageable.isPaged()
+                ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort)
+                : Pageable.unpaged(sort);
+    }
+
+    /**
+     * @return predicate comparing the expression with the value by the given operation
+     */
+    public static <Y extends Comparable<? super Y>> Predicate compare(CriteriaBuilder cb, Expression<Y> expression, Operation operation, Y value) {
+        switch (operation) {
+            case GREATERTHAN:
+                return cb.greaterThan(expression, value);
+            case GREATERTHAN_EQUALTO:
+                return cb.greaterThanOrEqualTo(expression, value);
+            case LESSTHAN:
+                return cb.lessThan(expression, value);
+            case LESSTHAN_EQUALTO:
+                return cb.lessThanOrEqualTo(expression, value);
+            case EQUALTO:
+                return cb.equal(expression, value);
+            default:
+                throw new UnsupportedOperationException("Operation " + operation + " not supported");
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * JMH-Benchmark of the {@link AsyncConfig.Mode executor modes} with service
+ * tasks blocking on I/O. Every operation executes a batch of tasks, each
+ * simulating a {@code TaskExecutionProvider} which waits for a remote call.
+ * Both modes run at most {@code concurrency} tasks at the same time, so the
+ * difference is the cost of the threads and not of the limit.
+ * {@link AsyncConfig.Mode#VIRTUAL} requires Java 21 or later.
+ * <p>
+ * Run with
+ * {@code mvn -pl core test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test -Dexec.args="-cp %classpath org.openjdk.jmh.Main AsyncExecutorBenchmark"}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsyncExecutorBenchmark {
+
+    private static final int TASKS = 100;
+    private static final long IO_MILLIS = 20;
+
+    @Param({"POOL", "VIRTUAL"})
+    private AsyncConfig.Mode mode;
+
+    @Param({"2", "64"})
+    private int concurrency;
+
+    private Executor executor;
+    private ThreadPoolTaskExecutor poolExecutor;
+
+    @Setup
+    public void setUp() {
+        if (AsyncConfig.Mode.VIRTUAL == mode) {
+            executor = new ThreadPerTaskExecutor(ThreadPerTaskExecutor.createVirtualThreadFactory("Benchmark-"), concurrency, 500);
+        } else {
+            poolExecutor = new ThreadPoolTaskExecutor();
+            poolExecutor.setCorePoolSize(concurrency);
+            poolExecutor.setMaxPoolSize(concurrency);
+            poolExecutor.setQueueCapacity(500);
+            poolExecutor.initialize();
+            executor = poolExecutor;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (poolExecutor != null) {
+            poolExecutor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void executeBlockingTasks() throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(TASKS);
+        for (int task = 0; task < TASKS; task++) {
+            executor.execute(() -> {
+                try {
+                    //remote call of the provider
+                    Thread.sleep(IO_MILLIS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                finished.countDown();
+            });
+        }
+        finished.await();
+    }
+
+}
@@ -0,0 +1,108 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.opensbpm.engine.api.events.EngineEvent;
+import org.opensbpm.engine.api.events.EngineEvent.Type;
+import org.opensbpm.engine.api.events.ProcessInstanceChangedEvent;
+import org.opensbpm.engine.api.events.UserTaskChangedEvent;
+import org.opensbpm.engine.api.instance.ProcessInfo;
+import org.opensbpm.engine.api.instance.TaskInfo;
+import org.opensbpm.engine.core.EngineEventCoalescer.FiredEvent;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class EngineEventCoalescerTest {
+
+    @Test
+    public void testCoalesceRemovesCreatedAndDeletedTask() {
+        //given
+        EngineEvent<?> deleteOld = new UserTaskChangedEvent(1l, createTaskInfo(10l, "Old"), Type.DELETE);
+        EngineEvent<?> createIntermediate = new UserTaskChangedEvent(1l, createTaskInfo(10l, "Intermediate"), Type.CREATE);
+        EngineEvent<?> deleteIntermediate = new UserTaskChangedEvent(1l, createTaskInfo(10l, "Intermediate"), Type.DELETE);
+        EngineEvent<?> createOtherUser = new UserTaskChangedEvent(2l, createTaskInfo(10l, "Intermediate"), Type.CREATE);
+        EngineEvent<?> createNew = new UserTaskChangedEvent(1l, createTaskInfo(10l, "New"), Type.CREATE);
+
+        //when
+        List<EngineEvent<?>> result = EngineEventCoalescer.coalesce(Arrays.asList(
+                deleteOld, createIntermediate, deleteIntermediate, createOtherUser, createNew
+        ));
+
+        //then
+        assertThat(result, contains(deleteOld, createOtherUser, createNew));
+    }
+
+    @Test
+    public void testCoalesceKeepsLastUpdate() {
+        //given
+        EngineEvent<?> create = new ProcessInstanceChangedEvent(createProcessInfo(20l), Type.CREATE);
+        EngineEvent<?> firstUpdate = new ProcessInstanceChangedEvent(createProcessInfo(20l), Type.UPDATE);
+        EngineEvent<?> otherUpdate = new ProcessInstanceChangedEvent(createProcessInfo(21l), Type.UPDATE);
+        EngineEvent<?> lastUpdate = new ProcessInstanceChangedEvent(createProcessInfo(20l), Type.UPDATE);
+
+        //when
+        List<EngineEvent<?>> result = EngineEventCoalescer.coalesce(Arrays.asList(
+                create, firstUpdate, otherUpdate, lastUpdate
+        ));
+
+        //then
+        assertThat(result, contains(create, otherUpdate, lastUpdate));
+    }
+
+    @Test
+    public void testCoalesceFiredCreatesOnlyRemainingEvents() {
+        //given
+        List<String> createdEvents = new ArrayList<>();
+        FiredEvent create = FiredEvent.ofTask(UserTaskChangedEvent.class, 1l, 10l, Type.CREATE, () -> {
+            createdEvents.add("create");
+            return new UserTaskChangedEvent(1l, createTaskInfo(10l, "Intermediate"), Type.CREATE);
+        });
+        FiredEvent delete = FiredEvent.ofTask(UserTaskChangedEvent.class, 1l, 10l, Type.DELETE, () -> {
+            createdEvents.add("delete");
+            return new UserTaskChangedEvent(1l, createTaskInfo(10l, "Intermediate"), Type.DELETE);
+        });
+        FiredEvent createNew = FiredEvent.ofTask(UserTaskChangedEvent.class, 1l, 10l, Type.CREATE, () -> {
+            createdEvents.add("createNew");
+            return new UserTaskChangedEvent(1l, createTaskInfo(10l, "New"), Type.CREATE);
+        });
+
+        //when
+        List<FiredEvent> result = EngineEventCoalescer.coalesceFired(Arrays.asList(create, delete, createNew));
+
+        //then
+        assertThat(result, contains(createNew));
+        assertThat(createdEvents, is(empty()));
+    }
+
+    private static TaskInfo createTaskInfo(Long id, String stateName) {
+        return new TaskInfo(id, 1l, "Process", stateName, LocalDateTime.now());
+    }
+
+    private static ProcessInfo createProcessInfo(Long id) {
+        return new ProcessInfo(id, null, null, null, null, null, Collections.emptyList());
+    }
+
+}
@@ -0,0 +1,133 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import org.opensbpm.engine.api.events.EngineEvent.Type;
+import org.opensbpm.engine.api.events.UserTaskChangedEvent;
+import org.opensbpm.engine.api.instance.TaskInfo;
+import org.opensbpm.engine.core.EngineEventDispatcher.Overflow;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class EngineEventDispatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private EngineEventDispatcher dispatcher;
+
+    @After
+    public void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.destroy();
+        }
+    }
+
+    @Test
+    public void testDispatchSynchronously() {
+        //given
+        List<Object> events = new ArrayList<>();
+        dispatcher = new EngineEventDispatcher(events::add, false, 2, 16, Overflow.BLOCK);
+        dispatcher.bindTo(meterRegistry);
+        UserTaskChangedEvent event = createEvent(1l, 1l);
+
+        //when
+        dispatcher.dispatch(event);
+
+        //then
+        assertThat(dispatcher.isAsync(), is(false));
+        assertThat(events.size(), is(1));
+        assertThat(meterRegistry.get("opensbpm.engine.events.dispatched").counter().count(), is(1.0));
+    }
+
+    @Test
+    public void testDispatchAsynchronouslyKeepsOrderPerUser() throws Exception {
+        //given
+        int users = 8;
+        int eventsPerUser = 100;
+        CountDownLatch received = new CountDownLatch(users * eventsPerUser);
+        Map<Long, List<Long>> receivedTasks = new ConcurrentHashMap<>();
+        dispatcher = new EngineEventDispatcher(event -> {
+            UserTaskChangedEvent taskEvent = (UserTaskChangedEvent) event;
+            receivedTasks.computeIfAbsent(taskEvent.getUserId(), userId -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(taskEvent.getSource().getId());
+            received.countDown();
+        }, true, 4, 64, Overflow.BLOCK);
+        dispatcher.bindTo(meterRegistry);
+
+        //when
+        for (long task = 0; task < eventsPerUser; task++) {
+            for (long user = 0; user < users; user++) {
+                dispatcher.dispatch(createEvent(user, task));
+            }
+        }
+
+        //then
+        assertThat(received.await(10, TimeUnit.SECONDS), is(true));
+        for (List<Long> tasks : receivedTasks.values()) {
+            for (int index = 0; index < eventsPerUser; index++) {
+                assertThat(tasks.get(index), is((long) index));
+            }
+        }
+        assertThat(meterRegistry.get("opensbpm.engine.events.dispatched").counter().count(), is((double) users * eventsPerUser));
+        assertThat(meterRegistry.get("opensbpm.engine.events.dropped").counter().count(), is(0.0));
+    }
+
+    @Test
+    public void testDispatchDropsEventsIfBufferIsFull() throws Exception {
+        //given
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher = new EngineEventDispatcher(event -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }, true, 1, 2, Overflow.DROP);
+        dispatcher.bindTo(meterRegistry);
+        dispatcher.dispatch(createEvent(1l, 1l));
+        blocked.await(10, TimeUnit.SECONDS);
+
+        //when
+        dispatcher.dispatch(createEvent(1l, 2l));
+        dispatcher.dispatch(createEvent(1l, 3l));
+        dispatcher.dispatch(createEvent(1l, 4l));
+
+        //then
+        assertThat(meterRegistry.get("opensbpm.engine.events.dispatch.queue").gauge().value(), is(2.0));
+        assertThat(meterRegistry.get("opensbpm.engine.events.dropped").counter().count(), is(1.0));
+        release.countDown();
+    }
+
+    private static UserTaskChangedEvent createEvent(Long userId, Long taskId) {
+        return new UserTaskChangedEvent(userId, new TaskInfo(taskId, 1l, "Process", "State", LocalDateTime.now()), Type.CREATE);
+    }
+
+}
@@ -0,0 +1,247 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensbpm.engine.api.events.EngineEvent.Type;
+import org.opensbpm.engine.api.events.UserChangedEvent;
+import org.opensbpm.engine.core.EngineEventOutbox.OutboxConsumerRepository;
+import org.opensbpm.engine.core.EngineEventOutbox.OutboxEventRepository;
+import org.opensbpm.engine.core.engine.entities.OutboxConsumer;
+import org.opensbpm.engine.core.engine.entities.OutboxEvent;
+import org.opensbpm.engine.core.engine.entities.User;
+import org.opensbpm.engine.core.junit.ServiceITCase;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.opensbpm.engine.core.engine.EngineConverter.convertUser;
+
+/**
+ * Integration-Test for {@link EngineEventOutbox}
+ */
+@TestPropertySource(properties = {
+    "opensbpm.engine.events.outbox.enabled=true",
+    "opensbpm.engine.events.outbox.consumer=test-node",
+    "opensbpm.engine.events.outbox.poll-interval=PT0.2S",
+    "opensbpm.engine.events.outbox.gap-timeout=PT2S",
+    "opensbpm.engine.jobs.enabled=true"
+})
+//the relay polls until its context is closed
+@DirtiesContext
+public class EngineEventOutboxIT extends ServiceITCase {
+
+    @Autowired
+    private EngineEventPublisher eventPublisher;
+
+    @Autowired
+    private EngineEventOutbox outbox;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxConsumerRepository outboxConsumerRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Before
+    public void startRelay() {
+        //tearDown deletes the consumer too
+        outbox.poll();
+        outbox.start();
+    }
+
+    @After
+    public void stopRelay() {
+        outbox.destroy();
+    }
+
+    @Test
+    public void firedEventsAreRelayedAfterCommit() throws Exception {
+        //when
+        List<String> deliveredInTransaction = doInTransaction(() -> {
+            eventPublisher.fireUserChanged(new User("committed"), Type.CREATE);
+            return getDeliveredUserNames();
+        });
+
+        //then
+        assertThat(deliveredInTransaction, is(empty()));
+        awaitDelivered("committed");
+        assertThat(outboxEventRepository.count(), is(1l));
+        assertThat(meterRegistry.get("opensbpm.engine.events.outbox.offset").gauge().value(),
+                is((double) outboxEventRepository.findAll().get(0).getId()));
+    }
+
+    @Test
+    public void rolledBackEventsAreNotWritten() {
+        //when
+        try {
+            doInTransaction(() -> {
+                eventPublisher.fireUserChanged(new User("rolled back"), Type.CREATE);
+                throw new IllegalStateException("rollback");
+            });
+        } catch (IllegalStateException ex) {
+            //expected
+        }
+
+        //then
+        assertThat(outboxEventRepository.count(), is(0l));
+    }
+
+    @Test
+    public void committedEventsAreDeliveredAfterRestart() throws Exception {
+        //given
+        outbox.destroy();
+
+        //when
+        doInTransaction(() -> {
+            eventPublisher.fireUserChanged(new User("restarted"), Type.CREATE);
+            return null;
+        });
+        List<String> deliveredBeforeRestart = getDeliveredUserNames();
+        outbox.start();
+
+        //then
+        assertThat(deliveredBeforeRestart, is(empty()));
+        awaitDelivered("restarted");
+    }
+
+    @Test
+    public void eventAfterRolledBackIdIsDeliveredWithoutWaiting() throws Exception {
+        //given
+        outbox.destroy();
+        doInTransaction(() -> {
+            //ids of events deleted by previous tests are missing too
+            long lastId = outboxEventRepository.findFirstByOrderByIdDesc().map(OutboxEvent::getId)
+                    .orElseGet(() -> ((Number) entityManager.createNativeQuery("select next value for outboxevent_seq").getSingleResult()).longValue());
+            OutboxConsumer consumer = outboxConsumerRepository.findById("test-node").orElseThrow();
+            consumer.setOffset(lastId);
+            return outboxConsumerRepository.save(consumer);
+        });
+        try {
+            doInTransaction(() -> {
+                //allocates the next id of the outbox
+                outbox.write(List.of(new UserChangedEvent(convertUser(new User("rolled back")), Type.CREATE)));
+                throw new IllegalStateException("rollback");
+            });
+        } catch (IllegalStateException ex) {
+            //expected
+        }
+        doInTransaction(() -> {
+            eventPublisher.fireUserChanged(new User("after gap"), Type.CREATE);
+            return null;
+        });
+
+        //when
+        int delivered = outbox.poll();
+
+        //then
+        assertThat(delivered, is(1));
+        assertThat(getDeliveredUserNames(), contains("after gap"));
+        assertThat(meterRegistry.get("opensbpm.engine.events.outbox.gaps").gauge().value(), is(0.0));
+    }
+
+    @Test
+    public void eventAfterMissingIdWaitsForGapTimeout() throws Exception {
+        //given
+        outbox.destroy();
+        doInTransaction(() -> {
+            //allocates the next id of the outbox, like a transaction of another node
+            return entityManager.createNativeQuery("select next value for outboxevent_seq").getSingleResult();
+        });
+        doInTransaction(() -> {
+            eventPublisher.fireUserChanged(new User("after gap"), Type.CREATE);
+            return null;
+        });
+        long written = System.currentTimeMillis();
+
+        //when
+        int deliveredBeforeTimeout = outbox.poll();
+        long polled = System.currentTimeMillis();
+        Thread.sleep(Math.max(0, written + 2000 - System.currentTimeMillis()));
+        int deliveredAfterTimeout = outbox.poll();
+
+        //then
+        if (polled - written < 2000) {
+            assertThat(deliveredBeforeTimeout, is(0));
+        }
+        assertThat(deliveredAfterTimeout, is(greaterThanOrEqualTo(1)));
+        assertThat(getDeliveredUserNames(), contains("after gap"));
+    }
+
+    @Test
+    public void eventCommittedAfterGapTimeoutIsDeliveredLate() throws Exception {
+        //given
+        outbox.destroy();
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> lateTransaction = executor.submit(() -> doInTransaction(() -> {
+            //allocates the next id of the outbox, but commits after the following event
+            outbox.write(List.of(new UserChangedEvent(convertUser(new User("late")), Type.CREATE)));
+            written.countDown();
+            return commit.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        }));
+        written.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        doInTransaction(() -> {
+            eventPublisher.fireUserChanged(new User("early"), Type.CREATE);
+            return null;
+        });
+        Thread.sleep(2000);
+        outbox.poll();
+
+        //when
+        commit.countDown();
+        lateTransaction.get(TIMEOUT, TimeUnit.MILLISECONDS);
+        executor.shutdown();
+        int delivered = outbox.poll();
+
+        //then
+        assertThat(delivered, is(1));
+        assertThat(getDeliveredUserNames(), contains("early", "late"));
+    }
+
+    private void awaitDelivered(String userName) throws Exception {
+        await(() -> getDeliveredUserNames().contains(userName));
+        assertThat(getDeliveredUserNames(), contains(userName));
+    }
+
+    private List<String> getDeliveredUserNames() {
+        return List.copyOf(engineEventsCollector).stream()
+                .filter(UserChangedEvent.class::isInstance)
+                .map(event -> ((UserChangedEvent) event).getSource().getName())
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,137 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.opensbpm.engine.api.events.EngineEvent.Type;
+import org.opensbpm.engine.api.events.UserTaskChangedEvent;
+import org.opensbpm.engine.api.instance.TaskInfo;
+import org.opensbpm.engine.api.model.FieldType;
+import org.opensbpm.engine.api.model.ProcessModelInfo;
+import org.opensbpm.engine.api.model.builder.ObjectBuilder;
+import org.opensbpm.engine.api.model.builder.ObjectBuilder.FieldBuilder;
+import org.opensbpm.engine.api.model.builder.UserSubjectBuilder;
+import org.opensbpm.engine.api.model.definition.PermissionDefinition.Permission;
+import org.opensbpm.engine.core.engine.ScriptExecutionPool;
+import org.opensbpm.engine.core.junit.TestTask;
+import org.opensbpm.engine.core.junit.UserProcessController;
+import org.opensbpm.engine.core.junit.WorkflowTestCase;
+import org.springframework.beans.factory.annotation.Autowired;
+import static org.hamcrest.CoreMatchers.everyItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.field;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.functionState;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.object;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.permission;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.process;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.receiveState;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.sendState;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.userSubject;
+
+/**
+ * Integration-Test for {@link EngineEventPublisher}
+ */
+public class EngineEventPublisherIT extends WorkflowTestCase {
+
+    private static final int APPROVERS = 20;
+    private static final String APPROVE_DISPLAY_NAME = "Approve ${Request.Title}";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void fireSubjectStateChangedSharesTaskInfoOfAllUsers() throws Exception {
+        //given
+        FieldBuilder title = field("Title", FieldType.STRING);
+        ObjectBuilder request = object("Request")
+                .addAttribute(title);
+
+        UserSubjectBuilder starterSubject = userSubject("Starter", "Starter Role")
+                .asStarter();
+        UserSubjectBuilder approverSubject = userSubject("Approver", "Approver Role");
+
+        starterSubject.addState(functionState("Start").asStart()
+                .addPermission(permission(request)
+                        .addPermission(title, Permission.WRITE, true)
+                )
+                .toHead(sendState("Send to Approver", approverSubject, request).asEnd())
+        );
+        approverSubject.addState(receiveState("Receive from Starter").asStart()
+                .toHead(request, functionState("Approve")
+                        .withDisplayName(APPROVE_DISPLAY_NAME)
+                        .addPermission(permission(request)
+                                .addPermission(title, Permission.READ, false)
+                        )
+                        .toHead(functionState("End").asEnd())
+                )
+        );
+
+        ProcessModelInfo modelInfo = modelService.save(process("Process")
+                .addSubject(starterSubject)
+                .addSubject(approverSubject)
+                .addObject(request)
+                .build());
+
+        UserProcessController startUser = createUserController("Start User", "Starter Role");
+        for (int approver = 0; approver < APPROVERS; approver++) {
+            createUserController("Approver " + approver, "Approver Role");
+        }
+        startUser.startProcess(modelInfo);
+        TestTask task = startUser.getTask("Start");
+        task.setValue("Request", "Title", "Holiday");
+        engineEventsCollector.clear();
+        FunctionCounter publishedEvents = meterRegistry.get("opensbpm.engine.events.published").functionCounter();
+        double published = publishedEvents.count();
+        long invocations = getInvocations(APPROVE_DISPLAY_NAME);
+
+        //when
+        startUser.execute(task, "Send to Approver");
+
+        //then
+        List<TaskInfo> taskInfos = engineEventsCollector.stream()
+                .filter(UserTaskChangedEvent.class::isInstance)
+                .map(UserTaskChangedEvent.class::cast)
+                .filter(event -> Type.CREATE == event.getType())
+                .map(UserTaskChangedEvent::getSource)
+                .collect(Collectors.toList());
+        assertThat(taskInfos, hasSize(APPROVERS));
+        assertThat(taskInfos, everyItem(sameInstance(taskInfos.get(0))));
+        assertThat(taskInfos.get(0).getStateName(), is("Approve Holiday"));
+        assertThat(getInvocations(APPROVE_DISPLAY_NAME) - invocations, is(lessThan((long) APPROVERS)));
+        assertThat(publishedEvents.count() - published, is((double) engineEventsCollector.size()));
+    }
+
+    private long getInvocations(String expression) {
+        return Optional.ofNullable(meterRegistry.find("opensbpm.engine.script.expression.cpu")
+                .tag("expression", ScriptExecutionPool.expressionId(expression))
+                .timer())
+                .map(Timer::count)
+                .orElse(0l);
+    }
+
+}
@@ -0,0 +1,148 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensbpm.engine.api.events.EngineEvent;
+import org.opensbpm.engine.api.events.EngineEvent.Type;
+import org.opensbpm.engine.api.events.ProcessModelChangedEvent;
+import org.opensbpm.engine.api.events.RoleUserChangedEvent;
+import org.opensbpm.engine.api.events.UserTaskChangedEvent;
+import org.opensbpm.engine.api.instance.TaskInfo;
+import org.opensbpm.engine.api.instance.UserToken;
+import org.opensbpm.engine.api.model.ProcessModelInfo;
+import org.opensbpm.engine.core.EngineEventRouter.Subscription;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+public class EngineEventRouterTest {
+
+    private EngineEventRouter router;
+    private MeterRegistry meterRegistry;
+
+    @Before
+    public void setUp() {
+        router = new EngineEventRouter();
+        meterRegistry = new SimpleMeterRegistry();
+        router.bindTo(meterRegistry);
+    }
+
+    @Test
+    public void testRouteToSubscribedUserOnly() {
+        //given
+        List<EngineEvent<?>> user1Events = new ArrayList<>();
+        List<EngineEvent<?>> user2Events = new ArrayList<>();
+        router.subscribeUser(1l, user1Events::add);
+        router.subscribeUser(2l, user2Events::add);
+        UserTaskChangedEvent event = createEvent(1l, 10l);
+
+        //when
+        router.route(event);
+        router.route(new ProcessModelChangedEvent(new ProcessModelInfo(), Type.CREATE));
+
+        //then
+        assertThat(user1Events, contains(event));
+        assertThat(user2Events, is(empty()));
+        assertThat(meterRegistry.get("opensbpm.engine.events.router.routed").functionCounter().count(), is(1.0));
+        assertThat(meterRegistry.get("opensbpm.engine.events.router.delivered").functionCounter().count(), is(1.0));
+    }
+
+    @Test
+    public void testRouteToSubscribedRole() {
+        //given
+        List<EngineEvent<?>> roleEvents = new ArrayList<>();
+        router.subscribeRole(5l, roleEvents::add);
+        RoleUserChangedEvent event = new RoleUserChangedEvent(5l, UserToken.of(1l, "user", Collections.emptySet()), Type.CREATE);
+
+        //when
+        router.route(event);
+        router.route(new RoleUserChangedEvent(6l, UserToken.of(1l, "user", Collections.emptySet()), Type.CREATE));
+
+        //then
+        assertThat(roleEvents, contains(event));
+    }
+
+    @Test
+    public void testRouteRoleUserChangedToUser() {
+        //given
+        List<EngineEvent<?>> userEvents = new ArrayList<>();
+        router.subscribeUser(1l, userEvents::add);
+        RoleUserChangedEvent event = new RoleUserChangedEvent(5l, UserToken.of(1l, "user", Collections.emptySet()), Type.CREATE);
+
+        //when
+        router.route(event);
+
+        //then
+        assertThat(userEvents, contains(event));
+    }
+
+    @Test
+    public void testUnsubscribe() {
+        //given
+        List<EngineEvent<?>> firstEvents = new ArrayList<>();
+        List<EngineEvent<?>> secondEvents = new ArrayList<>();
+        Subscription first = router.subscribeUser(1l, firstEvents::add);
+        Subscription second = router.subscribeUser(1l, secondEvents::add);
+
+        //when
+        first.close();
+        router.route(createEvent(1l, 10l));
+        second.close();
+        router.route(createEvent(1l, 11l));
+
+        //then
+        assertThat(first.isClosed(), is(true));
+        assertThat(firstEvents, is(empty()));
+        assertThat(secondEvents.size(), is(1));
+        assertThat(getUserSubscriptionCount(), is(0.0));
+    }
+
+    @Test
+    public void testFailingSubscriberDoesNotAffectOthers() {
+        //given
+        List<EngineEvent<?>> events = new ArrayList<>();
+        router.subscribeUser(1l, event -> {
+            throw new IllegalStateException("failing subscriber");
+        });
+        router.subscribeUser(1l, events::add);
+
+        //when
+        router.route(createEvent(1l, 10l));
+
+        //then
+        assertThat(events.size(), is(1));
+    }
+
+    private double getUserSubscriptionCount() {
+        return meterRegistry.get("opensbpm.engine.events.router.subscriptions").tag("addressee", "user").gauge().value();
+    }
+
+    private static UserTaskChangedEvent createEvent(Long userId, Long taskId) {
+        return new UserTaskChangedEvent(userId, new TaskInfo(taskId, 1l, "Process", "State", LocalDateTime.now()), Type.CREATE);
+    }
+
+}
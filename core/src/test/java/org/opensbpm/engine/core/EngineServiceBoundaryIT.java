@@ -22,6 +22,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.opensbpm.engine.api.ModelService.ModelRequest;
 import org.opensbpm.engine.api.events.EngineEvent.Type;
+import org.opensbpm.engine.api.events.RoleProcessModelChangedEvent;
 import org.opensbpm.engine.api.instance.NextState;
 import org.opensbpm.engine.api.instance.TaskInfo;
 import org.opensbpm.engine.api.instance.TaskRequest;
@@ -33,13 +34,13 @@ import org.opensbpm.engine.core.engine.UserService;
 import org.opensbpm.engine.core.junit.ServiceITCase;
 import org.springframework.beans.factory.annotation.Autowired;
 import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.opensbpm.engine.api.junit.EngineEventMatcher.isProcessInstanceChangedEvent;
 import static org.opensbpm.engine.api.junit.EngineEventMatcher.isUserProcessInstanceChangedEvent;
-import static org.opensbpm.engine.api.junit.EngineEventMatcher.isUserProcessModelChangedEvent;
 import static org.opensbpm.engine.api.junit.EngineEventMatcher.isUserTaskChangedEvent;
 import static org.opensbpm.engine.api.model.builder.DefinitionFactory.functionState;
 import static org.opensbpm.engine.api.model.builder.DefinitionFactory.userSubject;
@@ -99,8 +100,7 @@ public class EngineServiceBoundaryIT extends ServiceITCase {
 
         assertThat(engineEventsCollector, hasItem(isProcessInstanceChangedEvent(Type.CREATE)));
         assertThat(engineEventsCollector, hasItem(isUserTaskChangedEvent(getId(user1), Type.CREATE)));
-        assertThat(engineEventsCollector, not(hasItem(isUserProcessModelChangedEvent(getId(user2)))));
-        assertThat(engineEventsCollector, not(hasItem(isUserProcessModelChangedEvent(getId(user3)))));
+        assertThat(engineEventsCollector, not(hasItem(instanceOf(RoleProcessModelChangedEvent.class))));
 
     }
 
@@ -136,7 +136,7 @@ public class EngineServiceBoundaryIT extends ServiceITCase {
         assertThat(engineEventsCollector, hasItem(isProcessInstanceChangedEvent(Type.UPDATE)));
         assertThat(engineEventsCollector, hasItem(isUserProcessInstanceChangedEvent(getId(user1), Type.DELETE)));
         assertThat(engineEventsCollector, hasItem(isUserTaskChangedEvent(getId(user1), Type.DELETE)));
-        assertThat(engineEventsCollector, not(hasItem(isUserProcessModelChangedEvent(getId(user2)))));
+        assertThat(engineEventsCollector, not(hasItem(instanceOf(RoleProcessModelChangedEvent.class))));
     }
 
     private Long getId(UserToken userToken) {
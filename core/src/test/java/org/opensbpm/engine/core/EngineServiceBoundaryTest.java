@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import javax.script.ScriptEngine;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.opensbpm.engine.api.EngineService.ObjectRequest;
@@ -59,6 +60,8 @@ import org.opensbpm.engine.core.engine.entities.Subject;
 import org.opensbpm.engine.core.engine.entities.User;
 import org.opensbpm.engine.core.engine.entities.UserSubject;
 import org.opensbpm.engine.core.model.ModelConverter;
+import org.opensbpm.engine.core.model.ProcessModelCache;
+import org.opensbpm.engine.core.model.ProcessModelService.ProcessModelRepository;
 import org.opensbpm.engine.core.model.ProcessModelService;
 import org.opensbpm.engine.core.model.entities.FunctionState;
 import org.opensbpm.engine.core.model.entities.ObjectModel;
@@ -80,6 +83,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.when;
 import org.opensbpm.engine.api.SubjectAlreadyBoundException;
+import org.springframework.transaction.PlatformTransactionManager;
 import static org.opensbpm.engine.core.junit.MockData.spyFunctionState;
 import static org.opensbpm.engine.core.junit.MockData.spyObjectModel;
 import static org.opensbpm.engine.core.junit.MockData.spyProcessInstance;
@@ -94,7 +98,8 @@ import static org.opensbpm.engine.core.junit.MockData.spyUserSubject;
 @SpringBootTest(classes = {
     EngineServiceBoundary.class,
     EngineConverter.class,
-    ValidationService.class
+    ValidationService.class,
+    ProcessModelCache.class
 })
 @RunWith(SpringRunner.class)
 public class EngineServiceBoundaryTest {
@@ -135,6 +140,20 @@ public class EngineServiceBoundaryTest {
     @MockBean
     private ValidationProviderManager validationProviderManager;
 
+    @MockBean
+    private ProcessModelRepository processModelRepository;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProcessModelCache processModelCache;
+
+    @Before
+    public void setUp() {
+        processModelCache.invalidateAll();
+    }
+
     @Test
     public void findStartableProcessModels() throws Exception {
         //given
@@ -293,7 +312,7 @@ public class EngineServiceBoundaryTest {
         //create subject without user!
         UserSubject userSubject = spyUserSubject(subjectId, processInstance, userSubjectModel, null);
         userSubject.setCurrentState(spyFunctionState(5l, userSubjectModel, stateName));
-        when(subjectService.findById(subjectId)).thenReturn(Optional.of(userSubject));
+        when(subjectService.findTaskById(subjectId)).thenReturn(Optional.of(userSubject));
 
         //when
         TaskInfo taskInfo = new TaskInfo(subjectId, processId, processName, stateName, LocalDateTime.MIN);
@@ -327,7 +346,7 @@ public class EngineServiceBoundaryTest {
         FunctionState functionState = spyFunctionState(5l, userSubjectModel, stateName);
         functionState.setEventType(StateEventType.END);
         userSubject.setCurrentState(functionState);
-        when(subjectService.findById(subjectId)).thenReturn(Optional.of(userSubject));
+        when(subjectService.findTaskById(subjectId)).thenReturn(Optional.of(userSubject));
 
         //when
         TaskInfo taskInfo = new TaskInfo(subjectId, processId, processName, stateName, LocalDateTime.MAX);
@@ -359,7 +378,7 @@ public class EngineServiceBoundaryTest {
         UserSubject userSubject = spyUserSubject(subjectId, processInstance, userSubjectModel, null);
         FunctionState functionState = spyFunctionState(5l, userSubjectModel, stateName);
         userSubject.setCurrentState(functionState);
-        when(subjectService.findById(subjectId)).thenReturn(Optional.of(userSubject));
+        when(subjectService.findTaskById(subjectId)).thenReturn(Optional.of(userSubject));
 
         //when
         TaskInfo taskInfo = new TaskInfo(subjectId, processId, processName, stateName, LocalDateTime.MAX);
@@ -396,7 +415,7 @@ public class EngineServiceBoundaryTest {
         FunctionState functionState = spyFunctionState(5l, userSubjectModel, stateName);
 
         userSubject.setCurrentState(functionState);
-        when(subjectService.findById(subjectId)).thenReturn(Optional.of(userSubject));
+        when(subjectService.findTaskById(subjectId)).thenReturn(Optional.of(userSubject));
 
         //when
         TaskInfo taskInfo = new TaskInfo(subjectId, processId, processName, stateName, LocalDateTime.MAX);
@@ -434,7 +453,7 @@ public class EngineServiceBoundaryTest {
         functionState.addStatePermission(attributeModel, Permission.READ);
 
         userSubject.setCurrentState(functionState);
-        when(subjectService.findById(subjectId)).thenReturn(Optional.of(userSubject));
+        when(subjectService.findTaskById(subjectId)).thenReturn(Optional.of(userSubject));
 
         when(validationProviderManager.getAutocompleteProvider()).thenReturn(Arrays.asList(new AutocompleteProvider() {
             @Override
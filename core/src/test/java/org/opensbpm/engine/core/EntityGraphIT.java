@@ -0,0 +1,175 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import java.util.concurrent.Callable;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensbpm.engine.api.InstanceService.ProcessRequest;
+import org.opensbpm.engine.api.SearchFilter;
+import org.opensbpm.engine.api.instance.ProcessInfo;
+import org.opensbpm.engine.api.instance.TaskInfo;
+import org.opensbpm.engine.api.model.ProcessModelInfo;
+import org.opensbpm.engine.api.model.builder.FunctionStateBuilder;
+import org.opensbpm.engine.api.model.definition.ProcessDefinition;
+import org.opensbpm.engine.core.junit.UserProcessController;
+import org.opensbpm.engine.core.junit.WorkflowTestCase;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.functionState;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.process;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.userSubject;
+
+/**
+ * Integration-Test of the entity graphs of the read use cases; the number of
+ * statements of a request must not depend on the size of the result. Batch
+ * fetching is disabled, so it can't hide a missing association in a graph.
+ */
+@TestPropertySource(properties = "opensbpm.engine.jpa.batch-fetch-size=1")
+public class EntityGraphIT extends WorkflowTestCase {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @Before
+    public void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @After
+    public void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    public void testGetTasks() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = modelService.save(createProcess());
+        UserProcessController user = createUserController("Graph User", "Graph Role");
+        startProcesses(user, modelInfo, 2);
+        long fewTasks = countStatements(() -> engineService.getTasks(user.getUserToken()));
+
+        //when
+        startProcesses(user, modelInfo, 10);
+        long manyTasks = countStatements(() -> assertSize(engineService.getTasks(user.getUserToken()).size(), 12));
+
+        //then
+        assertThat(manyTasks, is(fewTasks));
+    }
+
+    @Test
+    public void testGetTaskResponse() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = modelService.save(createProcess());
+        UserProcessController user = createUserController("Graph User", "Graph Role");
+        user.startProcess(modelInfo);
+        TaskInfo shortTrail = user.getTask("Start").getTaskInfo();
+        long fewTrails = countStatements(() -> engineService.getTaskResponse(user.getUserToken(), shortTrail));
+
+        //when
+        user.execute(user.getTask("Start"), "Review");
+        for (int i = 0; i < 5; i++) {
+            user.execute(user.getTask("Review"), "Rework");
+            user.execute(user.getTask("Rework"), "Review");
+        }
+        TaskInfo longTrail = user.getTask("Review").getTaskInfo();
+        long manyTrails = countStatements(() -> engineService.getTaskResponse(user.getUserToken(), longTrail));
+
+        //then
+        assertThat(manyTrails, is(fewTrails));
+    }
+
+    @Test
+    public void testFindProcessInfos() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = modelService.save(createProcess());
+        UserProcessController user = createUserController("Graph User", "Graph Role");
+        startProcesses(user, modelInfo, 2);
+        long fewProcesses = countStatements(() -> instanceService.find(SearchFilter.valueOf(""), PageRequest.of(0, 50)));
+
+        //when
+        startProcesses(user, modelInfo, 10);
+        long manyProcesses = countStatements(() -> assertSize(
+                instanceService.find(SearchFilter.valueOf(""), PageRequest.of(0, 50)).getNumberOfElements(), 12));
+
+        //then
+        assertThat(manyProcesses, is(fewProcesses));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testGetAuditTrail() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = modelService.save(createProcess());
+        UserProcessController user = createUserController("Graph User", "Graph Role");
+        ProcessInfo processInfo = user.startProcess(modelInfo).getProcessInfo();
+        ProcessRequest processRequest = ProcessRequest.of(processInfo);
+        long fewTrails = countStatements(() -> instanceService.getAuditTrail(processRequest));
+
+        //when
+        user.execute(user.getTask("Start"), "Review");
+        for (int i = 0; i < 5; i++) {
+            user.execute(user.getTask("Review"), "Rework");
+            user.execute(user.getTask("Rework"), "Review");
+        }
+        long manyTrails = countStatements(() -> assertSize(instanceService.getAuditTrail(processRequest).size(), 12));
+
+        //then
+        assertThat(manyTrails, is(fewTrails));
+    }
+
+    private long countStatements(Callable<?> request) throws Exception {
+        statistics.clear();
+        request.call();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static Object assertSize(int actual, int expected) {
+        assertThat(actual, is(expected));
+        return actual;
+    }
+
+    private static void startProcesses(UserProcessController user, ProcessModelInfo modelInfo, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            user.startProcess(modelInfo);
+        }
+    }
+
+    private static ProcessDefinition createProcess() {
+        FunctionStateBuilder review = functionState("Review");
+        review.toHead(functionState("Rework").toHead(review))
+                .toHead(functionState("End").asEnd());
+        return process("Graph Process")
+                .addSubject(userSubject("Clerk", "Graph Role")
+                        .asStarter()
+                        .addState(functionState("Start").asStart().toHead(review)))
+                .build();
+    }
+
+}
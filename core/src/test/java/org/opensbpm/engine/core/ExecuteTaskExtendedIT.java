@@ -444,6 +444,35 @@ public class ExecuteTaskExtendedIT extends WorkflowTestCase {
         assertThat(processController.getProcessInfo(), isState(ProcessInstanceState.FINISHED));
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void saveWithUncompilableServiceScript() throws Exception {
+        //given
+        ObjectBuilder messageObject = object("Message Object")
+                .addAttribute(field("Field", FieldType.STRING));
+
+        UserSubjectBuilder starterSubject = userSubject("Starter", "Starter Role")
+                .asStarter();
+        ServiceSubjectBuilder serviceSubject = serviceSubject("Script Service");
+
+        starterSubject.addState(functionState("Start").asStart()
+                .toHead(sendState("Send to Service", serviceSubject, messageObject).asEnd())
+        );
+        serviceSubject.addState(receiveState("Receive from Starter").asStart()
+                .toHead(messageObject, functionState("Script Function")
+                        .withProvider(GroovyTaskProvider.NAME)
+                        .addParameter(GroovyTaskProvider.SCRIPT, "task.nextStates.first(")
+                        .toHead(functionState("End").asEnd())
+                )
+        );
+
+        //when
+        modelService.save(process("Invalid Script Process")
+                .addSubject(starterSubject)
+                .addSubject(serviceSubject)
+                .addObject(messageObject)
+                .build());
+    }
+
     private String loadScript() throws IOException {
         String script = "/scripts/executeTaskWithServiceSubject.groovy";
         try (InputStream input = getClass().getResourceAsStream(script)) {
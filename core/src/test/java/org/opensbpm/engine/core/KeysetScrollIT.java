@@ -0,0 +1,139 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.opensbpm.engine.api.InstanceService.ProcessRequest;
+import org.opensbpm.engine.api.instance.AuditTrail;
+import org.opensbpm.engine.api.instance.ProcessInfo;
+import org.opensbpm.engine.api.instance.ProcessInstanceState;
+import org.opensbpm.engine.api.model.ProcessModelInfo;
+import org.opensbpm.engine.api.model.definition.ProcessDefinition;
+import org.opensbpm.engine.core.junit.UserProcessController;
+import org.opensbpm.engine.core.junit.WorkflowTestCase;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.test.context.TestPropertySource;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.functionState;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.process;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.userSubject;
+
+/**
+ * Integration-Test of the keyset scrolling of process instances and audit
+ * trails; small windows, so reading all of them spans several windows.
+ */
+@TestPropertySource(properties = "opensbpm.engine.scroll.window-size=2")
+public class KeysetScrollIT extends WorkflowTestCase {
+
+    @Test
+    public void testScrollProcessInstances() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = modelService.save(createProcess());
+        UserProcessController user = createUserController("Scroll User", "Scroll Role");
+        List<Long> processIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            processIds.add(user.startProcess(modelInfo).getProcessInfo().getId());
+        }
+
+        //when
+        List<Window<ProcessInfo>> windows = new ArrayList<>();
+        ScrollPosition position = ScrollPosition.keyset();
+        Window<ProcessInfo> window;
+        do {
+            window = instanceService.findAllByStates(EnumSet.of(ProcessInstanceState.ACTIVE), position, 2);
+            windows.add(window);
+            position = window.positionAt(window.size() - 1);
+        } while (window.hasNext());
+
+        //then
+        assertThat(windows.size(), is(3));
+        assertThat(windows.stream().map(Window::size).collect(Collectors.toList()), contains(2, 2, 1));
+        assertThat(windows.stream()
+                .flatMap(Window::stream)
+                .map(ProcessInfo::getId)
+                .collect(Collectors.toList()), is(processIds));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testFindAllProcessInstances() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = modelService.save(createProcess());
+        UserProcessController user = createUserController("Scroll User", "Scroll Role");
+        List<Long> processIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            processIds.add(user.startProcess(modelInfo).getProcessInfo().getId());
+        }
+
+        //when
+        Collection<ProcessInfo> processInfos = instanceService.findAllByStates(EnumSet.of(ProcessInstanceState.ACTIVE));
+
+        //then
+        assertThat(processInfos.stream().map(ProcessInfo::getId).collect(Collectors.toList()), is(processIds));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testScrollAuditTrail() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = modelService.save(createProcess());
+        UserProcessController user = createUserController("Scroll User", "Scroll Role");
+        ProcessInfo processInfo = user.startProcess(modelInfo).getProcessInfo();
+        user.execute(user.getTask("Start"), "Review");
+        user.execute(user.getTask("Review"), "End");
+        ProcessRequest processRequest = ProcessRequest.of(processInfo);
+
+        //when
+        List<AuditTrail> scrolled = new ArrayList<>();
+        ScrollPosition position = ScrollPosition.keyset();
+        Window<AuditTrail> window;
+        do {
+            window = instanceService.getAuditTrail(processRequest, position, 1);
+            scrolled.addAll(window.getContent());
+            position = window.positionAt(window.size() - 1);
+        } while (window.hasNext());
+
+        //then
+        List<String> expected = instanceService.getAuditTrail(processRequest).stream()
+                .map(AuditTrail::getStateName)
+                .collect(Collectors.toList());
+        assertThat(expected, contains("Start", "Review", "End"));
+        assertThat(scrolled.stream().map(AuditTrail::getStateName).collect(Collectors.toList()), is(expected));
+    }
+
+    private static ProcessDefinition createProcess() {
+        return process("Scroll Process")
+                .addSubject(userSubject("Clerk", "Scroll Role")
+                        .asStarter()
+                        .addState(functionState("Start").asStart()
+                                .toHead(functionState("Review")
+                                        .toHead(functionState("End").asEnd())
+                                )
+                        ))
+                .build();
+    }
+
+}
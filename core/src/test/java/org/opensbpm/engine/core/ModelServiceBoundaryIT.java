@@ -36,8 +36,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.opensbpm.engine.api.junit.EngineEventMatcher.isProcessModelChangedEvent;
 import static org.opensbpm.engine.api.junit.EngineEventMatcher.isRoleChangedEvent;
+import static org.opensbpm.engine.api.junit.EngineEventMatcher.isRoleProcessModelChangedEvent;
 import static org.opensbpm.engine.api.junit.EngineEventMatcher.isRoleUserChangedEvent;
-import static org.opensbpm.engine.api.junit.EngineEventMatcher.isUserProcessModelChangedEvent;
 import static org.opensbpm.engine.api.model.builder.DefinitionFactory.process;
 import static org.opensbpm.engine.api.model.builder.DefinitionFactory.userSubject;
 
@@ -46,7 +46,9 @@ public class ModelServiceBoundaryIT extends ServiceITCase {
     @Autowired
     private ModelServiceBoundary modelService;
 
+    private Role starterRole;
     private User starterUser;
+    private Role subjectRole;
     private User subjectUser;
 
     @Before
@@ -54,13 +56,13 @@ public class ModelServiceBoundaryIT extends ServiceITCase {
     public void setUp() throws Exception {
         super.setUp();
         doInTransaction(() -> {
-            Role starterRole = new Role("starter-role");
+            starterRole = new Role("starter-role");
             entityManager.persist(starterRole);
 
             starterUser = RbacBuilder.createUser("starter-user", "firstname", "lastname")
                     .withRole(starterRole)
                     .build(entityManager);
-            Role subjectRole = new Role("subject-role");
+            subjectRole = new Role("subject-role");
             entityManager.persist(subjectRole);
 
             subjectUser = RbacBuilder.createUser("subject-user", "firstname", "lastname")
@@ -107,14 +109,14 @@ public class ModelServiceBoundaryIT extends ServiceITCase {
 
         assertThat(engineEventsCollector, containsInAnyOrder(
                 isProcessModelChangedEvent("process", Type.CREATE),
-                isUserProcessModelChangedEvent(starterUser.getId(), Type.CREATE),
+                isRoleProcessModelChangedEvent(starterRole.getId(), Type.CREATE),
                 isRoleChangedEvent("starter-role", Type.UPDATE),
                 isRoleChangedEvent("subject-role", Type.UPDATE),
-                isRoleChangedEvent("newsubject-role", Type.CREATE),
-                isRoleUserChangedEvent(starterUser.getId(), Type.CREATE),
-                isRoleUserChangedEvent(subjectUser.getId(), Type.CREATE)
+                isRoleChangedEvent("newsubject-role", Type.CREATE)
         ));
-        assertThat(engineEventsCollector, not(hasItem(isUserProcessModelChangedEvent(subjectUser.getId()))));
+        //membership of existing roles didn't change
+        assertThat(engineEventsCollector, not(hasItem(isRoleUserChangedEvent(starterUser.getId(), Type.CREATE))));
+        assertThat(engineEventsCollector, not(hasItem(isRoleProcessModelChangedEvent(subjectRole.getId(), Type.CREATE))));
     }
 
     @Test
@@ -134,9 +136,9 @@ public class ModelServiceBoundaryIT extends ServiceITCase {
         //then
         assertThat(engineEventsCollector, containsInAnyOrder(
                 isProcessModelChangedEvent("process", Type.UPDATE),
-                isUserProcessModelChangedEvent(starterUser.getId(), Type.DELETE)
+                isRoleProcessModelChangedEvent(starterRole.getId(), Type.DELETE)
         ));
-        assertThat(engineEventsCollector, not(hasItem(isUserProcessModelChangedEvent(subjectUser.getId()))));
+        assertThat(engineEventsCollector, not(hasItem(isRoleProcessModelChangedEvent(subjectRole.getId(), Type.DELETE))));
     }
 
     @Test
@@ -155,9 +157,9 @@ public class ModelServiceBoundaryIT extends ServiceITCase {
         //then
         assertThat(engineEventsCollector, containsInAnyOrder(
                 isProcessModelChangedEvent("process", Type.DELETE),
-                isUserProcessModelChangedEvent(starterUser.getId(), Type.DELETE)
+                isRoleProcessModelChangedEvent(starterRole.getId(), Type.DELETE)
         ));
-        assertThat(engineEventsCollector, not(hasItem(isUserProcessModelChangedEvent(subjectUser.getId()))));
+        assertThat(engineEventsCollector, not(hasItem(isRoleProcessModelChangedEvent(subjectRole.getId(), Type.DELETE))));
     }
 
 }
@@ -29,8 +29,12 @@ import org.opensbpm.engine.api.model.ProcessModelInfo;
 import org.opensbpm.engine.api.model.ProcessModelState;
 import org.opensbpm.engine.api.model.builder.ProcessBuilder;
 import org.opensbpm.engine.api.model.definition.ProcessDefinition;
+import org.opensbpm.engine.core.engine.ScriptExecutorService;
+import org.opensbpm.engine.core.engine.TaskProviderManager;
 import org.opensbpm.engine.core.model.ModelConverter;
 import org.opensbpm.engine.core.model.ProcessDefinitionPersistor;
+import org.opensbpm.engine.core.model.ProcessModelCache;
+import org.opensbpm.engine.core.model.ProcessModelService.ProcessModelRepository;
 import org.opensbpm.engine.core.model.ProcessModelService;
 import org.opensbpm.engine.core.model.RoleService;
 import org.opensbpm.engine.core.model.entities.ModelVersion;
@@ -41,6 +45,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -61,7 +66,7 @@ import static org.opensbpm.engine.core.junit.MockData.spyWithId;
  * Spring Mock Unit-Test for {@link ModelServiceBoundary}
  */
 @SpringBootTest(
-        classes = {ModelServiceBoundary.class, ProcessDefinitionPersistor.class})
+        classes = {ModelServiceBoundary.class, ProcessDefinitionPersistor.class, ProcessModelCache.class})
 @RunWith(SpringRunner.class)
 public class ModelServiceBoundaryTest {
 
@@ -80,6 +85,18 @@ public class ModelServiceBoundaryTest {
     @MockBean
     private EngineEventPublisher eventPublisher;
 
+    @MockBean
+    private ScriptExecutorService scriptExecutorService;
+
+    @MockBean
+    private TaskProviderManager taskProviderManager;
+
+    @MockBean
+    private ProcessModelRepository processModelRepository;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
     @Test
     @SuppressWarnings("unchecked")
     public void testFindAllByStates() {
@@ -20,6 +20,7 @@ import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import jakarta.persistence.EntityManager;
 import javax.script.ScriptEngine;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -28,6 +29,7 @@ import org.opensbpm.engine.api.instance.AuditTrail;
 import org.opensbpm.engine.api.instance.ProcessInfo;
 import org.opensbpm.engine.api.instance.ProcessInstanceState;
 import org.opensbpm.engine.core.engine.EngineConverter;
+import org.opensbpm.engine.core.engine.ObjectIndexService;
 import org.opensbpm.engine.core.engine.ProcessInstanceService;
 import org.opensbpm.engine.core.engine.ScriptExecutorService;
 import org.opensbpm.engine.core.engine.StateChangeService;
@@ -38,16 +40,24 @@ import org.opensbpm.engine.core.engine.UserSubjectService;
 import org.opensbpm.engine.core.engine.ValidationProviderManager;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance;
 import org.opensbpm.engine.core.engine.entities.User;
+import org.opensbpm.engine.core.model.ProcessModelCache;
+import org.opensbpm.engine.core.model.ProcessModelService.ProcessModelRepository;
 import org.opensbpm.engine.core.model.ProcessModelService;
 import org.opensbpm.engine.core.model.entities.ProcessModel;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.opensbpm.engine.core.junit.MockData.spyProcessInstance;
 import static org.opensbpm.engine.core.junit.MockData.spyProcessModel;
@@ -58,7 +68,8 @@ import static org.opensbpm.engine.core.junit.MockData.spyUser;
  */
 @SpringBootTest(classes = {
     InstanceServiceBoundary.class,
-    EngineConverter.class
+    EngineConverter.class,
+    ProcessModelCache.class
 })
 @RunWith(SpringRunner.class)
 public class ProcessServiceBoundaryTest {
@@ -84,12 +95,18 @@ public class ProcessServiceBoundaryTest {
     @MockBean
     private SubjectTrailService subjectTrailService;
 
+    @MockBean
+    private ObjectIndexService objectIndexService;
+
     @MockBean
     private StateChangeService stateChangeService;
 
     @MockBean
     private EngineEventPublisher eventPublisher;
 
+    @MockBean
+    private EntityManager entityManager;
+
     @MockBean
     private ScriptExecutorService scriptExceutorService; 
     
@@ -99,6 +116,12 @@ public class ProcessServiceBoundaryTest {
     @MockBean
     private ValidationProviderManager validationProviderManager;
 
+    @MockBean
+    private ProcessModelRepository processModelRepository;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
     @Test(expected = ProcessNotFoundException.class)
     public void stopProcessWithWrongProcessInstanceId() throws Exception {
         //given
@@ -144,6 +167,7 @@ public class ProcessServiceBoundaryTest {
         assertThat(processInfo, is(notNullValue()));
     }
 
+    @SuppressWarnings("deprecation")
     @Test(expected = ProcessNotFoundException.class)
     public void getAuditTrailWithWrongPiId() throws Exception {
         //given
@@ -160,6 +184,7 @@ public class ProcessServiceBoundaryTest {
         fail("getAuditTrail with wrong 'piId' must throw Exception but was " + auditTrails);
     }
 
+    @SuppressWarnings("deprecation")
     @Test
     public void getAuditTrailSuccessFull() throws Exception {
         //given
@@ -177,6 +202,8 @@ public class ProcessServiceBoundaryTest {
 
         ProcessInstance processInstance = spyProcessInstance(piId, processModel, user);
         when(processInstanceService.findById(piId)).thenReturn(Optional.of(processInstance));
+        when(subjectTrailService.getSubjectTrail(eq(piId), any(ScrollPosition.class), anyInt()))
+                .thenReturn(Window.from(Collections.emptyList(), index -> ScrollPosition.keyset()));
 
         ProcessInfo info = new ProcessInfo(piId, null, null, ProcessInstanceState.ACTIVE, lastChanged, lastChanged, Collections.emptyList());
 
@@ -0,0 +1,199 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.opensbpm.engine.api.SearchFilter;
+import org.opensbpm.engine.api.instance.ProcessInfo;
+import org.opensbpm.engine.api.instance.TaskInfo;
+import org.opensbpm.engine.api.model.FieldType;
+import org.opensbpm.engine.api.model.ProcessModelInfo;
+import org.opensbpm.engine.api.model.builder.ObjectBuilder;
+import org.opensbpm.engine.api.model.builder.ObjectBuilder.FieldBuilder;
+import org.opensbpm.engine.api.model.builder.UserSubjectBuilder;
+import org.opensbpm.engine.api.model.definition.PermissionDefinition.Permission;
+import org.opensbpm.engine.api.model.definition.ProcessDefinition;
+import org.opensbpm.engine.core.junit.TestTask;
+import org.opensbpm.engine.core.junit.UserProcessController;
+import org.opensbpm.engine.core.junit.WorkflowTestCase;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.field;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.functionState;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.object;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.permission;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.process;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.receiveState;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.sendState;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.userSubject;
+
+/**
+ * Integration-Test of the search of process instances and tasks by a {@link SearchFilter}.
+ */
+public class SearchFilterIT extends WorkflowTestCase {
+
+    @Test
+    public void testFindProcessInstances() throws Exception {
+        //given
+        ProcessModelInfo invoiceModel = modelService.save(createProcess("Invoice Process"));
+        ProcessModelInfo orderModel = modelService.save(createProcess("Order Process"));
+        UserProcessController user = createUserController("Search User", "Search Role");
+        Long first = startProcess(user, invoiceModel);
+        Long second = startProcess(user, invoiceModel);
+        Long third = startProcess(user, invoiceModel);
+        startProcess(user, orderModel);
+
+        //when
+        Page<ProcessInfo> firstPage = instanceService.find(SearchFilter.valueOf("model:Invoice Process,state:ACTIVE"), PageRequest.of(0, 2));
+        Page<ProcessInfo> secondPage = instanceService.find(SearchFilter.valueOf("model:Invoice Process,state:ACTIVE"), PageRequest.of(1, 2));
+        Page<ProcessInfo> byId = instanceService.find(SearchFilter.valueOf("id>=" + second + ",id<=" + third), Pageable.unpaged());
+
+        //then
+        assertThat(firstPage.getTotalElements(), is(3L));
+        assertThat("newest first", ids(firstPage), contains(third, second));
+        assertThat(ids(secondPage), contains(first));
+        assertThat(ids(byId), contains(third, second));
+    }
+
+    @Test
+    public void testFindProcessInstancesByAttribute() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = modelService.save(createProcess("Invoice Process"));
+        UserProcessController userA = createUserController("User A", "Search Role");
+        UserProcessController userB = createUserController("User B", "Search Role");
+        Long first = executeProcess(userA, modelInfo, "Customer A");
+        executeProcess(userB, modelInfo, "Customer A");
+        executeProcess(userA, modelInfo, "Customer B");
+
+        //when
+        Page<ProcessInfo> result = engineService.findProcesses(userA.getUserToken(),
+                SearchFilter.valueOf("Invoice.Customer:Customer A"), PageRequest.of(0, 10));
+
+        //then
+        assertThat("only processes of the user", ids(result), contains(first));
+    }
+
+    @Test
+    public void testFindTasks() throws Exception {
+        //given
+        ProcessModelInfo invoiceModel = modelService.save(createProcess("Invoice Process"));
+        ProcessModelInfo orderModel = modelService.save(createProcess("Order Process"));
+        UserProcessController user = createUserController("Search User", "Search Role");
+        Long first = startProcess(user, invoiceModel);
+        startProcess(user, orderModel);
+        Long third = startProcess(user, invoiceModel);
+
+        //when
+        Page<TaskInfo> firstPage = engineService.findTasks(user.getUserToken(), SearchFilter.valueOf("process:Invoice Process"), PageRequest.of(0, 1));
+        Page<TaskInfo> secondPage = engineService.findTasks(user.getUserToken(), SearchFilter.valueOf("process:Invoice Process"), PageRequest.of(1, 1));
+
+        //then
+        assertThat(firstPage.getTotalElements(), is(2L));
+        assertThat(firstPage.getContent().stream().map(TaskInfo::getProcessId).collect(Collectors.toList()), contains(first));
+        assertThat(secondPage.getContent().stream().map(TaskInfo::getProcessId).collect(Collectors.toList()), contains(third));
+    }
+
+    @Test
+    public void testFindTasksCountsVisibleTasksOnly() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = modelService.save(createApprovalProcess());
+        UserProcessController user = createUserController("Search User", "Search Role");
+        Long sent = startProcess(user, modelInfo);
+        user.execute(user.getTask("Request"), "Send to Approver");
+        Long started = startProcess(user, modelInfo);
+
+        //when
+        Page<TaskInfo> firstPage = engineService.findTasks(user.getUserToken(), SearchFilter.valueOf(""), PageRequest.of(0, 1));
+        Page<TaskInfo> secondPage = engineService.findTasks(user.getUserToken(), SearchFilter.valueOf(""), PageRequest.of(1, 1));
+
+        //then
+        assertThat("the sending subject ended", firstPage.getTotalElements(), is(2L));
+        assertThat(firstPage.getContent().stream().map(TaskInfo::getProcessId).collect(Collectors.toList()), contains(sent));
+        assertThat(firstPage.getContent().get(0).getStateName(), is("Approve"));
+        assertThat(secondPage.getContent().stream().map(TaskInfo::getProcessId).collect(Collectors.toList()), contains(started));
+    }
+
+    @Test
+    public void testFindWithInvalidFilter() {
+        assertThrows(IllegalArgumentException.class,
+                () -> instanceService.find(SearchFilter.valueOf("unknown:value"), PageRequest.of(0, 10)));
+    }
+
+    private ProcessDefinition createProcess(String name) {
+        FieldBuilder customer = field("Customer", FieldType.STRING).asIndexed();
+        ObjectBuilder invoice = object("Invoice")
+                .addAttribute(customer);
+
+        return process(name)
+                .addSubject(userSubject("Accounting", "Search Role")
+                        .asStarter()
+                        .addState(functionState("Start").asStart()
+                                .addPermission(permission(invoice)
+                                        .addPermission(customer, Permission.WRITE, true)
+                                )
+                                .toHead(functionState("End").asEnd())
+                        ))
+                .addObject(invoice)
+                .build();
+    }
+
+    private ProcessDefinition createApprovalProcess() {
+        ObjectBuilder request = object("Request")
+                .addAttribute(field("Title", FieldType.STRING));
+        UserSubjectBuilder requester = userSubject("Requester", "Search Role")
+                .asStarter();
+        UserSubjectBuilder approver = userSubject("Approver", "Search Role");
+        requester.addState(functionState("Request").asStart()
+                .toHead(sendState("Send to Approver", approver, request).asEnd()));
+        approver.addState(receiveState("Receive Request").asStart()
+                .toHead(request, functionState("Approve")
+                        .toHead(functionState("Approved").asEnd())));
+
+        return process("Approval Process")
+                .addSubject(requester)
+                .addSubject(approver)
+                .addObject(request)
+                .build();
+    }
+
+    private static Long startProcess(UserProcessController user, ProcessModelInfo modelInfo) throws Exception {
+        return user.startProcess(modelInfo).getProcessInfo().getId();
+    }
+
+    private static Long executeProcess(UserProcessController user, ProcessModelInfo modelInfo, String customer) throws Exception {
+        Long processId = startProcess(user, modelInfo);
+        TestTask task = user.getTask("Start");
+        task.setValue("Invoice", "Customer", customer);
+        user.execute(task, "End");
+        return processId;
+    }
+
+    private static List<Long> ids(Page<ProcessInfo> page) {
+        return page.getContent().stream()
+                .map(ProcessInfo::getId)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -24,6 +24,7 @@ import org.opensbpm.engine.api.instance.Task;
 import org.opensbpm.engine.api.spi.TaskExecutionException;
 import org.opensbpm.engine.api.spi.TaskExecutionProvider;
 import org.opensbpm.engine.api.spi.TaskExecutionProvider.ResourceService;
+import org.opensbpm.engine.core.engine.ProviderBulkhead;
 import org.opensbpm.engine.core.engine.TaskProviderManager;
 import org.opensbpm.engine.core.junit.ServiceITCase;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +32,7 @@ import org.springframework.stereotype.Component;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
 
@@ -74,6 +76,21 @@ public class TaskProviderManagerIT extends ServiceITCase {
         assertThat(executionProvider, instanceOf(SecondProvider.class));
     }
 
+    @Test
+    public void testGetBulkhead() {
+        //given
+        String providerName = "FirstProvider";
+
+        //when
+        ProviderBulkhead bulkhead = taskProviderManager.getBulkhead(providerName);
+
+        //then
+        assertThat(bulkhead.getProviderName(), is(providerName));
+        assertThat(bulkhead.getLimits().getMaxConcurrency(), is(16));
+        assertThat(bulkhead.getLimits().getRatePerSecond(), is(0d));
+        assertThat(taskProviderManager.getBulkhead(providerName), is(sameInstance(bulkhead)));
+    }
+
     @Component
     public static class FirstProvider implements TaskExecutionProvider {
 
@@ -0,0 +1,117 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ThreadPerTaskExecutorTest {
+
+    @Test
+    public void testConcurrencyIsLimited() throws Exception {
+        //given
+        ThreadPerTaskExecutor executor = new ThreadPerTaskExecutor(ThreadPerTaskExecutor.createPlatformThreadFactory("Test-"), 2, 10);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(6);
+        AtomicInteger running = new AtomicInteger();
+        LongAccumulator maxRunning = new LongAccumulator(Math::max, 0);
+
+        //when
+        for (int task = 0; task < 6; task++) {
+            executor.execute(() -> {
+                maxRunning.accumulate(running.incrementAndGet());
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                finished.countDown();
+            });
+        }
+
+        //then
+        assertThat(executor.getActiveCount(), is(2));
+        assertThat(executor.getQueueSize(), is(4));
+        assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+
+        release.countDown();
+        assertThat(finished.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(maxRunning.get(), is(2l));
+        assertThat(executor.getQueueSize(), is(0));
+    }
+
+    @Test
+    public void testRejectIfQueueIsFull() throws Exception {
+        //given
+        ThreadPerTaskExecutor executor = new ThreadPerTaskExecutor(ThreadPerTaskExecutor.createPlatformThreadFactory("Test-"), 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+        Runnable task = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            finished.countDown();
+        };
+        executor.execute(task);
+        executor.execute(task);
+
+        //when
+        boolean rejected = false;
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            rejected = true;
+        }
+
+        //then
+        assertThat(rejected, is(true));
+        assertThat(executor.getRejectedCount(), is(1l));
+
+        release.countDown();
+        assertThat(finished.await(10, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void testVirtualThreadsFailFastBeforeJava21() {
+        //given
+        boolean supported = Runtime.version().feature() >= 21;
+
+        //when
+        boolean failed = false;
+        try {
+            ThreadPerTaskExecutor.createVirtualThreadFactory("Test-");
+        } catch (IllegalStateException ex) {
+            failed = true;
+        }
+
+        //then
+        assertThat(failed, is(!supported));
+    }
+
+}
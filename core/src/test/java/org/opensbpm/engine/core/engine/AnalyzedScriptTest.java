@@ -0,0 +1,63 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.util.Optional;
+import java.util.Set;
+import javax.script.Compilable;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+
+public class AnalyzedScriptTest {
+
+    private final ScriptEngine scriptEngine = new ScriptEngineManager().getEngineByMimeType("application/x-groovy");
+
+    @Test
+    public void testGetVariableNamesOfGString() throws Exception {
+        //when
+        AnalyzedScript result = analyze("\"${Order.Customer} ${Order.items.size() > 1 ? Invoice.Number : ''}\"");
+
+        //then
+        assertThat(result.getVariableNames().get(), containsInAnyOrder("Order", "Invoice"));
+    }
+
+    @Test
+    public void testGetVariableNamesOfLiteral() throws Exception {
+        //when
+        Optional<Set<String>> result = analyze("\"Simple Text\"").getVariableNames();
+
+        //then
+        assertThat(result.get().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testGetVariableNamesUnknownWithMethodOrBinding() throws Exception {
+        assertThat(analyze("def name() { Order }\nname()").getVariableNames().isPresent(), is(false));
+        assertThat(analyze("binding.getVariable('Order')").getVariableNames().isPresent(), is(false));
+    }
+
+    private AnalyzedScript analyze(String source) throws ScriptException {
+        return AnalyzedScript.of(((Compilable) scriptEngine).compile(source), source);
+    }
+
+}
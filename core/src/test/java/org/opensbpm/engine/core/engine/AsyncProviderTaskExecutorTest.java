@@ -0,0 +1,213 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensbpm.engine.api.instance.NextState;
+import org.opensbpm.engine.api.instance.Task;
+import org.opensbpm.engine.api.instance.TaskInfo;
+import org.opensbpm.engine.api.instance.TaskResponse;
+import org.opensbpm.engine.api.spi.AsyncTaskExecutionProvider;
+import org.opensbpm.engine.api.spi.TaskExecutionException;
+import org.opensbpm.engine.api.taskprovider.TaskProviderLimits;
+import org.opensbpm.engine.core.engine.ProviderBulkhead.Permit;
+import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.PreparedTask;
+import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.ProviderTaskExecutor;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-Test for {@link AsyncProviderTaskExecutor}
+ */
+public class AsyncProviderTaskExecutorTest {
+
+    private static final NextState END = NextState.ofEnd(100l, "End");
+
+    private ProviderTaskExecutor providerTaskExecutor;
+    private AsyncProviderTaskExecutor asyncTaskExecutor;
+    private ExecutorService engineExecutor;
+    private MeterRegistry meterRegistry;
+    private Task task;
+
+    @Before
+    public void setUp() {
+        providerTaskExecutor = mock(ProviderTaskExecutor.class);
+        engineExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "Engine-Test"));
+        asyncTaskExecutor = new AsyncProviderTaskExecutor(providerTaskExecutor, engineExecutor, Duration.ofMillis(100));
+        meterRegistry = new SimpleMeterRegistry();
+        asyncTaskExecutor.bindTo(meterRegistry);
+        task = new Task(new TaskInfo(1l, 1l, "processName", "stateName", LocalDateTime.MIN),
+                TaskResponse.of(1l, Collections.singletonList(END), LocalDateTime.MIN,
+                        Collections.emptyList(), Collections.emptyList()));
+    }
+
+    @After
+    public void tearDown() {
+        engineExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testResultIsAppliedAfterCompletion() throws Exception {
+        //given
+        CompletableFuture<NextState> providerResult = new CompletableFuture<>();
+        when(providerTaskExecutor.changeState(task, END)).thenReturn(true);
+
+        //when
+        CompletableFuture<Void> execution = asyncTaskExecutor.execute(prepare(providerResult));
+
+        //then
+        awaitInFlight(1.0);
+        verify(providerTaskExecutor, never()).changeState(any(), any());
+
+        providerResult.complete(END);
+        execution.join();
+        verify(providerTaskExecutor).changeState(task, END);
+        assertThat(getMeterValue("in-flight"), is(0.0));
+        assertThat(getMeterValue("completed"), is(1.0));
+    }
+
+    @Test
+    public void testResultIsAppliedOnEngineExecutor() {
+        //given
+        AtomicReference<String> applyingThread = new AtomicReference<>();
+        doAnswer(invocation -> {
+            applyingThread.set(Thread.currentThread().getName());
+            return true;
+        }).when(providerTaskExecutor).changeState(task, END);
+        CompletableFuture<NextState> providerResult = new CompletableFuture<>();
+        CompletableFuture<Void> execution = asyncTaskExecutor.execute(prepare(providerResult));
+
+        //when
+        providerResult.complete(END);
+        execution.join();
+
+        //then
+        assertThat(applyingThread.get(), startsWith("Engine-"));
+    }
+
+    @Test
+    public void testOutdatedResultIsDropped() {
+        //given
+        when(providerTaskExecutor.changeState(task, END)).thenReturn(false);
+
+        //when
+        asyncTaskExecutor.execute(prepare(CompletableFuture.completedFuture(END))).join();
+
+        //then
+        assertThat(getMeterValue("outdated"), is(1.0));
+        verify(providerTaskExecutor, never()).cancelBySystem(any(), anyString());
+    }
+
+    @Test
+    public void testFailedExecutionCancelsProcess() {
+        //when
+        asyncTaskExecutor.execute(prepare(CompletableFuture.failedFuture(new TaskExecutionException("remote failure")))).join();
+
+        //then
+        verify(providerTaskExecutor).cancelBySystem(task.getTaskInfo(), "remote failure");
+        verify(providerTaskExecutor, never()).changeState(any(), any());
+        assertThat(getMeterValue("failed"), is(1.0));
+    }
+
+    @Test
+    public void testTimedOutExecutionCancelsProcess() {
+        //when
+        asyncTaskExecutor.execute(prepare(new CompletableFuture<>())).join();
+
+        //then
+        verify(providerTaskExecutor).cancelBySystem(task.getTaskInfo(), "no result within PT0.1S");
+        assertThat(getMeterValue("in-flight"), is(0.0));
+    }
+
+    @Test
+    public void testRejectedExecutionDoesNotCancelProcess() throws Exception {
+        //given
+        ProviderBulkhead bulkhead = new ProviderBulkhead("Async Provider", new TaskProviderLimits(1, 0, 0, 1, 0));
+        Permit permit = bulkhead.acquire();
+
+        //when
+        CompletableFuture<Void> execution = asyncTaskExecutor.execute(prepare(CompletableFuture.completedFuture(END), bulkhead));
+
+        //then
+        CompletionException ex = assertThrows(CompletionException.class, execution::join);
+        assertThat(ex.getCause(), is(instanceOf(BulkheadRejectedException.class)));
+        verify(providerTaskExecutor, never()).cancelBySystem(any(), anyString());
+        verify(providerTaskExecutor, never()).changeState(any(), any());
+        permit.release(false);
+    }
+
+    private void awaitInFlight(double expected) throws InterruptedException {
+        //the provider is called by a thread of the bulkhead
+        long timeout = System.currentTimeMillis() + 5000;
+        while (getMeterValue("in-flight") != expected && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertThat(getMeterValue("in-flight"), is(expected));
+    }
+
+    private double getMeterValue(String name) {
+        String meterName = "opensbpm.engine.async-tasks." + name;
+        return "in-flight".equals(name)
+                ? meterRegistry.get(meterName).gauge().value()
+                : meterRegistry.get(meterName).functionCounter().count();
+    }
+
+    private PreparedTask prepare(CompletionStage<NextState> result) {
+        return prepare(result, new ProviderBulkhead("Async Provider", new TaskProviderLimits(16, 100, 0, 1, 1000)));
+    }
+
+    private PreparedTask prepare(CompletionStage<NextState> result, ProviderBulkhead bulkhead) {
+        AsyncTaskExecutionProvider provider = new AsyncTaskExecutionProvider() {
+            @Override
+            public String getName() {
+                return "Async Provider";
+            }
+
+            @Override
+            public CompletionStage<NextState> executeTaskAsync(Map<String, String> parameters, Task task) {
+                return result;
+            }
+        };
+        return new PreparedTask(provider, bulkhead, 10l, Collections.emptyMap(), task);
+    }
+
+}
@@ -0,0 +1,114 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensbpm.engine.api.instance.NextState;
+import org.opensbpm.engine.api.instance.ProcessInstanceState;
+import org.opensbpm.engine.api.instance.Task;
+import org.opensbpm.engine.api.spi.AsyncTaskExecutionProvider;
+import org.opensbpm.engine.api.spi.TaskExecutionException;
+import org.opensbpm.engine.core.junit.UserProcessController.ProcessInstanceController;
+import org.opensbpm.engine.core.junit.WorkflowTestCase;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Integration-Test for {@link AsyncTaskExecutionProvider}s executed by the {@link AsyncProviderTaskExecutor}
+ */
+public class AsyncTaskExecutionIT extends WorkflowTestCase {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Before
+    public void resetProvider() {
+        AsyncTestProvider.EXECUTIONS.set(0);
+        AsyncTestProvider.failure = null;
+    }
+
+    @Test
+    public void resultIsAppliedAfterCompletion() throws Exception {
+        //given
+        double completed = getCompletedCount();
+
+        //when
+        ProcessInstanceController processController = startServiceProcess(saveServiceProcess("Async", AsyncTestProvider.NAME));
+
+        //then
+        await(() -> ProcessInstanceState.FINISHED == processController.getProcessInfo().getState());
+        assertThat(AsyncTestProvider.EXECUTIONS.get(), is(1));
+        assertThat(getCompletedCount(), is(completed + 1));
+    }
+
+    @Test
+    public void failedExecutionCancelsProcess() throws Exception {
+        //given
+        AsyncTestProvider.failure = "remote service rejected task";
+
+        //when
+        ProcessInstanceController processController = startServiceProcess(saveServiceProcess("Async", AsyncTestProvider.NAME));
+
+        //then
+        await(() -> ProcessInstanceState.CANCELLED_BY_SYSTEM == processController.getProcessInfo().getState());
+        assertThat(AsyncTestProvider.EXECUTIONS.get(), is(1));
+    }
+
+    private double getCompletedCount() {
+        return meterRegistry.get("opensbpm.engine.async-tasks.completed").functionCounter().count();
+    }
+
+    @Component
+    public static class AsyncTestProvider implements AsyncTaskExecutionProvider {
+
+        private static final String NAME = "AsyncTestProvider";
+        private static final AtomicInteger EXECUTIONS = new AtomicInteger();
+        private static volatile String failure;
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public CompletionStage<NextState> executeTaskAsync(Map<String, String> parameters, Task task) {
+            EXECUTIONS.incrementAndGet();
+            NextState nextState = task.getNextStates().get(0);
+            String currentFailure = failure;
+            //completes on another thread like a non-blocking client
+            return CompletableFuture.supplyAsync(() -> {
+                if (currentFailure != null) {
+                    throw new CompletionException(new TaskExecutionException(currentFailure));
+                }
+                return nextState;
+            }, CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+        }
+
+    }
+
+}
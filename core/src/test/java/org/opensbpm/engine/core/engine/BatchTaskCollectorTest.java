@@ -0,0 +1,192 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensbpm.engine.api.instance.NextState;
+import org.opensbpm.engine.api.instance.Task;
+import org.opensbpm.engine.api.instance.TaskInfo;
+import org.opensbpm.engine.api.instance.TaskResponse;
+import org.opensbpm.engine.api.spi.BatchTaskExecutionProvider;
+import org.opensbpm.engine.api.spi.TaskExecutionException;
+import org.opensbpm.engine.api.taskprovider.TaskProviderLimits;
+import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.PreparedTask;
+import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.ProviderTaskExecutor;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-Test for {@link BatchTaskCollector}
+ */
+public class BatchTaskCollectorTest {
+
+    private static final NextState END = NextState.ofEnd(100l, "End");
+
+    private ProviderTaskExecutor providerTaskExecutor;
+    private TestBatchProvider provider;
+    private BatchTaskCollector collector;
+    private MeterRegistry meterRegistry;
+
+    @Before
+    public void setUp() {
+        providerTaskExecutor = mock(ProviderTaskExecutor.class);
+        provider = new TestBatchProvider();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        collector.destroy();
+    }
+
+    @Test
+    public void testFullBatchIsExecuted() {
+        //given
+        collector = createCollector(Duration.ofHours(1));
+        PreparedTask task1 = prepare(1l);
+        PreparedTask task2 = prepare(2l);
+        PreparedTask task3 = prepare(3l);
+
+        //when
+        collector.add(task1);
+        collector.add(task2);
+        collector.add(task3);
+
+        //then
+        verify(providerTaskExecutor, timeout(5000)).changeState(task1.getTask(), END);
+        verify(providerTaskExecutor, timeout(5000)).changeState(task2.getTask(), END);
+        assertThat(provider.batches, contains(List.of(1l, 2l)));
+        verify(providerTaskExecutor, never()).changeState(eq(task3.getTask()), any());
+        assertThat(meterRegistry.get("opensbpm.engine.batch.pending").gauge().value(), is(1.0));
+    }
+
+    @Test
+    public void testPendingBatchIsExecutedOnDestroy() throws Exception {
+        //given
+        collector = createCollector(Duration.ofHours(1));
+        PreparedTask task = prepare(1l);
+        collector.add(task);
+
+        //when
+        collector.destroy();
+
+        //then
+        verify(providerTaskExecutor).changeState(task.getTask(), END);
+        assertThat(provider.batches, contains(List.of(1l)));
+    }
+
+    @Test
+    public void testBatchIsExecutedAfterWindow() {
+        //given
+        collector = createCollector(Duration.ofMillis(10));
+        PreparedTask task = prepare(1l);
+
+        //when
+        collector.add(task);
+
+        //then
+        verify(providerTaskExecutor, timeout(5000)).changeState(task.getTask(), END);
+        assertThat(provider.batches, contains(List.of(1l)));
+    }
+
+    @Test
+    public void testFailedTaskIsIsolated() throws Exception {
+        //given
+        collector = createCollector(Duration.ofHours(1));
+        provider.failingTaskId = 1l;
+        PreparedTask task1 = prepare(1l);
+        PreparedTask task2 = prepare(2l);
+
+        //when
+        collector.add(task1);
+        collector.add(task2);
+
+        //then
+        verify(providerTaskExecutor, timeout(5000)).cancelBySystem(task1.getTask().getTaskInfo(), "task 1 failed");
+        verify(providerTaskExecutor, timeout(5000)).changeState(task2.getTask(), END);
+        verify(providerTaskExecutor, never()).changeState(eq(task1.getTask()), any());
+        verify(providerTaskExecutor, never()).cancelBySystem(eq(task2.getTask().getTaskInfo()), anyString());
+        collector.destroy();
+        assertThat(meterRegistry.get("opensbpm.engine.batch.executed").functionCounter().count(), is(1.0));
+        assertThat(meterRegistry.get("opensbpm.engine.batch.failed").functionCounter().count(), is(1.0));
+    }
+
+    private BatchTaskCollector createCollector(Duration window) {
+        BatchTaskCollector batchTaskCollector = new BatchTaskCollector(providerTaskExecutor, window, Duration.ofSeconds(10),
+                Duration.ofMillis(100));
+        batchTaskCollector.bindTo(meterRegistry);
+        return batchTaskCollector;
+    }
+
+    private PreparedTask prepare(Long id) {
+        TaskInfo taskInfo = new TaskInfo(id, 1l, "processName", "stateName", LocalDateTime.MIN);
+        Task task = new Task(taskInfo, TaskResponse.of(id, Collections.singletonList(END), LocalDateTime.MIN,
+                Collections.emptyList(), Collections.emptyList()));
+        when(providerTaskExecutor.changeState(task, END)).thenReturn(true);
+        return new PreparedTask(provider, new ProviderBulkhead(provider.getName(), new TaskProviderLimits(16, 100, 0, 1, 1000)),
+                10l, Collections.emptyMap(), task);
+    }
+
+    private static class TestBatchProvider implements BatchTaskExecutionProvider {
+
+        private final List<List<Long>> batches = Collections.synchronizedList(new ArrayList<>());
+        private Long failingTaskId;
+
+        @Override
+        public String getName() {
+            return "Batch Provider";
+        }
+
+        @Override
+        public int getMaxBatchSize() {
+            return 2;
+        }
+
+        @Override
+        public List<TaskResult> executeTasks(Map<String, String> parameters, List<Task> tasks) {
+            batches.add(tasks.stream().map(Task::getId).collect(Collectors.toList()));
+            return tasks.stream()
+                    .map(task -> task.getId().equals(failingTaskId)
+                    ? TaskResult.failed(new TaskExecutionException("task " + task.getId() + " failed"))
+                    : TaskResult.of(END))
+                    .collect(Collectors.toList());
+        }
+
+    }
+
+}
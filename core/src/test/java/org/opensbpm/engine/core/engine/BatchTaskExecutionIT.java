@@ -0,0 +1,112 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensbpm.engine.api.instance.ProcessInstanceState;
+import org.opensbpm.engine.api.instance.Task;
+import org.opensbpm.engine.api.model.ProcessModelInfo;
+import org.opensbpm.engine.api.spi.BatchTaskExecutionProvider;
+import org.opensbpm.engine.api.spi.TaskExecutionException;
+import org.opensbpm.engine.core.junit.UserProcessController.ProcessInstanceController;
+import org.opensbpm.engine.core.junit.WorkflowTestCase;
+import org.springframework.stereotype.Component;
+import org.springframework.test.context.TestPropertySource;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+/**
+ * Integration-Test for {@link BatchTaskExecutionProvider}s executed by the {@link BatchTaskCollector}
+ */
+@TestPropertySource(properties = "opensbpm.engine.batch.window=PT1M")
+public class BatchTaskExecutionIT extends WorkflowTestCase {
+
+    @Before
+    public void resetProvider() {
+        BatchTestProvider.BATCHES.clear();
+        BatchTestProvider.failingProcess = null;
+    }
+
+    @Test
+    public void tasksAreExecutedInOneBatch() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = saveServiceProcess("Batch", BatchTestProvider.NAME);
+
+        //when
+        ProcessInstanceController processController1 = startServiceProcess(modelInfo);
+        ProcessInstanceController processController2 = startServiceProcess(modelInfo);
+
+        //then
+        await(() -> ProcessInstanceState.FINISHED == processController1.getProcessInfo().getState()
+                && ProcessInstanceState.FINISHED == processController2.getProcessInfo().getState());
+        assertThat(BatchTestProvider.BATCHES, contains(2));
+    }
+
+    @Test
+    public void failedTaskCancelsOnlyItsProcess() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = saveServiceProcess("Batch", BatchTestProvider.NAME);
+
+        //when
+        ProcessInstanceController processController1 = startServiceProcess(modelInfo);
+        BatchTestProvider.failingProcess = processController1.getProcessInfo().getId();
+        ProcessInstanceController processController2 = startServiceProcess(modelInfo);
+
+        //then
+        await(() -> ProcessInstanceState.CANCELLED_BY_SYSTEM == processController1.getProcessInfo().getState()
+                && ProcessInstanceState.FINISHED == processController2.getProcessInfo().getState());
+        assertThat(BatchTestProvider.BATCHES.size(), is(1));
+    }
+
+    @Component
+    public static class BatchTestProvider implements BatchTaskExecutionProvider {
+
+        private static final String NAME = "BatchTestProvider";
+        private static final List<Integer> BATCHES = Collections.synchronizedList(new ArrayList<>());
+        private static volatile Long failingProcess;
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public int getMaxBatchSize() {
+            return 2;
+        }
+
+        @Override
+        public List<TaskResult> executeTasks(Map<String, String> parameters, List<Task> tasks) {
+            BATCHES.add(tasks.size());
+            return tasks.stream()
+                    .map(task -> task.getTaskInfo().getProcessId().equals(failingProcess)
+                    ? TaskResult.failed(new TaskExecutionException("remote service rejected task"))
+                    : TaskResult.of(task.getNextStates().get(0)))
+                    .collect(Collectors.toList());
+        }
+
+    }
+
+}
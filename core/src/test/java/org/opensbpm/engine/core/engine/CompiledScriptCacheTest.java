@@ -0,0 +1,127 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import org.junit.Test;
+import org.opensbpm.engine.core.engine.CompiledScriptCache.ScriptCompiler;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class CompiledScriptCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicLong compilations = new AtomicLong();
+
+    private final ScriptCompiler compiler = script -> {
+        compilations.incrementAndGet();
+        return new CompiledScript() {
+            @Override
+            public Object eval(ScriptContext context) {
+                return script;
+            }
+
+            @Override
+            public ScriptEngine getEngine() {
+                return null;
+            }
+
+            @Override
+            public Object eval(Bindings bindings) {
+                return script;
+            }
+        };
+    };
+
+    @Test
+    public void testGetCompilesOnlyOnce() throws Exception {
+        //given
+        CompiledScriptCache cache = new CompiledScriptCache(10, Duration.ofMinutes(1), () -> 0);
+        cache.bindTo(meterRegistry);
+
+        //when
+        CompiledScript first = cache.get("script", compiler);
+        CompiledScript second = cache.get("script", compiler);
+
+        //then
+        assertThat(second, is(sameInstance(first)));
+        assertThat(compilations.get(), is(1l));
+        assertThat(getCount("hit"), is(1.0));
+        assertThat(getCount("miss"), is(1.0));
+    }
+
+    @Test
+    public void testGetEvictsLeastRecentlyUsed() throws Exception {
+        //given
+        AtomicLong ticker = new AtomicLong();
+        CompiledScriptCache cache = new CompiledScriptCache(2, Duration.ofMinutes(1), ticker::incrementAndGet);
+        cache.bindTo(meterRegistry);
+        List<String> removed = new ArrayList<>();
+        cache.addRemovalListener(removed::add);
+        CompiledScript first = cache.get("first", compiler);
+        cache.get("second", compiler);
+        cache.get("first", compiler);
+
+        //when
+        cache.get("third", compiler);
+
+        //then
+        assertThat(cache.size(), is(2));
+        assertThat(meterRegistry.get("opensbpm.engine.script.cache.evictions").functionCounter().count(), is(1.0));
+        assertThat(removed, is(Arrays.asList("second")));
+        assertThat(cache.get("first", compiler), is(sameInstance(first)));
+        assertThat(compilations.get(), is(3l));
+    }
+
+    @Test
+    public void testGetRecompilesExpiredScript() throws Exception {
+        //given
+        AtomicLong ticker = new AtomicLong();
+        CompiledScriptCache cache = new CompiledScriptCache(10, Duration.ofNanos(10), ticker::get);
+        cache.bindTo(meterRegistry);
+        CompiledScript first = cache.get("script", compiler);
+
+        //when
+        ticker.addAndGet(10);
+        CompiledScript result = cache.get("script", compiler);
+
+        //then
+        assertThat(result, is(not(sameInstance(first))));
+        assertThat(compilations.get(), is(2l));
+        assertThat(getCount("miss"), is(2.0));
+    }
+
+    private double getCount(String result) {
+        return meterRegistry.get("opensbpm.engine.script.cache.gets")
+                .tag("result", result)
+                .functionCounter().count();
+    }
+
+}
@@ -17,9 +17,12 @@
  */
 package org.opensbpm.engine.core.engine;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 import org.junit.Before;
 import org.junit.Test;
 import org.opensbpm.engine.api.ModelService.ModelRequest;
@@ -31,18 +34,18 @@ import org.opensbpm.engine.api.model.builder.ObjectBuilder;
 import org.opensbpm.engine.api.model.builder.ObjectBuilder.FieldBuilder;
 import org.opensbpm.engine.api.model.builder.ObjectBuilder.ToManyBuilder;
 import org.opensbpm.engine.api.model.builder.ObjectBuilder.ToOneBuilder;
+import org.opensbpm.engine.api.model.definition.PermissionDefinition.Permission;
 import org.opensbpm.engine.api.model.definition.ProcessDefinition;
 import org.opensbpm.engine.core.EngineServiceBoundary;
 import org.opensbpm.engine.core.ModelServiceBoundary;
 import org.opensbpm.engine.core.UserTokenServiceBoundary;
+import org.opensbpm.engine.core.engine.entities.ObjectInstance;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance;
 import org.opensbpm.engine.core.engine.entities.ServiceSubject;
 import org.opensbpm.engine.core.engine.entities.Subject;
 import org.opensbpm.engine.core.engine.entities.User;
 import org.opensbpm.engine.core.junit.ServiceITCase;
-import org.opensbpm.engine.core.model.entities.AttributeModel;
 import org.opensbpm.engine.core.model.entities.FunctionState;
-import org.opensbpm.engine.core.model.entities.ModelVersion;
 import org.opensbpm.engine.core.model.entities.ObjectModel;
 import org.opensbpm.engine.core.model.entities.ProcessModel;
 import org.opensbpm.engine.core.model.entities.ServiceSubjectModel;
@@ -52,7 +55,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 import static org.opensbpm.engine.api.junit.TaskResponseMatcher.hasSchemas;
@@ -69,6 +71,10 @@ import static org.opensbpm.engine.api.model.builder.DefinitionFactory.toMany;
 import static org.opensbpm.engine.api.model.builder.DefinitionFactory.toOne;
 import static org.opensbpm.engine.api.model.builder.DefinitionFactory.userSubject;
 import static org.opensbpm.engine.core.junit.MockData.spyFunctionState;
+import static org.opensbpm.engine.core.junit.MockData.spyObjectModel;
+import static org.opensbpm.engine.core.junit.MockData.spyProcessModel;
+import static org.opensbpm.engine.core.junit.MockData.spySimpleAttributeModel;
+import static org.opensbpm.engine.core.junit.MockData.spyStatePermission;
 
 public class EngineConverterIT extends ServiceITCase {
 
@@ -89,6 +95,9 @@ public class EngineConverterIT extends ServiceITCase {
 
     @Autowired
     private ObjectInstanceService objectInstanceService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
     private UserToken userToken;
 
     @Before
@@ -167,22 +176,58 @@ public class EngineConverterIT extends ServiceITCase {
     }
 
     @Test
-    public void testEvaluateDisplayNameWithObjectModel() throws Exception {
+    public void testGetTasksWithPrecompiledDisplayName() throws Exception {
         //given
-        ProcessModel processModel = new ProcessModel("name", new ModelVersion(0, 0));
-        ObjectModel objectModel = spy(new ObjectModel("model"));
-        when(objectModel.getId()).thenReturn(1l);
-        processModel.addObjectModel(objectModel);
+        ObjectBuilder object1 = object("Order");
+        FieldBuilder stringField = field("Customer", FieldType.STRING);
 
-        SimpleAttributeModel attributeModel = spy(new SimpleAttributeModel(objectModel, "StringField", FieldType.STRING));
-        when(attributeModel.getId()).thenReturn(2l);
-        objectModel.addAttributeModel(attributeModel);
+        ProcessDefinition processDefinition = process("Precompiled Process")
+                .addSubject(userSubject("Subject", "role1").asStarter()
+                        .addState(functionState("Start").asStart()
+                                .withDisplayName("Start ${Order.Customer} precompiled")
+                                .addPermission(permission(object1)
+                                        .addWritePermission(stringField, false)
+                                )
+                                .toHead(functionState("End").asEnd())
+                        )
+                )
+                .addObject(object1
+                        .addAttribute(stringField)
+                ).build();
+
+        doInTransaction(() -> {
+            ModelRequest modelRequest = ModelRequest.of(modelService.save(processDefinition));
+            return engineService.startProcess(userToken, modelRequest).getProcessId();
+        });
+        FunctionCounter misses = meterRegistry.get("opensbpm.engine.script.cache.gets")
+                .tag("cache", CompiledScriptCache.DEFAULT_NAME)
+                .tag("result", "miss")
+                .functionCounter();
+        double missCount = misses.count();
+
+        //when
+        TaskInfo taskInfo = engineService.getTasks(userToken).stream()
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("no tasks for user " + userToken));
+
+        //then
+        assertThat(taskInfo.getStateName(), is("Start null precompiled"));
+        assertThat(misses.count(), is(missCount));
+    }
+
+    @Test
+    public void testEvaluateDisplayNameWithObjectModel() throws Exception {
+        //given
+        ProcessModel processModel = spyProcessModel(1l, "name");
+        ObjectModel objectModel = spyObjectModel(1l, processModel, "model");
+        SimpleAttributeModel attributeModel = spySimpleAttributeModel(2l, objectModel, "StringField", FieldType.STRING, 1);
+        ServiceSubjectModel subjectModel = processModel.addServiceSubjectModel("name");
 
         ProcessInstance processInstance = new ProcessInstance(processModel, new User("username"));
 
-        Subject subject = new ServiceSubject(processInstance, new ServiceSubjectModel("name"));
-        FunctionState state = spyFunctionState(1l, subject.getSubjectModel(), "Function");
-        when(state.hasAnyPermission(any(AttributeModel.class))).thenReturn(Boolean.TRUE);
+        Subject subject = new ServiceSubject(processInstance, subjectModel);
+        FunctionState state = spyFunctionState(1l, subjectModel, "Function");
+        spyStatePermission(3l, state, attributeModel, Permission.WRITE);
         state.setDisplayName("Text ${model.StringField} with Groovy");
 
         //when
@@ -195,14 +240,10 @@ public class EngineConverterIT extends ServiceITCase {
     @Test
     public void testEvaluateDisplayNameWithObjectInstance() throws Exception {
         //given
-        ProcessModel processModel = new ProcessModel("name", new ModelVersion(0, 0));
-        ObjectModel objectModel = spy(new ObjectModel("model"));
-        when(objectModel.getId()).thenReturn(1l);
-        processModel.addObjectModel(objectModel);
-
-        SimpleAttributeModel attributeModel = spy(new SimpleAttributeModel(objectModel, "StringField", FieldType.STRING));
-        when(attributeModel.getId()).thenReturn(2l);
-        objectModel.addAttributeModel(attributeModel);
+        ProcessModel processModel = spyProcessModel(1l, "name");
+        ObjectModel objectModel = spyObjectModel(1l, processModel, "model");
+        SimpleAttributeModel attributeModel = spySimpleAttributeModel(2l, objectModel, "StringField", FieldType.STRING, 1);
+        ServiceSubjectModel subjectModel = processModel.addServiceSubjectModel("name");
 
         ProcessInstance processInstance = new ProcessInstance(processModel, new User("username"));
 
@@ -212,9 +253,9 @@ public class EngineConverterIT extends ServiceITCase {
                 .orElseGet(() -> processInstance.addObjectInstance(objectModel))
                 .setValue(values);
 
-        Subject subject = new ServiceSubject(processInstance, new ServiceSubjectModel("name"));
-        FunctionState state = spyFunctionState(1l, subject.getSubjectModel(), "Function");
-        when(state.hasAnyPermission(any(AttributeModel.class))).thenReturn(Boolean.TRUE);
+        Subject subject = new ServiceSubject(processInstance, subjectModel);
+        FunctionState state = spyFunctionState(1l, subjectModel, "Function");
+        spyStatePermission(3l, state, attributeModel, Permission.WRITE);
         state.setDisplayName("Text ${model.StringField} with Groovy");
 
         //when
@@ -224,4 +265,31 @@ public class EngineConverterIT extends ServiceITCase {
         assertThat(evaluted, is("Text X with Groovy"));
     }
 
+    @Test
+    public void testConvertSubjectStateDeferredKeepsObjectValues() throws Exception {
+        //given
+        ProcessModel processModel = spyProcessModel(1l, "name");
+        ObjectModel objectModel = spyObjectModel(1l, processModel, "model");
+        SimpleAttributeModel attributeModel = spySimpleAttributeModel(2l, objectModel, "StringField", FieldType.STRING, 1);
+        ServiceSubjectModel subjectModel = processModel.addServiceSubjectModel("name");
+
+        ProcessInstance processInstance = spy(new ProcessInstance(processModel, new User("username")));
+        when(processInstance.getId()).thenReturn(3l);
+        ObjectInstance objectInstance = processInstance.addObjectInstance(objectModel);
+        objectInstance.setValue(new HashMap<>(Map.of(attributeModel.getId(), "X")));
+
+        Subject subject = spy(new ServiceSubject(processInstance, subjectModel));
+        when(subject.getId()).thenReturn(4l);
+        FunctionState state = spyFunctionState(1l, subjectModel, "Function");
+        spyStatePermission(3l, state, attributeModel, Permission.WRITE);
+        state.setDisplayName("Text ${model.StringField} with Groovy");
+
+        //when
+        Supplier<TaskInfo> taskInfo = engineConverter.convertSubjectStateDeferred(subject, state);
+        objectInstance.setValue(new HashMap<>(Map.of(attributeModel.getId(), "Y")));
+
+        //then
+        assertThat(taskInfo.get().getStateName(), is("Text X with Groovy"));
+    }
+
 }
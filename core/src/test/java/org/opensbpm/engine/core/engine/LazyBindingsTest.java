@@ -0,0 +1,80 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class LazyBindingsTest {
+
+    @Test
+    public void testPutLazyCreatesValueOnFirstAccessOnly() {
+        //given
+        AtomicInteger created = new AtomicInteger();
+        LazyBindings bindings = new LazyBindings(Optional.empty());
+
+        //when
+        bindings.putLazy("Order", () -> "Order " + created.incrementAndGet());
+
+        //then
+        assertThat(bindings.containsKey("Order"), is(true));
+        assertThat(created.get(), is(0));
+        assertThat(bindings.get("Order"), is("Order 1"));
+        assertThat(bindings.get("Order"), is("Order 1"));
+        assertThat(created.get(), is(1));
+    }
+
+    @Test
+    public void testPutLazySkipsUnreferencedVariables() {
+        //given
+        AtomicInteger created = new AtomicInteger();
+        LazyBindings bindings = new LazyBindings(Optional.of(Collections.singleton("Order")));
+
+        //when
+        bindings.putLazy("Order", created::incrementAndGet);
+        bindings.putLazy("Invoice", created::incrementAndGet);
+
+        //then
+        assertThat(bindings.isReferenced("Invoice"), is(false));
+        assertThat(bindings.containsKey("Invoice"), is(false));
+        assertThat(bindings.size(), is(1));
+        assertThat(created.get(), is(0));
+    }
+
+    @Test
+    public void testPutReplacesPendingValue() {
+        //given
+        AtomicInteger created = new AtomicInteger();
+        LazyBindings bindings = new LazyBindings(Optional.empty());
+        bindings.putLazy("Order", created::incrementAndGet);
+
+        //when
+        Object previous = bindings.put("Order", "Value");
+
+        //then
+        assertThat(previous, is(nullValue()));
+        assertThat(bindings.get("Order"), is("Value"));
+        assertThat(created.get(), is(0));
+    }
+
+}
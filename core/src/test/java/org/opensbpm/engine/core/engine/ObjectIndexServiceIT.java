@@ -0,0 +1,180 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.opensbpm.engine.api.SearchFilter.Criteria.Operation;
+import org.opensbpm.engine.api.instance.ProcessInfo;
+import org.opensbpm.engine.api.model.FieldType;
+import org.opensbpm.engine.api.model.ProcessModelInfo;
+import org.opensbpm.engine.api.model.builder.ObjectBuilder;
+import org.opensbpm.engine.api.model.builder.ObjectBuilder.FieldBuilder;
+import org.opensbpm.engine.api.model.definition.PermissionDefinition.Permission;
+import org.opensbpm.engine.api.model.definition.ProcessDefinition;
+import org.opensbpm.engine.core.engine.entities.ObjectIndexValue;
+import org.opensbpm.engine.core.junit.TestTask;
+import org.opensbpm.engine.core.junit.UserProcessController;
+import org.opensbpm.engine.core.junit.WorkflowTestCase;
+import org.springframework.beans.factory.annotation.Autowired;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.field;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.functionState;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.object;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.permission;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.process;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.userSubject;
+
+public class ObjectIndexServiceIT extends WorkflowTestCase {
+
+    @Autowired
+    private ObjectIndexBackfill objectIndexBackfill;
+
+    @Test
+    public void testFindAllByAttribute() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = saveInvoiceProcess();
+        Long first = executeInvoice(modelInfo, "Customer A", new BigDecimal("100.50"), "first");
+        Long second = executeInvoice(modelInfo, "Customer B", new BigDecimal("20"), "second");
+        Long third = executeInvoice(modelInfo, "Customer A", new BigDecimal("5"), "third");
+
+        //when
+        Collection<Long> byCustomer = ids(instanceService.findAllByAttribute("Invoice", "Customer", Operation.EQUALTO, "Customer A"));
+        Collection<Long> byAmount = ids(instanceService.findAllByAttribute("Invoice", "Amount", Operation.GREATERTHAN_EQUALTO, "20"));
+        Collection<Long> byNote = ids(instanceService.findAllByAttribute("Invoice", "Note", Operation.EQUALTO, "first"));
+        Collection<Long> byOtherObject = ids(instanceService.findAllByAttribute("Order", "Customer", Operation.EQUALTO, "Customer A"));
+
+        //then
+        assertThat(byCustomer, containsInAnyOrder(first, third));
+        assertThat(byAmount, containsInAnyOrder(first, second));
+        assertThat("not indexed attribute", byNote, is(empty()));
+        assertThat(byOtherObject, is(empty()));
+    }
+
+    @Test
+    public void testUpdateIndex() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = saveInvoiceProcess();
+
+        //when
+        Long processId = executeInvoice(modelInfo, "Customer C", new BigDecimal("1"), "note");
+
+        //then
+        long count = doInTransaction(() -> entityManager.createQuery("select count(v) from objectindexvalue v"
+                + " where v.processInstance.id = :processId", Long.class)
+                .setParameter("processId", processId)
+                .getSingleResult());
+        assertThat("one row per indexed attribute", count, is(2L));
+        Collection<ObjectIndexValue> values = doInTransaction(() -> entityManager.createQuery("select v from objectindexvalue v"
+                + " where v.processInstance.id = :processId and v.stringValue is not null", ObjectIndexValue.class)
+                .setParameter("processId", processId)
+                .getResultList());
+        assertThat(values.stream().map(ObjectIndexValue::getStringValue).collect(Collectors.toList()),
+                containsInAnyOrder("Customer C"));
+    }
+
+    @Test
+    public void testFindAllByAttributeWithLargeScale() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = saveInvoiceProcess();
+        Long processId = executeInvoice(modelInfo, "Customer D", new BigDecimal("1.00000000001"), "scale");
+
+        //when
+        Collection<Long> byAmount = ids(instanceService.findAllByAttribute("Invoice", "Amount", Operation.EQUALTO, "1.00000000001"));
+
+        //then
+        assertThat(byAmount, containsInAnyOrder(processId));
+    }
+
+    @Test
+    public void testBackfill() throws Exception {
+        //given
+        ProcessModelInfo modelInfo = saveInvoiceProcess();
+        Long processId = executeInvoice(modelInfo, "Customer E", new BigDecimal("7"), "backfill");
+        doInTransaction(() -> entityManager.createQuery("delete from objectindexvalue v"
+                + " where v.processInstance.id = :processId")
+                .setParameter("processId", processId)
+                .executeUpdate());
+
+        //when
+        long processed = objectIndexBackfill.backfill();
+
+        //then
+        assertThat(processed, is(greaterThanOrEqualTo(1L)));
+        Collection<Long> byCustomer = ids(instanceService.findAllByAttribute("Invoice", "Customer", Operation.EQUALTO, "Customer E"));
+        assertThat(byCustomer, containsInAnyOrder(processId));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindAllByAttributeWithInvalidValue() {
+        //given
+        saveInvoiceProcess();
+
+        //when
+        instanceService.findAllByAttribute("Invoice", "Amount", Operation.EQUALTO, "not a number");
+    }
+
+    private ProcessModelInfo saveInvoiceProcess() {
+        FieldBuilder customer = field("Customer", FieldType.STRING).asIndexed();
+        FieldBuilder amount = field("Amount", FieldType.DECIMAL).asIndexed();
+        FieldBuilder note = field("Note", FieldType.STRING);
+        ObjectBuilder invoice = object("Invoice")
+                .addAttribute(customer)
+                .addAttribute(amount)
+                .addAttribute(note);
+
+        ProcessDefinition processDefinition = process("Invoice Process")
+                .addSubject(userSubject("Accounting", "Accounting Role")
+                        .asStarter()
+                        .addState(functionState("Start").asStart()
+                                .addPermission(permission(invoice)
+                                        .addPermission(customer, Permission.WRITE, true)
+                                        .addPermission(amount, Permission.WRITE, true)
+                                        .addPermission(note, Permission.WRITE, false)
+                                )
+                                .toHead(functionState("End").asEnd())
+                        ))
+                .addObject(invoice)
+                .build();
+        return modelService.save(processDefinition);
+    }
+
+    private Long executeInvoice(ProcessModelInfo modelInfo, String customer, BigDecimal amount, String note) throws Exception {
+        UserProcessController user = createUserController("User " + note, "Accounting Role");
+        Long processId = user.startProcess(modelInfo).getProcessInfo().getId();
+        TestTask task = user.getTask("Start");
+        task.setValue("Invoice", "Customer", customer);
+        task.setValue("Invoice", "Amount", amount);
+        task.setValue("Invoice", "Note", note);
+        user.execute(task, "End");
+        return processId;
+    }
+
+    private static Collection<Long> ids(Collection<ProcessInfo> processInfos) {
+        return processInfos.stream()
+                .map(ProcessInfo::getId)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,94 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.sql.Blob;
+import java.util.HashMap;
+import org.junit.Test;
+import org.opensbpm.engine.core.engine.entities.ObjectInstance;
+import org.opensbpm.engine.core.engine.entities.ProcessInstance;
+import org.opensbpm.engine.core.engine.entities.User;
+import org.opensbpm.engine.core.junit.ServiceITCase;
+import org.opensbpm.engine.core.model.entities.ModelVersion;
+import org.opensbpm.engine.core.model.entities.ObjectModel;
+import org.opensbpm.engine.core.model.entities.ProcessModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+public class ObjectValueMigrationIT extends ServiceITCase {
+
+    @Autowired
+    private ObjectValueMigration migration;
+
+    @Test
+    public void testMigrate() throws Exception {
+        //given
+        TestEntityManager testEntityManager = new TestEntityManager(entityManagerFactory);
+        HashMap<Long, Serializable> values = new HashMap<>();
+        values.put(1L, "value");
+        values.put(2L, 42);
+
+        Long id = doInTransaction(() -> {
+            ProcessModel processModel = new ProcessModel("name", new ModelVersion(0, 0));
+            ObjectModel objectModel = processModel.addObjectModel("name");
+            testEntityManager.persist(processModel);
+            User user = testEntityManager.persist(new User("userName"));
+            ProcessInstance processInstance = testEntityManager.persist(new ProcessInstance(processModel, user));
+            ObjectInstance objectInstance = processInstance.addObjectInstance(objectModel);
+            objectInstance.setValue(values);
+            return testEntityManager.persistAndGetId(objectInstance, Long.class);
+        });
+        doInTransaction(() -> entityManager.createNativeQuery("update object_instance set virtue = :virtue where id = :id")
+                .setParameter("virtue", serialize(values))
+                .setParameter("id", id)
+                .executeUpdate());
+        assertThat(readFirstByte(id), is((byte) 0xAC));
+
+        //when
+        long result = migration.migrate();
+
+        //then
+        assertThat(result, is(greaterThanOrEqualTo(1L)));
+        assertThat(readFirstByte(id), is((byte) 1));
+        assertThat(doInTransaction(() -> entityManager.find(ObjectInstance.class, id).getValue()), is(values));
+    }
+
+    private byte[] serialize(HashMap<Long, Serializable> values) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(values);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private byte readFirstByte(Long id) {
+        return doInTransaction(() -> {
+            Object column = entityManager.createNativeQuery("select virtue from object_instance where id = :id")
+                    .setParameter("id", id)
+                    .getSingleResult();
+            return column instanceof Blob ? ((Blob) column).getBytes(1, 1)[0] : ((byte[]) column)[0];
+        });
+    }
+
+}
@@ -0,0 +1,202 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.opensbpm.engine.api.spi.TaskExecutionException;
+import org.opensbpm.engine.api.taskprovider.TaskProviderLimits;
+import org.opensbpm.engine.api.taskprovider.TaskProviderStatistics;
+import org.opensbpm.engine.api.taskprovider.TaskProviderStatistics.LatencyBucket;
+import org.opensbpm.engine.core.engine.ProviderBulkhead.Permit;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * Unit-Test for {@link ProviderBulkhead}
+ */
+public class ProviderBulkheadTest {
+
+    @Test
+    public void testRejectWhenQueueIsFull() throws Exception {
+        //given
+        ProviderBulkhead bulkhead = new ProviderBulkhead("Provider", new TaskProviderLimits(1, 0, 0, 1, 1000));
+        Permit permit = bulkhead.acquire();
+
+        //when
+        TaskExecutionException ex = assertThrows(BulkheadRejectedException.class, () -> bulkhead.acquire());
+
+        //then
+        assertThat(ex.getMessage(), containsString("Provider Provider rejected task"));
+        assertThat(bulkhead.getStatistics().getRejectedCount(), is(1l));
+        permit.release(false);
+        assertThat(bulkhead.getStatistics().getActiveCount(), is(0));
+    }
+
+    @Test
+    public void testWaitForReleasedSlot() throws Exception {
+        //given
+        ProviderBulkhead bulkhead = new ProviderBulkhead("Provider", new TaskProviderLimits(1, 1, 0, 1, 10000));
+        Permit permit = bulkhead.acquire();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch acquired = new CountDownLatch(1);
+            Future<?> waiting = executorService.submit(() -> {
+                bulkhead.acquire().release(false);
+                acquired.countDown();
+                return null;
+            });
+            while (bulkhead.getStatistics().getWaitingCount() == 0) {
+                Thread.sleep(10);
+            }
+
+            //when
+            permit.release(false);
+
+            //then
+            assertThat(acquired.await(5, TimeUnit.SECONDS), is(true));
+            waiting.get();
+            assertThat(bulkhead.getStatistics().getExecutedCount(), is(2l));
+            assertThat(bulkhead.getStatistics().getRejectedCount(), is(0l));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRejectWhenRateIsExceeded() throws Exception {
+        //given
+        ProviderBulkhead bulkhead = new ProviderBulkhead("Provider", new TaskProviderLimits(10, 10, 0.1, 2, 0));
+
+        //when
+        bulkhead.execute(() -> "first");
+        bulkhead.execute(() -> "second");
+
+        //then
+        assertThrows(TaskExecutionException.class, () -> bulkhead.execute(() -> "third"));
+        assertThat(bulkhead.getStatistics().getExecutedCount(), is(2l));
+        assertThat(bulkhead.getStatistics().getRejectedCount(), is(1l));
+    }
+
+    @Test
+    public void testUpdateLimits() throws Exception {
+        //given
+        ProviderBulkhead bulkhead = new ProviderBulkhead("Provider", new TaskProviderLimits(1, 0, 0, 1, 0));
+        Permit permit = bulkhead.acquire();
+
+        //when
+        bulkhead.setLimits(new TaskProviderLimits(2, 0, 0, 1, 0));
+
+        //then
+        bulkhead.acquire().release(false);
+        permit.release(false);
+        assertThat(bulkhead.getStatistics().getLimits().getMaxConcurrency(), is(2));
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        //given
+        ProviderBulkhead bulkhead = new ProviderBulkhead("Provider", new TaskProviderLimits(1, 0, 0, 1, 0));
+
+        //when
+        bulkhead.execute(() -> "done");
+        assertThrows(TaskExecutionException.class, () -> bulkhead.execute(() -> {
+            throw new TaskExecutionException("failed");
+        }));
+
+        //then
+        TaskProviderStatistics statistics = bulkhead.getStatistics();
+        assertThat(statistics.getName(), is("Provider"));
+        assertThat(statistics.getExecutedCount(), is(2l));
+        assertThat(statistics.getFailedCount(), is(1l));
+        assertThat(statistics.getLatencies().stream().mapToLong(LatencyBucket::getCount).sum(), is(2l));
+        assertThat(statistics.getLatencies().get(statistics.getLatencies().size() - 1).getUpperBoundMillis(), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testSubmitRunsOnProviderThread() throws Exception {
+        //given
+        ProviderBulkhead bulkhead = new ProviderBulkhead("Provider", new TaskProviderLimits(1, 0, 0, 1, 0));
+
+        //when
+        String threadName = bulkhead.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+
+        //then
+        assertThat(threadName, startsWith("Provider-Provider-"));
+        assertThat(bulkhead.getStatistics().getExecutedCount(), is(1l));
+        bulkhead.shutdown();
+    }
+
+    @Test
+    public void testSubmitWaitsForReleasedSlot() throws Exception {
+        //given
+        ProviderBulkhead bulkhead = new ProviderBulkhead("Provider", new TaskProviderLimits(1, 1, 0, 1, 10000));
+        Permit permit = bulkhead.acquire();
+
+        //when
+        CompletableFuture<String> result = bulkhead.submit(() -> "done");
+        CompletableFuture<String> rejected = bulkhead.submit(() -> "rejected");
+
+        //then
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertThat(ex.getCause(), is(instanceOf(BulkheadRejectedException.class)));
+        assertThat(result.isDone(), is(false));
+        permit.release(false);
+        assertThat(result.get(5, TimeUnit.SECONDS), is("done"));
+        assertThat(bulkhead.getStatistics().getWaitingCount(), is(0));
+        bulkhead.shutdown();
+    }
+
+    @Test
+    public void testShutdownRejectsWaitingTasks() throws Exception {
+        //given
+        ProviderBulkhead bulkhead = new ProviderBulkhead("Provider", new TaskProviderLimits(1, 1, 0, 1, 10000));
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        bulkhead.submit(() -> {
+            running.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        running.await(5, TimeUnit.SECONDS);
+        CompletableFuture<String> waiting = bulkhead.submit(() -> "waiting");
+
+        //when
+        bulkhead.shutdown();
+
+        //then
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertThat(ex.getCause(), is(instanceOf(BulkheadRejectedException.class)));
+        assertThat(bulkhead.getStatistics().getWaitingCount(), is(0));
+    }
+
+}
@@ -16,20 +16,38 @@
  ******************************************************************************/
 package org.opensbpm.engine.core.engine;
 
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
 import org.junit.Test;
 import org.opensbpm.engine.api.events.EngineEvent.Type;
 import org.opensbpm.engine.api.events.ProviderTaskChangedEvent;
+import org.opensbpm.engine.api.instance.NextState;
+import org.opensbpm.engine.api.instance.Task;
 import org.opensbpm.engine.api.instance.TaskInfo;
+import org.opensbpm.engine.api.instance.TaskResponse;
+import org.opensbpm.engine.api.spi.TaskExecutionException;
+import org.opensbpm.engine.api.spi.TaskExecutionProvider;
+import org.opensbpm.engine.api.taskprovider.TaskProviderLimits;
+import org.opensbpm.engine.core.engine.ProviderBulkhead.Permit;
+import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.PreparedTask;
 import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.ProviderTaskExecutor;
 import org.opensbpm.engine.core.junit.ServiceITCase;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.ApplicationEventPublisher;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class ProviderTaskChangedObserverIT extends ServiceITCase {
 
+    private static final NextState END = NextState.ofEnd(100l, "End");
+
     @Autowired
     private ApplicationEventPublisher publisher;
 
@@ -45,7 +63,61 @@ public class ProviderTaskChangedObserverIT extends ServiceITCase {
         publisher.publishEvent(new ProviderTaskChangedEvent(taskInfo, Type.CREATE));
 
         //then
-        verify(providerTaskExecutor, timeout(500l).atLeastOnce()).executeTask(taskInfo);
+        verify(providerTaskExecutor, timeout(500l).atLeastOnce()).prepareTask(taskInfo);
+    }
+
+    @Test
+    public void testFailedTaskCancelsProcess() {
+        //given
+        TaskInfo taskInfo = createTaskInfo();
+        ProviderBulkhead bulkhead = new ProviderBulkhead("Provider", new TaskProviderLimits(1, 0, 0, 1, 0));
+        when(providerTaskExecutor.prepareTask(taskInfo)).thenReturn(prepare(taskInfo, bulkhead));
+
+        //when
+        publisher.publishEvent(new ProviderTaskChangedEvent(taskInfo, Type.CREATE));
+
+        //then
+        verify(providerTaskExecutor, timeout(TIMEOUT)).cancelBySystem(taskInfo, "something badly happend");
+        verify(providerTaskExecutor, never()).changeState(any(), any());
+    }
+
+    @Test
+    public void testRejectedTaskIsRetried() throws Exception {
+        //given
+        TaskInfo taskInfo = createTaskInfo();
+        ProviderBulkhead bulkhead = new ProviderBulkhead("Provider", new TaskProviderLimits(1, 0, 0, 1, 0));
+        when(providerTaskExecutor.prepareTask(taskInfo)).thenReturn(prepare(taskInfo, bulkhead));
+        Permit permit = bulkhead.acquire();
+
+        //when
+        publisher.publishEvent(new ProviderTaskChangedEvent(taskInfo, Type.CREATE));
+
+        //then
+        verify(providerTaskExecutor, timeout(TIMEOUT).atLeast(2)).prepareTask(taskInfo);
+        verify(providerTaskExecutor, never()).cancelBySystem(any(), anyString());
+        permit.release(false);
+        verify(providerTaskExecutor, timeout(TIMEOUT)).cancelBySystem(taskInfo, "something badly happend");
+    }
+
+    private static TaskInfo createTaskInfo() {
+        return new TaskInfo(1l, 1l, "processName", "stateName", LocalDateTime.MIN);
+    }
+
+    private static PreparedTask prepare(TaskInfo taskInfo, ProviderBulkhead bulkhead) {
+        TaskExecutionProvider provider = new TaskExecutionProvider() {
+            @Override
+            public String getName() {
+                return "Provider";
+            }
+
+            @Override
+            public NextState executeTask(Map<String, String> parameters, Task task) throws TaskExecutionException {
+                throw new TaskExecutionException("something badly happend");
+            }
+        };
+        Task task = new Task(taskInfo, TaskResponse.of(1l, Collections.singletonList(END), LocalDateTime.MIN,
+                Collections.emptyList(), Collections.emptyList()));
+        return new PreparedTask(provider, bulkhead, 10l, Collections.emptyMap(), task);
     }
 
 }
@@ -27,11 +27,15 @@ import org.opensbpm.engine.api.instance.Task;
 import org.opensbpm.engine.api.instance.TaskInfo;
 import org.opensbpm.engine.api.spi.TaskExecutionException;
 import org.opensbpm.engine.api.spi.TaskExecutionProvider;
+import org.opensbpm.engine.api.taskprovider.TaskProviderLimits;
+import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.PreparedTask;
 import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.ProviderTaskExecutor;
 import org.opensbpm.engine.core.engine.ProviderTaskChangedObserver.ServiceSubjectRepository;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance;
 import org.opensbpm.engine.core.engine.entities.ServiceSubject;
 import org.opensbpm.engine.core.engine.entities.User;
+import org.opensbpm.engine.core.model.ProcessModelCache;
+import org.opensbpm.engine.core.model.ProcessModelService.ProcessModelRepository;
 import org.opensbpm.engine.core.model.entities.FunctionState;
 import org.opensbpm.engine.core.model.entities.ProcessModel;
 import org.opensbpm.engine.core.model.entities.ServiceSubjectModel;
@@ -39,12 +43,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.opensbpm.engine.core.junit.MockData.spyFunctionState;
 import static org.opensbpm.engine.core.junit.MockData.spyProcessInstance;
 import static org.opensbpm.engine.core.junit.MockData.spyProcessModel;
 import static org.opensbpm.engine.core.junit.MockData.spyServiceSubject;
@@ -55,7 +64,8 @@ import static org.opensbpm.engine.core.junit.MockData.spyUser;
  */
 @SpringBootTest(classes = {
     ProviderTaskExecutor.class,
-    EngineConverter.class
+    EngineConverter.class,
+    ProcessModelCache.class
 })
 @RunWith(SpringRunner.class)
 public class ProviderTaskExecutorTest {
@@ -84,8 +94,14 @@ public class ProviderTaskExecutorTest {
     @MockBean
     private ScriptEngine scriptEngine;
 
+    @MockBean
+    private ProcessModelRepository processModelRepository;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
     @Test
-    public void testExecuteTaskWithTaskExecutionException() {
+    public void testPrepareTask() {
         //given
         final String providerName = "Test Provider";
 
@@ -97,7 +113,6 @@ public class ProviderTaskExecutorTest {
         Long sId = 4l;
 
         User user = spyUser(userId, "username", "firstname", "lastname");
-        //when(userService.findById(userId)).thenReturn(Optional.of(user));
 
         ProcessModel processModel = spyProcessModel(pmId, "ProcessModel Name");
 
@@ -105,14 +120,16 @@ public class ProviderTaskExecutorTest {
         ServiceSubjectModel subjectModel = processModel.addServiceSubjectModel("subject");
 
         ServiceSubject subject = spyServiceSubject(sId, processInstance, subjectModel);
-        final FunctionState currentState = new FunctionState("Provider Task");
+        final FunctionState currentState = spyFunctionState(5l, subjectModel, "Provider Task");
         currentState.setProviderName(providerName);
-        currentState.addHead(new FunctionState("End"));
+        currentState.addHead(spyFunctionState(6l, subjectModel, "End"));
         subject.setCurrentState(currentState);
 
-        when(subjectRepository.getOne(anyLong())).thenReturn(subject);
+        when(subjectRepository.getReferenceById(anyLong())).thenReturn(subject);
 
-        when(taskProviderManager.findProvider(providerName)).thenReturn(new TaskExecutionProvider() {
+        ProviderBulkhead bulkhead = new ProviderBulkhead(providerName, new TaskProviderLimits(1, 0, 0, 1, 0));
+        when(taskProviderManager.getBulkhead(providerName)).thenReturn(bulkhead);
+        TaskExecutionProvider provider = new TaskExecutionProvider() {
             @Override
             public String getName() {
                 return providerName;
@@ -122,13 +139,19 @@ public class ProviderTaskExecutorTest {
             public NextState executeTask(Map<String, String> parameters, Task task) throws TaskExecutionException {
                 throw new TaskExecutionException("something badly happend");
             }
-        });
+        };
+        when(taskProviderManager.findProvider(providerName)).thenReturn(provider);
 
         //when
-        providerTaskExecutor.executeTask(taskInfo);
+        PreparedTask preparedTask = providerTaskExecutor.prepareTask(taskInfo);
 
         //then
-        verify(processInstanceService, times(1)).cancelBySystem(any(ProcessInstance.class), anyString());
+        assertThat(preparedTask.getProvider(), is(sameInstance(provider)));
+        assertThat(preparedTask.getBulkhead(), is(sameInstance(bulkhead)));
+        assertThat(preparedTask.getStateId(), is(5l));
+        assertThat(preparedTask.getTask().getTaskInfo(), is(taskInfo));
+        assertThat(preparedTask.getTask().getNextStates().size(), is(1));
+        verify(processInstanceService, never()).cancelBySystem(any(ProcessInstance.class), anyString());
     }
 
 }
@@ -0,0 +1,202 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.function.Supplier;
+import javax.script.ScriptException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ScriptExecutionPoolTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ScriptExecutionPool scriptExecutionPool;
+
+    @Before
+    public void setUp() {
+        scriptExecutionPool = new ScriptExecutionPool(1, 10, Duration.ofMillis(200));
+        scriptExecutionPool.bindTo(meterRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        scriptExecutionPool.destroy();
+    }
+
+    @Test
+    public void testExecuteRunsInPoolAndRecordsStatistics() throws Exception {
+        //given
+        scriptExecutionPool.registerModel("Model", Arrays.asList("expression"));
+        String callerThread = Thread.currentThread().getName();
+
+        //when
+        String result = scriptExecutionPool.execute("expression", null, () -> Thread.currentThread().getName());
+
+        //then
+        assertThat(result, startsWith("Script-"));
+        assertThat(result, is(not(callerThread)));
+        assertThat(getInvocations("expression", ScriptExecutionPool.expressionId("expression")), is(1l));
+        assertThat(getInvocations("model", "Model"), is(1l));
+    }
+
+    @Test
+    public void testNestedExecuteRunsInSameThread() throws Exception {
+        //when
+        String result = scriptExecutionPool.execute("outer", "Model", () -> {
+            String outerThread = Thread.currentThread().getName();
+            return scriptExecutionPool.execute("inner", "Model", () -> outerThread + "=" + Thread.currentThread().getName());
+        });
+
+        //then
+        String[] threads = result.split("=");
+        assertThat(threads[0], is(threads[1]));
+        assertThat(getInvocations("model", "Model"), is(2l));
+    }
+
+    @Test
+    public void testExecuteCancelsScriptAfterTimeout() throws Exception {
+        //when
+        try {
+            scriptExecutionPool.execute("sleep", "Model", () -> {
+                try {
+                    Thread.sleep(10000);
+                    return "finished";
+                } catch (InterruptedException ex) {
+                    throw new ScriptException("interrupted");
+                }
+            });
+            fail("script not cancelled");
+        } catch (ScriptException ex) {
+            assertThat(ex.getMessage(), startsWith("Script exceeded timeout"));
+        }
+
+        //then
+        assertThat(scriptExecutionPool.execute("next", "Model", () -> "next"), is("next"));
+        assertThat(meterRegistry.get("opensbpm.engine.script.expression.timeouts").tag("expression", ScriptExecutionPool.expressionId("sleep")).counter().count(), is(1.0));
+    }
+
+    @Test
+    public void testExecuteRethrowsScriptException() throws Exception {
+        //when
+        try {
+            scriptExecutionPool.execute("failing", null, () -> {
+                throw new ScriptException("failed");
+            });
+            fail("ScriptException not thrown");
+        } catch (ScriptException ex) {
+            assertThat(ex.getMessage(), is("failed"));
+        }
+
+        //then
+        assertThat(meterRegistry.get("opensbpm.engine.script.expression.failures").tag("expression", ScriptExecutionPool.expressionId("failing")).counter().count(), is(1.0));
+    }
+
+    @Test
+    public void testExpressionIdIsShortAndStable() {
+        //given
+        String expression = String.join("", Collections.nCopies(1000, "${a}"));
+
+        //when
+        String expressionId = ScriptExecutionPool.expressionId(expression);
+
+        //then
+        assertThat(expressionId.length(), is(16));
+        assertThat(expressionId, is(ScriptExecutionPool.expressionId(expression)));
+        assertThat(expressionId, is(not(ScriptExecutionPool.expressionId("${b}"))));
+    }
+
+    @Test
+    public void testUnregisterModelRemovesMeters() throws Exception {
+        //given
+        scriptExecutionPool.registerModel("Model", Arrays.asList("expression", "shared"));
+        scriptExecutionPool.registerModel("Other", Arrays.asList("shared"));
+        scriptExecutionPool.execute("expression", null, () -> "expression");
+        scriptExecutionPool.execute("shared", null, () -> "shared");
+
+        //when
+        scriptExecutionPool.unregisterModel("Model");
+
+        //then
+        assertThat(findInvocations("model", "Model"), is(Optional.empty()));
+        assertThat(findInvocations("expression", ScriptExecutionPool.expressionId("expression")), is(Optional.empty()));
+        assertThat(findInvocations("model", "Other"), is(Optional.of(1l)));
+        assertThat(findInvocations("expression", ScriptExecutionPool.expressionId("shared")), is(Optional.of(1l)));
+    }
+
+    @Test
+    public void testUnregisterExpressionRemovesMeters() throws Exception {
+        //given
+        scriptExecutionPool.execute("expression", "Model", () -> "expression");
+
+        //when
+        scriptExecutionPool.unregisterExpression("expression");
+        scriptExecutionPool.execute("next", "Model", () -> "next");
+
+        //then
+        assertThat(findInvocations("expression", ScriptExecutionPool.expressionId("expression")), is(Optional.empty()));
+        assertThat(findInvocations("model", "Model"), is(Optional.of(2l)));
+    }
+
+    @Test
+    public void testSupplyInCallerThreadRunsInCallerOfScript() throws Exception {
+        //given
+        String callerThread = Thread.currentThread().getName();
+        Supplier<String> threadName = () -> Thread.currentThread().getName();
+
+        //when
+        String result = scriptExecutionPool.execute("lazy", null,
+                () -> Thread.currentThread().getName() + "=" + ScriptExecutionPool.supplyInCallerThread(threadName));
+
+        //then
+        String[] threads = result.split("=");
+        assertThat(threads[0], startsWith("Script-"));
+        assertThat(threads[1], is(callerThread));
+    }
+
+    @Test
+    public void testSupplyInCallerThreadOutsideOfPool() {
+        //when
+        String result = ScriptExecutionPool.supplyInCallerThread(() -> Thread.currentThread().getName());
+
+        //then
+        assertThat(result, is(Thread.currentThread().getName()));
+    }
+
+    private Optional<Long> findInvocations(String dimension, String key) {
+        return Optional.ofNullable(meterRegistry.find("opensbpm.engine.script." + dimension + ".cpu").tag(dimension, key).timer())
+                .map(Timer::count);
+    }
+
+    private long getInvocations(String dimension, String key) {
+        return meterRegistry.get("opensbpm.engine.script." + dimension + ".cpu").tag(dimension, key).timer().count();
+    }
+
+}
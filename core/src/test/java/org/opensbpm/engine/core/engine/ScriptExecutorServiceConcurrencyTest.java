@@ -0,0 +1,139 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+import javax.script.ScriptEngineManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensbpm.engine.api.instance.ObjectBean;
+import org.opensbpm.engine.api.instance.ObjectSchema;
+import org.opensbpm.engine.api.instance.SimpleAttributeSchema;
+import org.opensbpm.engine.api.model.FieldType;
+import org.opensbpm.engine.core.model.ProcessModelView;
+import org.opensbpm.engine.core.model.ProcessModelView.ObjectView;
+import org.opensbpm.engine.core.model.entities.ModelVersion;
+import org.opensbpm.engine.core.model.entities.ProcessModel;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Stress-Test for concurrent evaluations of {@link ScriptExecutorService}:
+ * every evaluation must see the bindings of its own call only.
+ */
+public class ScriptExecutorServiceConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int EVALUATIONS_PER_THREAD = 200;
+
+    private ScriptExecutorService scriptExecutorService;
+    private ObjectSchema objectSchema;
+
+    @Before
+    public void setUp() {
+        scriptExecutorService = new ScriptExecutorService(
+                new ScriptEngineManager().getEngineByMimeType("application/x-groovy"),
+                new CompiledScriptCache(100, Duration.ofHours(1), System::nanoTime),
+                new ScriptExecutionPool(4, THREADS * 2, Duration.ofMinutes(1))
+        );
+
+        objectSchema = ObjectSchema.of(1l, "Order", Arrays.asList(
+                SimpleAttributeSchema.of(2l, "Customer", FieldType.STRING)
+        ));
+    }
+
+    @Test
+    public void testEvaluateGroovyDisplayNameConcurrently() throws Exception {
+        //given
+        ObjectView object = createObject("Order of ${Customer.toUpperCase()}");
+
+        //when
+        List<String> wrongDisplayNames = evaluateConcurrently(object, customer -> "Order of " + customer.toUpperCase());
+
+        //then
+        assertThat(wrongDisplayNames, is(empty()));
+    }
+
+    @Test
+    public void testEvaluateTemplateDisplayNameConcurrently() throws Exception {
+        //given
+        ObjectView object = createObject("Order of ${Customer}");
+
+        //when
+        List<String> wrongDisplayNames = evaluateConcurrently(object, customer -> "Order of " + customer);
+
+        //then
+        assertThat(wrongDisplayNames, is(empty()));
+    }
+
+    /**
+     * @return the display names which don't match the binding of their evaluation
+     */
+    private List<String> evaluateConcurrently(ObjectView object, UnaryOperator<String> expectedDisplayName) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<List<String>>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                String customer = "Customer " + thread;
+                tasks.add(() -> {
+                    List<String> wrongDisplayNames = new ArrayList<>();
+                    for (int i = 0; i < EVALUATIONS_PER_THREAD; i++) {
+                        String displayName = scriptExecutorService.evaluateObjectDisplayName(object, createObjectBean(customer));
+                        if (!expectedDisplayName.apply(customer).equals(displayName)) {
+                            wrongDisplayNames.add(customer + ": " + displayName);
+                        }
+                    }
+                    return wrongDisplayNames;
+                });
+            }
+
+            List<String> wrongDisplayNames = new ArrayList<>();
+            for (Future<List<String>> result : executorService.invokeAll(tasks)) {
+                wrongDisplayNames.addAll(result.get());
+            }
+            return wrongDisplayNames;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static ObjectView createObject(String displayName) {
+        ProcessModel processModel = new ProcessModel("Orders", new ModelVersion(0, 0));
+        processModel.addObjectModel("Order").setDisplayName(displayName);
+        return ProcessModelView.of(processModel).getObjects().get(0);
+    }
+
+    private ObjectBean createObjectBean(String customer) {
+        Map<Long, Serializable> values = new HashMap<>();
+        values.put(2l, customer);
+        return ObjectBean.from(objectSchema, values);
+    }
+
+}
@@ -0,0 +1,143 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensbpm.engine.api.instance.NextState;
+import org.opensbpm.engine.api.instance.ProcessInstanceState;
+import org.opensbpm.engine.api.instance.Task;
+import org.opensbpm.engine.api.spi.TaskExecutionException;
+import org.opensbpm.engine.api.spi.TaskExecutionProvider;
+import org.opensbpm.engine.core.engine.ServiceTaskJobQueue.ServiceTaskJobRepository;
+import org.opensbpm.engine.core.engine.entities.ServiceTaskJob;
+import org.opensbpm.engine.core.engine.entities.ServiceTaskJob.Status;
+import org.opensbpm.engine.core.junit.UserProcessController.ProcessInstanceController;
+import org.opensbpm.engine.core.junit.WorkflowTestCase;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.opensbpm.engine.api.junit.ProcessInfoMatchers.isState;
+
+/**
+ * Integration-Test for {@link ServiceTaskJobQueue} and {@link ServiceTaskJobWorker}
+ */
+@TestPropertySource(properties = {
+    "opensbpm.engine.jobs.enabled=true",
+    "opensbpm.engine.jobs.poll-interval=PT0.2S",
+    "opensbpm.engine.jobs.backoff=PT0.1S",
+    "opensbpm.engine.jobs.max-attempts=2"
+})
+public class ServiceTaskJobIT extends WorkflowTestCase {
+
+    @Autowired
+    private ServiceTaskJobRepository jobRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Before
+    public void resetProvider() {
+        JobTestProvider.EXECUTIONS.set(0);
+        JobTestProvider.FAILURES.set(0);
+    }
+
+    @Test
+    public void queuedJobIsExecuted() throws Exception {
+        //given
+        ProcessInstanceController processController = startServiceProcess(saveServiceProcess("Job", JobTestProvider.NAME));
+
+        //then
+        await(() -> ProcessInstanceState.FINISHED == processController.getProcessInfo().getState());
+        assertThat(JobTestProvider.EXECUTIONS.get(), is(1));
+        assertThat(JobTestProvider.IN_TRANSACTION.get(), is(false));
+        assertThat(jobRepository.count(), is(0l));
+    }
+
+    @Test
+    public void failedJobIsRetried() throws Exception {
+        //given
+        JobTestProvider.FAILURES.set(1);
+        double retried = getRetriedCount();
+
+        //when
+        ProcessInstanceController processController = startServiceProcess(saveServiceProcess("Job", JobTestProvider.NAME));
+
+        //then
+        await(() -> ProcessInstanceState.FINISHED == processController.getProcessInfo().getState());
+        assertThat(JobTestProvider.EXECUTIONS.get(), is(2));
+        assertThat(getRetriedCount(), is(retried + 1));
+        assertThat(jobRepository.count(), is(0l));
+    }
+
+    @Test
+    public void jobIsDeadAfterMaxAttempts() throws Exception {
+        //given
+        JobTestProvider.FAILURES.set(Integer.MAX_VALUE);
+
+        //when
+        ProcessInstanceController processController = startServiceProcess(saveServiceProcess("Job", JobTestProvider.NAME));
+
+        //then
+        await(() -> ProcessInstanceState.CANCELLED_BY_SYSTEM == processController.getProcessInfo().getState());
+        assertThat(processController.getProcessInfo(), isState(ProcessInstanceState.CANCELLED_BY_SYSTEM));
+        assertThat(JobTestProvider.EXECUTIONS.get(), is(2));
+        assertThat(jobRepository.findAll().stream().map(ServiceTaskJob::getStatus).toList(), contains(Status.DEAD));
+        //the retry didn't reset the waiting time of the job
+        ServiceTaskJob job = jobRepository.findAll().get(0);
+        assertThat(job.getCreated() < job.getAvailableAt(), is(true));
+    }
+
+    private double getRetriedCount() {
+        return meterRegistry.get("opensbpm.engine.jobs.retried").functionCounter().count();
+    }
+
+    @Component
+    public static class JobTestProvider implements TaskExecutionProvider {
+
+        private static final String NAME = "JobTestProvider";
+        private static final AtomicInteger EXECUTIONS = new AtomicInteger();
+        private static final AtomicInteger FAILURES = new AtomicInteger();
+        private static final AtomicBoolean IN_TRANSACTION = new AtomicBoolean();
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public NextState executeTask(Map<String, String> parameters, Task task) throws TaskExecutionException {
+            EXECUTIONS.incrementAndGet();
+            IN_TRANSACTION.set(TransactionSynchronizationManager.isActualTransactionActive());
+            if (FAILURES.getAndDecrement() > 0) {
+                throw new TaskExecutionException("remote service not available");
+            }
+            return task.getNextStates().get(0);
+        }
+
+    }
+
+}
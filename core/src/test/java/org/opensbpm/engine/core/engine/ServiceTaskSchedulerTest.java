@@ -0,0 +1,211 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensbpm.engine.core.engine.entities.Subject;
+import org.opensbpm.engine.core.model.entities.FunctionState;
+import org.springframework.mock.env.MockEnvironment;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-Test for {@link ServiceTaskScheduler}
+ */
+public class ServiceTaskSchedulerTest {
+
+    private final MockEnvironment environment = new MockEnvironment();
+    private ExecutorService engineExecutor;
+    private MeterRegistry meterRegistry;
+    private ServiceTaskScheduler taskScheduler;
+
+    @Before
+    public void setUp() {
+        engineExecutor = Executors.newSingleThreadExecutor();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        engineExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testGetPriority() {
+        //given
+        taskScheduler = createScheduler(Duration.ofSeconds(10));
+        environment.setProperty("opensbpm.engine.scheduler.process-priorities.Urgent Process", "3");
+        Subject urgentSubject = mockSubject("Urgent Process");
+        Subject otherSubject = mockSubject("Other Process");
+
+        FunctionState state = new FunctionState("Service");
+        FunctionState prioritizedState = new FunctionState("Prioritized Service");
+        prioritizedState.putParameter(ServiceTaskScheduler.PRIORITY_PARAMETER, " 7 ");
+        FunctionState invalidState = new FunctionState("Invalid Service");
+        invalidState.putParameter(ServiceTaskScheduler.PRIORITY_PARAMETER, "high");
+
+        //then
+        assertThat(taskScheduler.getPriority(otherSubject, state), is(0));
+        assertThat(taskScheduler.getPriority(urgentSubject, state), is(3));
+        assertThat(taskScheduler.getPriority(urgentSubject, prioritizedState), is(7));
+        assertThat(taskScheduler.getPriority(urgentSubject, invalidState), is(3));
+    }
+
+    @Test
+    public void testHigherPriorityFirst() throws Exception {
+        //given
+        taskScheduler = createScheduler(Duration.ofSeconds(10));
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch blocked = blockWorker();
+
+        //when
+        taskScheduler.schedule(0, () -> executed.add("low"));
+        taskScheduler.schedule(5, () -> executed.add("high"));
+        taskScheduler.schedule(0, () -> executed.add("low again"));
+        CountDownLatch done = scheduleLatch(-1);
+        blocked.countDown();
+
+        //then
+        assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(executed, contains("high", "low", "low again"));
+    }
+
+    @Test
+    public void testWaitingTaskAges() throws Exception {
+        //given
+        taskScheduler = createScheduler(Duration.ofMillis(20));
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch blocked = blockWorker();
+
+        //when
+        taskScheduler.schedule(0, () -> executed.add("old"));
+        Thread.sleep(200);
+        taskScheduler.schedule(2, () -> executed.add("new"));
+        CountDownLatch done = scheduleLatch(-100);
+        blocked.countDown();
+
+        //then
+        assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(executed, contains("old", "new"));
+        assertThat(meterRegistry.get("opensbpm.engine.scheduler.queued").tag("priority", "0").gauge().value(), is(0.0));
+        Timer wait = meterRegistry.get("opensbpm.engine.scheduler.wait").tag("priority", "0").timer();
+        assertThat(wait.count(), is(2l));
+        assertThat(wait.max(TimeUnit.MILLISECONDS) >= 200, is(true));
+    }
+
+    @Test
+    public void testExtremePrioritiesDontOverflow() throws Exception {
+        //given
+        taskScheduler = createScheduler(Duration.ofDays(365000));
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch blocked = blockWorker();
+
+        //when
+        taskScheduler.schedule(Integer.MIN_VALUE, () -> executed.add("lowest"));
+        taskScheduler.schedule(0, () -> executed.add("default"));
+        taskScheduler.schedule(Integer.MAX_VALUE, () -> executed.add("highest"));
+        CountDownLatch done = scheduleLatch(Integer.MIN_VALUE);
+        blocked.countDown();
+
+        //then
+        assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(executed, contains("highest", "default", "lowest"));
+        assertThat(taskScheduler.getAging(), is(ServiceTaskScheduler.MAX_AGING));
+    }
+
+    @Test
+    public void testGetRank() {
+        //given
+        taskScheduler = createScheduler(Duration.ofSeconds(10));
+
+        //when
+        long rank = taskScheduler.getRank(100000, 2);
+
+        //then
+        assertThat(rank, is(80000l));
+        assertThat(taskScheduler.getRank(Long.MIN_VALUE + 1, Integer.MAX_VALUE), is(Long.MIN_VALUE));
+        assertThat(taskScheduler.getRank(Long.MAX_VALUE - 1, Integer.MIN_VALUE), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testRejectedTaskIsNotQueued() {
+        //given
+        engineExecutor.shutdown();
+        taskScheduler = createScheduler(Duration.ofSeconds(10));
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        //when
+        assertThrows(RejectedExecutionException.class, () -> taskScheduler.schedule(0, () -> executed.add("rejected")));
+
+        //then
+        assertThat(meterRegistry.get("opensbpm.engine.scheduler.queued").tag("priority", "0").gauge().value(), is(0.0));
+        assertThat(executed.isEmpty(), is(true));
+    }
+
+    private ServiceTaskScheduler createScheduler(Duration aging) {
+        ServiceTaskScheduler scheduler = new ServiceTaskScheduler(environment, engineExecutor, aging);
+        scheduler.bindTo(meterRegistry);
+        return scheduler;
+    }
+
+    private CountDownLatch blockWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        taskScheduler.schedule(0, () -> {
+            started.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await(5, TimeUnit.SECONDS);
+        return blocked;
+    }
+
+    private CountDownLatch scheduleLatch(int priority) {
+        CountDownLatch done = new CountDownLatch(1);
+        taskScheduler.schedule(priority, done::countDown);
+        return done;
+    }
+
+    private static Subject mockSubject(String processModelName) {
+        Subject subject = mock(Subject.class, RETURNS_DEEP_STUBS);
+        when(subject.getProcessInstance().getProcessModel().getName()).thenReturn(processModelName);
+        return subject;
+    }
+
+}
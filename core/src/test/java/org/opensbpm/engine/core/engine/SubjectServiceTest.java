@@ -62,6 +62,9 @@ public class SubjectServiceTest {
     @Mock
     private EngineEventPublisher eventPublisher;
 
+    @Mock
+    private ServiceTaskJobQueue jobQueue;
+
     @InjectMocks
     private SubjectService subjectService;
 
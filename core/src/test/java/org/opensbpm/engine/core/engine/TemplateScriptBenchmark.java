@@ -0,0 +1,103 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
+import org.opensbpm.engine.core.engine.CompiledScriptCache.ScriptCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH-Benchmark of {@link TemplateScript} against the compiled Groovy GString used before.
+ * <p>
+ * Run with
+ * {@code mvn -pl core test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test -Dexec.args="-cp %classpath org.openjdk.jmh.Main TemplateScriptBenchmark"}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateScriptBenchmark {
+
+    private static final String DISPLAY_NAME = "${Name} - ${Reiseziel}: ${Reisebeginn} - ${Reiseende}";
+    private static final String LITERAL = "Dienstreiseantrag genehmigen";
+
+    private ScriptContext scriptContext;
+
+    private CompiledScript groovyDisplayName;
+    private CompiledScript templateDisplayName;
+    private CompiledScript groovyLiteral;
+    private CompiledScript templateLiteral;
+
+    @Setup
+    public void setUp() throws ScriptException {
+        ScriptEngine scriptEngine = new ScriptEngineManager().getEngineByMimeType("application/x-groovy");
+        ScriptCompiler groovyCompiler = script
+                -> ((Compilable) scriptEngine).compile(String.format("\"%s\"", script));
+
+        groovyDisplayName = groovyCompiler.compile(DISPLAY_NAME);
+        templateDisplayName = TemplateScript.parse(DISPLAY_NAME, scriptEngine, groovyCompiler).get();
+        groovyLiteral = groovyCompiler.compile(LITERAL);
+        templateLiteral = TemplateScript.parse(LITERAL, scriptEngine, groovyCompiler).get();
+
+        scriptContext = new SimpleScriptContext();
+        scriptContext.setAttribute("Name", "Max Mustermann", ScriptContext.ENGINE_SCOPE);
+        scriptContext.setAttribute("Reiseziel", "Wien", ScriptContext.ENGINE_SCOPE);
+        scriptContext.setAttribute("Reisebeginn", LocalDate.of(2020, 1, 1), ScriptContext.ENGINE_SCOPE);
+        scriptContext.setAttribute("Reiseende", LocalDate.of(2020, 1, 3), ScriptContext.ENGINE_SCOPE);
+    }
+
+    @Benchmark
+    public String groovyDisplayName() throws ScriptException {
+        return groovyDisplayName.eval(scriptContext).toString();
+    }
+
+    @Benchmark
+    public String templateDisplayName() throws ScriptException {
+        return templateDisplayName.eval(scriptContext).toString();
+    }
+
+    @Benchmark
+    public String groovyLiteral() throws ScriptException {
+        return groovyLiteral.eval(scriptContext).toString();
+    }
+
+    @Benchmark
+    public String templateLiteral() throws ScriptException {
+        return templateLiteral.eval(scriptContext).toString();
+    }
+
+}
@@ -0,0 +1,131 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.script.Compilable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
+import org.junit.Test;
+import org.opensbpm.engine.api.instance.ObjectBean;
+import org.opensbpm.engine.api.instance.ObjectSchema;
+import org.opensbpm.engine.api.instance.SimpleAttributeSchema;
+import org.opensbpm.engine.api.model.FieldType;
+import org.opensbpm.engine.core.engine.CompiledScriptCache.ScriptCompiler;
+import org.opensbpm.engine.core.engine.entities.User;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TemplateScriptTest {
+
+    private final ScriptEngine scriptEngine = new ScriptEngineManager().getEngineByMimeType("application/x-groovy");
+
+    private final ScriptCompiler groovyCompiler = script
+            -> ((Compilable) scriptEngine).compile(String.format("\"%s\"", script));
+
+    @Test
+    public void testParseLiteral() throws Exception {
+        //when
+        TemplateScript result = parse("Simple Text");
+
+        //then
+        assertThat(result.isLiteral(), is(true));
+        assertThat(result.eval(new SimpleScriptContext()), is("Simple Text"));
+    }
+
+    @Test
+    public void testParseUnsupportedExpression() throws Exception {
+        assertThat(TemplateScript.parse("${a.size() > 1 ? 'many' : 'one'}", scriptEngine, groovyCompiler).isPresent(), is(false));
+        assertThat(TemplateScript.parse("Text $value", scriptEngine, groovyCompiler).isPresent(), is(false));
+        assertThat(TemplateScript.parse("Text \\t", scriptEngine, groovyCompiler).isPresent(), is(false));
+    }
+
+    @Test
+    public void testEvalWithObjectBean() throws Exception {
+        //given
+        ObjectSchema objectSchema = ObjectSchema.of(1l, "Order", Arrays.asList(
+                SimpleAttributeSchema.of(2l, "Customer", FieldType.STRING),
+                SimpleAttributeSchema.of(3l, "Date", FieldType.DATE)
+        ));
+        Map<Long, Serializable> values = new HashMap<>();
+        values.put(2l, "ACME");
+        values.put(3l, LocalDate.of(2020, 1, 31));
+
+        ScriptContext scriptContext = new SimpleScriptContext();
+        scriptContext.setAttribute("Order", ObjectBean.from(objectSchema, values), ScriptContext.ENGINE_SCOPE);
+
+        //when
+        TemplateScript result = parse("${Order.Customer} - ${ Order.Date }");
+
+        //then
+        assertThat(result.isLiteral(), is(false));
+        assertThat(result.eval(scriptContext), is("ACME - 2020-01-31"));
+        assertThat(result.isFallbackCompiled(), is(false));
+    }
+
+    @Test
+    public void testEvalWithBeanProperty() throws Exception {
+        //given
+        ScriptContext scriptContext = new SimpleScriptContext();
+        scriptContext.setAttribute("user", new User("username"), ScriptContext.ENGINE_SCOPE);
+
+        //when
+        TemplateScript result = parse("${user.name}");
+
+        //then
+        assertThat(result.eval(scriptContext), is("username"));
+        assertThat(result.isFallbackCompiled(), is(false));
+    }
+
+    @Test
+    public void testEvalWithCollectionFallsBackToScript() throws Exception {
+        //given
+        ScriptContext scriptContext = new SimpleScriptContext();
+        scriptContext.setAttribute("items", Arrays.asList("a", "b"), ScriptContext.ENGINE_SCOPE);
+
+        //when
+        TemplateScript result = parse("Items ${items}");
+
+        //then
+        assertThat(result.eval(scriptContext).toString(), is("Items [a, b]"));
+        assertThat(result.isFallbackCompiled(), is(true));
+    }
+
+    @Test(expected = ScriptException.class)
+    public void testEvalWithNullInPathFallsBackToScript() throws Exception {
+        //given
+        ScriptContext scriptContext = new SimpleScriptContext();
+        scriptContext.setAttribute("user", null, ScriptContext.ENGINE_SCOPE);
+
+        //when
+        parse("Hello ${user.name}").eval(scriptContext);
+    }
+
+    private TemplateScript parse(String script) {
+        return TemplateScript.parse(script, scriptEngine, groovyCompiler)
+                .orElseThrow(() -> new AssertionError(script + " not parsed"));
+    }
+
+}
@@ -27,6 +27,7 @@ import org.opensbpm.engine.core.engine.ScriptExecutorService.BindingContext;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance;
 import org.opensbpm.engine.core.engine.entities.User;
 import org.opensbpm.engine.core.engine.taskprovider.DummyAutocompleteProvider;
+import org.opensbpm.engine.core.model.ProcessModelView;
 import org.opensbpm.engine.core.model.entities.FunctionState;
 import org.opensbpm.engine.core.model.entities.ObjectModel;
 import org.opensbpm.engine.core.model.entities.ProcessModel;
@@ -77,11 +78,14 @@ public class ValidationServiceTest {
 
         ObjectModel objectModel = spyObjectModel(1l, processModel, "Object Model");
 
+        ProcessModelView view = ProcessModelView.of(processModel);
+
         String queryString = null;
         BindingContext bindingContext = mock(BindingContext.class);
 
         //when
-        AutocompleteResponse response = validationService.createAutocompleteResponse(state, objectModel, queryString, bindingContext);
+        AutocompleteResponse response = validationService.createAutocompleteResponse(view.getState(state.getId()),
+                view.getObject(objectModel.getId()), queryString, bindingContext);
 
         //then        
         assertThat(response, is(notNullValue()));
@@ -0,0 +1,158 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine.entities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import org.junit.Test;
+import org.opensbpm.engine.api.model.Binary;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ObjectValueCodecTest {
+
+    private final ObjectValueCodec codec = new ObjectValueCodec(ObjectValueCodec.DEFAULT_COMPRESSION_THRESHOLD);
+
+    @Test
+    public void testEncodeDecode() {
+        //given
+        HashMap<Long, Serializable> values = createValues();
+
+        //when
+        byte[] data = codec.encode(values);
+        HashMap<Long, Serializable> result = codec.decode(data);
+
+        //then
+        assertThat(ObjectValueCodec.isLegacy(data), is(false));
+        assertThat(result.size(), is(values.size()));
+        assertThat(result.get(1L), is("value"));
+        assertThat(result.get(2L), is(-42));
+        assertThat(result.get(3L), is(Long.MAX_VALUE));
+        assertThat(result.get(4L), is(new BigDecimal("-12345.678")));
+        assertThat(result.get(5L), is(LocalDate.of(2020, 1, 31)));
+        assertThat(result.get(6L), is(LocalTime.of(12, 30, 15, 500)));
+        assertThat(result.get(7L), is(true));
+        assertThat(result.get(8L), is(false));
+        assertThat(result.containsKey(9L), is(true));
+        assertThat(result.get(9L), is(nullValue()));
+        assertThat(((Binary) result.get(10L)).getMimeType(), is("text/plain"));
+        assertThat(((Binary) result.get(10L)).getValue(), is(new byte[]{1, 2, 3}));
+        assertThat(result.get(11L), is(values.get(11L)));
+        assertThat(result.get(12L), is(values.get(12L)));
+        assertThat(result.get(13L), is(LocalDateTime.of(2020, 1, 31, 12, 30)));
+    }
+
+    @Test
+    public void testEncodeDecodeCompressed() {
+        //given
+        HashMap<Long, Serializable> values = new HashMap<>();
+        values.put(1L, "repeated text ".repeat(1000));
+
+        //when
+        byte[] data = codec.encode(values);
+        HashMap<Long, Serializable> result = codec.decode(data);
+
+        //then
+        assertThat(data[0], is((byte) 2));
+        assertThat(data.length, is(lessThan(1000)));
+        assertThat(result, is(values));
+    }
+
+    @Test
+    public void testDecodeLegacy() throws IOException {
+        //given
+        HashMap<Long, Serializable> values = createValues();
+        values.remove(10L);
+        byte[] data = serialize(values);
+
+        //when
+        HashMap<Long, Serializable> result = codec.decode(data);
+
+        //then
+        assertThat(ObjectValueCodec.isLegacy(data), is(true));
+        assertThat(result, is(values));
+    }
+
+    @Test
+    public void testEncodedSmallerThanSerialized() throws IOException {
+        //given
+        HashMap<Long, Serializable> values = createValues();
+
+        //when
+        byte[] data = codec.encode(values);
+
+        //then
+        assertThat(data.length, is(lessThan(serialize(values).length / 2)));
+    }
+
+    @Test
+    public void testEncodeDecodeEmpty() {
+        //when
+        byte[] data = codec.encode(new HashMap<>());
+        HashMap<Long, Serializable> result = codec.decode(data);
+
+        //then
+        assertThat(result.isEmpty(), is(true));
+        assertThat(codec.decode(null).isEmpty(), is(true));
+    }
+
+    static HashMap<Long, Serializable> createValues() {
+        HashMap<Long, Serializable> nested = new HashMap<>();
+        nested.put(20L, "nested");
+        nested.put(21L, 21);
+
+        ArrayList<HashMap<Long, Serializable>> rows = new ArrayList<>();
+        rows.add(nested);
+        rows.add(new HashMap<>(nested));
+
+        HashMap<Long, Serializable> values = new HashMap<>();
+        values.put(1L, "value");
+        values.put(2L, -42);
+        values.put(3L, Long.MAX_VALUE);
+        values.put(4L, new BigDecimal("-12345.678"));
+        values.put(5L, LocalDate.of(2020, 1, 31));
+        values.put(6L, LocalTime.of(12, 30, 15, 500));
+        values.put(7L, true);
+        values.put(8L, false);
+        values.put(9L, null);
+        values.put(10L, new Binary("text/plain", new byte[]{1, 2, 3}));
+        values.put(11L, nested);
+        values.put(12L, rows);
+        values.put(13L, LocalDateTime.of(2020, 1, 31, 12, 30));
+        return values;
+    }
+
+    private static byte[] serialize(HashMap<Long, Serializable> values) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(values);
+        }
+        return outputStream.toByteArray();
+    }
+
+}
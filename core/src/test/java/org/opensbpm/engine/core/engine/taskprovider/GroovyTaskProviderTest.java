@@ -0,0 +1,183 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.engine.taskprovider;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensbpm.engine.api.instance.NextState;
+import org.opensbpm.engine.api.instance.Task;
+import org.opensbpm.engine.api.spi.TaskExecutionException;
+import org.opensbpm.engine.core.engine.CompiledScriptCache;
+import org.opensbpm.engine.core.engine.ScriptExecutionPool;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GroovyTaskProviderTest {
+
+    private final ScriptEngine scriptEngine = new ScriptEngineManager().getEngineByMimeType("application/x-groovy");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ScriptExecutionPool scriptExecutionPool;
+
+    @Before
+    public void setUp() {
+        scriptExecutionPool = new ScriptExecutionPool(1, 10, Duration.ofMillis(500));
+        scriptExecutionPool.bindTo(meterRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        scriptExecutionPool.destroy();
+    }
+
+    @Test
+    public void testExecuteTaskCompilesScriptOnce() throws Exception {
+        //given
+        GroovyTaskProvider taskProvider = new GroovyTaskProvider(scriptEngine, scriptExecutionPool, 10, Duration.ofHours(1));
+        taskProvider.bindTo(meterRegistry);
+        NextState first = NextState.of(1l, "First");
+        NextState second = NextState.of(2l, "Second");
+        Task task = mock(Task.class);
+        when(task.getNextStates()).thenReturn(Arrays.asList(first, second));
+        Map<String, String> parameters = Collections.singletonMap(GroovyTaskProvider.SCRIPT, "task.nextStates.last()");
+
+        //when
+        taskProvider.prepareTask(parameters);
+        NextState result = taskProvider.executeTask(parameters, task);
+        taskProvider.executeTask(parameters, task);
+
+        //then
+        assertThat(result, is(second));
+        assertThat(getCacheCount("miss"), is(1.0));
+        assertThat(getCacheCount("hit"), is(2.0));
+    }
+
+    @Test(expected = TaskExecutionException.class)
+    public void testPrepareTaskWithInvalidScript() throws Exception {
+        //given
+        GroovyTaskProvider taskProvider = new GroovyTaskProvider(scriptEngine, scriptExecutionPool, 10, Duration.ofHours(1));
+
+        //when
+        taskProvider.prepareTask(Collections.singletonMap(GroovyTaskProvider.SCRIPT, "task.nextStates.first("));
+    }
+
+    @Test
+    public void testExecuteTaskCancelsRunawayScript() throws Exception {
+        //given
+        GroovyTaskProvider taskProvider = new GroovyTaskProvider(scriptEngine, scriptExecutionPool, 10, Duration.ofHours(1));
+        Task task = mock(Task.class);
+        when(task.getNextStates()).thenReturn(Arrays.asList(NextState.of(1l, "Next")));
+        Map<String, String> runaway = Collections.singletonMap(GroovyTaskProvider.SCRIPT, "while (true) { }");
+        Map<String, String> next = Collections.singletonMap(GroovyTaskProvider.SCRIPT, "null");
+        String model = ScriptExecutionPool.modelKey("Process", "1.0");
+        scriptExecutionPool.registerModel(model, Arrays.asList(runaway.get(GroovyTaskProvider.SCRIPT), next.get(GroovyTaskProvider.SCRIPT)));
+
+        //when
+        try {
+            taskProvider.executeTask(runaway, task);
+            fail("runaway script not cancelled");
+        } catch (TaskExecutionException ex) {
+            //expected
+        }
+
+        //then the only thread of the pool is available again
+        NextState result = taskProvider.executeTask(next, task);
+        assertThat(result.getName(), is("Next"));
+        assertThat(meterRegistry.get("opensbpm.engine.script.model.timeouts").tag("model", model).counter().count(), is(1.0));
+        assertThat(meterRegistry.get("opensbpm.engine.script.model.cpu").tag("model", model).timer().count(), is(2l));
+    }
+
+    @Test
+    public void testEvictedScriptIsRecompiled() throws Exception {
+        //given
+        GroovyTaskProvider taskProvider = new GroovyTaskProvider(scriptEngine, scriptExecutionPool, new CompiledScriptCache("groovy", 1, Duration.ofHours(1)));
+        taskProvider.bindTo(meterRegistry);
+        Map<String, String> first = Collections.singletonMap(GroovyTaskProvider.SCRIPT, "return null");
+        Map<String, String> second = Collections.singletonMap(GroovyTaskProvider.SCRIPT, "null");
+        Task task = mock(Task.class);
+        when(task.getNextStates()).thenReturn(Arrays.asList(NextState.of(1l, "Next")));
+
+        //when
+        taskProvider.executeTask(first, task);
+        taskProvider.executeTask(second, task);
+        NextState result = taskProvider.executeTask(first, task);
+
+        //then
+        assertThat(result.getName(), is("Next"));
+        assertThat(meterRegistry.get("opensbpm.engine.script.cache.evictions").functionCounter().count(), is(2.0));
+        assertThat(getCacheCount("miss"), is(3.0));
+    }
+
+    @Test
+    public void testClosedScriptEvaluatesUntilReleased() throws Exception {
+        //given
+        GroovyClassScript script = GroovyClassScript.compile("class Helper { String name() { 'helper' } }; new Helper().name()",
+                scriptEngine, getClass().getClassLoader());
+        assertThat(script.retain(), is(true));
+
+        //when evicted while an evaluation is in flight
+        script.close();
+
+        //then
+        assertThat(script.eval(new SimpleScriptContext()), is("helper"));
+        script.release();
+        assertThat(script.retain(), is(false));
+        try {
+            script.eval(new SimpleScriptContext());
+            fail("released script evaluated");
+        } catch (ScriptException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testCompileKeepsCauseOfInvalidScript() {
+        try {
+            //when
+            GroovyClassScript.compile("task.nextStates.first(", scriptEngine, getClass().getClassLoader());
+            fail("invalid script compiled");
+        } catch (ScriptException ex) {
+            //then
+            assertThat(ex.getCause(), is(instanceOf(CompilationFailedException.class)));
+        }
+    }
+
+    private double getCacheCount(String result) {
+        return meterRegistry.get("opensbpm.engine.script.cache.gets")
+                .tag("cache", "groovy")
+                .tag("result", result)
+                .functionCounter().count();
+    }
+
+}
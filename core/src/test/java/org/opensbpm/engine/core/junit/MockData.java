@@ -17,6 +17,7 @@
 package org.opensbpm.engine.core.junit;
 
 import java.util.Arrays;
+import java.util.List;
 import org.opensbpm.engine.api.model.FieldType;
 import org.opensbpm.engine.api.model.definition.PermissionDefinition.Permission;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance;
@@ -31,12 +32,15 @@ import org.opensbpm.engine.core.model.entities.ReceiveState;
 import org.opensbpm.engine.core.model.entities.Role;
 import org.opensbpm.engine.core.model.entities.SendState;
 import org.opensbpm.engine.core.model.entities.SimpleAttributeModel;
+import org.opensbpm.engine.core.model.entities.State;
 import org.opensbpm.engine.core.model.entities.StatePermission;
 import org.opensbpm.engine.core.model.entities.SubjectModel;
 import org.opensbpm.engine.core.model.entities.UserSubjectModel;
 import org.opensbpm.engine.core.utils.entities.HasId;
+import org.springframework.test.util.ReflectionTestUtils;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
+import static org.opensbpm.engine.utils.StreamUtils.lazyAdd;
 
 public class MockData {
 
@@ -83,11 +87,11 @@ public class MockData {
     }
 
     public static FunctionState spyFunctionState(long id, SubjectModel subjectModel, String name) {
-        return spyWithId(id, new FunctionState(name));
+        return addState(subjectModel, spyWithId(id, new FunctionState(name)));
     }
 
     public static ReceiveState spyReceiveState(long id, SubjectModel subjectModel, String name) {
-        return spyWithId(id, new ReceiveState(name));
+        return addState(subjectModel, spyWithId(id, new ReceiveState(name)));
     }
 
     public static SendState spySendState(long id, SubjectModel receiver, ObjectModel objectModel, String name) {
@@ -100,6 +104,12 @@ public class MockData {
         return statePermission;
     }
 
+    private static <T extends State> T addState(SubjectModel subjectModel, T state) {
+        List<State> states = (List<State>) ReflectionTestUtils.getField(subjectModel, "states");
+        ReflectionTestUtils.setField(subjectModel, "states", lazyAdd(states, state));
+        return state;
+    }
+
     public static <T extends HasId> T spyWithId(long id, T entity) {
         T spyEntity = spy(entity);
         when(spyEntity.getId()).thenReturn(id);
@@ -37,6 +37,7 @@ import org.opensbpm.engine.api.events.EngineEvent;
 import org.opensbpm.engine.api.model.definition.ProcessDefinition;
 import org.opensbpm.engine.core.junit.ServiceITConfig.EngineEventsCollector;
 import org.opensbpm.engine.core.model.ProcessDefinitionPersistor;
+import org.opensbpm.engine.core.model.ProcessModelCache;
 import org.opensbpm.engine.core.model.ProcessModelService;
 import org.opensbpm.engine.core.model.entities.ProcessModel;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -61,6 +62,11 @@ import static org.opensbpm.engine.utils.StreamUtils.oneOrMoreAsList;
 @RunWith(SpringRunner.class)
 public abstract class ServiceITCase {
 
+    /**
+     * milliseconds to wait for asynchronous results
+     */
+    protected static final long TIMEOUT = 10000;
+
     @PersistenceContext
     protected EntityManager entityManager;
 
@@ -80,6 +86,9 @@ public abstract class ServiceITCase {
     @Autowired
     private ProcessModelService processModelService;
 
+    @Autowired
+    private ProcessModelCache processModelCache;
+
     @Before
     public void setUp() throws Exception {
         transactionTemplate = new TransactionTemplate(platformTransactionManager);
@@ -101,6 +110,7 @@ public abstract class ServiceITCase {
 
             return null;
         });
+        processModelCache.invalidateAll();
     }
 
     protected <T> T doInTransaction(Callable<T> action) throws TransactionException {
@@ -123,6 +133,22 @@ public abstract class ServiceITCase {
         });
     }
 
+    /**
+     * Waits until the given condition is met.
+     *
+     * @param condition condition to check every 50ms
+     * @throws AssertionError if the condition isn't met within {@link #TIMEOUT}
+     */
+    protected static void await(Callable<Boolean> condition) throws Exception {
+        long timeout = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.call()) {
+            if (System.currentTimeMillis() > timeout) {
+                throw new AssertionError("condition not reached within " + TIMEOUT + "ms");
+            }
+            Thread.sleep(50);
+        }
+    }
+
     protected ProcessModel saveProcessDefinition(ProcessDefinition processDefinition) {
         ProcessModel processModel = definitionPersistor.saveDefinition(processDefinition);
         return processModelService.save(processModel);
@@ -17,6 +17,8 @@
  */
 package org.opensbpm.engine.core.junit;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.Serializable;
 import java.util.AbstractCollection;
 import java.util.ArrayList;
@@ -36,6 +38,16 @@ import org.springframework.context.event.EventListener;
 @Configuration
 public class ServiceITConfig {
 
+    /**
+     * Registry with the meters of all engine components, bound like Spring-Boot actuator does.
+     */
+    @Bean
+    public SimpleMeterRegistry meterRegistry(List<MeterBinder> meterBinders) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        meterBinders.forEach(meterBinder -> meterBinder.bindTo(meterRegistry));
+        return meterRegistry;
+    }
+
     @Bean
     public EngineEventsCollector engineEventsCollector() {
         return new EngineEventsCollector();
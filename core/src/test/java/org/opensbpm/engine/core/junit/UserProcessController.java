@@ -16,14 +16,16 @@
  ******************************************************************************/
 package org.opensbpm.engine.core.junit;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.EnumSet;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import org.hamcrest.Matcher;
 import org.opensbpm.engine.api.EngineService;
 import org.opensbpm.engine.api.InstanceService;
+import org.opensbpm.engine.api.InstanceService.ProcessRequest;
 import org.opensbpm.engine.api.ModelNotFoundException;
 import org.opensbpm.engine.api.ModelService.ModelRequest;
 import org.opensbpm.engine.api.ProcessNotFoundException;
@@ -39,14 +41,17 @@ import org.opensbpm.engine.api.instance.UserToken;
 import org.opensbpm.engine.api.model.ProcessModelInfo;
 import org.opensbpm.engine.core.engine.UserService;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.transaction.support.TransactionTemplate;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.opensbpm.engine.api.junit.ProcessInfoMatchers.isState;
-import static org.opensbpm.engine.core.ExceptionFactory.newProcessNotFoundException;
 import static org.opensbpm.engine.core.junit.ServiceITCase.doInTransaction;
 
 public class UserProcessController {
 
+    private static final int AUDIT_WINDOW_SIZE = 100;
+
     private final UserService userService;
     private final InstanceService instanceService;
     private final EngineService engineService;
@@ -61,6 +66,10 @@ public class UserProcessController {
         this.userToken = userToken;
     }
 
+    public UserToken getUserToken() {
+        return userToken;
+    }
+
     public String getUsername() {
         return userToken.getName();
     }
@@ -126,14 +135,19 @@ public class UserProcessController {
         }
 
         public ProcessInfo getProcessInfo() throws ProcessNotFoundException {
-            return instanceService.findAllByStates(EnumSet.allOf(ProcessInstanceState.class)).stream()
-                    .filter(processInfo -> processId.equals(processInfo.getId()))
-                    .findFirst()
-                    .orElseThrow(newProcessNotFoundException(processId));
+            return instanceService.findById(ProcessRequest.of(processId));
         }
 
         public Collection<AuditTrail> getAuditTrail() throws ProcessNotFoundException {
-            return instanceService.getAuditTrail(getProcessInfo());
+            ProcessRequest processRequest = ProcessRequest.of(processId);
+            List<AuditTrail> auditTrails = new ArrayList<>();
+            Window<AuditTrail> window = instanceService.getAuditTrail(processRequest, ScrollPosition.keyset(), AUDIT_WINDOW_SIZE);
+            auditTrails.addAll(window.getContent());
+            while (window.hasNext()) {
+                window = instanceService.getAuditTrail(processRequest, window.positionAt(window.size() - 1), AUDIT_WINDOW_SIZE);
+                auditTrails.addAll(window.getContent());
+            }
+            return auditTrails;
         }
 
         public void assertState(ProcessInstanceState processInstanceState, Matcher<Iterable<SubjectStateInfo>> subjectsMatcher) throws ProcessNotFoundException {
@@ -20,12 +20,26 @@ import org.opensbpm.engine.api.EngineService;
 import org.opensbpm.engine.api.InstanceService;
 import org.opensbpm.engine.api.ModelService;
 import org.opensbpm.engine.api.instance.UserToken;
+import org.opensbpm.engine.api.model.FieldType;
+import org.opensbpm.engine.api.model.ProcessModelInfo;
+import org.opensbpm.engine.api.model.builder.ObjectBuilder;
+import org.opensbpm.engine.api.model.builder.ServiceSubjectBuilder;
+import org.opensbpm.engine.api.model.builder.UserSubjectBuilder;
 import org.opensbpm.engine.core.UserTokenServiceBoundary;
 import org.opensbpm.engine.core.engine.UserService;
 import org.opensbpm.engine.core.engine.UserSubjectService;
 import org.opensbpm.engine.core.engine.entities.ProcessInstance;
 import org.opensbpm.engine.core.model.ProcessModelService;
+import org.opensbpm.engine.core.junit.UserProcessController.ProcessInstanceController;
 import org.springframework.beans.factory.annotation.Autowired;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.field;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.functionState;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.object;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.process;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.receiveState;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.sendState;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.serviceSubject;
+import static org.opensbpm.engine.api.model.builder.DefinitionFactory.userSubject;
 
 /**
  * Abstract Spring-Boot Test-Case for Workflow related Integration-Tests.
@@ -58,6 +72,53 @@ public abstract class WorkflowTestCase extends ServiceITCase {
     @Autowired
     protected UserSubjectService userSubjectService;
 
+    /**
+     * Saves a process in which the "Starter" sends a message to the
+     * "{@code name} Service", which executes the state
+     * "{@code name} Function" by the given provider and ends.
+     *
+     * @param name name of the process is "{@code name} Process"
+     * @param providerName name of the {@code TaskExecutionProvider}
+     * @return the saved process model
+     */
+    protected ProcessModelInfo saveServiceProcess(String name, String providerName) {
+        ObjectBuilder messageObject = object("Message Object")
+                .addAttribute(field("Field", FieldType.STRING));
+
+        UserSubjectBuilder starterSubject = userSubject("Starter", "Starter Role")
+                .asStarter();
+        ServiceSubjectBuilder serviceSubject = serviceSubject(name + " Service");
+
+        starterSubject.addState(functionState("Start").asStart()
+                .toHead(sendState("Send to Service", serviceSubject, messageObject).asEnd())
+        );
+        serviceSubject.addState(receiveState("Receive from Starter").asStart()
+                .toHead(messageObject, functionState(name + " Function")
+                        .withProvider(providerName)
+                        .toHead(functionState("End").asEnd())
+                )
+        );
+        return modelService.save(process(name + " Process")
+                .addSubject(starterSubject)
+                .addSubject(serviceSubject)
+                .addObject(messageObject)
+                .build());
+    }
+
+    /**
+     * Starts a process saved by {@link #saveServiceProcess(String, String)}
+     * and sends the message to the service.
+     *
+     * @param modelInfo model of the process
+     * @return controller of the started process
+     */
+    protected ProcessInstanceController startServiceProcess(ProcessModelInfo modelInfo) throws Exception {
+        UserProcessController startUser = createUserController("Start User", "Starter Role");
+        ProcessInstanceController processController = startUser.startProcess(modelInfo);
+        startUser.execute(startUser.getTask("Start"), "Send to Service");
+        return processController;
+    }
+
     public UserProcessController createUserController(String userName, String role) {
         UserToken userToken = doInTransaction(()
                 -> authenticationService.registerUser(createTokenRequest(userName, role)));
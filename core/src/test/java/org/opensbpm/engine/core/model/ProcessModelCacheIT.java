@@ -0,0 +1,191 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.model;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.opensbpm.engine.api.events.EngineEvent.Type;
+import org.opensbpm.engine.api.events.ProcessModelChangedEvent;
+import org.opensbpm.engine.api.model.ProcessModelInfo;
+import org.opensbpm.engine.api.model.ProcessModelState;
+import org.opensbpm.engine.api.model.definition.ProcessDefinition;
+import org.opensbpm.engine.core.junit.ServiceITCase;
+import org.opensbpm.engine.core.model.entities.ProcessModel;
+import org.opensbpm.engine.examples.ExampleModels;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class ProcessModelCacheIT extends ServiceITCase {
+
+    @Autowired
+    private ProcessDefinitionPersistor definitionPersistor;
+
+    @Autowired
+    private ProcessModelService processModelService;
+
+    @Autowired
+    private ProcessModelCache modelCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testGetDefinitionReturnsCachedInstance() {
+        //given
+        Long modelId = saveDienstreiseantrag();
+        double missesBefore = getCount("opensbpm.engine.model-cache.misses");
+        double hitsBefore = getCount("opensbpm.engine.model-cache.hits");
+        double elementsBefore = getGauge("opensbpm.engine.model-cache.elements");
+        double bytesBefore = getGauge("opensbpm.engine.model-cache.estimated-bytes");
+
+        //when
+        ProcessDefinition first = doInTransaction(()
+                -> modelCache.getDefinition(entityManager.find(ProcessModel.class, modelId)));
+        ProcessDefinition second = doInTransaction(()
+                -> modelCache.getDefinition(entityManager.find(ProcessModel.class, modelId)));
+
+        //then
+        assertThat(second, is(sameInstance(first)));
+        assertThat(getCount("opensbpm.engine.model-cache.misses"), is(missesBefore + 1));
+        assertThat(getCount("opensbpm.engine.model-cache.hits"), is(hitsBefore + 1));
+        assertThat(getGauge("opensbpm.engine.model-cache.elements"), is(greaterThan(elementsBefore)));
+        assertThat(getGauge("opensbpm.engine.model-cache.estimated-bytes"), is(greaterThan(bytesBefore)));
+    }
+
+    @Test
+    public void testUpdateStateInvalidatesModel() {
+        //given
+        Long modelId = saveDienstreiseantrag();
+        ProcessModelInfo activeInfo = doInTransaction(()
+                -> modelCache.getModelInfo(entityManager.find(ProcessModel.class, modelId)));
+
+        //when
+        doInTransaction(() -> {
+            processModelService.updateState(entityManager.find(ProcessModel.class, modelId), ProcessModelState.INACTIVE);
+            return null;
+        });
+
+        //then
+        ProcessModelInfo inactiveInfo = doInTransaction(()
+                -> modelCache.getModelInfo(entityManager.find(ProcessModel.class, modelId)));
+        assertThat(activeInfo.getState(), is(ProcessModelState.ACTIVE));
+        assertThat(inactiveInfo, is(not(sameInstance(activeInfo))));
+        assertThat(inactiveInfo.getState(), is(ProcessModelState.INACTIVE));
+    }
+
+    @Test
+    public void testChangedStateReplacesEntry() {
+        //given
+        Long modelId = saveDienstreiseantrag();
+        ProcessModelInfo activeInfo = doInTransaction(()
+                -> modelCache.getModelInfo(entityManager.find(ProcessModel.class, modelId)));
+        double evictionsBefore = getCount("opensbpm.engine.model-cache.evictions");
+
+        //when
+        doInTransaction(() -> entityManager.createQuery("update process_model m set m.state = :state where m.id = :id")
+                .setParameter("state", ProcessModelState.INACTIVE)
+                .setParameter("id", modelId)
+                .executeUpdate());
+
+        //then
+        ProcessModelInfo inactiveInfo = doInTransaction(()
+                -> modelCache.getModelInfo(entityManager.find(ProcessModel.class, modelId)));
+        assertThat(activeInfo.getState(), is(ProcessModelState.ACTIVE));
+        assertThat(inactiveInfo.getState(), is(ProcessModelState.INACTIVE));
+        assertThat(getCount("opensbpm.engine.model-cache.evictions"), is(evictionsBefore + 1));
+    }
+
+    @Test
+    public void testProcessModelChangedEventEvictsModel() {
+        //given
+        Long modelId = saveDienstreiseantrag();
+        ProcessModelInfo modelInfo = doInTransaction(()
+                -> modelCache.getModelInfo(entityManager.find(ProcessModel.class, modelId)));
+
+        //when
+        eventPublisher.publishEvent(new ProcessModelChangedEvent(modelInfo, Type.UPDATE));
+
+        //then
+        ProcessModelInfo reloadedInfo = doInTransaction(()
+                -> modelCache.getModelInfo(entityManager.find(ProcessModel.class, modelId)));
+        assertThat(reloadedInfo, is(not(sameInstance(modelInfo))));
+    }
+
+    @Test
+    public void testGetViewDoesNotLoadModelOnHit() {
+        //given
+        Long modelId = saveDienstreiseantrag();
+        ProcessModelView first = doInTransaction(()
+                -> modelCache.getView(entityManager.find(ProcessModel.class, modelId)));
+
+        //when
+        boolean[] loaded = new boolean[1];
+        ProcessModelView second = doInTransaction(() -> {
+            ProcessModel reference = entityManager.getReference(ProcessModel.class, modelId);
+            ProcessModelView view = modelCache.getView(reference);
+            loaded[0] = entityManagerFactory.getPersistenceUnitUtil().isLoaded(reference);
+            return view;
+        });
+
+        //then
+        assertThat(second, is(sameInstance(first)));
+        assertThat(loaded[0], is(false));
+    }
+
+    @Test
+    public void testProcessModelChangedEventEvictsView() {
+        //given
+        Long modelId = saveDienstreiseantrag();
+        ProcessModelView view = doInTransaction(()
+                -> modelCache.getView(entityManager.find(ProcessModel.class, modelId)));
+        ProcessModelInfo modelInfo = doInTransaction(()
+                -> modelCache.getModelInfo(entityManager.find(ProcessModel.class, modelId)));
+
+        //when
+        eventPublisher.publishEvent(new ProcessModelChangedEvent(modelInfo, Type.UPDATE));
+
+        //then
+        ProcessModelView reloadedView = doInTransaction(()
+                -> modelCache.getView(entityManager.find(ProcessModel.class, modelId)));
+        assertThat(reloadedView, is(not(sameInstance(view))));
+    }
+
+    private double getCount(String name) {
+        return meterRegistry.get(name).functionCounter().count();
+    }
+
+    private double getGauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    private Long saveDienstreiseantrag() {
+        return doInTransaction(() -> {
+            ProcessDefinition processDefinition = new org.opensbpm.engine.xmlmodel.ProcessModel().unmarshal(ExampleModels.getDienstreiseantrag());
+            return definitionPersistor.saveDefinition(processDefinition).getId();
+        });
+    }
+
+}
@@ -34,11 +34,11 @@ import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.opensbpm.engine.api.junit.CommonMatchers.value;
 import static org.opensbpm.engine.api.junit.EngineEventMatcher.isRoleChangedEvent;
 import static org.opensbpm.engine.api.junit.EngineEventMatcher.isRoleUserChangedEvent;
-import static org.opensbpm.engine.api.junit.EngineEventMatcher.isUserProcessModelChangedEvent;
 import static org.opensbpm.engine.api.model.builder.DefinitionFactory.functionState;
 import static org.opensbpm.engine.api.model.builder.DefinitionFactory.userSubject;
 
@@ -105,26 +105,78 @@ public class RoleServiceIT extends ServiceITCase {
         User user = doInTransaction(()
                 -> userRepository.save(new User("username")));
 
-        Role role = doInTransaction(() -> {
-            Role one = roleRepository.findOne(RoleSpecifications.withName("starter-role"))
-                    .orElseThrow(() -> new IllegalStateException());
-            one.addUser(user);
-            return one;
-        });
-
         engineEventsCollector.clear();
 
         //when
         Role result = doInTransaction(() -> {
-            return roleService.save(entityManager.merge(role));
+            Role role = roleRepository.findOne(RoleSpecifications.withName("starter-role"))
+                    .orElseThrow(() -> new IllegalStateException());
+            role.addUser(entityManager.merge(user));
+            return roleService.save(role);
         });
 
         //then
         assertThat(result.getId(), is(notNullValue()));
         assertThat(engineEventsCollector, containsInAnyOrder(
                 isRoleChangedEvent("starter-role", Type.UPDATE),
-                isRoleUserChangedEvent(user.getId(), Type.CREATE),
-                isUserProcessModelChangedEvent(Type.CREATE)
+                isRoleUserChangedEvent(user.getId(), Type.CREATE)
+        ));
+    }
+
+    @Test
+    public void saveUpdateWithoutMembershipChanges() {
+        //given
+        Role role = doInTransaction(() -> {
+            Role newRole = new Role("role");
+            for (int index = 0; index < 3; index++) {
+                newRole.addUser(userRepository.save(new User("user " + index)));
+            }
+            return roleRepository.save(newRole);
+        });
+
+        engineEventsCollector.clear();
+
+        //when
+        doInTransaction(() -> roleService.save(entityManager.merge(role)));
+
+        //then
+        assertThat(engineEventsCollector, contains(
+                isRoleChangedEvent("role", Type.UPDATE)
+        ));
+    }
+
+    @Test
+    public void saveUpdateWithJoinedAndLeftUsers() {
+        //given
+        User remainingUser = doInTransaction(()
+                -> userRepository.save(new User("remaining")));
+        User leftUser = doInTransaction(()
+                -> userRepository.save(new User("left")));
+        User joinedUser = doInTransaction(()
+                -> userRepository.save(new User("joined")));
+
+        Long roleId = doInTransaction(() -> {
+            Role newRole = new Role("role");
+            newRole.addUser(remainingUser);
+            newRole.addUser(leftUser);
+            return roleRepository.save(newRole).getId();
+        });
+
+        engineEventsCollector.clear();
+
+        //when
+        doInTransaction(() -> {
+            Role role = roleRepository.findById(roleId).get();
+            role.removeUser(entityManager.find(User.class, leftUser.getId()));
+            role.addUser(entityManager.find(User.class, joinedUser.getId()));
+            return roleService.save(role);
+        });
+
+        //then
+        assertThat(engineEventsCollector, containsInAnyOrder(
+                isRoleChangedEvent("role", Type.UPDATE),
+                isRoleUserChangedEvent(leftUser.getId(), Type.DELETE),
+                isRoleUserChangedEvent(joinedUser.getId(), Type.CREATE)
         ));
     }
 
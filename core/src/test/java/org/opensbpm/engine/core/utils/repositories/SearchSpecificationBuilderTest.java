@@ -0,0 +1,126 @@
+/** *****************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.core.utils.repositories;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.opensbpm.engine.api.SearchFilter;
+import org.opensbpm.engine.api.SearchFilter.Criteria.Operation;
+import org.opensbpm.engine.api.SearchFilter.SearchFilterBuilder;
+import org.opensbpm.engine.api.instance.ProcessInstanceState;
+import org.opensbpm.engine.core.engine.entities.ProcessInstance;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThrows;
+
+public class SearchSpecificationBuilderTest {
+
+    @Test
+    public void testBuildWithUnknownKey() {
+        //given
+        SearchFilter searchFilter = SearchFilter.valueOf("unknown:value");
+
+        //when
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> createBuilder(new ArrayList<>()).build(searchFilter));
+
+        //then
+        assertThat(exception.getMessage(), containsString("unknown"));
+    }
+
+    @Test
+    public void testBuildWithInvalidValue() {
+        //given
+        SearchFilter searchFilter = SearchFilter.valueOf("state:RUNNING");
+
+        //when
+        assertThrows(IllegalArgumentException.class,
+                () -> createBuilder(new ArrayList<>()).build(searchFilter));
+        assertThrows(IllegalArgumentException.class,
+                () -> createBuilder(new ArrayList<>()).build(SearchFilter.valueOf("startTime>yesterday")));
+        assertThrows(IllegalArgumentException.class,
+                () -> createBuilder(new ArrayList<>()).build(SearchFilter.valueOf("id:one")));
+    }
+
+    @Test
+    public void testBuild() {
+        //given
+        SearchFilter searchFilter = new SearchFilterBuilder()
+                .with("id", Operation.GREATERTHAN, 3)
+                .with("state", Operation.EQUALTO, "ACTIVE")
+                .with("startTime", Operation.GREATERTHAN_EQUALTO, "2020-01-01")
+                .with("startTime", Operation.LESSTHAN, LocalDateTime.now())
+                .build();
+
+        //when
+        Object result = createBuilder(new ArrayList<>()).build(searchFilter);
+
+        //then
+        assertThat(result, is(notNullValue()));
+    }
+
+    @Test
+    public void testBuildWithAttributes() {
+        //given
+        List<String> attributes = new ArrayList<>();
+        SearchFilter searchFilter = SearchFilter.valueOf("Invoice.Customer:Someone,Invoice.Address.City>=A");
+
+        //when
+        createBuilder(attributes).build(searchFilter);
+
+        //then
+        assertThat(attributes, contains("Invoice/Customer:Someone", "Invoice/Address.City>=A"));
+    }
+
+    @Test
+    public void testWithDefaultSort() {
+        //given
+        Sort sort = Sort.by("id");
+
+        //when
+        Pageable unsorted = SearchSpecificationBuilder.withDefaultSort(PageRequest.of(2, 10), sort);
+        Pageable sorted = SearchSpecificationBuilder.withDefaultSort(PageRequest.of(2, 10, Sort.by("name")), sort);
+        Pageable unpaged = SearchSpecificationBuilder.withDefaultSort(Pageable.unpaged(), sort);
+
+        //then
+        assertThat(unsorted, is(PageRequest.of(2, 10, sort)));
+        assertThat(sorted.getSort(), is(Sort.by("name")));
+        assertThat(unpaged.isPaged(), is(false));
+        assertThat(unpaged.getSort(), is(sort));
+    }
+
+    private static SearchSpecificationBuilder<ProcessInstance> createBuilder(List<String> attributes) {
+        return new SearchSpecificationBuilder<ProcessInstance>()
+                .with("id", Long.class, root -> root.get("id"))
+                .with("state", ProcessInstanceState.class, root -> root.get("state"))
+                .with("startTime", LocalDateTime.class, root -> root.get("startTime"))
+                .withAttributes((objectName, attributeName, operation, value) -> {
+                    attributes.add(objectName + "/" + attributeName + operation.getOperator() + value);
+                    return null;
+                });
+    }
+
+}
@@ -18,6 +18,7 @@ package org.opensbpm.engine.rest.api;
 
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.ws.rs.*;
+import org.opensbpm.engine.api.SearchFilter;
 import org.opensbpm.engine.api.instance.ProcessInfo;
 import org.opensbpm.engine.api.instance.TaskInfo;
 import org.opensbpm.engine.api.instance.TaskRequest;
@@ -26,7 +27,11 @@ import org.opensbpm.engine.api.model.ProcessModelInfo;
 import org.opensbpm.engine.rest.api.dto.instance.Processes;
 import org.opensbpm.engine.rest.api.dto.instance.Tasks;
 import jakarta.annotation.security.PermitAll;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 import org.opensbpm.engine.rest.api.dto.model.ProcessModels;
 
 //@Api(value = "Engine", authorizations = {
@@ -46,6 +51,9 @@ public interface EngineResource {
     @Path("/{userId}/tasks")
     TaskResource getTaskResource(@PathParam(value = "userId") Long userId);
 
+    @Path("/{userId}/events")
+    EventResource getEventResource(@PathParam(value = "userId") Long userId);
+
     public interface ProcessModelResource {
 
         @Operation(summary = "Retrieve all executable process models.",
@@ -74,6 +82,14 @@ public interface EngineResource {
         @GET
         Processes index();
 
+        @Operation(summary = "Search processes.",
+                description = "Retrieve a page of all processes of the user matching the search filter.")
+        @GET
+        @Path(value = "/search")
+        Processes search(@QueryParam(value = "search") SearchFilter searchFilter,
+                @QueryParam(value = "page") @DefaultValue("0") int page,
+                @QueryParam(value = "size") @DefaultValue("50") int size);
+
         @Operation(summary = "Retrieve information about a process.",
                 description = "Retrieve information about a specific process identified by the given process instance id.")
         @GET
@@ -88,6 +104,14 @@ public interface EngineResource {
         @GET
         Tasks index();
 
+        @Operation(summary = "Search tasks.",
+                description = "Retrieve a page of all tasks of the user matching the search filter.")
+        @GET
+        @Path(value = "/search")
+        Tasks search(@QueryParam(value = "search") SearchFilter searchFilter,
+                @QueryParam(value = "page") @DefaultValue("0") int page,
+                @QueryParam(value = "size") @DefaultValue("50") int size);
+
         @Operation(summary = "Retrieve all task.",
                 description = "Retrieve information about all a tasks a specific user should execute.")
         @GET
@@ -102,4 +126,29 @@ public interface EngineResource {
         void submit(@PathParam(value = "taskId") Long taskId, TaskRequest taskRequest);
     }
 
+    public interface EventResource {
+
+        /**
+         * name of events with a {@link org.opensbpm.engine.rest.api.dto.instance.TaskEvent}
+         */
+        String TASK_EVENT = "task";
+        /**
+         * name of events with a {@link org.opensbpm.engine.rest.api.dto.instance.ProcessEvent}
+         */
+        String PROCESS_EVENT = "process";
+        /**
+         * name of the event sent if events since the given last event id are lost;
+         * the client must retrieve the current tasks and processes again
+         */
+        String RESYNC_EVENT = "resync";
+
+        @Operation(summary = "Subscribe to task and process changes.",
+                description = "Push the changes of the tasks and processes of the user as server-sent events. "
+                + "A client resuming with the header Last-Event-ID receives the missed events.")
+        @GET
+        @Produces(MediaType.SERVER_SENT_EVENTS)
+        void subscribe(@Context SseEventSink eventSink, @Context Sse sse,
+                @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId);
+    }
+
 }
@@ -17,11 +17,14 @@
 package org.opensbpm.engine.rest.api;
 
 import io.swagger.v3.oas.annotations.Operation;
+import java.util.Set;
 import jakarta.annotation.security.PermitAll;
 import org.opensbpm.engine.rest.api.dto.instance.Audits;
 import org.opensbpm.engine.rest.api.dto.instance.Processes;
 import org.opensbpm.engine.api.SearchFilter;
 import org.opensbpm.engine.api.instance.ProcessInfo;
+import org.opensbpm.engine.api.instance.ProcessInstanceState;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
@@ -33,8 +36,21 @@ import jakarta.ws.rs.QueryParam;
 @Path("engine/instances")
 public interface ProcessInstanceResource {
 
+    @Operation(summary = "search processes",
+            description = "Retrieve a page of all processes matching the search filter, e.g. state:ACTIVE,model:name,startTime>=2020-01-01")
     @GET
-    Processes search(@QueryParam(value = "search") SearchFilter searchFilter);
+    Processes search(@QueryParam(value = "search") SearchFilter searchFilter,
+            @QueryParam(value = "page") @DefaultValue("0") int page,
+            @QueryParam(value = "size") @DefaultValue("50") int size);
+
+    @Operation(summary = "scroll processes",
+            description = "Retrieve the next window of all processes in the given states (all if none), oldest first; "
+            + "pass the token 'next' of a window to retrieve the following one")
+    @GET
+    @Path(value = "/scroll")
+    Processes scroll(@QueryParam(value = "state") Set<ProcessInstanceState> states,
+            @QueryParam(value = "next") String next,
+            @QueryParam(value = "size") @DefaultValue("50") int size);
 
     @GET
     @Path(value = "/{instanceId}")
@@ -44,6 +60,15 @@ public interface ProcessInstanceResource {
     @Path(value = "/{instanceId}/audits")
     Audits retrieveAudit(@PathParam(value = "instanceId") Long instanceId);
 
+    @Operation(summary = "scroll audits",
+            description = "Retrieve the next window of the audit trail of a process; "
+            + "pass the token 'next' of a window to retrieve the following one")
+    @GET
+    @Path(value = "/{instanceId}/audits/scroll")
+    Audits scrollAudit(@PathParam(value = "instanceId") Long instanceId,
+            @QueryParam(value = "next") String next,
+            @QueryParam(value = "size") @DefaultValue("50") int size);
+
     @Operation(summary = "stop process",
             description = "Immediately stop process with given id")
     @POST
@@ -32,6 +32,11 @@ public final class Audits {
 
     private List<AuditTrail> auditTrails = new ArrayList<>();
 
+    /**
+     * continuation token of the next window; {@code null} if the last window or not a window
+     */
+    private String next;
+
     public Audits() {
         //JAXB constructor
     }
@@ -40,8 +45,17 @@ public final class Audits {
         auditTrails = new ArrayList<>(trails);
     }
 
+    public Audits(Collection<AuditTrail> trails, String next) {
+        this(trails);
+        this.next = next;
+    }
+
     public List<AuditTrail> getAuditTrails() {
         return Collections.unmodifiableList(auditTrails);
     }
 
+    public String getNext() {
+        return next;
+    }
+
 }
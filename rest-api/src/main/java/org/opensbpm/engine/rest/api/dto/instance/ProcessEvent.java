@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Stefan Sedelmaier
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.opensbpm.engine.rest.api.dto.instance;
+
+import org.opensbpm.engine.api.events.EngineEvent.Type;
+import org.opensbpm.engine.api.instance.ProcessInfo;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Change of a process of the subscribed user, pushed by
+ * {@link org.opensbpm.engine.rest.api.EngineResource.EventResource}.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public final class ProcessEvent {
+
+    private Type type;
+    private ProcessInfo processInfo;
+
+    public ProcessEvent() {
+    }
+
+    public ProcessEvent(Type type, ProcessInfo processInfo) {
+        this.type = type;
+        this.processInfo = processInfo;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public ProcessInfo getProcessInfo() {
+        return processInfo;
+    }
+
+}
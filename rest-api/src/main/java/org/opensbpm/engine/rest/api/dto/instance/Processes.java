@@ -21,6 +21,7 @@ import org.opensbpm.engine.api.instance.ProcessInfo;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlRootElement;
+import org.springframework.data.domain.Page;
 import java.util.Collections;
 import java.util.List;
 
@@ -32,6 +33,20 @@ public final class Processes {
 
     private List<ProcessInfo> processInfos;
 
+    /**
+     * number and size of the page; {@code null} if unpaged
+     */
+    private Integer page;
+    private Integer size;
+    /**
+     * number of all elements; {@code null} if not a page
+     */
+    private Long totalElements;
+    /**
+     * continuation token of the next window; {@code null} if the last window or not a window
+     */
+    private String next;
+
     public Processes() {
         //JAXB consructor
     }
@@ -40,8 +55,38 @@ public final class Processes {
         this.processInfos = Collections.unmodifiableList(processInfos);
     }
 
+    public Processes(List<ProcessInfo> processInfos, String next) {
+        this(processInfos);
+        this.next = next;
+    }
+
+    public Processes(Page<ProcessInfo> page) {
+        this(page.getContent());
+        if (page.getPageable().isPaged()) {
+            this.page = page.getNumber();
+            this.size = page.getSize();
+        }
+        this.totalElements = page.getTotalElements();
+    }
+
     public List<ProcessInfo> getProcessInfos() {
         return emptyOrUnmodifiableList(processInfos);
     }
 
+    public Integer getPage() {
+        return page;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public Long getTotalElements() {
+        return totalElements;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
 }
@@ -21,6 +21,7 @@ import org.opensbpm.engine.api.instance.TaskInfo;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlRootElement;
+import org.springframework.data.domain.Page;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -33,6 +34,16 @@ public final class Tasks {
 
     private List<TaskInfo> taskInfos;
 
+    /**
+     * number and size of the page; {@code null} if unpaged
+     */
+    private Integer page;
+    private Integer size;
+    /**
+     * number of all elements; {@code null} if not a page
+     */
+    private Long totalElements;
+
     public Tasks() {
     }
 
@@ -40,8 +51,29 @@ public final class Tasks {
         this.taskInfos = new ArrayList<>(taskInfos);
     }
 
+    public Tasks(Page<TaskInfo> page) {
+        this(page.getContent());
+        if (page.getPageable().isPaged()) {
+            this.page = page.getNumber();
+            this.size = page.getSize();
+        }
+        this.totalElements = page.getTotalElements();
+    }
+
     public List<TaskInfo> getTaskInfos() {
         return emptyOrUnmodifiableList(taskInfos);
     }
 
+    public Integer getPage() {
+        return page;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public Long getTotalElements() {
+        return totalElements;
+    }
+
 }
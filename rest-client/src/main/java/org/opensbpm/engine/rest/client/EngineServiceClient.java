@@ -171,6 +171,18 @@ public abstract class EngineServiceClient {
         return onEngineResource(resource -> function.apply(resource.getTaskResource(getUserId())));
     }
 
+    /**
+     * Subscribes the task and process changes of the user, instead of polling
+     * {@link EngineResource.TaskResource#index()}.
+     *
+     * @param listener receives the changes
+     * @return the open subscription; must be closed by the caller
+     */
+    public UserEventSubscription subscribeUserEvents(UserEventListener listener) {
+        return new UserEventSubscription(String.format("%s/services/engine/%s/events", baseAddress, getUserId()),
+                createJsonProvider(), this::getAuthenticationToken, listener);
+    }
+
     public <T> T onEngineResource(Function<EngineResource, T> function) {
         return onResource(engineResource, function);
     }
@@ -212,11 +224,7 @@ public abstract class EngineServiceClient {
     }
 
     private <T> T createResourceClient(Class<T> type) {
-        List<Object> providers = asList(
-                new JacksonJsonProvider(new ObjectMapper()
-                        .registerModule(new JavaTimeModule()),
-                        new Annotations[]{Annotations.JAKARTA_XML_BIND})
-        );
+        List<Object> providers = asList(createJsonProvider());
         JAXRSClientFactoryBean factoryBean = new JAXRSClientFactoryBean();
         factoryBean.setAddress(String.format("%s/services", baseAddress));
         factoryBean.setProviders(providers);
@@ -232,4 +240,10 @@ public abstract class EngineServiceClient {
 
         return factoryBean.create(type);
     }
+
+    private static JacksonJsonProvider createJsonProvider() {
+        return new JacksonJsonProvider(new ObjectMapper()
+                .registerModule(new JavaTimeModule()),
+                new Annotations[]{Annotations.JAKARTA_XML_BIND});
+    }
 }
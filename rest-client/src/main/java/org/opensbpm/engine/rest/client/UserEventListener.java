@@ -0,0 +1,22 @@
+package org.opensbpm.engine.rest.client;
+
+import org.opensbpm.engine.rest.api.dto.instance.ProcessEvent;
+import org.opensbpm.engine.rest.api.dto.instance.TaskEvent;
+
+/**
+ * Receives the events of a {@link UserEventSubscription}.
+ */
+public interface UserEventListener {
+
+    void onTaskChanged(TaskEvent taskEvent);
+
+    default void onProcessChanged(ProcessEvent processEvent) {
+    }
+
+    /**
+     * Events were lost, e.g. while the connection was interrupted too long.
+     * The current tasks and processes must be retrieved again.
+     */
+    void onResync();
+
+}
@@ -0,0 +1,77 @@
+package org.opensbpm.engine.rest.client;
+
+import com.fasterxml.jackson.jakarta.rs.json.JacksonJsonProvider;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.InboundSseEvent;
+import jakarta.ws.rs.sse.SseEventSource;
+import org.opensbpm.engine.rest.api.dto.instance.ProcessEvent;
+import org.opensbpm.engine.rest.api.dto.instance.TaskEvent;
+
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.util.Objects.requireNonNull;
+import static org.opensbpm.engine.rest.api.EngineResource.EventResource.PROCESS_EVENT;
+import static org.opensbpm.engine.rest.api.EngineResource.EventResource.RESYNC_EVENT;
+import static org.opensbpm.engine.rest.api.EngineResource.EventResource.TASK_EVENT;
+
+/**
+ * Server-sent event stream of the task and process changes of a user. The
+ * stream reconnects automatically and resumes after the last received event.
+ */
+public class UserEventSubscription implements AutoCloseable {
+
+    private final static Logger LOGGER = Logger.getLogger(UserEventSubscription.class.getName());
+
+    private final Client client;
+    private final SseEventSource eventSource;
+    private final UserEventListener listener;
+
+    UserEventSubscription(String eventsAddress, JacksonJsonProvider jsonProvider, Supplier<String> authenticationToken, UserEventListener listener) {
+        requireNonNull(eventsAddress, "eventsAddress must not be null");
+        requireNonNull(authenticationToken, "authenticationToken must not be null");
+        this.listener = requireNonNull(listener, "listener must not be null");
+        client = ClientBuilder.newBuilder()
+                .register(jsonProvider)
+                //a reconnect may need a refreshed token
+                .register((ClientRequestFilter) requestContext
+                        -> requestContext.getHeaders().putSingle("Authorization", "Bearer " + authenticationToken.get()))
+                .build();
+        eventSource = SseEventSource.target(client.target(eventsAddress)).build();
+        eventSource.register(this::onEvent, this::onError);
+        eventSource.open();
+    }
+
+    private void onEvent(InboundSseEvent event) {
+        try {
+            if (TASK_EVENT.equals(event.getName())) {
+                listener.onTaskChanged(event.readData(TaskEvent.class, MediaType.APPLICATION_JSON_TYPE));
+            } else if (PROCESS_EVENT.equals(event.getName())) {
+                listener.onProcessChanged(event.readData(ProcessEvent.class, MediaType.APPLICATION_JSON_TYPE));
+            } else if (RESYNC_EVENT.equals(event.getName())) {
+                listener.onResync();
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "handling event " + event.getId() + " failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    private void onError(Throwable throwable) {
+        LOGGER.log(Level.WARNING, "event stream failed: " + throwable.getMessage(), throwable);
+    }
+
+    public boolean isOpen() {
+        return eventSource.isOpen();
+    }
+
+    @Override
+    public void close() {
+        eventSource.close();
+        client.close();
+    }
+
+}
@@ -31,6 +31,7 @@ import java.util.Map;
 import org.apache.cxf.jaxrs.openapi.OpenApiCustomizer;
 import org.apache.cxf.jaxrs.openapi.OpenApiFeature;
 import org.apache.cxf.jaxrs.provider.JAXBElementProvider;
+import org.apache.cxf.jaxrs.sse.SseFeature;
 import org.apache.cxf.jaxrs.swagger.ui.SwaggerUiConfig;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -60,7 +61,7 @@ public class CxfConfig {
                 new JacksonXmlBindJsonProvider()
         ));
 
-        factory.setFeatures(List.of(openApiFeature()));
+        factory.setFeatures(List.of(openApiFeature(), new SseFeature()));
 
 //        final HashMap<Object, Object> extensionMappings = new HashMap<>();
 //        extensionMappings.put("xml", MediaType.APPLICATION_XML);
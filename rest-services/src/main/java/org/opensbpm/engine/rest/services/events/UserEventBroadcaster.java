@@ -0,0 +1,338 @@
+/**
+ * ****************************************************************************
+ * Copyright (C) 2024 Stefan Sedelmaier
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.rest.services.events;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.opensbpm.engine.api.events.EngineEvent;
+import org.opensbpm.engine.api.events.UserProcessInstanceChangedEvent;
+import org.opensbpm.engine.api.events.UserTaskChangedEvent;
+import org.opensbpm.engine.core.EngineEventRouter;
+import org.opensbpm.engine.rest.api.dto.instance.ProcessEvent;
+import org.opensbpm.engine.rest.api.dto.instance.TaskEvent;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.opensbpm.engine.rest.api.EngineResource.EventResource.PROCESS_EVENT;
+import static org.opensbpm.engine.rest.api.EngineResource.EventResource.RESYNC_EVENT;
+import static org.opensbpm.engine.rest.api.EngineResource.EventResource.TASK_EVENT;
+
+/**
+ * Pushes the task and process changes of a user to all server-sent event
+ * streams the user subscribed. The events of a user are received from the
+ * {@link EngineEventRouter} as soon as the user subscribed the first time.
+ * <p>
+ * The last {@code opensbpm.rest.events.replay-size} events of every user with
+ * a subscription are kept, so a client reconnecting with the id of the last
+ * received event gets the events it missed. If these events aren't available
+ * anymore (or the server was restarted), a {@code resync} event is sent
+ * instead. Every {@code opensbpm.rest.events.heartbeat} a comment is sent to
+ * keep idle connections open and to detect closed ones.
+ * <p>
+ * A user without open streams keeps its events until the following
+ * heartbeat, then the channel and its router subscription are removed.
+ */
+@Component
+public class UserEventBroadcaster implements DisposableBean {
+
+    private static final Logger LOGGER = Logger.getLogger(UserEventBroadcaster.class.getName());
+
+    //ids of a restarted server don't match
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final EngineEventRouter router;
+    private final int replaySize;
+    private final ScheduledExecutorService heartbeats;
+
+    @Autowired
+    public UserEventBroadcaster(EngineEventRouter router,
+            @Value("${opensbpm.rest.events.heartbeat:PT15S}") Duration heartbeat,
+            @Value("${opensbpm.rest.events.replay-size:100}") int replaySize) {
+        this.router = Objects.requireNonNull(router, "router must not be null");
+        if (replaySize < 0) {
+            throw new IllegalArgumentException("replaySize must not be negative");
+        }
+        this.replaySize = replaySize;
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "UserEventHeartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleAtFixedRate(this::sendHeartbeats, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the sink for the events of the given user.
+     *
+     * @param userId id of the subscribing user
+     * @param eventSink sink of the server-sent event stream
+     * @param sse factory for events
+     * @param lastEventId id of the last event the client received; {@code null} for a new subscription
+     */
+    public void subscribe(Long userId, SseEventSink eventSink, Sse sse, String lastEventId) {
+        Objects.requireNonNull(userId, "userId must not be null");
+        Subscription subscription = new Subscription(eventSink, sse);
+        Long lastSequence = lastEventId == null ? null : parseSequence(lastEventId);
+        //a channel removed concurrently doesn't accept subscriptions anymore;
+        //events before a new channel weren't kept, so their ids can't be resumed
+        while (!channels.computeIfAbsent(userId, id -> new Channel(id, sequence.incrementAndGet()))
+                .subscribe(subscription, lastSequence)) {
+            Thread.onSpinWait();
+        }
+        LOGGER.log(Level.FINE, "user {0} subscribed events after {1}", new Object[]{userId, lastEventId});
+    }
+
+    private long parseSequence(String eventId) {
+        String prefix = epoch + "-";
+        if (eventId.startsWith(prefix)) {
+            try {
+                return Long.parseLong(eventId.substring(prefix.length()));
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.FINE, "invalid event id {0}", eventId);
+            }
+        }
+        return -1;
+    }
+
+    private Message toMessage(EngineEvent<?> engineEvent) {
+        if (engineEvent instanceof UserTaskChangedEvent) {
+            UserTaskChangedEvent event = (UserTaskChangedEvent) engineEvent;
+            return new Message(TASK_EVENT, TaskEvent.class, new TaskEvent(event.getType(), event.getSource()));
+        } else if (engineEvent instanceof UserProcessInstanceChangedEvent) {
+            UserProcessInstanceChangedEvent event = (UserProcessInstanceChangedEvent) engineEvent;
+            return new Message(PROCESS_EVENT, ProcessEvent.class, new ProcessEvent(event.getType(), event.getSource()));
+        } else {
+            //not pushed to clients
+            return null;
+        }
+    }
+
+    void sendHeartbeats() {
+        channels.values().forEach(Channel::sendHeartbeat);
+    }
+
+    /**
+     * @return number of users with a channel
+     */
+    int getChannelCount() {
+        return channels.size();
+    }
+
+    /**
+     * @return number of open subscriptions of all users
+     */
+    public int getSubscriptionCount() {
+        return channels.values().stream()
+                .mapToInt(Channel::getSubscriptionCount)
+                .sum();
+    }
+
+    @Override
+    public void destroy() {
+        heartbeats.shutdownNow();
+        channels.values().forEach(Channel::close);
+        channels.clear();
+    }
+
+    private String toEventId(long eventSequence) {
+        return epoch + "-" + eventSequence;
+    }
+
+    /**
+     * Events and subscriptions of one user.
+     */
+    private class Channel {
+
+        private final Deque<Message> messages = new ArrayDeque<>();
+        private final List<Subscription> subscriptions = new ArrayList<>();
+        private final Long userId;
+        private final EngineEventRouter.Subscription routerSubscription;
+        //events up to this sequence can't be replayed
+        private long trimmedSequence;
+        //no subscriptions since the last heartbeat
+        private boolean idle;
+        private boolean closed;
+
+        private Channel(Long userId, long trimmedSequence) {
+            this.userId = userId;
+            this.trimmedSequence = trimmedSequence;
+            this.routerSubscription = router.subscribeUser(userId, this::handle);
+        }
+
+        private void handle(EngineEvent<?> engineEvent) {
+            Message message = toMessage(engineEvent);
+            if (message != null) {
+                publish(message);
+            }
+        }
+
+        /**
+         * @return {@code false} if the channel is already closed
+         */
+        private synchronized boolean subscribe(Subscription subscription, Long lastSequence) {
+            if (closed) {
+                return false;
+            }
+            if (lastSequence != null) {
+                if (lastSequence < trimmedSequence) {
+                    subscription.send(createResyncEvent(subscription.sse));
+                } else {
+                    messages.stream()
+                            .filter(message -> message.sequence > lastSequence)
+                            .forEach(message -> subscription.send(message.toEvent(subscription.sse)));
+                }
+            }
+            subscriptions.add(subscription);
+            idle = false;
+            return true;
+        }
+
+        private synchronized void publish(Message message) {
+            message.sequence = sequence.incrementAndGet();
+            messages.addLast(message);
+            while (messages.size() > replaySize) {
+                trimmedSequence = messages.removeFirst().sequence;
+            }
+            subscriptions.removeIf(subscription -> !subscription.send(message.toEvent(subscription.sse)));
+        }
+
+        private synchronized void sendHeartbeat() {
+            subscriptions.removeIf(subscription
+                    -> !subscription.send(subscription.sse.newEventBuilder().comment("heartbeat").build()));
+            if (!subscriptions.isEmpty()) {
+                idle = false;
+            } else if (idle) {
+                close();
+                channels.remove(userId, this);
+                LOGGER.log(Level.FINE, "removed channel of user {0}", userId);
+            } else {
+                //keeps the events for a reconnect until the next heartbeat
+                idle = true;
+            }
+        }
+
+        private OutboundSseEvent createResyncEvent(Sse sse) {
+            long lastSequence = messages.isEmpty() ? trimmedSequence : messages.getLast().sequence;
+            return sse.newEventBuilder()
+                    .id(toEventId(lastSequence))
+                    .name(RESYNC_EVENT)
+                    .data(String.class, RESYNC_EVENT)
+                    .build();
+        }
+
+        private synchronized int getSubscriptionCount() {
+            return subscriptions.size();
+        }
+
+        private synchronized void close() {
+            closed = true;
+            routerSubscription.close();
+            subscriptions.forEach(Subscription::close);
+            subscriptions.clear();
+        }
+
+    }
+
+    private class Message {
+
+        private final String name;
+        private final Class<?> type;
+        private final Object data;
+        private long sequence;
+
+        private Message(String name, Class<?> type, Object data) {
+            this.name = name;
+            this.type = type;
+            this.data = data;
+        }
+
+        private OutboundSseEvent toEvent(Sse sse) {
+            return sse.newEventBuilder()
+                    .id(toEventId(sequence))
+                    .name(name)
+                    .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                    .data(type, data)
+                    .build();
+        }
+
+    }
+
+    private static class Subscription {
+
+        private final SseEventSink eventSink;
+        private final Sse sse;
+
+        private Subscription(SseEventSink eventSink, Sse sse) {
+            this.eventSink = Objects.requireNonNull(eventSink, "eventSink must not be null");
+            this.sse = Objects.requireNonNull(sse, "sse must not be null");
+        }
+
+        /**
+         * @return {@code false} if the stream is closed
+         */
+        private boolean send(OutboundSseEvent event) {
+            if (eventSink.isClosed()) {
+                return false;
+            }
+            try {
+                eventSink.send(event).whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        LOGGER.log(Level.FINE, "sending event failed: " + ex.getMessage(), ex);
+                        close();
+                    }
+                });
+                return true;
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.FINE, "sending event failed: " + ex.getMessage(), ex);
+                close();
+                return false;
+            }
+        }
+
+        private void close() {
+            try {
+                eventSink.close();
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.FINE, "closing event sink failed: " + ex.getMessage(), ex);
+            }
+        }
+
+    }
+
+}
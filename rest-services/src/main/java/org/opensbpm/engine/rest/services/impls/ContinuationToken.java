@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (C) 2024 Stefan Sedelmaier
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.opensbpm.engine.rest.services.impls;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+/**
+ * Opaque continuation token of a keyset position, e.g. of the last element of
+ * a {@link Window}. The keys are encoded as {@code name=<type><value>} pairs
+ * separated by {@code &} and the whole token is url-safe Base64.
+ */
+final class ContinuationToken {
+
+    private static final char LONG = 'L';
+    private static final char INTEGER = 'I';
+    private static final char DATE_TIME = 'T';
+
+    /**
+     * @param window the current window
+     * @return token of the window following the given one; {@code null} if it's the last window
+     */
+    public static String of(Window<?> window) {
+        if (window.isEmpty() || !window.hasNext()) {
+            return null;
+        }
+        ScrollPosition position = window.positionAt(window.size() - 1);
+        if (!(position instanceof KeysetScrollPosition keysetPosition)) {
+            throw new IllegalArgumentException("position " + position + " not a keyset position");
+        }
+        String token = keysetPosition.getKeys().entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + encode(entry.getValue()))
+                .collect(Collectors.joining("&"));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String encode(Object value) {
+        if (value instanceof Long) {
+            return LONG + value.toString();
+        } else if (value instanceof Integer) {
+            return INTEGER + value.toString();
+        } else if (value instanceof LocalDateTime) {
+            return DATE_TIME + value.toString();
+        } else {
+            throw new IllegalArgumentException("key value " + value + " not supported");
+        }
+    }
+
+    /**
+     * @param token continuation token of a window, may be {@code null}
+     * @return position of the given token; the initial position if the token is {@code null} or empty
+     * @throws IllegalArgumentException if the token is invalid
+     */
+    public static ScrollPosition toPosition(String token) {
+        if (token == null || token.isEmpty()) {
+            return ScrollPosition.keyset();
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (String pair : new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator < 1 || separator == pair.length() - 1) {
+                throw new IllegalArgumentException("continuation token " + token + " invalid");
+            }
+            keys.put(pair.substring(0, separator), decode(pair.charAt(separator + 1), pair.substring(separator + 2)));
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    private static Object decode(char type, String value) {
+        try {
+            switch (type) {
+                case LONG:
+                    return Long.valueOf(value);
+                case INTEGER:
+                    return Integer.valueOf(value);
+                case DATE_TIME:
+                    return LocalDateTime.parse(value);
+                default:
+                    throw new IllegalArgumentException("key type " + type + " not supported");
+            }
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("key value " + value + " invalid", ex);
+        }
+    }
+
+    private ContinuationToken() {
+    }
+
+}
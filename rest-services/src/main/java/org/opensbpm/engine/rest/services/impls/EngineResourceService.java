@@ -18,9 +18,12 @@
  */
 package org.opensbpm.engine.rest.services.impls;
 
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.ClientErrorException;
 import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 import org.opensbpm.engine.api.*;
 import org.opensbpm.engine.api.ModelService.ModelRequest;
 import org.opensbpm.engine.api.instance.ProcessInfo;
@@ -44,6 +47,8 @@ import org.opensbpm.engine.rest.api.dto.instance.Processes;
 import org.opensbpm.engine.rest.api.dto.instance.Tasks;
 import org.opensbpm.engine.rest.api.dto.model.ProcessModels;
 import org.opensbpm.engine.rest.services.authentication.SpringAuthentication;
+import org.opensbpm.engine.rest.services.events.UserEventBroadcaster;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -55,10 +60,12 @@ public class EngineResourceService implements EngineResource {
 
     private final EngineService engineService;
     private final UserTokenService userTokenService;
+    private final UserEventBroadcaster userEventBroadcaster;
 
-    public EngineResourceService(EngineService engineService, UserTokenService userTokenService) {
+    public EngineResourceService(EngineService engineService, UserTokenService userTokenService, UserEventBroadcaster userEventBroadcaster) {
         this.engineService = Objects.requireNonNull(engineService, "EngineService must not be null");
         this.userTokenService = Objects.requireNonNull(userTokenService, "UserTokenService must not be null");
+        this.userEventBroadcaster = Objects.requireNonNull(userEventBroadcaster, "UserEventBroadcaster must not be null");
     }
 
     @Override
@@ -79,6 +86,12 @@ public class EngineResourceService implements EngineResource {
         return new TaskResourceService(userToken);
     }
 
+    @Override
+    public EventResource getEventResource(Long userId) {
+        UserToken userToken = validateUser(userId);
+        return new EventResourceService(userToken);
+    }
+
     private UserToken validateUser(Long userId) {
         UserToken userToken = retrieveToken(SecurityContextHolder.getContext().getAuthentication());
         if (userId.compareTo(userToken.getId()) != 0) {
@@ -152,6 +165,17 @@ public class EngineResourceService implements EngineResource {
             }
         }
 
+        @Override
+        public Processes search(SearchFilter searchFilter, int page, int size) {
+            try {
+                return new Processes(engineService.findProcesses(userToken, searchFilter, PageRequest.of(page, PageSize.limit(size))));
+            } catch (UserNotFoundException ex) {
+                throw new NotFoundException(ex.getMessage(), ex);
+            } catch (IllegalArgumentException ex) {
+                throw new BadRequestException(ex.getMessage(), ex);
+            }
+        }
+
         @Override
         public ProcessInfo retrieve(Long instanceId) {
             try {
@@ -187,6 +211,17 @@ public class EngineResourceService implements EngineResource {
             }
         }
 
+        @Override
+        public Tasks search(SearchFilter searchFilter, int page, int size) {
+            try {
+                return new Tasks(engineService.findTasks(userToken, searchFilter, PageRequest.of(page, PageSize.limit(size))));
+            } catch (UserNotFoundException ex) {
+                throw new NotFoundException(ex.getMessage(), ex);
+            } catch (IllegalArgumentException ex) {
+                throw new BadRequestException(ex.getMessage(), ex);
+            }
+        }
+
         @Override
         public TaskResponse retrieve(Long taskId) {
             try {
@@ -218,4 +253,19 @@ public class EngineResourceService implements EngineResource {
 
     }
 
+    public class EventResourceService implements EventResource {
+
+        private final UserToken userToken;
+
+        public EventResourceService(UserToken userToken) {
+            this.userToken = userToken;
+        }
+
+        @Override
+        public void subscribe(SseEventSink eventSink, Sse sse, String lastEventId) {
+            userEventBroadcaster.subscribe(userToken.getId(), eventSink, sse, lastEventId);
+        }
+
+    }
+
 }
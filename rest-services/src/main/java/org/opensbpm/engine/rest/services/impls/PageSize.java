@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (C) 2024 Stefan Sedelmaier
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.opensbpm.engine.rest.services.impls;
+
+/**
+ * Limits the size of a requested page or window, so a single request can't
+ * load a whole table.
+ */
+final class PageSize {
+
+    public static final int MAX = 500;
+
+    /**
+     * @param size requested size
+     * @return the given size, at most {@link #MAX}
+     */
+    public static int limit(int size) {
+        return Math.min(size, MAX);
+    }
+
+    private PageSize() {
+    }
+
+}
@@ -16,19 +16,26 @@
  ******************************************************************************/
 package org.opensbpm.engine.rest.services.impls;
 
-import org.opensbpm.engine.api.instance.ProcessInstanceState;
 import org.opensbpm.engine.api.SearchFilter;
 import org.opensbpm.engine.api.ProcessNotFoundException;
 import org.opensbpm.engine.api.InstanceService.ProcessRequest;
+import org.opensbpm.engine.api.instance.AuditTrail;
 import org.opensbpm.engine.api.instance.ProcessInfo;
+import org.opensbpm.engine.api.instance.ProcessInstanceState;
 import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.logging.Logger;
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
 import org.opensbpm.engine.rest.api.ProcessInstanceResource;
 import org.opensbpm.engine.rest.api.dto.instance.Audits;
 import org.opensbpm.engine.rest.api.dto.instance.Processes;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Component;
 import org.opensbpm.engine.api.InstanceService;
 
@@ -45,22 +52,22 @@ public class ProcessInstanceResourceService implements ProcessInstanceResource {
     }
 
     @Override
-    public Processes search(SearchFilter searchFilter) {
-//        SearchSpecificationBuilder<ProcessInstance> searchSpecificationBuilder = new SearchSpecificationBuilder<ProcessInstance>(searchFilter) {
-//            @Override
-//            protected Specification<ProcessInstance> createSpecification(Criteria criteria) {
-//                if ("state".equals(criteria.getKey())) {
-//                    return ProcessInstanceSpecifications.withStates(
-//                            Collections.singleton(ProcessInstanceState.valueOf(criteria.getValue().toString()))
-//                    );
-//                }
-//                return super.createSpecification(criteria);
-//            }
-//        };
-//        return processInstanceController.findAll(searchSpecificationBuilder.build()).stream()
-//                .map(processInstance -> createProcessInfo(processInstance))
-//                .collect(Collectors.toList());
-        return new Processes(new ArrayList<>(instanceService.findAllByStates(EnumSet.allOf(ProcessInstanceState.class))));
+    public Processes search(SearchFilter searchFilter, int page, int size) {
+        try {
+            return new Processes(instanceService.find(searchFilter, PageRequest.of(page, PageSize.limit(size))));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public Processes scroll(Set<ProcessInstanceState> states, String next, int size) {
+        Set<ProcessInstanceState> searchStates = states == null || states.isEmpty()
+                ? EnumSet.allOf(ProcessInstanceState.class)
+                : states;
+        ScrollPosition position = toPosition(next, size);
+        Window<ProcessInfo> window = instanceService.findAllByStates(searchStates, position, PageSize.limit(size));
+        return new Processes(window.getContent(), ContinuationToken.of(window));
     }
 
     @Override
@@ -76,12 +83,42 @@ public class ProcessInstanceResourceService implements ProcessInstanceResource {
     @Override
     public Audits retrieveAudit(Long id) {
         try {
-            return new Audits(instanceService.getAuditTrail(ProcessRequest.of(id)));
+            ProcessRequest processRequest = ProcessRequest.of(id);
+            List<AuditTrail> auditTrails = new ArrayList<>();
+            Window<AuditTrail> window = instanceService.getAuditTrail(processRequest, ScrollPosition.keyset(), PageSize.MAX);
+            auditTrails.addAll(window.getContent());
+            while (window.hasNext()) {
+                window = instanceService.getAuditTrail(processRequest, window.positionAt(window.size() - 1), PageSize.MAX);
+                auditTrails.addAll(window.getContent());
+            }
+            return new Audits(auditTrails);
         } catch (ProcessNotFoundException ex) {
             throw new NotFoundException(ex.getMessage(), ex);
         }
     }
 
+    @Override
+    public Audits scrollAudit(Long id, String next, int size) {
+        ScrollPosition position = toPosition(next, size);
+        try {
+            Window<AuditTrail> window = instanceService.getAuditTrail(ProcessRequest.of(id), position, PageSize.limit(size));
+            return new Audits(window.getContent(), ContinuationToken.of(window));
+        } catch (ProcessNotFoundException ex) {
+            throw new NotFoundException(ex.getMessage(), ex);
+        }
+    }
+
+    private static ScrollPosition toPosition(String next, int size) {
+        if (size < 1) {
+            throw new BadRequestException("size " + size + " must be positive");
+        }
+        try {
+            return ContinuationToken.toPosition(next);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(ex.getMessage(), ex);
+        }
+    }
+
     @Override
     public ProcessInfo stop(Long id) {
         try {
@@ -0,0 +1,233 @@
+/**
+ * ****************************************************************************
+ * Copyright (C) 2024 Stefan Sedelmaier
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ****************************************************************************
+ */
+package org.opensbpm.engine.rest.services.events;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseBroadcaster;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.apache.cxf.jaxrs.sse.OutboundSseEventImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opensbpm.engine.api.events.EngineEvent.Type;
+import org.opensbpm.engine.api.events.UserTaskChangedEvent;
+import org.opensbpm.engine.api.instance.TaskInfo;
+import org.opensbpm.engine.core.EngineEventRouter;
+import org.opensbpm.engine.rest.api.dto.instance.TaskEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.opensbpm.engine.rest.api.EngineResource.EventResource.RESYNC_EVENT;
+import static org.opensbpm.engine.rest.api.EngineResource.EventResource.TASK_EVENT;
+
+public class UserEventBroadcasterTest {
+
+    private final Sse sse = new Sse() {
+        @Override
+        public OutboundSseEvent.Builder newEventBuilder() {
+            return new OutboundSseEventImpl.BuilderImpl();
+        }
+
+        @Override
+        public SseBroadcaster newBroadcaster() {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private EngineEventRouter router;
+    private MeterRegistry meterRegistry;
+    private UserEventBroadcaster broadcaster;
+
+    @BeforeEach
+    public void setUp() {
+        router = new EngineEventRouter();
+        meterRegistry = new SimpleMeterRegistry();
+        router.bindTo(meterRegistry);
+        broadcaster = new UserEventBroadcaster(router, Duration.ofHours(1), 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        broadcaster.destroy();
+    }
+
+    @Test
+    public void testPushToSubscribedUser() {
+        //given
+        EventSink user1 = new EventSink();
+        EventSink user2 = new EventSink();
+        broadcaster.subscribe(1l, user1, sse, null);
+        broadcaster.subscribe(2l, user2, sse, null);
+
+        //when
+        router.route(createEvent(1l, 10l));
+
+        //then
+        assertThat(user1.getTaskIds(), contains(10l));
+        assertThat(user2.events.size(), is(0));
+    }
+
+    @Test
+    public void testUnsubscribeRouterOnDestroy() {
+        //given
+        broadcaster.subscribe(1l, new EventSink(), sse, null);
+        assertThat(getUserSubscriptionCount(), is(1.0));
+
+        //when
+        broadcaster.destroy();
+
+        //then
+        assertThat(getUserSubscriptionCount(), is(0.0));
+    }
+
+    @Test
+    public void testRemoveChannelWithoutSubscriptions() {
+        //given
+        EventSink sink = new EventSink();
+        broadcaster.subscribe(1l, sink, sse, null);
+        sink.close();
+
+        //when
+        broadcaster.sendHeartbeats();
+        int channelsAfterFirstHeartbeat = broadcaster.getChannelCount();
+        broadcaster.sendHeartbeats();
+
+        //then
+        assertThat(channelsAfterFirstHeartbeat, is(1));
+        assertThat(broadcaster.getChannelCount(), is(0));
+        assertThat(getUserSubscriptionCount(), is(0.0));
+    }
+
+    @Test
+    public void testSubscribeAfterChannelRemoved() {
+        //given
+        EventSink first = new EventSink();
+        broadcaster.subscribe(1l, first, sse, null);
+        router.route(createEvent(1l, 10l));
+        first.close();
+        broadcaster.sendHeartbeats();
+        broadcaster.sendHeartbeats();
+
+        //when
+        EventSink resumed = new EventSink();
+        broadcaster.subscribe(1l, resumed, sse, first.events.get(0).getId());
+        router.route(createEvent(1l, 11l));
+
+        //then
+        assertThat(resumed.getNames(), contains(RESYNC_EVENT, TASK_EVENT));
+        assertThat(getUserSubscriptionCount(), is(1.0));
+    }
+
+    @Test
+    public void testResumeAfterLastEventId() {
+        //given
+        EventSink first = new EventSink();
+        broadcaster.subscribe(1l, first, sse, null);
+        router.route(createEvent(1l, 10l));
+        first.close();
+        router.route(createEvent(1l, 11l));
+
+        //when
+        EventSink resumed = new EventSink();
+        broadcaster.subscribe(1l, resumed, sse, first.events.get(0).getId());
+
+        //then
+        assertThat(resumed.getTaskIds(), contains(11l));
+        assertThat(broadcaster.getSubscriptionCount(), is(1));
+    }
+
+    @Test
+    public void testResyncIfEventsAreLost() {
+        //given
+        EventSink first = new EventSink();
+        broadcaster.subscribe(1l, first, sse, null);
+        router.route(createEvent(1l, 10l));
+        first.close();
+        for (long taskId = 11; taskId < 15; taskId++) {
+            router.route(createEvent(1l, taskId));
+        }
+
+        //when
+        EventSink resumed = new EventSink();
+        broadcaster.subscribe(1l, resumed, sse, first.events.get(0).getId());
+        EventSink restarted = new EventSink();
+        broadcaster.subscribe(1l, restarted, sse, "unknown-1");
+
+        //then
+        assertThat(resumed.getNames(), contains(RESYNC_EVENT));
+        assertThat(restarted.getNames(), contains(RESYNC_EVENT));
+    }
+
+    private double getUserSubscriptionCount() {
+        return meterRegistry.get("opensbpm.engine.events.router.subscriptions").tag("addressee", "user").gauge().value();
+    }
+
+    private static UserTaskChangedEvent createEvent(Long userId, Long taskId) {
+        return new UserTaskChangedEvent(userId, new TaskInfo(taskId, 1l, "Process", "State", LocalDateTime.now()), Type.CREATE);
+    }
+
+    private static class EventSink implements SseEventSink {
+
+        private final List<OutboundSseEvent> events = new ArrayList<>();
+        private boolean closed;
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public CompletionStage<?> send(OutboundSseEvent event) {
+            events.add(event);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private List<String> getNames() {
+            return events.stream()
+                    .map(OutboundSseEvent::getName)
+                    .collect(Collectors.toList());
+        }
+
+        private List<Long> getTaskIds() {
+            return events.stream()
+                    .filter(event -> TASK_EVENT.equals(event.getName()))
+                    .map(event -> ((TaskEvent) event.getData()).getTaskInfo().getId())
+                    .collect(Collectors.toList());
+        }
+
+    }
+
+}
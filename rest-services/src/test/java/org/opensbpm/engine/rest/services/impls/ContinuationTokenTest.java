@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (C) 2024 Stefan Sedelmaier
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.opensbpm.engine.rest.services.impls;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ContinuationTokenTest {
+
+    @Test
+    void tokenOfWindowIsPositionOfLastElement() {
+        //given
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("startTime", LocalDateTime.of(2024, 2, 29, 13, 14, 15, 123_000_000));
+        keys.put("id", 42L);
+        Window<String> window = Window.from(List.of("first", "last"),
+                index -> ScrollPosition.forward(index == 1 ? keys : Map.of("id", 1L)), true);
+
+        //when
+        String token = ContinuationToken.of(window);
+
+        //then
+        KeysetScrollPosition position = (KeysetScrollPosition) ContinuationToken.toPosition(token);
+        assertThat(position.getKeys(), is(keys));
+        assertThat(position.scrollsForward(), is(true));
+    }
+
+    @Test
+    void lastWindowHasNoToken() {
+        Window<String> window = Window.from(List.of("last"), index -> ScrollPosition.forward(Map.of("id", 1L)), false);
+
+        assertThat(ContinuationToken.of(window), is(nullValue()));
+    }
+
+    @Test
+    void missingTokenIsInitialPosition() {
+        assertThat(ContinuationToken.toPosition(null).isInitial(), is(true));
+        assertThat(ContinuationToken.toPosition("").isInitial(), is(true));
+    }
+
+    @Test
+    void invalidTokenIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ContinuationToken.toPosition("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> ContinuationToken.toPosition("aWQ9WDE"));
+        assertThrows(IllegalArgumentException.class, () -> ContinuationToken.toPosition("aWQ9TGFiYw"));
+    }
+
+}
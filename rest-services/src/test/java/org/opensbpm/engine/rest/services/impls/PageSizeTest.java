@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (C) 2024 Stefan Sedelmaier
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.opensbpm.engine.rest.services.impls;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class PageSizeTest {
+
+    @Test
+    void sizeIsLimited() {
+        assertThat(PageSize.limit(50), is(50));
+        assertThat(PageSize.limit(PageSize.MAX), is(PageSize.MAX));
+        assertThat(PageSize.limit(Integer.MAX_VALUE), is(PageSize.MAX));
+    }
+
+}
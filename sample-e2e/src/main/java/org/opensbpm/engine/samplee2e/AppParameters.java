@@ -35,6 +35,8 @@ public class AppParameters {
 
     private int startProcesses;
 
+    private boolean push;
+
     public String getUrl() {
         return url;
     }
@@ -87,6 +89,17 @@ public class AppParameters {
         this.startProcesses = startProcesses;
     }
 
+    /**
+     * @return {@code true} if tasks are pushed by the engine instead of polled
+     */
+    public boolean isPush() {
+        return push;
+    }
+
+    public void setPush(boolean push) {
+        this.push = push;
+    }
+
     public EngineServiceClient createEngineServiceClient() {
         return createEngineServiceClient(Credentials.of(username, password.toCharArray()));
     }
@@ -1,9 +1,13 @@
 package org.opensbpm.engine.samplee2e.client;
 
+import org.opensbpm.engine.api.events.EngineEvent.Type;
 import org.opensbpm.engine.api.instance.*;
 import org.opensbpm.engine.api.model.ProcessModelInfo;
 import org.opensbpm.engine.rest.client.EngineServiceClient;
 import org.opensbpm.engine.rest.api.dto.instance.Audits;
+import org.opensbpm.engine.rest.api.dto.instance.TaskEvent;
+import org.opensbpm.engine.rest.client.UserEventListener;
+import org.opensbpm.engine.rest.client.UserEventSubscription;
 import org.opensbpm.engine.samplee2e.AppParameters;
 
 import java.util.*;
@@ -26,6 +30,7 @@ public class UserBot {
     private final ScheduledExecutorService tasksFetcher;
 
     private ScheduledExecutorService processStarter;
+    private UserEventSubscription taskSubscription;
     //
     private List<TaskInfo> startedProcesses = Collections.emptyList();
     private Collection<ProcessInfo> processInfos;
@@ -81,41 +86,63 @@ public class UserBot {
 
     public void startTaskFetcher() {
         LOGGER.info("User[" + getUserToken().getName() + "] start tasks-fetcher");
-        tasksFetcher.scheduleWithFixedDelay(new Runnable() {
+        tasksFetcher.scheduleWithFixedDelay(this::fetchTasks, 1, 500, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes the tasks pushed by the engine instead of polling them.
+     */
+    public void startTaskSubscription() {
+        LOGGER.info("User[" + getUserToken().getName() + "] start tasks-subscription");
+        taskSubscription = engineServiceClient.subscribeUserEvents(new UserEventListener() {
             @Override
-            public void run() {
-                try {
-                    LOGGER.info("User[" + getUserToken().getName() + "] fetching tasks");
-
-                    getTaskInfos().stream()
-                            .filter(taskInfo -> processedTasks.add(taskInfo))
-                            .forEach(taskInfo -> {
-                                try {
-                                    taskExecutorService.submit(() -> {
-                                        new TaskExecutor(getUserToken(), engineServiceClient).execute(taskInfo);
-                                        processedTasks.remove(taskInfo);
-                                    });
-                                } catch (RejectedExecutionException e) {
-                                    LOGGER.warning("User[" + getUserToken().getName() + "] task-fetcher " + e.getMessage());
-                                }
-                            });
-//                }
-                } catch (Throwable ex) {
-                    //TODO handle uncaught exceptions correctly
-                    LOGGER.log(Level.SEVERE, "User[" + getUserToken().getName() + "] : " + ex.getMessage(), ex);
+            public void onTaskChanged(TaskEvent taskEvent) {
+                if (Type.CREATE == taskEvent.getType()) {
+                    executeTask(taskEvent.getTaskInfo());
                 }
             }
 
-            private List<TaskInfo> getTaskInfos() {
-                return engineServiceClient.onEngineTaskResource(taskResource -> taskResource.index().getTaskInfos());
+            @Override
+            public void onResync() {
+                fetchTasks();
             }
+        });
+        //tasks created before the subscription
+        fetchTasks();
+    }
+
+    private void fetchTasks() {
+        try {
+            LOGGER.info("User[" + getUserToken().getName() + "] fetching tasks");
+
+            engineServiceClient.onEngineTaskResource(taskResource -> taskResource.index().getTaskInfos())
+                    .forEach(this::executeTask);
+        } catch (Throwable ex) {
+            //TODO handle uncaught exceptions correctly
+            LOGGER.log(Level.SEVERE, "User[" + getUserToken().getName() + "] : " + ex.getMessage(), ex);
+        }
+    }
 
-        }, 1, 500, TimeUnit.MILLISECONDS);
+    private void executeTask(TaskInfo taskInfo) {
+        if (!processedTasks.add(taskInfo)) {
+            return;
+        }
+        try {
+            taskExecutorService.submit(() -> {
+                new TaskExecutor(getUserToken(), engineServiceClient).execute(taskInfo);
+                processedTasks.remove(taskInfo);
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning("User[" + getUserToken().getName() + "] task-fetcher " + e.getMessage());
+        }
     }
 
     public void stopTaskFetcher() {
         LOGGER.info("User[" + getUserToken().getName() + "] stopping tasks-fetcher");
         tasksFetcher.shutdown();
+        if (taskSubscription != null) {
+            taskSubscription.close();
+        }
         taskExecutorService.shutdown();
     }
 
@@ -47,7 +47,11 @@ public class StarterWorkflowOrchestrator implements WorkflowOrchestrator {
         ExecutorService executorService = Executors.newSingleThreadExecutor();
         executorService.submit(() -> userBot.startProcesses(appParameters));
         executorService.shutdown();
-        userBot.startTaskFetcher();
+        if (appParameters.isPush()) {
+            userBot.startTaskSubscription();
+        } else {
+            userBot.startTaskFetcher();
+        }
 
         waitFinished();
 
@@ -1,5 +1,6 @@
 package org.opensbpm.engine.samplee2e.user;
 
+import org.opensbpm.engine.samplee2e.AppParameters;
 import org.opensbpm.engine.samplee2e.WorkflowOrchestrator;
 import org.opensbpm.engine.samplee2e.client.UserBot;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -13,14 +14,20 @@ import java.util.logging.Logger;
 public class UserWorkflowOrchestrator implements WorkflowOrchestrator {
     private static final Logger LOGGER = Logger.getLogger(UserWorkflowOrchestrator.class.getName());
 
+    private final AppParameters appParameters;
     private final UserBot userBot;
 
-    public UserWorkflowOrchestrator(UserBot userBot) {
+    public UserWorkflowOrchestrator(AppParameters appParameters, UserBot userBot) {
+        this.appParameters = appParameters;
         this.userBot = userBot;
     }
 
     public void execute(ConfigurableApplicationContext context) {
-        userBot.startTaskFetcher();
+        if (appParameters.isPush()) {
+            userBot.startTaskSubscription();
+        } else {
+            userBot.startTaskFetcher();
+        }
     }
 
 }